@@ -162,4 +162,17 @@ public class AllLibraryVersion {
         }
     }
 
+    public static class AUTO implements LibraryVersion {
+
+        @Override
+        public String getVersionString() {
+            return "dispatch";
+        }
+
+        @Override
+        public String getReleaseDate() {
+            return "";
+        }
+    }
+
 }
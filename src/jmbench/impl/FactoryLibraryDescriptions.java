@@ -21,6 +21,7 @@ package jmbench.impl;
 
 import jmbench.impl.configure.*;
 import jmbench.impl.runtime.*;
+import jmbench.tools.runtime.autotune.AutoTuneAlgorithmFactory;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -54,6 +55,7 @@ public class FactoryLibraryDescriptions {
 
     public static LibraryDescription find( String name ) {
         List<LibraryDescription> list = createDefault();
+        list.add(createAutoTune());
 
         for( LibraryDescription l : list ) {
             if( l.location.getPlotName().compareTo(name) == 0  )
@@ -64,6 +66,7 @@ public class FactoryLibraryDescriptions {
 
     public static void printAllNames() {
         List<LibraryDescription> list = createDefault();
+        list.add(createAutoTune());
 
         for( LibraryDescription l : list ) {
             System.out.println(l.location.getPlotName());
@@ -212,4 +215,19 @@ public class FactoryLibraryDescriptions {
 
         return ret;
     }
+
+    /**
+     * Picks the fastest library for each operation and matrix size.  Not part of the default list since it
+     * requires a dispatch table, see {@link AutoTuneAlgorithmFactory}.
+     */
+    public static LibraryDescription createAutoTune() {
+        LibraryDescription ret = new LibraryDescription();
+
+        ret.configure = (Class)DoNothingSpecialConfigure.class;
+        ret.factoryRuntime = (Class)AutoTuneAlgorithmFactory.class;
+        ret.location = LibraryLocation.AUTO;
+        ret.version = (Class)AllLibraryVersion.AUTO.class;
+
+        return ret;
+    }
 }
@@ -46,6 +46,8 @@ public class LibraryLocation implements Serializable {
     public static final LibraryLocation UJMP = new LibraryLocation("UJMP","ujmp","ujmp", false, 10);
     public static final LibraryLocation UJMP_NATIVE = new LibraryLocation("UJMP-N","ujmp","ujmp-native", true, 11);
     public static final LibraryLocation LA4J = new LibraryLocation("la4j","la4j","la4j", false,12);
+    // dispatches to other libraries, so it needs all of their jars
+    public static final LibraryLocation AUTO = new LibraryLocation("Auto","","auto", false,13);
 
     public String plotName;
     // directory that it loads its libraries from
@@ -84,6 +86,16 @@ public class LibraryLocation implements Serializable {
         if( files == null)
             return null;
 
+        // no library directory means the jars from every library are needed
+        if( libraryDirName.length() == 0 ) {
+            for( File f : files ) {
+                if( !f.isDirectory() ) continue;
+                LibraryLocation l = new LibraryLocation();
+                l.libraryDirName = f.getName();
+                jarNames.addAll(l.listOfJarFilePaths());
+            }
+        }
+
         for( File f : files ) {
             if( !f.isFile() ) continue;
 
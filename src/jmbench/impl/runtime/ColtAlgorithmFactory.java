@@ -25,7 +25,10 @@ import cern.colt.matrix.impl.DenseDoubleMatrix2D;
 import cern.colt.matrix.linalg.*;
 import jmbench.impl.wrapper.ColtBenchmarkMatrix;
 import jmbench.impl.wrapper.EjmlBenchmarkMatrix;
+import jmbench.interfaces.AllocatingPerformanceFactory;
+import jmbench.interfaces.ArrayConversionFactory;
 import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
 import jmbench.interfaces.DetectedException;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
@@ -37,7 +40,7 @@ import org.ejml.ops.SpecializedOps;
 /**
  * @author Peter Abeles
  */
-public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
+public class ColtAlgorithmFactory implements RuntimePerformanceFactory, AllocatingPerformanceFactory, ArrayConversionFactory {
 
     @Override
     public BenchmarkMatrix create(int numRows, int numCols) {
@@ -72,6 +75,7 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
                 }
 
                 L = chol.getL();
+                Blackhole.consume(L);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -111,6 +115,9 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
 
                 if( !lu.isNonsingular() )
                     throw new DetectedException("Singular matrix");
+                Blackhole.consume(L);
+                Blackhole.consume(U);
+                Blackhole.consume(pivot);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -144,6 +151,9 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
                 U = s.getU();
                 S = s.getS();
                 V = s.getV();
+                Blackhole.consume(U);
+                Blackhole.consume(S);
+                Blackhole.consume(V);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -176,6 +186,8 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
 
                 D = eig.getD();
                 V = eig.getV();
+                Blackhole.consume(D);
+                Blackhole.consume(V);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -207,6 +219,8 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
 
                 Q = qr.getQ();
                 R = qr.getR();
+                Blackhole.consume(Q);
+                Blackhole.consume(R);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -233,7 +247,7 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
             long prev = System.nanoTime();
 
             for( long i = 0; i < numTrials; i++ ) {
-                alg.det(matA);
+                Blackhole.consume(alg.det(matA));
             }
 
             return System.nanoTime()-prev;
@@ -258,6 +272,7 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = alg.inverse(matA);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -288,6 +303,7 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
                 CholeskyDecomposition chol = new CholeskyDecomposition(matA);
 
                 result = chol.solve(DoubleFactory2D.dense.identity(matA.rows()));
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -303,6 +319,32 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
         return new Add();
     }
 
+    public static class AddAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseDoubleMatrix2D matA = inputs[0].getOriginal();
+            DenseDoubleMatrix2D matB = inputs[1].getOriginal();
+
+            DoubleMatrix2D result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = matA.copy();
+                result.assign(matB, cern.jet.math.Functions.plus);
+                Blackhole.consume(result);
+            }
+
+            long elapsed = System.nanoTime()-prev;
+
+            if( outputs != null ) {
+                outputs[0] = new ColtBenchmarkMatrix(result);
+            }
+
+            return elapsed;
+        }
+    }
+
     public static class Add implements MatrixProcessorInterface {
         @Override
         public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
@@ -335,6 +377,30 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
     }
 
     public static class Mult implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseDoubleMatrix2D matA = inputs[0].getOriginal();
+            DenseDoubleMatrix2D matB = inputs[1].getOriginal();
+
+            DoubleMatrix2D result = new DenseDoubleMatrix2D(matA.rows(),matB.columns());
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                matA.zMult(matB, result);
+            }
+
+            long elapsed = System.nanoTime()-prev;
+
+            if( outputs != null ) {
+                outputs[0] = new ColtBenchmarkMatrix(result);
+            }
+
+            return elapsed;
+        }
+    }
+
+    public static class MultAlloc implements MatrixProcessorInterface {
         @Override
         public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
             DenseDoubleMatrix2D matA = inputs[0].getOriginal();
@@ -347,6 +413,7 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = alg.mult(matA,matB);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -364,13 +431,39 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
         return new MulTranB();
     }
 
+    public static class MulTranBAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseDoubleMatrix2D matA = inputs[0].getOriginal();
+            DenseDoubleMatrix2D matB = inputs[1].getOriginal();
+
+            Algebra alg = new Algebra();
+            DoubleMatrix2D result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = alg.mult(matA,alg.transpose(matB));
+                Blackhole.consume(result);
+            }
+
+            long elapsed = System.nanoTime()-prev;
+
+            if( outputs != null ) {
+                outputs[0] = new ColtBenchmarkMatrix(result);
+            }
+
+            return elapsed;
+        }
+    }
+
     public static class MulTranB implements MatrixProcessorInterface {
         @Override
         public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
             DenseDoubleMatrix2D matA = inputs[0].getOriginal();
             DenseDoubleMatrix2D matB = inputs[1].getOriginal();
 
-            DoubleMatrix2D result = new DenseDoubleMatrix2D(matA.columns(),matB.columns());
+            DoubleMatrix2D result = new DenseDoubleMatrix2D(matA.rows(),matB.rows());
             
             long prev = System.nanoTime();
 
@@ -393,6 +486,31 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
         return new Scale();
     }
 
+    public static class ScaleAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseDoubleMatrix2D matA = inputs[0].getOriginal();
+
+            DoubleMatrix2D result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = matA.copy();
+                result.assign(cern.jet.math.Functions.mult(ScaleGenerator.SCALE));
+                Blackhole.consume(result);
+            }
+
+            long elapsed = System.nanoTime()-prev;
+
+            if( outputs != null ) {
+                outputs[0] = new ColtBenchmarkMatrix(result);
+            }
+
+            return elapsed;
+        }
+    }
+
     public static class Scale implements MatrixProcessorInterface {
         @Override
         public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
@@ -441,6 +559,7 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = alg.solve(matA,matB);
+                Blackhole.consume(result);
             }
 
             if( outputs != null ) {
@@ -457,6 +576,77 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
         return null;
     }
 
+    // only mult, multTransB, add and scale have an API which writes into a preallocated output
+    @Override
+    public MatrixProcessorInterface cholAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface luAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface svdAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface qrAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface eigSymmAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertSymmPosDefAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface addAlloc() {
+        return new AddAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface multAlloc() {
+        return new MultAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface multTransBAlloc() {
+        return new MulTranBAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface scaleAlloc() {
+        return new ScaleAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface solveExactAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveOverAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface transposeAlloc() {
+        return null;
+    }
+
     @Override
     public BenchmarkMatrix convertToLib(DenseMatrix64F input) {
         return new ColtBenchmarkMatrix(convertToColt(input));
@@ -468,6 +658,17 @@ public class ColtAlgorithmFactory implements RuntimePerformanceFactory {
         return coltToEjml(mat);
     }
 
+    @Override
+    public double[][] convertToArray2D(BenchmarkMatrix input) {
+        DoubleMatrix2D orig = input.getOriginal();
+        return orig.toArray();
+    }
+
+    @Override
+    public BenchmarkMatrix convertFromArray2D(double a[][]) {
+        return new ColtBenchmarkMatrix(new DenseDoubleMatrix2D(a));
+    }
+
     public static DenseDoubleMatrix2D convertToColt( DenseMatrix64F orig )
     {
         DenseDoubleMatrix2D mat = new DenseDoubleMatrix2D(orig.numRows,orig.numCols);
@@ -20,7 +20,10 @@
 package jmbench.impl.runtime;
 
 import jmbench.impl.wrapper.CommonsMathBenchmarkMatrix;
+import jmbench.interfaces.AllocatingPerformanceFactory;
+import jmbench.interfaces.ArrayConversionFactory;
 import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
 import jmbench.interfaces.DetectedException;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
@@ -34,7 +37,7 @@ import org.ejml.data.DenseMatrix64F;
 /**
  * @author Peter Abeles
  */
-public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
+public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory, AllocatingPerformanceFactory, ArrayConversionFactory {
 
     @Override
     public BenchmarkMatrix create(int numRows, int numCols) {
@@ -69,6 +72,7 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
                 } catch( NonPositiveDefiniteMatrixException e ) {
                     throw new DetectedException(e);
                 }
+                Blackhole.consume(L);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -100,6 +104,9 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
                 L = LU.getL();
                 U = LU.getU();
                 P = LU.getP();
+                Blackhole.consume(L);
+                Blackhole.consume(U);
+                Blackhole.consume(P);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -134,6 +141,9 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
                 U = svd.getU();
                 S = svd.getS();
                 V = svd.getV();
+                Blackhole.consume(U);
+                Blackhole.consume(S);
+                Blackhole.consume(V);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -172,6 +182,8 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
                 } catch( MathArithmeticException e ) {
                     throw new DetectedException(e);
                 }
+                Blackhole.consume(V);
+                Blackhole.consume(D);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -203,6 +215,8 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
 
                 Q = decomp.getQ();
                 R = decomp.getR();
+                Blackhole.consume(Q);
+                Blackhole.consume(R);
 
             }
 
@@ -231,7 +245,7 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
             // I believe this is the way the designers want you to do it
             for( long i = 0; i < numTrials; i++ ) {
                 LUDecomposition lu = new LUDecomposition(matA);
-                lu.getDeterminant();
+                Blackhole.consume(lu.getDeterminant());
             }
 
             return System.nanoTime()-prev;
@@ -260,6 +274,7 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
                 } catch( SingularMatrixException e ) {
                     throw new DetectedException(e);
                 }
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -294,6 +309,7 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
                 } catch( SingularMatrixException e ) {
                     throw new DetectedException(e);
                 }
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -320,6 +336,7 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.add(matB);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -346,6 +363,7 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.multiply(matB);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -372,6 +390,7 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.multiply(matB.transpose());
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -397,6 +416,7 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.scalarMultiply(ScaleGenerator.SCALE);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -429,6 +449,7 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
             for( long i = 0; i < numTrials; i++ ) {
                 LUDecomposition lu = new LUDecomposition(matA);
                 result = lu.getSolver().solve(matB);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -451,6 +472,7 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
             for( long i = 0; i < numTrials; i++ ) {
                 QRDecomposition qr = new QRDecomposition(matA);
                 result = qr.getSolver().solve(matB);
+                Blackhole.consume(result);
             }
             long elapsedTime = System.nanoTime()-prev;
             if( outputs != null ) {
@@ -475,6 +497,7 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.transpose();
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -485,6 +508,77 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    // Every operation benchmarked here returns a new RealMatrix, so there are no allocating variants to measure
+    @Override
+    public MatrixProcessorInterface cholAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface luAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface svdAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface qrAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface eigSymmAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertSymmPosDefAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface addAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface multAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface multTransBAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface scaleAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveExactAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveOverAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface transposeAlloc() {
+        return null;
+    }
+
     @Override
     public BenchmarkMatrix convertToLib(DenseMatrix64F input) {
         return new CommonsMathBenchmarkMatrix(convertToBlockReal(input));
@@ -496,6 +590,17 @@ public class CommonsMathAlgorithmFactory implements RuntimePerformanceFactory {
         return realToEjml(mat);
     }
 
+    @Override
+    public double[][] convertToArray2D(BenchmarkMatrix input) {
+        RealMatrix orig = input.getOriginal();
+        return orig.getData();
+    }
+
+    @Override
+    public BenchmarkMatrix convertFromArray2D(double a[][]) {
+        return new CommonsMathBenchmarkMatrix(new Array2DRowRealMatrix(a,false));
+    }
+
     /**
      * Converts BenchmarkMatrix used in EML into a RealMatrix found in commons-math.
      *
@@ -20,7 +20,10 @@
 package jmbench.impl.runtime;
 
 import jmbench.impl.wrapper.EjmlBenchmarkMatrix;
+import jmbench.interfaces.AllocatingPerformanceFactory;
+import jmbench.interfaces.ArrayConversionFactory;
 import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
 import jmbench.interfaces.DetectedException;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
@@ -36,7 +39,7 @@ import org.ejml.ops.EigenOps;
 /**
  * @author Peter Abeles
  */
-public class EjmlAlgorithmFactory implements RuntimePerformanceFactory {
+public class EjmlAlgorithmFactory implements RuntimePerformanceFactory, AllocatingPerformanceFactory, ArrayConversionFactory {
 
 
     @Override
@@ -139,9 +142,12 @@ public class EjmlAlgorithmFactory implements RuntimePerformanceFactory {
             for( long i = 0; i < numTrials; i++ ) {
                 if( !DecompositionFactory.decomposeSafe(svd,matA) )
                     throw new DetectedException("Decomposition failed");
-                U = svd.getU(null, false);
+                U = svd.getU(U, false);
                 S = svd.getW(S);
-                V = svd.getV(null, false);
+                V = svd.getV(V, false);
+                Blackhole.consume(U);
+                Blackhole.consume(S);
+                Blackhole.consume(V);
             }
 
             long elapsedTime = System.nanoTime() - prev;
@@ -171,9 +177,10 @@ public class EjmlAlgorithmFactory implements RuntimePerformanceFactory {
             for( long i = 0; i < numTrials; i++ ) {
                 if( !DecompositionFactory.decomposeSafe(eig,matA) )
                     throw new DetectedException("Decomposition failed");
-                // this isn't necessary since eigenvalues and eigenvectors are always computed
-                eig.getEigenvalue(0);
-                eig.getEigenVector(0);
+                for( int j = 0; j < eig.getNumberOfEigenvalues(); j++ ) {
+                    Blackhole.consume(eig.getEigenvalue(j));
+                    Blackhole.consume(eig.getEigenVector(j));
+                }
             }
 
             long elapsedTime = System.nanoTime() - prev;
@@ -205,8 +212,10 @@ public class EjmlAlgorithmFactory implements RuntimePerformanceFactory {
                 if( !DecompositionFactory.decomposeSafe(qr,matA) )
                     throw new DetectedException("Decomposition failed");
 
-                Q = qr.getQ(null,true);
-                R = qr.getR(null,true);
+                Q = qr.getQ(Q,true);
+                R = qr.getR(R,true);
+                Blackhole.consume(Q);
+                Blackhole.consume(R);
             }
 
             long elapsedTime = System.nanoTime() - prev;
@@ -231,7 +240,7 @@ public class EjmlAlgorithmFactory implements RuntimePerformanceFactory {
             long prev = System.nanoTime();
 
             for( long i = 0; i < numTrials; i++ ) {
-                CommonOps.det(matA);
+                Blackhole.consume(CommonOps.det(matA));
             }
 
             return System.nanoTime() - prev;
@@ -357,7 +366,7 @@ public class EjmlAlgorithmFactory implements RuntimePerformanceFactory {
             DenseMatrix64F matA = inputs[0].getOriginal();
             DenseMatrix64F matB = inputs[1].getOriginal();
 
-            DenseMatrix64F result = new DenseMatrix64F(matA.numCols,matB.numCols);
+            DenseMatrix64F result = new DenseMatrix64F(matA.numRows,matB.numRows);
 
             long prev = System.nanoTime();
 
@@ -493,6 +502,458 @@ public class EjmlAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    @Override
+    public MatrixProcessorInterface cholAlloc() {
+        return new CholAlloc();
+    }
+
+    public static class CholAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+
+            CholeskyDecomposition<DenseMatrix64F> chol = DecompositionFactory.chol(matA.numRows, true);
+
+            DenseMatrix64F L = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                if( !DecompositionFactory.decomposeSafe(chol,matA) ) {
+                    throw new DetectedException("Decomposition failed");
+                }
+                L = chol.getT(null);
+                Blackhole.consume(L);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(L);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface luAlloc() {
+        return new LUAlloc();
+    }
+
+    public static class LUAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+
+            LUDecomposition<DenseMatrix64F> lu = DecompositionFactory.lu(matA.numRows,matA.numCols);
+
+            DenseMatrix64F L = null;
+            DenseMatrix64F U = null;
+            DenseMatrix64F P = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                if( !DecompositionFactory.decomposeSafe(lu,matA) )
+                    throw new DetectedException("Decomposition failed");
+
+                L = lu.getLower(null);
+                U = lu.getUpper(null);
+                P = lu.getPivot(null);
+                Blackhole.consume(L);
+                Blackhole.consume(U);
+                Blackhole.consume(P);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(L);
+                outputs[1] = new EjmlBenchmarkMatrix(U);
+                outputs[2] = new EjmlBenchmarkMatrix(P);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface svdAlloc() {
+        return new SVDAlloc();
+    }
+
+    public static class SVDAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+
+            SingularValueDecomposition<DenseMatrix64F> svd = DecompositionFactory.svd(matA.numRows,matA.numCols,true,true,false);
+
+            DenseMatrix64F U = null;
+            DenseMatrix64F S = null;
+            DenseMatrix64F V = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                if( !DecompositionFactory.decomposeSafe(svd,matA) )
+                    throw new DetectedException("Decomposition failed");
+                U = svd.getU(null, false);
+                S = svd.getW(null);
+                V = svd.getV(null, false);
+                Blackhole.consume(U);
+                Blackhole.consume(S);
+                Blackhole.consume(V);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(U);
+                outputs[1] = new EjmlBenchmarkMatrix(S);
+                outputs[2] = new EjmlBenchmarkMatrix(V);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface qrAlloc() {
+        return new QRAlloc();
+    }
+
+    public static class QRAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+
+            QRDecomposition<DenseMatrix64F> qr = DecompositionFactory.qr(matA.numRows,matA.numCols);
+            DenseMatrix64F Q = null;
+            DenseMatrix64F R = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                if( !DecompositionFactory.decomposeSafe(qr,matA) )
+                    throw new DetectedException("Decomposition failed");
+
+                Q = qr.getQ(null,true);
+                R = qr.getR(null,true);
+                Blackhole.consume(Q);
+                Blackhole.consume(R);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(Q);
+                outputs[1] = new EjmlBenchmarkMatrix(R);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface eigSymmAlloc() {
+        return new MyEigAlloc();
+    }
+
+    public static class MyEigAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+
+            EigenDecomposition<DenseMatrix64F> eig = DecompositionFactory.eig(matA.numCols, true, true);
+
+            DenseMatrix64F D = null;
+            DenseMatrix64F V = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                if( !DecompositionFactory.decomposeSafe(eig,matA) )
+                    throw new DetectedException("Decomposition failed");
+                D = EigenOps.createMatrixD(eig);
+                V = EigenOps.createMatrixV(eig);
+                Blackhole.consume(D);
+                Blackhole.consume(V);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(D);
+                outputs[1] = new EjmlBenchmarkMatrix(V);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface invertAlloc() {
+        return new InvAlloc();
+    }
+
+    public static class InvAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+
+            DenseMatrix64F result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = new DenseMatrix64F(matA.numRows,matA.numCols);
+                if( !CommonOps.invert(matA,result) )
+                    throw new DetectedException("Inversion failed");
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface invertSymmPosDefAlloc() {
+        return new InvSymmPosDefAlloc();
+    }
+
+    public static class InvSymmPosDefAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+
+            DenseMatrix64F result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = new DenseMatrix64F(matA.numRows,matA.numCols);
+                if( !CovarianceOps.invert(matA,result) )
+                    throw new RuntimeException("Inversion failed");
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface addAlloc() {
+        return new AddAlloc();
+    }
+
+    public static class AddAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+            DenseMatrix64F matB = inputs[1].getOriginal();
+
+            DenseMatrix64F result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = new DenseMatrix64F(matA.numRows,matA.numCols);
+                CommonOps.add(matA,matB,result);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface multAlloc() {
+        return new MultAlloc();
+    }
+
+    public static class MultAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+            DenseMatrix64F matB = inputs[1].getOriginal();
+
+            DenseMatrix64F result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = new DenseMatrix64F(matA.numRows,matB.numCols);
+                CommonOps.mult(matA,matB,result);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface multTransBAlloc() {
+        return new MulTranBAlloc();
+    }
+
+    public static class MulTranBAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+            DenseMatrix64F matB = inputs[1].getOriginal();
+
+            DenseMatrix64F result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = new DenseMatrix64F(matA.numRows,matB.numRows);
+                CommonOps.multTransB(matA,matB,result);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface scaleAlloc() {
+        return new ScaleAlloc();
+    }
+
+    public static class ScaleAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+
+            DenseMatrix64F result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = new DenseMatrix64F(matA.numRows,matA.numCols);
+                CommonOps.scale(ScaleGenerator.SCALE,matA,result);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface solveExactAlloc() {
+        return new SolveExactAlloc();
+    }
+
+    public static class SolveExactAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+            DenseMatrix64F matB = inputs[1].getOriginal();
+
+            DenseMatrix64F result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                // creating a new solver each time is how the solver is typically used in applications
+                LinearSolver<DenseMatrix64F> solver = LinearSolverFactory.linear(matA.numRows);
+                solver = new LinearSolverSafe<DenseMatrix64F>(solver);
+
+                if( !solver.setA(matA) )
+                    throw new DetectedException("Bad A");
+
+                result = new DenseMatrix64F(matA.numCols,matB.numCols);
+                solver.solve(matB,result);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface solveOverAlloc() {
+        return new SolveOverAlloc();
+    }
+
+    public static class SolveOverAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+            DenseMatrix64F matB = inputs[1].getOriginal();
+
+            DenseMatrix64F result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                LinearSolver<DenseMatrix64F> solver = LinearSolverFactory.leastSquares(matA.numRows,matA.numCols);
+                solver = new LinearSolverSafe<DenseMatrix64F>(solver);
+
+                if( !solver.setA(matA) )
+                    throw new DetectedException("Bad A");
+
+                result = new DenseMatrix64F(matA.numCols,matB.numCols);
+                solver.solve(matB,result);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    @Override
+    public MatrixProcessorInterface transposeAlloc() {
+        return new TransposeAlloc();
+    }
+
+    public static class TransposeAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix64F matA = inputs[0].getOriginal();
+
+            DenseMatrix64F result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = CommonOps.transpose(matA,null);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new EjmlBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
     @Override
     public BenchmarkMatrix convertToLib(DenseMatrix64F input) {
         return new EjmlBenchmarkMatrix(input);
@@ -502,4 +963,25 @@ public class EjmlAlgorithmFactory implements RuntimePerformanceFactory {
     public DenseMatrix64F convertToEjml(BenchmarkMatrix input) {
         return (DenseMatrix64F)input.getOriginal();
     }
+
+    @Override
+    public double[][] convertToArray2D(BenchmarkMatrix input) {
+        return ejmlToArray2D((DenseMatrix64F)input.getOriginal());
+    }
+
+    @Override
+    public BenchmarkMatrix convertFromArray2D(double a[][]) {
+        return new EjmlBenchmarkMatrix(new DenseMatrix64F(a));
+    }
+
+    /**
+     * Copies a matrix into a new row-major double[][]
+     */
+    public static double[][] ejmlToArray2D( DenseMatrix64F orig ) {
+        double ret[][] = new double[orig.numRows][orig.numCols];
+        for( int i = 0; i < orig.numRows; i++ ) {
+            System.arraycopy(orig.data,i*orig.numCols,ret[i],0,orig.numCols);
+        }
+        return ret;
+    }
 }
@@ -20,7 +20,10 @@
 package jmbench.impl.runtime;
 
 import jmbench.impl.wrapper.JBlasBenchmarkMatrix;
+import jmbench.interfaces.AllocatingPerformanceFactory;
+import jmbench.interfaces.ArrayConversionFactory;
 import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.runtime.generator.ScaleGenerator;
@@ -31,7 +34,7 @@ import org.jblas.*;
 /**
  * @author Peter Abeles
  */
-public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
+public class JBlasAlgorithmFactory implements RuntimePerformanceFactory, AllocatingPerformanceFactory, ArrayConversionFactory {
 
     @Override
     public BenchmarkMatrix create(int numRows, int numCols) {
@@ -59,6 +62,7 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 U = Decompose.cholesky(matA);
+                Blackhole.consume(U);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -90,6 +94,9 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
                 L = lu.l;
                 U = lu.u;
                 P = lu.p;
+                Blackhole.consume(L);
+                Blackhole.consume(U);
+                Blackhole.consume(P);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -123,6 +130,9 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
                 U = evd[0];
                 S = evd[1];
                 Vt = evd[2];
+                Blackhole.consume(U);
+                Blackhole.consume(S);
+                Blackhole.consume(Vt);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -161,6 +171,8 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
                 DoubleMatrix[] evd = Eigen.symmetricEigenvectors(matA);
                 D = evd[1];
                 V = evd[0];
+                Blackhole.consume(D);
+                Blackhole.consume(V);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -199,6 +211,7 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = Solve.solve(matA,I);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -226,6 +239,7 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = Solve.solvePositive(matA,I);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -242,6 +256,28 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
     }
 
     public static class Add implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DoubleMatrix matA = inputs[0].getOriginal();
+            DoubleMatrix matB = inputs[1].getOriginal();
+
+            DoubleMatrix result = new DoubleMatrix(matA.getRows(),matA.getColumns());
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                matA.addi(matB,result);
+            }
+
+            long elapsed = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new JBlasBenchmarkMatrix(result);
+            }
+            return elapsed;
+        }
+    }
+
+    public static class AddAlloc implements MatrixProcessorInterface {
         @Override
         public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
             DoubleMatrix matA = inputs[0].getOriginal();
@@ -253,6 +289,7 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.add(matB);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -269,6 +306,28 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
     }
 
     public static class Mult implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DoubleMatrix matA = inputs[0].getOriginal();
+            DoubleMatrix matB = inputs[1].getOriginal();
+
+            DoubleMatrix result = new DoubleMatrix(matA.getRows(),matB.getColumns());
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                matA.mmuli(matB,result);
+            }
+
+            long elapsed = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new JBlasBenchmarkMatrix(result);
+            }
+            return elapsed;
+        }
+    }
+
+    public static class MultAlloc implements MatrixProcessorInterface {
         @Override
         public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
             DoubleMatrix matA = inputs[0].getOriginal();
@@ -280,6 +339,7 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.mmul(matB);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -307,6 +367,7 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.mmul(matB.transpose());
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -323,6 +384,27 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
     }
 
     public static class Scale implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DoubleMatrix matA = inputs[0].getOriginal();
+
+            DoubleMatrix result = new DoubleMatrix(matA.getRows(),matA.getColumns());
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                matA.muli(ScaleGenerator.SCALE,result);
+            }
+
+            long elapsed = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new JBlasBenchmarkMatrix(result);
+            }
+            return elapsed;
+        }
+    }
+
+    public static class ScaleAlloc implements MatrixProcessorInterface {
         @Override
         public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
             DoubleMatrix matA = inputs[0].getOriginal();
@@ -333,6 +415,7 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.mul(ScaleGenerator.SCALE);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -365,6 +448,7 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = Solve.solve(matA,matB);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -391,6 +475,7 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.transpose();
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -401,6 +486,77 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    // only mult, add and scale have an API which writes into a preallocated output
+    @Override
+    public MatrixProcessorInterface cholAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface luAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface svdAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface qrAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface eigSymmAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertSymmPosDefAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface addAlloc() {
+        return new AddAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface multAlloc() {
+        return new MultAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface multTransBAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface scaleAlloc() {
+        return new ScaleAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface solveExactAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveOverAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface transposeAlloc() {
+        return null;
+    }
+
     @Override
     public BenchmarkMatrix convertToLib(DenseMatrix64F input) {
         return new JBlasBenchmarkMatrix(convertToJBlas(input));
@@ -412,6 +568,17 @@ public class JBlasAlgorithmFactory implements RuntimePerformanceFactory {
         return jblasToEjml(orig);
     }
 
+    @Override
+    public double[][] convertToArray2D(BenchmarkMatrix input) {
+        DoubleMatrix orig = input.getOriginal();
+        return orig.toArray2();
+    }
+
+    @Override
+    public BenchmarkMatrix convertFromArray2D(double a[][]) {
+        return new JBlasBenchmarkMatrix(new DoubleMatrix(a));
+    }
+
     public static DoubleMatrix convertToJBlas( DenseMatrix64F orig )
     {
         DoubleMatrix ret = new DoubleMatrix(orig.getNumRows(),orig.getNumCols());
@@ -22,7 +22,10 @@ package jmbench.impl.runtime;
 import Jama.*;
 import jmbench.impl.wrapper.EjmlBenchmarkMatrix;
 import jmbench.impl.wrapper.JamaBenchmarkMatrix;
+import jmbench.interfaces.AllocatingPerformanceFactory;
+import jmbench.interfaces.ArrayConversionFactory;
 import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
 import jmbench.interfaces.DetectedException;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
@@ -34,7 +37,7 @@ import org.ejml.ops.SpecializedOps;
 /**
  * @author Peter Abeles
  */
-public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
+public class JamaAlgorithmFactory implements RuntimePerformanceFactory, AllocatingPerformanceFactory, ArrayConversionFactory {
 
     @Override
     public BenchmarkMatrix create(int numRows, int numCols) {
@@ -66,6 +69,7 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
                     throw new DetectedException("Is not SPD");
                 }
                 L = chol.getL();
+                Blackhole.consume(L);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -97,6 +101,9 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
                 L = lu.getL();
                 U = lu.getU();
                 pivot = lu.getPivot();
+                Blackhole.consume(L);
+                Blackhole.consume(U);
+                Blackhole.consume(pivot);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -141,6 +148,9 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
                     S = s.getS();
                     V = s.getV();
                 }
+                Blackhole.consume(U);
+                Blackhole.consume(S);
+                Blackhole.consume(V);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -172,6 +182,8 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
                 EigenvalueDecomposition e = matA.eig();
                 D = e.getD();
                 V = e.getV();
+                Blackhole.consume(D);
+                Blackhole.consume(V);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -203,6 +215,8 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
 
                 Q = decomp.getQ();
                 R = decomp.getR();
+                Blackhole.consume(Q);
+                Blackhole.consume(R);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -227,7 +241,7 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
             long prev = System.nanoTime();
 
             for( long i = 0; i < numTrials; i++ ) {
-                matA.det();
+                Blackhole.consume(matA.det());
             }
 
             return System.nanoTime()-prev;
@@ -250,6 +264,7 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.inverse();
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -278,6 +293,7 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.chol().solve(Matrix.identity(N,N));
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -305,6 +321,7 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.plus(matB);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -332,6 +349,7 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.times(matB);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -359,6 +377,7 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.times(matB.transpose());
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -385,6 +404,7 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.times(ScaleGenerator.SCALE);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -417,6 +437,7 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.solve(matB);
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -443,6 +464,7 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.transpose();
+                Blackhole.consume(result);
             }
 
             long elapsed = System.nanoTime()-prev;
@@ -453,6 +475,77 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    // Jama always returns a new matrix, so the regular operations already allocate and there are no variants
+    @Override
+    public MatrixProcessorInterface cholAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface luAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface svdAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface qrAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface eigSymmAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertSymmPosDefAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface addAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface multAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface multTransBAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface scaleAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveExactAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveOverAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface transposeAlloc() {
+        return null;
+    }
+
     @Override
     public BenchmarkMatrix convertToLib(DenseMatrix64F input) {
         return new JamaBenchmarkMatrix(convertToJama(input));
@@ -464,6 +557,17 @@ public class JamaAlgorithmFactory implements RuntimePerformanceFactory {
         return jamaToEjml(orig);
     }
 
+    @Override
+    public double[][] convertToArray2D(BenchmarkMatrix input) {
+        Matrix orig = input.getOriginal();
+        return orig.getArrayCopy();
+    }
+
+    @Override
+    public BenchmarkMatrix convertFromArray2D(double a[][]) {
+        return new JamaBenchmarkMatrix(new Matrix(a));
+    }
+
     public static Matrix convertToJama( DenseMatrix64F orig )
     {
         Matrix ret = new Matrix(orig.getNumRows(),orig.getNumCols());
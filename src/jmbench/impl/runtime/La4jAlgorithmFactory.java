@@ -20,7 +20,10 @@
 package jmbench.impl.runtime;
 
 import jmbench.impl.wrapper.La4jBenchmarkMatrix;
+import jmbench.interfaces.AllocatingPerformanceFactory;
+import jmbench.interfaces.ArrayConversionFactory;
 import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.runtime.generator.ScaleGenerator;
@@ -39,7 +42,7 @@ import org.la4j.vector.Vector;
  * @author Peter Abels
  * @author Vladimir Kostyukov
  */
-public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
+public class La4jAlgorithmFactory implements RuntimePerformanceFactory, AllocatingPerformanceFactory, ArrayConversionFactory {
     @Override
     public MatrixProcessorInterface chol() {
         return new Chol();
@@ -58,6 +61,7 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
                 MatrixDecompositor decompositor = a.withDecompositor(LinearAlgebra.CHOLESKY);
                 Matrix l[] = decompositor.decompose();
                 L = l[0];
+                Blackhole.consume(L);
             }
 
             long elapsed = System.nanoTime() - prev;
@@ -90,6 +94,9 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
                 L = lup[0];
                 U = lup[1];
                 P = lup[2];
+                Blackhole.consume(L);
+                Blackhole.consume(U);
+                Blackhole.consume(P);
             }
 
             long elapsed = System.nanoTime() - prev;
@@ -124,6 +131,9 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
                 U = usv[0];
                 S = usv[1];
                 V = usv[2];
+                Blackhole.consume(U);
+                Blackhole.consume(S);
+                Blackhole.consume(V);
             }
 
             long elapsed = System.nanoTime() - prev;
@@ -156,6 +166,8 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
                 Matrix qr[] = decompositor.decompose();
                 Q = qr[0];
                 R = qr[1];
+                Blackhole.consume(Q);
+                Blackhole.consume(R);
             }
 
             long elapsed = System.nanoTime() - prev;
@@ -187,6 +199,8 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
                 Matrix vd[] = decompositor.decompose();
                 V = vd[0];
                 D = vd[1];
+                Blackhole.consume(V);
+                Blackhole.consume(D);
             }
 
             long elapsed = System.nanoTime() - prev;
@@ -211,7 +225,7 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
             long prev = System.nanoTime();
 
             for( long i = 0; i < numTrials; i++ ) {
-                a.determinant();
+                Blackhole.consume(a.determinant());
             }
 
             return System.nanoTime() - prev;
@@ -240,6 +254,7 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
             for( long i = 0; i < numTrials; i++ ) {
                 MatrixInverter inverter = a.withInverter(LinearAlgebra.INVERTER);
                 A = inverter.inverse();
+                Blackhole.consume(A);
             }
 
             long elapsed = System.nanoTime() - prev;
@@ -267,6 +282,7 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 C = a.add(b);
+                Blackhole.consume(C);
             }
 
             long elapsed = System.nanoTime() - prev;
@@ -294,6 +310,7 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 C = a.multiply(b);
+                Blackhole.consume(C);
             }
 
             long elapsed = System.nanoTime() - prev;
@@ -321,6 +338,7 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 C = a.multiply(b.transpose());
+                Blackhole.consume(C);
             }
 
             long elapsed = System.nanoTime() - prev;
@@ -347,6 +365,7 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 B = a.multiply(ScaleGenerator.SCALE);
+                Blackhole.consume(B);
             }
 
             long elapsed = System.nanoTime() - prev;
@@ -380,6 +399,7 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
             for( long i = 0; i < numTrials; i++ ) {
                 LinearSystemSolver solver = a.withSolver(LinearAlgebra.SOLVER);
                 X = solver.solve(b);
+                Blackhole.consume(X);
             }
 
             long elapsed = System.nanoTime() - prev;
@@ -406,6 +426,7 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 B = a.transpose();
+                Blackhole.consume(B);
             }
 
             long elapsed = System.nanoTime()- prev;
@@ -426,6 +447,77 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
         return new La4jBenchmarkMatrix((Matrix)matrix);
     }
 
+    // la4j operations always create their output, so there are no allocating variants
+    @Override
+    public MatrixProcessorInterface cholAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface luAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface svdAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface qrAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface eigSymmAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertSymmPosDefAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface addAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface multAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface multTransBAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface scaleAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveExactAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveOverAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface transposeAlloc() {
+        return null;
+    }
+
     @Override
     public BenchmarkMatrix convertToLib(DenseMatrix64F input) {
         return new La4jBenchmarkMatrix(ejmlToLa4j(input));
@@ -436,6 +528,18 @@ public class La4jAlgorithmFactory implements RuntimePerformanceFactory {
         Matrix orig = input.getOriginal();
         return la4jToEjml(orig);
     }
+
+    @Override
+    public double[][] convertToArray2D(BenchmarkMatrix input) {
+        // matrices created by this factory are always Basic2DMatrix
+        Basic2DMatrix orig = input.getOriginal();
+        return orig.toArray();
+    }
+
+    @Override
+    public BenchmarkMatrix convertFromArray2D(double a[][]) {
+        return new La4jBenchmarkMatrix(new Basic2DMatrix(a));
+    }
     
     public static Matrix ejmlToLa4j( DenseMatrix64F orig ) {
         Matrix m = new Basic2DMatrix(orig.numRows, orig.numCols);
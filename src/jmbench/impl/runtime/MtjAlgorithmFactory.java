@@ -21,7 +21,10 @@ package jmbench.impl.runtime;
 
 import jmbench.impl.wrapper.EjmlBenchmarkMatrix;
 import jmbench.impl.wrapper.MtjBenchmarkMatrix;
+import jmbench.interfaces.AllocatingPerformanceFactory;
+import jmbench.interfaces.ArrayConversionFactory;
 import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
 import jmbench.interfaces.DetectedException;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
@@ -34,7 +37,7 @@ import org.ejml.ops.CommonOps;
 /**
  * @author Peter Abeles
  */
-public class MtjAlgorithmFactory implements RuntimePerformanceFactory {
+public class MtjAlgorithmFactory implements RuntimePerformanceFactory, AllocatingPerformanceFactory, ArrayConversionFactory {
 
     @Override
     public BenchmarkMatrix create(int numRows, int numCols) {
@@ -71,6 +74,7 @@ public class MtjAlgorithmFactory implements RuntimePerformanceFactory {
                 }
 
                 L = cholesky.getL();
+                Blackhole.consume(L);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -108,6 +112,9 @@ public class MtjAlgorithmFactory implements RuntimePerformanceFactory {
                 L = lu.getL();
                 U = lu.getU();
                 pivots = lu.getPivots();
+                Blackhole.consume(L);
+                Blackhole.consume(U);
+                Blackhole.consume(pivots);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -154,6 +161,9 @@ public class MtjAlgorithmFactory implements RuntimePerformanceFactory {
                 } catch (NotConvergedException e) {
                     throw new RuntimeException(e);
                 }
+                Blackhole.consume(U);
+                Blackhole.consume(S);
+                Blackhole.consume(Vt);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -193,6 +203,8 @@ public class MtjAlgorithmFactory implements RuntimePerformanceFactory {
                 } catch (NotConvergedException e) {
                     throw new RuntimeException(e);
                 }
+                Blackhole.consume(V);
+                Blackhole.consume(D);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -229,6 +241,8 @@ public class MtjAlgorithmFactory implements RuntimePerformanceFactory {
 
                 Q = qr.getQ();
                 R = qr.getR();
+                Blackhole.consume(Q);
+                Blackhole.consume(R);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -297,6 +311,7 @@ public class MtjAlgorithmFactory implements RuntimePerformanceFactory {
                 }
 
                 result = cholesky.solve(Matrices.identity(matA.numColumns()));
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -374,7 +389,7 @@ public class MtjAlgorithmFactory implements RuntimePerformanceFactory {
             DenseMatrix matA = inputs[0].getOriginal();
             DenseMatrix matB = inputs[1].getOriginal();
 
-            DenseMatrix result = new DenseMatrix(matA.numColumns(),matB.numColumns());
+            DenseMatrix result = new DenseMatrix(matA.numRows(),matB.numRows());
 
             long prev = System.nanoTime();
 
@@ -475,6 +490,245 @@ public class MtjAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    public static class InvAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix matA = inputs[0].getOriginal();
+
+            DenseMatrix I = Matrices.identity(matA.numColumns());
+
+            DenseMatrix result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = new DenseMatrix(matA.numColumns(),matA.numColumns());
+                matA.solve(I,result);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new MtjBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    public static class AddAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix matA = inputs[0].getOriginal();
+            DenseMatrix matB = inputs[1].getOriginal();
+
+            DenseMatrix result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = matA.copy();
+                result.add(matB);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new MtjBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    public static class MultAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix matA = inputs[0].getOriginal();
+            DenseMatrix matB = inputs[1].getOriginal();
+
+            DenseMatrix result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = new DenseMatrix(matA.numRows(),matB.numColumns());
+                matA.mult(matB,result);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new MtjBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    public static class MulTranBAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix matA = inputs[0].getOriginal();
+            DenseMatrix matB = inputs[1].getOriginal();
+
+            DenseMatrix result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = new DenseMatrix(matA.numRows(),matB.numRows());
+                matA.transBmult(matB,result);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new MtjBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    public static class ScaleAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix matA = inputs[0].getOriginal();
+
+            DenseMatrix result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = matA.copy();
+                result.scale(ScaleGenerator.SCALE);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new MtjBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    public static class SolveAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix matA = inputs[0].getOriginal();
+            DenseMatrix matB = inputs[1].getOriginal();
+
+            DenseMatrix result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = new DenseMatrix(matA.numColumns(),matB.numColumns());
+                matA.solve(matB,result);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new MtjBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    public static class TransposeAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DenseMatrix matA = inputs[0].getOriginal();
+
+            DenseMatrix result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = new DenseMatrix(matA.numColumns(),matA.numRows());
+                matA.transpose(result);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new MtjBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    // MTJ can only write into a preallocated matrix, so the allocating variants declare the output on each call.
+    // The decompositions always create their own output and have no allocating variants
+    @Override
+    public MatrixProcessorInterface cholAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface luAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface svdAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface qrAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface eigSymmAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertAlloc() {
+        return new InvAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface invertSymmPosDefAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface addAlloc() {
+        return new AddAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface multAlloc() {
+        return new MultAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface multTransBAlloc() {
+        return new MulTranBAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface scaleAlloc() {
+        return new ScaleAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface solveExactAlloc() {
+        return new SolveAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface solveOverAlloc() {
+        return new SolveAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface transposeAlloc() {
+        return new TransposeAlloc();
+    }
+
     @Override
     public BenchmarkMatrix convertToLib(DenseMatrix64F input) {
         return new MtjBenchmarkMatrix(convertToMtj(input));
@@ -490,6 +744,17 @@ public class MtjAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    @Override
+    public double[][] convertToArray2D(BenchmarkMatrix input) {
+        Matrix orig = input.getOriginal();
+        return Matrices.getArray(orig);
+    }
+
+    @Override
+    public BenchmarkMatrix convertFromArray2D(double a[][]) {
+        return new MtjBenchmarkMatrix(new DenseMatrix(a));
+    }
+
     /**
      * Converts a BenchmarkMatrix in EML into a DenseMatrix in MTJ
      *
@@ -22,13 +22,17 @@ package jmbench.impl.runtime;
 import jmbench.PackageMatrixConversion;
 import jmbench.impl.wrapper.EjmlBenchmarkMatrix;
 import jmbench.impl.wrapper.OjAlgoBenchmarkMatrix;
+import jmbench.interfaces.AllocatingPerformanceFactory;
+import jmbench.interfaces.ArrayConversionFactory;
 import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
 import jmbench.interfaces.DetectedException;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.runtime.generator.ScaleGenerator;
 import org.ejml.data.DenseMatrix64F;
 import org.ejml.ops.SpecializedOps;
+import org.ojalgo.array.ArrayUtils;
 import org.ojalgo.function.PrimitiveFunction;
 import org.ojalgo.matrix.decomposition.*;
 import org.ojalgo.matrix.decomposition.task.DeterminantTask;
@@ -45,7 +49,7 @@ import org.ojalgo.matrix.store.TransposedStore;
  * @author Anders Peterson (apete)
  */
 @SuppressWarnings({ "unchecked" })
-public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
+public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory, AllocatingPerformanceFactory, ArrayConversionFactory {
 
     public static class OpAdd implements MatrixProcessorInterface {
 
@@ -70,6 +74,29 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    public static class OpAddAlloc implements MatrixProcessorInterface {
+
+        public long process(final BenchmarkMatrix[] inputs, final BenchmarkMatrix[] outputs, final long numTrials) {
+
+            final MatrixStore<Double> matA = inputs[0].getOriginal();
+            final MatrixStore<Double> matB = inputs[1].getOriginal();
+
+            PrimitiveDenseStore result = null;
+
+            final long prev = System.nanoTime();
+
+            for (long i = 0; i < numTrials; i++) {
+                result = FACTORY.makeZero(matA.countRows(), matA.countColumns());
+                result.fillMatching(matA, PrimitiveFunction.ADD, matB);
+                Blackhole.consume(result);
+            }
+
+            final long elapsedTime = System.nanoTime() - prev;
+            outputs[0] = new OjAlgoBenchmarkMatrix(result);
+            return elapsedTime;
+        }
+    }
+
     public static class OpChol implements MatrixProcessorInterface {
 
         public long process(final BenchmarkMatrix[] inputs, final BenchmarkMatrix[] outputs, final long numTrials) {
@@ -86,6 +113,7 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
                     throw new DetectedException("Decomposition failed");
                 }
                 L = chol.getL();
+                Blackhole.consume(L);
             }
 
             final long elapsedTime = System.nanoTime() - prev;
@@ -109,7 +137,7 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
             final long prev = System.nanoTime();
 
             for (long i = 0; i < numTrials; i++) {
-                tmpTask.calculateDeterminant(matA);
+                Blackhole.consume(tmpTask.calculateDeterminant(matA));
             }
 
             return System.nanoTime() - prev;
@@ -134,6 +162,8 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
                 }
                 D = eig.getD();
                 V = eig.getV();
+                Blackhole.consume(D);
+                Blackhole.consume(V);
             }
 
             final long elapsedTime = System.nanoTime() - prev;
@@ -161,6 +191,7 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
                 } catch (TaskException ex) {
                     throw new DetectedException(ex);
                 }
+                Blackhole.consume(result);
             }
 
             final long elapsedTime = System.nanoTime() - prev;
@@ -187,6 +218,7 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
                 } catch (TaskException ex) {
                     throw new DetectedException(ex);
                 }
+                Blackhole.consume(inverse);
             }
 
             final long elapsedTime = System.nanoTime() - prev;
@@ -217,6 +249,9 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
                 L = lu.getL();
                 U = lu.getU();
                 pivot = lu.getPivotOrder();
+                Blackhole.consume(L);
+                Blackhole.consume(U);
+                Blackhole.consume(pivot);
             }
 
             final long elapsedTime = System.nanoTime() - prev;
@@ -250,6 +285,28 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    public static class OpMultAlloc implements MatrixProcessorInterface {
+
+        public long process(final BenchmarkMatrix[] inputs, final BenchmarkMatrix[] outputs, final long numTrials) {
+
+            final MatrixStore<Double> matA = inputs[0].getOriginal();
+            final MatrixStore<Double> matB = inputs[1].getOriginal();
+
+            MatrixStore<Double> result = null;
+
+            final long prev = System.nanoTime();
+
+            for (long i = 0; i < numTrials; i++) {
+                result = matA.multiplyRight(matB);
+                Blackhole.consume(result);
+            }
+
+            final long elapsedTime = System.nanoTime() - prev;
+            outputs[0] = new OjAlgoBenchmarkMatrix(result);
+            return elapsedTime;
+        }
+    }
+
     public static class OpMultTransB implements MatrixProcessorInterface {
 
         public long process(final BenchmarkMatrix[] inputs, final BenchmarkMatrix[] outputs, final long numTrials) {
@@ -271,6 +328,28 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    public static class OpMultTransBAlloc implements MatrixProcessorInterface {
+
+        public long process(final BenchmarkMatrix[] inputs, final BenchmarkMatrix[] outputs, final long numTrials) {
+
+            final MatrixStore<Double> matA = inputs[0].getOriginal();
+            final MatrixStore<Double> matB = inputs[1].getOriginal();
+
+            MatrixStore<Double> result = null;
+
+            final long prev = System.nanoTime();
+
+            for (long i = 0; i < numTrials; i++) {
+                result = matA.multiplyRight(new TransposedStore<Double>(matB));
+                Blackhole.consume(result);
+            }
+
+            final long elapsedTime = System.nanoTime() - prev;
+            outputs[0] = new OjAlgoBenchmarkMatrix(result);
+            return elapsedTime;
+        }
+    }
+
     public static class OpQr implements MatrixProcessorInterface {
 
         public long process(final BenchmarkMatrix[] inputs, final BenchmarkMatrix[] outputs, final long numTrials) {
@@ -289,6 +368,8 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
                 }
                 Q = qr.getQ();
                 R = qr.getR();
+                Blackhole.consume(Q);
+                Blackhole.consume(R);
             }
 
             final long elapsedTime = System.nanoTime() - prev;
@@ -320,6 +401,30 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    public static class OpScaleAlloc implements MatrixProcessorInterface {
+
+        public long process(final BenchmarkMatrix[] inputs, final BenchmarkMatrix[] outputs, final long numTrials) {
+
+            final MatrixStore<Double> matA = inputs[0].getOriginal();
+
+            final Double tmpArg = ScaleGenerator.SCALE;
+
+            PrimitiveDenseStore result = null;
+
+            final long prev = System.nanoTime();
+
+            for (long i = 0; i < numTrials; i++) {
+                result = FACTORY.makeZero(matA.countRows(), matA.countColumns());
+                result.fillMatching(matA, PrimitiveFunction.MULTIPLY, tmpArg);
+                Blackhole.consume(result);
+            }
+
+            final long elapsedTime = System.nanoTime() - prev;
+            outputs[0] = new OjAlgoBenchmarkMatrix(result);
+            return elapsedTime;
+        }
+    }
+
     public static class OpSolveExact implements MatrixProcessorInterface {
 
         public long process(final BenchmarkMatrix[] inputs, final BenchmarkMatrix[] outputs, final long numTrials) {
@@ -339,6 +444,7 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
                 } catch (TaskException ex) {
                     throw new DetectedException(ex);
                 }
+                Blackhole.consume(result);
             }
 
             final long elapsedTime = System.nanoTime() - prev;
@@ -366,6 +472,7 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
                 } catch (TaskException ex) {
                     throw new DetectedException(ex);
                 }
+                Blackhole.consume(result);
             }
 
             final long elapsedTime = System.nanoTime() - prev;
@@ -395,6 +502,9 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
                 U = svd.getQ1();
                 S = svd.getD();
                 V = svd.getQ2();
+                Blackhole.consume(U);
+                Blackhole.consume(S);
+                Blackhole.consume(V);
             }
 
             final long elapsedTime = System.nanoTime() - prev;
@@ -425,6 +535,27 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    public static class OpTransposeAlloc implements MatrixProcessorInterface {
+
+        public long process(final BenchmarkMatrix[] inputs, final BenchmarkMatrix[] outputs, final long numTrials) {
+
+            final MatrixStore<Double> matA = inputs[0].getOriginal();
+
+            MatrixStore<Double> result = null;
+
+            final long prev = System.nanoTime();
+
+            for (long i = 0; i < numTrials; i++) {
+                result = matA.transpose();
+                Blackhole.consume(result);
+            }
+
+            final long elapsedTime = System.nanoTime() - prev;
+            outputs[0] = new OjAlgoBenchmarkMatrix(result);
+            return elapsedTime;
+        }
+    }
+
     static final PhysicalStore.Factory<Double, PrimitiveDenseStore> FACTORY = PrimitiveDenseStore.FACTORY;
 
     public static PrimitiveDenseStore convertToOjAlgo(final DenseMatrix64F orig) {
@@ -455,11 +586,32 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
         return new OpAdd();
     }
 
+    @Override
+    public MatrixProcessorInterface addAlloc() {
+        return new OpAddAlloc();
+    }
+
     @Override
     public MatrixProcessorInterface chol() {
         return new OpChol();
     }
 
+    @Override
+    public MatrixProcessorInterface cholAlloc() {
+        return this.chol();
+    }
+
+    @Override
+    public BenchmarkMatrix convertFromArray2D(final double[][] a) {
+        return this.wrap(PrimitiveDenseStore.FACTORY.rows(a));
+    }
+
+    @Override
+    public double[][] convertToArray2D(final BenchmarkMatrix input) {
+        final MatrixStore<?> orig = input.getOriginal();
+        return ArrayUtils.toRawCopyOf(orig);
+    }
+
     @Override
     public DenseMatrix64F convertToEjml(final BenchmarkMatrix input) {
         final MatrixStore<Double> mat = input.getOriginal();
@@ -486,61 +638,121 @@ public class OjAlgoAlgorithmFactory implements RuntimePerformanceFactory {
         return new OpEigSymm();
     }
 
+    @Override
+    public MatrixProcessorInterface eigSymmAlloc() {
+        return this.eigSymm();
+    }
+
     @Override
     public MatrixProcessorInterface invert() {
         return new OpInvert();
     }
 
+    @Override
+    public MatrixProcessorInterface invertAlloc() {
+        return this.invert();
+    }
+
     @Override
     public MatrixProcessorInterface invertSymmPosDef() {
         return new OpInvertSymmPosDef();
     }
 
+    @Override
+    public MatrixProcessorInterface invertSymmPosDefAlloc() {
+        return this.invertSymmPosDef();
+    }
+
     @Override
     public MatrixProcessorInterface lu() {
         return new OpLu();
     }
 
+    @Override
+    public MatrixProcessorInterface luAlloc() {
+        return this.lu();
+    }
+
     @Override
     public MatrixProcessorInterface mult() {
         return new OpMult();
     }
 
+    @Override
+    public MatrixProcessorInterface multAlloc() {
+        return new OpMultAlloc();
+    }
+
     @Override
     public MatrixProcessorInterface multTransB() {
         return new OpMultTransB();
     }
 
+    @Override
+    public MatrixProcessorInterface multTransBAlloc() {
+        return new OpMultTransBAlloc();
+    }
+
     @Override
     public MatrixProcessorInterface qr() {
         return new OpQr();
     }
 
+    @Override
+    public MatrixProcessorInterface qrAlloc() {
+        return this.qr();
+    }
+
     @Override
     public MatrixProcessorInterface scale() {
         return new OpScale();
     }
 
+    @Override
+    public MatrixProcessorInterface scaleAlloc() {
+        return new OpScaleAlloc();
+    }
+
     @Override
     public MatrixProcessorInterface solveExact() {
         return new OpSolveExact();
     }
 
+    @Override
+    public MatrixProcessorInterface solveExactAlloc() {
+        return this.solveExact();
+    }
+
     @Override
     public MatrixProcessorInterface solveOver() {
         return new OpSolveOver();
     }
 
+    @Override
+    public MatrixProcessorInterface solveOverAlloc() {
+        return this.solveOver();
+    }
+
     @Override
     public MatrixProcessorInterface svd() {
         return new OpSvd();
     }
 
+    @Override
+    public MatrixProcessorInterface svdAlloc() {
+        return this.svd();
+    }
+
     @Override
     public MatrixProcessorInterface transpose() {
         return new OpTranspose();
     }
 
+    @Override
+    public MatrixProcessorInterface transposeAlloc() {
+        return new OpTransposeAlloc();
+    }
+
     @Override
     public BenchmarkMatrix wrap(final Object matrix) {
         return new OjAlgoBenchmarkMatrix((MatrixStore<?>) matrix);
@@ -27,7 +27,10 @@ import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
 import cern.jet.math.tdouble.DoubleFunctions;
 import jmbench.impl.wrapper.EjmlBenchmarkMatrix;
 import jmbench.impl.wrapper.PColtBenchmarkMatrix;
+import jmbench.interfaces.AllocatingPerformanceFactory;
+import jmbench.interfaces.ArrayConversionFactory;
 import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
 import jmbench.interfaces.DetectedException;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
@@ -39,7 +42,7 @@ import org.ejml.ops.SpecializedOps;
 /**
  * @author Peter Abeles
  */
-public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
+public class PColtAlgorithmFactory implements RuntimePerformanceFactory, AllocatingPerformanceFactory, ArrayConversionFactory {
 
     @Override
     public BenchmarkMatrix create(int numRows, int numCols) {
@@ -73,6 +76,7 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
                 DenseDoubleCholeskyDecomposition chol = alg.chol(matA);
 
                 L = chol.getL();
+                Blackhole.consume(L);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -114,6 +118,9 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
                 L = decomp.getL();
                 U = decomp.getU();
                 pivot = decomp.getPivot();
+                Blackhole.consume(L);
+                Blackhole.consume(U);
+                Blackhole.consume(pivot);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -150,6 +157,9 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
                 U = s.getU();
                 S = s.getS();
                 V = s.getV();
+                Blackhole.consume(U);
+                Blackhole.consume(S);
+                Blackhole.consume(V);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -183,6 +193,8 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
                 DenseDoubleEigenvalueDecomposition e = alg.eig(matA);
                 D = e.getD();
                 V = e.getV();
+                Blackhole.consume(D);
+                Blackhole.consume(V);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -216,6 +228,8 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
 
                 Q = decomp.getQ(true);
                 R = decomp.getR(true);
+                Blackhole.consume(Q);
+                Blackhole.consume(R);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -242,7 +256,7 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
             long prev = System.nanoTime();
 
             for( long i = 0; i < numTrials; i++ ) {
-                alg.det(matA);
+                Blackhole.consume(alg.det(matA));
             }
 
             return System.nanoTime()-prev;
@@ -267,6 +281,7 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = alg.inverse(matA);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -300,6 +315,7 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
 
                 result = DoubleFactory2D.dense.identity(matA.rows());
                 chol.solve(result);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -315,6 +331,30 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
         return new Add();
     }
 
+    public static class AddAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DoubleMatrix2D matA = inputs[0].getOriginal();
+            DoubleMatrix2D matB = inputs[1].getOriginal();
+
+            DoubleMatrix2D result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = matA.copy();
+                result.assign(matB, DoubleFunctions.plus);
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new PColtBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
     public static class Add implements MatrixProcessorInterface {
         @Override
         public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
@@ -345,6 +385,28 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
     }
 
     public static class Mult implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DoubleMatrix2D matA = inputs[0].getOriginal();
+            DoubleMatrix2D matB = inputs[1].getOriginal();
+
+            DoubleMatrix2D result = createMatrix(matA.rows(),matB.columns());
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                matA.zMult(matB, result);
+            }
+
+            long elapsedTime = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new PColtBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
+    public static class MultAlloc implements MatrixProcessorInterface {
         @Override
         public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
             DoubleMatrix2D matA = inputs[0].getOriginal();
@@ -357,6 +419,7 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = alg.mult(matA,matB);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -372,13 +435,37 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
         return new MulTranB();
     }
 
+    public static class MulTranBAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DoubleMatrix2D matA = inputs[0].getOriginal();
+            DoubleMatrix2D matB = inputs[1].getOriginal();
+
+            DenseDoubleAlgebra alg = new DenseDoubleAlgebra();
+            DoubleMatrix2D result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = alg.mult(matA,alg.transpose(matB));
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new PColtBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
     public static class MulTranB implements MatrixProcessorInterface {
         @Override
         public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
             DoubleMatrix2D matA = inputs[0].getOriginal();
             DoubleMatrix2D matB = inputs[1].getOriginal();
 
-            DoubleMatrix2D result = createMatrix(matA.columns(),matB.columns());
+            DoubleMatrix2D result = createMatrix(matA.rows(),matB.rows());
 
             long prev = System.nanoTime();
 
@@ -399,6 +486,29 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
         return new Scale();
     }
 
+    public static class ScaleAlloc implements MatrixProcessorInterface {
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            DoubleMatrix2D matA = inputs[0].getOriginal();
+
+            DoubleMatrix2D result = null;
+
+            long prev = System.nanoTime();
+
+            for( long i = 0; i < numTrials; i++ ) {
+                result = matA.copy();
+                result.assign(DoubleFunctions.mult(ScaleGenerator.SCALE));
+                Blackhole.consume(result);
+            }
+
+            long elapsedTime = System.nanoTime()-prev;
+            if( outputs != null ) {
+                outputs[0] = new PColtBenchmarkMatrix(result);
+            }
+            return elapsedTime;
+        }
+    }
+
     public static class Scale implements MatrixProcessorInterface {
         @Override
         public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
@@ -445,6 +555,7 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = alg.solve(matA,matB);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -466,6 +577,77 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
         return new DenseDoubleMatrix2D( numRows , numCols );
     }
 
+    // only mult, multTransB, add and scale have an API which writes into a preallocated output
+    @Override
+    public MatrixProcessorInterface cholAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface luAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface svdAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface qrAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface eigSymmAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertSymmPosDefAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface addAlloc() {
+        return new AddAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface multAlloc() {
+        return new MultAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface multTransBAlloc() {
+        return new MulTranBAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface scaleAlloc() {
+        return new ScaleAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface solveExactAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveOverAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface transposeAlloc() {
+        return null;
+    }
+
     @Override
     public BenchmarkMatrix convertToLib(DenseMatrix64F input) {
         return new PColtBenchmarkMatrix(convertToParallelColt(input));
@@ -477,6 +659,17 @@ public class PColtAlgorithmFactory implements RuntimePerformanceFactory {
         return parallelColtToEjml(orig);
     }
 
+    @Override
+    public double[][] convertToArray2D(BenchmarkMatrix input) {
+        cern.colt.matrix.tdouble.DoubleMatrix2D orig = input.getOriginal();
+        return orig.toArray();
+    }
+
+    @Override
+    public BenchmarkMatrix convertFromArray2D(double a[][]) {
+        return new PColtBenchmarkMatrix(new DenseDoubleMatrix2D(a));
+    }
+
     public static cern.colt.matrix.tdouble.DoubleMatrix2D convertToParallelColt( DenseMatrix64F orig )
     {
         DenseDoubleMatrix2D mat = createMatrix(orig.numRows,orig.numCols);
@@ -21,7 +21,10 @@ package jmbench.impl.runtime;
 
 import jmbench.impl.wrapper.EjmlBenchmarkMatrix;
 import jmbench.impl.wrapper.SejmlBenchmarkMatrix;
+import jmbench.interfaces.AllocatingPerformanceFactory;
+import jmbench.interfaces.ArrayConversionFactory;
 import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.runtime.generator.ScaleGenerator;
@@ -35,7 +38,7 @@ import org.ejml.simple.SimpleSVD;
 /**
  * @author Peter Abeles
  */
-public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
+public class SejmlAlgorithmFactory implements RuntimePerformanceFactory, AllocatingPerformanceFactory, ArrayConversionFactory {
 
     @Override
     public BenchmarkMatrix create(int numRows, int numCols) {
@@ -75,6 +78,9 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
                 U=s.getU();
                 W=s.getW();
                 V=s.getV();
+                Blackhole.consume(U);
+                Blackhole.consume(W);
+                Blackhole.consume(V);
             }
 
             long elapsedTime = System.nanoTime() - prev;
@@ -103,8 +109,9 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 evd = matA.eig();
-                evd.getEigenvalue(0);
-                evd.getEigenVector(0);
+                Blackhole.consume(evd.getEigenvalue(0));
+                Blackhole.consume(evd.getEigenVector(0));
+                Blackhole.consume(evd);
             }
 
             long elapsedTime = System.nanoTime() - prev;
@@ -134,7 +141,7 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
             long prev = System.nanoTime();
 
             for( long i = 0; i < numTrials; i++ ) {
-                matA.determinant();
+                Blackhole.consume(matA.determinant());
             }
 
             return System.nanoTime() - prev;
@@ -156,6 +163,7 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.invert();
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -187,6 +195,7 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.plus(matB);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -213,6 +222,7 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                  result = matA.mult(matB);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -239,6 +249,7 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.mult(matB.transpose());
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -264,6 +275,7 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.scale(ScaleGenerator.SCALE);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -296,6 +308,7 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.solve(matB);
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -321,6 +334,7 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
 
             for( long i = 0; i < numTrials; i++ ) {
                 result = matA.transpose();
+                Blackhole.consume(result);
             }
 
             long elapsedTime = System.nanoTime()-prev;
@@ -331,6 +345,77 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
         }
     }
 
+    // SimpleMatrix is the allocating API for EJML, so the regular operations already allocate
+    @Override
+    public MatrixProcessorInterface cholAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface luAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface svdAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface qrAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface eigSymmAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertSymmPosDefAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface addAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface multAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface multTransBAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface scaleAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveExactAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveOverAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface transposeAlloc() {
+        return null;
+    }
+
     @Override
     public BenchmarkMatrix convertToLib(DenseMatrix64F input) {
         return new SejmlBenchmarkMatrix(SimpleMatrix.wrap(input));
@@ -341,4 +426,15 @@ public class SejmlAlgorithmFactory implements RuntimePerformanceFactory {
         SimpleMatrix orig = input.getOriginal();
         return orig.getMatrix();
     }
+
+    @Override
+    public double[][] convertToArray2D(BenchmarkMatrix input) {
+        SimpleMatrix orig = input.getOriginal();
+        return EjmlAlgorithmFactory.ejmlToArray2D(orig.getMatrix());
+    }
+
+    @Override
+    public BenchmarkMatrix convertFromArray2D(double a[][]) {
+        return new SejmlBenchmarkMatrix(new SimpleMatrix(a));
+    }
 }
\ No newline at end of file
@@ -20,7 +20,10 @@
 package jmbench.impl.runtime;
 
 import jmbench.impl.wrapper.UjmpBenchmarkMatrix;
+import jmbench.interfaces.AllocatingPerformanceFactory;
+import jmbench.interfaces.ArrayConversionFactory;
 import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.runtime.generator.ScaleGenerator;
@@ -34,7 +37,7 @@ import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
  * @author Peter Abeles
  * @author Holger Arndt
  */
-public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
+public class UjmpAlgorithmFactory implements RuntimePerformanceFactory, AllocatingPerformanceFactory, ArrayConversionFactory {
 
     @Override
     public BenchmarkMatrix create(int numRows, int numCols) {
@@ -63,6 +66,7 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
 
 			for (long i = 0; i < numTrials; i++) {
 				U = DenseDoubleMatrix2D.chol.calc(matA);
+				Blackhole.consume(U);
 			}
 
 			long elapsedTime = System.nanoTime() - prev;
@@ -97,6 +101,9 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
 				L = decomp[0];
 				U = decomp[1];
 				P = decomp[2];
+				Blackhole.consume(L);
+				Blackhole.consume(U);
+				Blackhole.consume(P);
 			}
 
 			long elapsedTime = System.nanoTime() - prev;
@@ -127,6 +134,7 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
 			for (long i = 0; i < numTrials; i++) {
 				// it should be extracting all the components all the time
 				svd = DenseDoubleMatrix2D.svd.calc(matA);
+				Blackhole.consume(svd);
 			}
 
 			long elapsedTime = System.nanoTime() - prev;
@@ -156,6 +164,7 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
 
 			for (long i = 0; i < numTrials; i++) {
 				result = DenseDoubleMatrix2D.eig.calc(matA);
+				Blackhole.consume(result);
 			}
 
 			long elapsedTime = System.nanoTime() - prev;
@@ -188,6 +197,8 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
 
 				Q = decomp[0];
 				R = decomp[1];
+				Blackhole.consume(Q);
+				Blackhole.consume(R);
 			}
 
 			long elapsedTime = System.nanoTime() - prev;
@@ -213,7 +224,7 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
 			long prev = System.nanoTime();
 
 			for (long i = 0; i < numTrials; i++) {
-				matA.det();
+				Blackhole.consume(matA.det());
 			}
 
 			return System.nanoTime() - prev;
@@ -237,6 +248,7 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
 
 			for (long i = 0; i < numTrials; i++) {
 				result = DenseDoubleMatrix2D.inv.calc(matA);
+				Blackhole.consume(result);
 			}
 
 			long elapsedTime = System.nanoTime() - prev;
@@ -265,6 +277,7 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
 
 			for (long i = 0; i < numTrials; i++) {
 				result = DenseDoubleMatrix2D.chol.solve(matA, eye);
+				Blackhole.consume(result);
 			}
 
 			long elapsedTime = System.nanoTime() - prev;
@@ -351,6 +364,7 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
 
 			for (long i = 0; i < numTrials; i++) {
 				result = matA.mtimes(matB.transpose());
+				Blackhole.consume(result);
 			}
 
 			long elapsedTime = System.nanoTime() - prev;
@@ -408,6 +422,7 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
 
 			for (long i = 0; i < numTrials; i++) {
 				result = matA.solve(matB);
+				Blackhole.consume(result);
 			}
 
 			long elapsedTime = System.nanoTime() - prev;
@@ -451,6 +466,171 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
 		}
 	}
 
+	public static class AddAlloc implements MatrixProcessorInterface {
+		@Override
+		public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs,
+				long numTrials) {
+			Matrix matA = inputs[0].getOriginal();
+			Matrix matB = inputs[1].getOriginal();
+
+			Matrix result = null;
+
+			long prev = System.nanoTime();
+
+			for (long i = 0; i < numTrials; i++) {
+				result = matA.plus(matB);
+				Blackhole.consume(result);
+			}
+
+			long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new UjmpBenchmarkMatrix(result);
+            }
+			return elapsedTime;
+		}
+	}
+
+	public static class MultAlloc implements MatrixProcessorInterface {
+		@Override
+		public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs,
+				long numTrials) {
+			Matrix matA = inputs[0].getOriginal();
+			Matrix matB = inputs[1].getOriginal();
+
+			Matrix result = null;
+
+			long prev = System.nanoTime();
+
+			for (long i = 0; i < numTrials; i++) {
+				result = matA.mtimes(matB);
+				Blackhole.consume(result);
+			}
+
+			long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new UjmpBenchmarkMatrix(result);
+            }
+			return elapsedTime;
+		}
+	}
+
+	public static class ScaleAlloc implements MatrixProcessorInterface {
+		@Override
+		public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs,
+				long numTrials) {
+			Matrix matA = inputs[0].getOriginal();
+
+			Matrix result = null;
+
+			long prev = System.nanoTime();
+
+			for (long i = 0; i < numTrials; i++) {
+				result = matA.times(ScaleGenerator.SCALE);
+				Blackhole.consume(result);
+			}
+
+			long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new UjmpBenchmarkMatrix(result);
+            }
+			return elapsedTime;
+		}
+	}
+
+	public static class TransposeAlloc implements MatrixProcessorInterface {
+		@Override
+		public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs,
+				long numTrials) {
+			Matrix matA = inputs[0].getOriginal();
+
+			Matrix result = null;
+
+			long prev = System.nanoTime();
+
+			for (long i = 0; i < numTrials; i++) {
+				result = matA.transpose();
+				Blackhole.consume(result);
+			}
+
+			long elapsedTime = System.nanoTime() - prev;
+            if( outputs != null ) {
+                outputs[0] = new UjmpBenchmarkMatrix(result);
+            }
+			return elapsedTime;
+		}
+	}
+
+    // only mult, add, scale and transpose have an API which writes into a preallocated output
+    @Override
+    public MatrixProcessorInterface cholAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface luAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface svdAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface qrAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface eigSymmAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface invertSymmPosDefAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface addAlloc() {
+        return new AddAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface multAlloc() {
+        return new MultAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface multTransBAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface scaleAlloc() {
+        return new ScaleAlloc();
+    }
+
+    @Override
+    public MatrixProcessorInterface solveExactAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface solveOverAlloc() {
+        return null;
+    }
+
+    @Override
+    public MatrixProcessorInterface transposeAlloc() {
+        return new TransposeAlloc();
+    }
+
     @Override
     public BenchmarkMatrix convertToLib(DenseMatrix64F input) {
         return new UjmpBenchmarkMatrix(convertToUjmp(input));
@@ -462,6 +642,17 @@ public class UjmpAlgorithmFactory implements RuntimePerformanceFactory {
         return ujmpToEjml(orig);
     }
 
+    @Override
+    public double[][] convertToArray2D(BenchmarkMatrix input) {
+        Matrix orig = input.getOriginal();
+        return orig.toDoubleArray();
+    }
+
+    @Override
+    public BenchmarkMatrix convertFromArray2D(double a[][]) {
+        return new UjmpBenchmarkMatrix(MatrixFactory.linkToArray(a));
+    }
+
     public static DenseDoubleMatrix2D convertToUjmp(DenseMatrix64F orig) {
 		DenseDoubleMatrix2D ret = DenseDoubleMatrix2D.factory.zeros(orig
 				.getNumRows(), orig.getNumCols());
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.interfaces;
+
+
+/**
+ * <p>
+ * Variants of the operations in {@link RuntimePerformanceFactory} where a new output matrix is returned by every
+ * call, which is how most application code uses a library.  Operations in {@link RuntimePerformanceFactory}
+ * should write into preallocated outputs whenever the library provides an API for doing so.
+ * </p>
+ *
+ * <p>
+ * If the library has an API which returns a new matrix then it should be used.  Otherwise the output is declared
+ * inside the loop and passed to the preallocated API.  If the library only provides an allocating API for an
+ * operation then the regular operation already allocates and null should be returned, so that the same
+ * measurement isn't reported twice.  Each function's name is the name of the operation in
+ * {@link RuntimePerformanceFactory} with {@link #SUFFIX} appended to it.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public interface AllocatingPerformanceFactory {
+
+    /**
+     * Appended to the name of an operation to get the name of its allocating variant
+     */
+    public static final String SUFFIX = "Alloc";
+
+    MatrixProcessorInterface cholAlloc();
+
+    MatrixProcessorInterface luAlloc();
+
+    MatrixProcessorInterface svdAlloc();
+
+    MatrixProcessorInterface qrAlloc();
+
+    MatrixProcessorInterface eigSymmAlloc();
+
+    MatrixProcessorInterface invertAlloc();
+
+    MatrixProcessorInterface invertSymmPosDefAlloc();
+
+    MatrixProcessorInterface addAlloc();
+
+    MatrixProcessorInterface multAlloc();
+
+    MatrixProcessorInterface multTransBAlloc();
+
+    MatrixProcessorInterface scaleAlloc();
+
+    MatrixProcessorInterface solveExactAlloc();
+
+    MatrixProcessorInterface solveOverAlloc();
+
+    MatrixProcessorInterface transposeAlloc();
+}
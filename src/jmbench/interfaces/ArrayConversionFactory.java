@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.interfaces;
+
+
+/**
+ * <p>
+ * Converts between a library's matrix type and a row-major double[][] using the bulk functions the library
+ * provides.  Going through double[][] is what most people do when they need to move a matrix between
+ * libraries, since nearly every library can import and export one.  The conversion functions in
+ * {@link RuntimePerformanceFactory} go through EJML one element at a time instead.
+ * </p>
+ *
+ * <p>
+ * When the library can wrap an array without copying it then that should be used, since the array passed to
+ * {@link #convertFromArray2D} is never used again by the caller.  Libraries without a bulk API don't need to
+ * implement this interface.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public interface ArrayConversionFactory {
+
+    /**
+     * Copies the matrix into a new row-major double[][].
+     */
+    double[][] convertToArray2D( BenchmarkMatrix input );
+
+    /**
+     * Creates a matrix in the library from a row-major double[][].  The output might reference the array.
+     */
+    BenchmarkMatrix convertFromArray2D( double a[][] );
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.interfaces;
+
+import java.lang.ref.WeakReference;
+
+
+/**
+ * <p>
+ * Consumes the results computed inside of a benchmark's timed loop so that the JIT can't remove the computation
+ * as dead code.  If the result of an operation is discarded, such as a determinant which is never looked at, then
+ * the compiler is free to skip computing it and the benchmark ends up timing an empty loop.
+ * </p>
+ *
+ * <p>
+ * The same approach as JMH is used.  A primitive is compared against two volatile values which are never equal
+ * to each other, so the comparison can never be true but the compiler can't prove it.  Objects are compared
+ * against a volatile reference and only once in a while stored, so that the cost of consuming a matrix stays
+ * constant.  Results which are written into a preallocated output don't need to be consumed since the output
+ * escapes the loop.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class Blackhole {
+    // the two values are never equal so the condition below can never be true
+    private static volatile double d1 = 1, d2 = 2;
+    private static volatile long l1 = 1, l2 = 2;
+    private static volatile int i1 = 1, i2 = 2;
+    private static volatile boolean b1 = false, b2 = true;
+
+    // never refers to an object passed in to consume()
+    private static volatile Object obj1 = new Object();
+    // mask on a pseudo random number which decides when the consumed object is stored
+    private static volatile int tlrMask = 1;
+    private static int tlr = (int)System.nanoTime();
+
+    // a reference that the consumed object might be stored in
+    private static Object sink;
+
+    public static void consume( double d ) {
+        if( d == d1 & d == d2 ) {
+            sink = d;
+        }
+    }
+
+    public static void consume( long l ) {
+        if( l == l1 & l == l2 ) {
+            sink = l;
+        }
+    }
+
+    public static void consume( int i ) {
+        if( i == i1 & i == i2 ) {
+            sink = i;
+        }
+    }
+
+    public static void consume( boolean b ) {
+        if( b == b1 & b == b2 ) {
+            sink = b;
+        }
+    }
+
+    public static void consume( Object o ) {
+        int mask = tlrMask;
+        int r = (tlr = tlr * 1664525 + 1013904223);
+        if( (r & mask) == 0 ) {
+            // store it very rarely so that the object is seen to escape
+            sink = new WeakReference<Object>(o);
+            tlrMask = (mask << 1) + 1;
+        }
+        if( o == obj1 ) {
+            sink = o;
+        }
+    }
+}
@@ -43,16 +43,37 @@ public class MemoryRelativeBarPlot {
     JFreeChart chart;
 
     public MemoryRelativeBarPlot( String title ) {
-        chart = ChartFactory.createBarChart(
-                title,       // chart title
-                "Operation",               // domain axis label
-                "Relative Memory",                  // range axis label
-                dataset,                  // data
-                PlotOrientation.VERTICAL, // orientation
-                true,                     // include legend
-                true,                     // tooltips?
-                false                     // URLs?
-        );
+        this(title,false);
+    }
+
+    /**
+     * @param stacked If true each bar is a library which is split into the components of its memory usage.
+     *                See {@link #addComponent}.
+     */
+    public MemoryRelativeBarPlot( String title , boolean stacked ) {
+        if( stacked ) {
+            chart = ChartFactory.createStackedBarChart(
+                    title,
+                    "Library",
+                    "Relative Memory",
+                    dataset,
+                    PlotOrientation.VERTICAL,
+                    true,
+                    true,
+                    false
+            );
+        } else {
+            chart = ChartFactory.createBarChart(
+                    title,       // chart title
+                    "Operation",               // domain axis label
+                    "Relative Memory",                  // range axis label
+                    dataset,                  // data
+                    PlotOrientation.VERTICAL, // orientation
+                    true,                     // include legend
+                    true,                     // tooltips?
+                    false                     // URLs?
+            );
+        }
         chart.addSubtitle(new TextTitle("(Smaller is Better)",new Font("SansSerif", Font.ITALIC, 12)));
 
         plot();
@@ -62,6 +83,13 @@ public class MemoryRelativeBarPlot {
         dataset.addValue(relativeMemory, library, operation);
     }
 
+    /**
+     * Adds one component of a library's memory usage to a stacked plot.
+     */
+    public void addComponent( String library , String component , double relativeMemory ) {
+        dataset.addValue(relativeMemory, component, library);
+    }
+
     private void plot() {
         CategoryPlot plot = chart.getCategoryPlot();
 //        plot.setDomainGridlinesVisible(true);
@@ -204,6 +204,9 @@ public class OperationsVersusSizePlot
 
             case 12:
                 return new Color(120,255,0);
+
+            case 13:
+                return new Color(100,0,150); // purple
             
             default:
                 throw new RuntimeException("add some more");
@@ -251,6 +254,9 @@ public class OperationsVersusSizePlot
             case 12:
                 return SimpleStrokeFactory.createStroke("--",size,patternSize);
 
+            case 13:
+                return SimpleStrokeFactory.createStroke("-",size,patternSize);
+
             default:
                 throw new RuntimeException("add some more: "+num);
         }
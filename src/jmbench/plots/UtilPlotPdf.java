@@ -44,7 +44,8 @@ public class UtilPlotPdf {
     public static void saveAsPdf(JFreeChart chart, String FILENAME , int width, int height) {
         File parent = new File(new File(FILENAME).getParent());
         if( !parent.exists() )  {
-            if( !parent.mkdirs() )
+            // another thread might have created it at the same time
+            if( !parent.mkdirs() && !parent.exists() )
                 throw new RuntimeException("Can't make directory path");
         }
 
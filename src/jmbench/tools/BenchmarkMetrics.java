@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+
+/**
+ * <p>
+ * Live progress of the benchmark master, which can be exported in the OpenMetrics text format to a file or
+ * through a HTTP server on the local machine.  This allows long benchmark runs to be monitored the same way
+ * as any other service.
+ * </p>
+ *
+ * <p>
+ * There is a single instance per master process.  {@link BenchmarkTools} records slave launches and failures and
+ * the runtime benchmark records which case is being processed and its latest results.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class BenchmarkMetrics {
+
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    public static final String FILE_NAME = "metrics.prom";
+
+    private static BenchmarkMetrics instance = new BenchmarkMetrics();
+
+    private long startTime = System.currentTimeMillis();
+
+    // what is currently being processed
+    private String library = "";
+    private String operation = "";
+    private int size;
+
+    // number of libraries and how many have finished
+    private int totalLibraries;
+    private int completedLibraries;
+    // number of cases in the current library and how many have finished
+    private int libraryCases;
+    private int libraryCompleted;
+    // number of cases finished across all libraries
+    private long completedCases;
+    private long completedBlocks;
+
+    private long slaveLaunches;
+    private Map<EvaluatorSlave.FailReason,Long> failures =
+            new EnumMap<EvaluatorSlave.FailReason,Long>(EvaluatorSlave.FailReason.class);
+    // the slave exited without returning any results
+    private long failuresNoResults;
+
+    // most recent median ops/sec and which case it came from
+    private double latestOpsPerSec = Double.NaN;
+    private String latestLibrary = "";
+    private String latestOperation = "";
+    private int latestSize;
+
+    private Timer timer;
+    private HttpServer server;
+
+    public static BenchmarkMetrics getInstance() {
+        return instance;
+    }
+
+    public synchronized void setTotalLibraries( int totalLibraries ) {
+        this.totalLibraries = totalLibraries;
+        this.completedLibraries = 0;
+    }
+
+    public synchronized void startLibrary( String library ) {
+        this.library = library;
+        this.libraryCases = 0;
+        this.libraryCompleted = 0;
+    }
+
+    public synchronized void finishLibrary() {
+        completedLibraries++;
+    }
+
+    /**
+     * Number of cases the current library has left to process
+     */
+    public synchronized void setLibraryCases( int numCases ) {
+        this.libraryCases = numCases;
+    }
+
+    public synchronized void startBlock( String operation , int size ) {
+        this.operation = operation;
+        this.size = size;
+    }
+
+    /**
+     * A block of trials finished
+     *
+     * @param opsPerSec median ops/sec of the block or NaN if it failed
+     */
+    public synchronized void finishBlock( double opsPerSec ) {
+        completedBlocks++;
+        if( !Double.isNaN(opsPerSec) ) {
+            latestOpsPerSec = opsPerSec;
+            latestLibrary = library;
+            latestOperation = operation;
+            latestSize = size;
+        }
+    }
+
+    public synchronized void finishCase() {
+        completedCases++;
+        libraryCompleted++;
+    }
+
+    public synchronized void slaveLaunched() {
+        slaveLaunches++;
+    }
+
+    /**
+     * Records how a slave finished
+     *
+     * @param results What the slave returned.  Can be null.
+     */
+    public synchronized void slaveFinished( EvaluatorSlave.Results results ) {
+        if( results == null ) {
+            failuresNoResults++;
+        } else if( results.failed != null ) {
+            Long count = failures.get(results.failed);
+            failures.put(results.failed, count == null ? 1 : count+1);
+        }
+    }
+
+    /**
+     * Fraction of the benchmark which has been finished, from 0 to 1
+     */
+    public synchronized double getProgress() {
+        if( totalLibraries <= 0 )
+            return 0;
+        double fraction = libraryCases > 0 ? libraryCompleted/(double)libraryCases : 0;
+        return Math.min(1.0,(completedLibraries+fraction)/totalLibraries);
+    }
+
+    /**
+     * Estimated number of seconds until the benchmark finishes or NaN if unknown
+     */
+    public synchronized double getEtaSeconds() {
+        double progress = getProgress();
+        if( progress <= 0 )
+            return Double.NaN;
+        double elapsed = (System.currentTimeMillis()-startTime)/1000.0;
+        return elapsed*(1.0-progress)/progress;
+    }
+
+    /**
+     * Writes all the metrics in the OpenMetrics text format
+     */
+    public synchronized void write( PrintStream out ) {
+        out.println("# HELP jmbench_current_case Case which is currently being benchmarked.");
+        out.println("# TYPE jmbench_current_case gauge");
+        out.println("jmbench_current_case{library=\""+escape(library)+"\",operation=\""+escape(operation)+
+                "\",size=\""+size+"\"} 1");
+
+        gauge(out,"jmbench_libraries","Number of libraries being benchmarked.",totalLibraries);
+        gauge(out,"jmbench_libraries_completed","Number of libraries which have finished.",completedLibraries);
+        gauge(out,"jmbench_library_cases","Number of cases left to process in the current library when it started.",libraryCases);
+        counter(out,"jmbench_cases_completed","Number of operations which finished all their matrix sizes.",completedCases);
+        counter(out,"jmbench_blocks_completed","Number of blocks of trials processed.",completedBlocks);
+        counter(out,"jmbench_slave_launches","Number of slave processes launched.",slaveLaunches);
+
+        out.println("# HELP jmbench_slave_failures Slaves which failed, by reason.");
+        out.println("# TYPE jmbench_slave_failures counter");
+        for( EvaluatorSlave.FailReason reason : EvaluatorSlave.FailReason.values() ) {
+            Long count = failures.get(reason);
+            out.println("jmbench_slave_failures_total{reason=\""+reason+"\"} "+(count == null ? 0 : count));
+        }
+        out.println("jmbench_slave_failures_total{reason=\"NO_RESULTS\"} "+failuresNoResults);
+
+        gauge(out,"jmbench_progress_ratio","Fraction of the benchmark which has finished.",getProgress());
+        gauge(out,"jmbench_eta_seconds","Estimated time until the benchmark finishes.",getEtaSeconds());
+        gauge(out,"jmbench_uptime_seconds","Time since the master started.",(System.currentTimeMillis()-startTime)/1000.0);
+
+        out.println("# HELP jmbench_latest_ops_per_second Median ops/sec of the most recent block.");
+        out.println("# TYPE jmbench_latest_ops_per_second gauge");
+        out.println("jmbench_latest_ops_per_second{library=\""+escape(latestLibrary)+"\",operation=\""+
+                escape(latestOperation)+"\",size=\""+latestSize+"\"} "+format(latestOpsPerSec));
+        out.println("# EOF");
+    }
+
+    public String toText() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes);
+        write(out);
+        out.flush();
+        try {
+            return bytes.toString("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Periodically writes the metrics to a file.  The file is written to a temporary file and then renamed so
+     * that readers never see a partially written file.
+     */
+    public synchronized void startFileExport( final File file , long periodMillis ) {
+        if( timer == null )
+            timer = new Timer("metrics",true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                saveFile(file);
+            }
+        },0,periodMillis);
+    }
+
+    public void saveFile( File file ) {
+        File tmp = new File(file.getPath()+".tmp");
+        try {
+            PrintStream out = new PrintStream(new FileOutputStream(tmp),false,"UTF-8");
+            write(out);
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Failed to save metrics: "+e.getMessage());
+            return;
+        }
+        if( file.exists() )
+            file.delete();
+        if( !tmp.renameTo(file) )
+            System.err.println("Failed to rename metrics file "+tmp.getPath());
+    }
+
+    /**
+     * Starts a HTTP server on the loop back interface which returns the metrics at /metrics
+     *
+     * @param port Port the server listens on
+     */
+    public synchronized void startHttpServer( int port ) throws IOException {
+        if( server != null )
+            return;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"),port),0);
+        server.createContext("/metrics",new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte data[] = toText().getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type",CONTENT_TYPE);
+                exchange.sendResponseHeaders(200,data.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(data);
+                out.close();
+            }
+        });
+        server.start();
+        System.out.println("Metrics available at http://127.0.0.1:"+port+"/metrics");
+    }
+
+    public synchronized void stop() {
+        if( timer != null ) {
+            timer.cancel();
+            timer = null;
+        }
+        if( server != null ) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private static void gauge( PrintStream out , String name , String help , double value ) {
+        out.println("# HELP "+name+" "+help);
+        out.println("# TYPE "+name+" gauge");
+        out.println(name+" "+format(value));
+    }
+
+    private static void counter( PrintStream out , String name , String help , long value ) {
+        out.println("# HELP "+name+" "+help);
+        out.println("# TYPE "+name+" counter");
+        out.println(name+"_total "+value);
+    }
+
+    private static String format( double value ) {
+        if( Double.isNaN(value) )
+            return "NaN";
+        if( Double.isInfinite(value) )
+            return value > 0 ? "+Inf" : "-Inf";
+        if( value == Math.rint(value) && Math.abs(value) < 1e15 )
+            return Long.toString((long)value);
+        return Double.toString(value);
+    }
+
+    private static String escape( String text ) {
+        return text.replace("\\","\\\\").replace("\"","\\\"").replace("\n","\\n");
+    }
+}
@@ -23,7 +23,6 @@ import jmbench.tools.stability.UtilXmlSerialization;
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.Random;
 
@@ -56,6 +55,9 @@ public class BenchmarkTools {
 
     // how long the process ran for in milliseconds
     long durationMilli;
+    // CPU time used by the slave in milliseconds and the most threads it had.  -1 if unknown
+    long slaveCpuMillis = -1;
+    int slaveMaxThreads = -1;
 
     boolean verbose = true;
 
@@ -64,6 +66,14 @@ public class BenchmarkTools {
     // arguments passed to slave jvm
     String []params;
 
+    // if not null the slave is started with Java Flight Recorder and the recording is saved to this file
+    String flightRecording;
+
+    // creates and reuses class data sharing archives and records slave startup time
+    ClassDataSharing cds = new ClassDataSharing(null);
+    // how the most recent slave was launched
+    ClassDataSharing.Mode cdsMode = ClassDataSharing.Mode.OFF;
+
     public BenchmarkTools(){}
 
     public BenchmarkTools( int numTrials , long baseMemory , long memoryScale , List<String> jarNames ){
@@ -110,6 +120,21 @@ public class BenchmarkTools {
         this.frozenDefaultTime = frozenDefaultTime;
     }
 
+    /**
+     * Specifies where the next slave should save its flight recording.  Set to null to turn off recording.
+     */
+    public void setFlightRecording(String flightRecording) {
+        this.flightRecording = flightRecording;
+    }
+
+    public ClassDataSharing getClassDataSharing() {
+        return cds;
+    }
+
+    public void setClassDataSharing(ClassDataSharing cds) {
+        this.cds = cds;
+    }
+
     public void setOverrideMemory(long overrideMemory) {
         this.overrideMemory = overrideMemory;
     }
@@ -135,18 +160,20 @@ public class BenchmarkTools {
         try {
             Runtime rt = Runtime.getRuntime();
             Process pr = rt.exec(params);
+            BenchmarkMetrics.getInstance().slaveLaunched();
 
-            if( System.in == pr.getInputStream() ) {
-                System.out.println("Egads");
-            }
-
-            BufferedReader input = new BufferedReader(new InputStreamReader(pr.getInputStream()));
-            BufferedReader error = new BufferedReader(new InputStreamReader(pr.getErrorStream()));
+            SlaveSupervisor supervisor = new SlaveSupervisor(pr);
 
             // print the output from the slave
-            boolean frozen = monitorSlave(test, pr, input, error);
-
-            return processSlaveResults(frozen, pr, input, error);
+            boolean frozen = monitorSlave(test, supervisor);
+
+            EvaluatorSlave.Results results = processSlaveResults(frozen, supervisor);
+            if( cdsMode == ClassDataSharing.Mode.DUMP )
+                cds.finishDump(getClassPath(),!frozen && pr.exitValue() == 0);
+            BenchmarkMetrics.getInstance().slaveFinished(results);
+            if( results != null && results.startupMillis > 0 )
+                cds.addStartup(cdsMode,results.startupMillis);
+            return results;
         } catch (IOException e) {
             throw new RuntimeException(e);
         } catch (InterruptedException e) {
@@ -199,109 +226,56 @@ public class BenchmarkTools {
         if(verbose)
             System.out.println("Memory = "+allocatedMemory+" MB");
 
-        String []params = new String[10];
-        params[0] = app;
-        params[1] = "-server";
-        params[2] = "-Xms"+allocatedMemory+"M";
-        params[3] = "-Xmx"+allocatedMemory+"M";
-        params[4] = "-classpath";
-        params[5] = classPath;
-        params[6] = "jmbench.tools.EvaluatorSlave";
-        params[7] = "case.xml";
-        params[8] = Integer.toString(numTrials);
-        params[9] = Long.toString(requestID);
-        return params;
+        List<String> params = new ArrayList<String>();
+        params.add(app);
+        params.add("-server");
+        params.add("-Xms"+allocatedMemory+"M");
+        params.add("-Xmx"+allocatedMemory+"M");
+        if( flightRecording != null ) {
+            // the profile settings sample methods every 10 ms and record allocations and lock contention
+            params.add("-XX:StartFlightRecording=settings=profile,dumponexit=true,filename="+flightRecording);
+        }
+        cdsMode = cds.addArguments(classPath,params);
+        params.add("-classpath");
+        params.add(classPath);
+        params.add("jmbench.tools.EvaluatorSlave");
+        params.add("case.xml");
+        params.add(Integer.toString(numTrials));
+        params.add(Long.toString(requestID));
+        return params.toArray(new String[params.size()]);
     }
 
     /**
-     * Prints out the standard out and error from the slave and checks its health.  Exits if
+     * Prints out the standard out and error from the slave and checks its health.  Returns once
      * the slave has finished or is declared frozen.
      */
-    private boolean monitorSlave(EvaluationTest test, Process pr,
-                                 BufferedReader input, BufferedReader error)
+    private boolean monitorSlave(EvaluationTest test, SlaveSupervisor supervisor)
             throws IOException, InterruptedException {
 
-        // flush the input buffer
-        System.in.skip(System.in.available());
-
         // If the total amount of time allocated to the slave exceeds the maximum number of trials multiplied
         // by the maximum runtime plus some fudge factor the slave is declared as frozen
         long mustBeFrozenTime = test.getMaximumRuntime() > 0 ?
                 test.getMaximumRuntime()*(numTrials+2) : frozenDefaultTime;
 
-        boolean frozen = false;
-
-        long startTime = System.currentTimeMillis();
-        long lastAliveMessage = startTime;
-        for(;;) {
-            while( System.in.available() > 0 ) {
-                if( System.in.read() == 'q' ) {
-                    System.out.println("User requested for the application to quit by pressing 'q'");
-                    System.exit(0);
-                }
-            }
-
-            printError(error);
-
-            if( input.ready() ) {
-                printInputBuffer(input);
-            } else {
-                Thread.sleep(500);
-            }
+        supervisor.setTimeout(mustBeFrozenTime);
+        supervisor.setUserQuit(true);
+        supervisor.setAliveMessage("Master is still alive, press 'q' and enter to quit.");
 
-            try {
-                // exit value throws an exception is the process has yet to stop
-                pr.exitValue();
-                break;
-            } catch( IllegalThreadStateException e) {
-                // check to see if the process is frozen
-                if(System.currentTimeMillis() - startTime > mustBeFrozenTime ) {
-                    frozen = true;
-                    break;
-                }
+        boolean frozen = !supervisor.waitFor();
 
-                // let everyone know its still alive
-                if( System.currentTimeMillis() - lastAliveMessage > 60000 ) {
-                    System.out.println("\nMaster is still alive: "+new Date()+"  Press 'q' and enter to quit.");
-                    lastAliveMessage = System.currentTimeMillis();
-                }
-            }
-        }
-        durationMilli = System.currentTimeMillis()-startTime;
+        durationMilli = supervisor.getDurationMilli();
+        slaveCpuMillis = supervisor.getCpuTimeMillis();
+        slaveMaxThreads = supervisor.getMaxThreads();
         return frozen;
     }
 
-    private void printError(BufferedReader error) throws IOException {
-        while( error.ready() ) {
-            int val = error.read();
-            if( val < 0 ) break;
-
-            System.out.print(Character.toChars(val));
-        }
-    }
-
-    private void printInputBuffer(BufferedReader input) throws IOException {
-
-        while( input.ready() ) {
-            int val = input.read();
-            if( val < 0 ) break;
-
-            System.out.print(Character.toChars(val));
-        }
-    }
-
     /**
      * Cleans up after the slave and compiles the results that are returned.
      */
-    private EvaluatorSlave.Results processSlaveResults(boolean frozen,
-                                                       Process pr,
-                                                       BufferedReader input, BufferedReader error)
+    private EvaluatorSlave.Results processSlaveResults(boolean frozen, SlaveSupervisor supervisor)
             throws InterruptedException, IOException {
         EvaluatorSlave.Results ret;
-
-        // flush whatever is left
-        printInputBuffer(input);
-        printError(error);
+        Process pr = supervisor.getProcess();
 
         // now look to see what happened
         if( !frozen ) {
@@ -330,22 +304,18 @@ public class BenchmarkTools {
                 }
             }
         } else {
-            errorStream.println("BenchmarkTools: Killing a frozen slave.");
-            System.out.println("BenchmarkTools: Killing a frozen slave.");
+            String message = "BenchmarkTools: Killing a frozen slave.  cpu = "+slaveCpuMillis+" ms threads = "+
+                    supervisor.getNumThreads();
+            errorStream.println(message);
+            System.out.println(message);
             // kill the frozen process
-            pr.destroy();
-            pr.waitFor();
+            supervisor.destroy();
 
             // report that there is no results because the slave froze
             System.out.println("Frozen slave is dead.");
             ret = new EvaluatorSlave.Results();
             ret.failed = EvaluatorSlave.FailReason.FROZEN;
         }
-        
-        // close the IO streams
-        input.close();
-        error.close();
-        pr.getOutputStream().close();
 
         // delete temporary files
         cleanup();
@@ -374,6 +344,24 @@ public class BenchmarkTools {
         return durationMilli;
     }
 
+    /**
+     * Returns the CPU time used by the most recent slave in milliseconds, as last sampled by the watchdog.
+     *
+     * @return CPU time in milliseconds or -1 if unknown
+     */
+    public long getSlaveCpuMillis() {
+        return slaveCpuMillis;
+    }
+
+    /**
+     * Returns the largest number of threads seen in the most recent slave
+     *
+     * @return number of threads or -1 if unknown
+     */
+    public int getSlaveMaxThreads() {
+        return slaveMaxThreads;
+    }
+
     /**
      * Returns the number of megabytes allocated to the slave.
      *
@@ -19,11 +19,14 @@
 
 package jmbench.tools;
 
+import jmbench.tools.conversion.ConversionBenchmark;
 import jmbench.tools.memory.MemoryBenchmark;
 import jmbench.tools.memory.PlotMemoryResultsXml;
+import jmbench.tools.runtime.InterleavedBenchmark;
 import jmbench.tools.runtime.RuntimeBenchmarkMaster;
 import jmbench.tools.runtime.evaluation.CheckForErrorsInResults;
 import jmbench.tools.runtime.evaluation.ComparePlatformResults;
+import jmbench.tools.runtime.evaluation.DetectRuntimeRegressions;
 import jmbench.tools.runtime.evaluation.PlotRuntimeResults;
 import jmbench.tools.stability.StabilityBenchmark;
 
@@ -52,6 +55,9 @@ public class BenchmarkToolsMasterApp {
         System.out.println("  plotRuntime        Generates plots from runtime results.");
         System.out.println("  plotMemory         Generates a plot from memory benchmark results.");
         System.out.println("  compareRuntime   Compares runtime performance for a single library across different platforms.");
+        System.out.println("  regression         Detects significant changes in runtime performance between two runs.");
+        System.out.println("  interleave         Compares libraries on one operation by alternating blocks between them.");
+        System.out.println("  conversion         Measures the cost of converting matrices between libraries.");
         System.out.println("  displayStability   Prints out tables showing stability results.");
         System.out.println();
         System.out.println("For example to run the runtime benchmark type:");
@@ -88,6 +94,12 @@ public class BenchmarkToolsMasterApp {
             PlotMemoryResultsXml.main(pruned);
         } else if( tool.compareToIgnoreCase("compareRuntime") == 0 ) {
             ComparePlatformResults.main(pruned);
+        } else if( tool.compareToIgnoreCase("regression") == 0 ) {
+            DetectRuntimeRegressions.main(pruned);
+        } else if( tool.compareToIgnoreCase("interleave") == 0 ) {
+            InterleavedBenchmark.main(pruned);
+        } else if( tool.compareToIgnoreCase("conversion") == 0 ) {
+            ConversionBenchmark.main(pruned);
         } else if( tool.compareToIgnoreCase("displayStability") == 0) {
             System.out.println("Not supported yet "+tool);
         } else {
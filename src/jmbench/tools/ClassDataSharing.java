@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+
+/**
+ * <p>
+ * Creates and reuses an application Class Data Sharing (AppCDS) archive for each slave classpath.  Every slave
+ * loads XStream, the benchmark, and all of a library's jars from scratch, which dominates the run time of
+ * blocks with small matrices.  The first slave launched with a classpath dumps the classes it loaded into
+ * an archive when it exits, see -XX:ArchiveClassesAtExit, and all later slaves map the archive in.  The archive
+ * is dumped to a temporary file which is only renamed once the slave has exited normally, so a slave which is
+ * killed while dumping can't leave behind a truncated archive that later slaves would use.
+ * </p>
+ *
+ * <p>
+ * Archives are named using a hash of the JVM, classpath, and when each jar was modified so they are reused by later
+ * benchmarks until a jar changes.  Dynamic archives require Java 13 or newer, on older JVMs slaves are launched
+ * without CDS.  The startup time reported by each slave is recorded so that launches with and without an archive
+ * can be compared.  To have something to compare against, every few launches with an archive are done without
+ * one instead.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class ClassDataSharing {
+
+    /**
+     * How a slave was launched
+     */
+    public static enum Mode {
+        /** Launched without an archive, because CDS is turned off or not supported or as a baseline */
+        OFF,
+        /** No archive for the classpath, one is created when the slave exits */
+        DUMP,
+        /** Launched using an existing archive */
+        SHARED
+    }
+
+    // directory the archives are saved in.  if null CDS is turned off
+    private File directory;
+
+    // archives which failed to be created.  Not tried again since dumping slows down the slave
+    private Set<String> failed = new HashSet<String>();
+    // number of slaves which have been asked to create an archive for a classpath
+    private Map<String,Integer> attempts = new HashMap<String,Integer>();
+    // number of times a slave can fail to create an archive, e.g. it was killed, before giving up
+    private int maxAttempts = 3;
+    // temporary file each classpath's archive is being dumped to
+    private Map<String,File> dumping = new HashMap<String,File>();
+    // number of slaves launched with each classpath's archive
+    private Map<String,Integer> launches = new HashMap<String,Integer>();
+    // every this many launches with an archive, one is done without so that the startup time can be compared.
+    // If <= 0 a baseline is never recorded
+    private int baselinePeriod = 10;
+
+    // slave startup time in milliseconds for each mode
+    private Map<Mode,List<Long>> startup = new EnumMap<Mode,List<Long>>(Mode.class);
+
+    /**
+     * @param directory Where archives are saved.  If null CDS is turned off but startup times are still recorded.
+     */
+    public ClassDataSharing( File directory ) {
+        if( directory != null && isSupported() ) {
+            if( !directory.exists() && !directory.mkdirs() )
+                throw new RuntimeException("Can't create directory "+directory.getPath());
+            this.directory = directory;
+        }
+        for( Mode m : Mode.values() )
+            startup.put(m,new ArrayList<Long>());
+    }
+
+    /**
+     * Dynamic archives were added in Java 13.  Slaves are launched with the same JVM as the master.
+     */
+    public static boolean isSupported() {
+        return javaSpecificationVersion() >= 13;
+    }
+
+    /**
+     * Major version of Java from the "java.specification.version" property, e.g. 6 for "1.6" and 13 for "13".
+     * Returns -1 if it can't be parsed.
+     */
+    public static int javaSpecificationVersion() {
+        String v = System.getProperty("java.specification.version","");
+        if( v.startsWith("1.") )
+            v = v.substring(2);
+        try {
+            return Integer.parseInt(v);
+        } catch( NumberFormatException e ) {
+            return -1;
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Returns the archive used with a classpath
+     */
+    public File archiveFor( String classPath ) {
+        // include when each jar was modified so that a rebuilt jar gets a new archive
+        StringBuilder key = new StringBuilder();
+        key.append(System.getProperty("java.home")).append('\n').append(System.getProperty("java.vm.version"));
+        for( String path : classPath.split(File.pathSeparator) ) {
+            File f = new File(path);
+            key.append('\n').append(path).append(' ').append(f.length()).append(' ').append(f.lastModified());
+        }
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte digest[] = md.digest(key.toString().getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder();
+            for( int i = 0; i < 8; i++ )
+                name.append(String.format("%02x",digest[i]&0xFF));
+            return new File(directory,"slave_"+name+".jsa");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Adds the JVM arguments for CDS to the list of slave arguments.  Must be called before the classpath
+     * and main class are added.
+     *
+     * @param classPath The slave's classpath
+     * @param params List of JVM arguments
+     * @return How the slave is launched
+     */
+    public Mode addArguments( String classPath , List<String> params ) {
+        if( directory == null || failed.contains(classPath) )
+            return Mode.OFF;
+
+        // the JVM can only archive classes loaded from jars
+        for( String path : classPath.split(File.pathSeparator) ) {
+            if( path.length() > 0 && new File(path).isDirectory() ) {
+                System.err.println("CDS turned off, classpath contains the directory "+path);
+                failed.add(classPath);
+                return Mode.OFF;
+            }
+        }
+
+        File archive = archiveFor(classPath);
+        if( archive.exists() ) {
+            Integer count = launches.get(classPath);
+            count = count == null ? 1 : count+1;
+            launches.put(classPath,count);
+            if( baselinePeriod > 0 && count % baselinePeriod == 0 )
+                return Mode.OFF;
+            params.add("-XX:SharedArchiveFile="+archive.getPath());
+            return Mode.SHARED;
+        }
+
+        Integer count = attempts.get(classPath);
+        count = count == null ? 1 : count+1;
+        if( count > maxAttempts ) {
+            failed.add(classPath);
+            System.err.println("Failed to create CDS archive "+archive.getPath());
+            return Mode.OFF;
+        }
+        attempts.put(classPath,count);
+        // unique name in case another benchmark is creating the same archive at the same time
+        File tmp = new File(directory,archive.getName()+"."+ProcessHandle.current().pid()+"."+count+".tmp");
+        dumping.put(classPath,tmp);
+        params.add("-XX:ArchiveClassesAtExit="+tmp.getPath());
+        // classes from old jars, e.g. XStream, can't be archived and each one causes a warning
+        params.add("-Xlog:cds=error");
+        return Mode.DUMP;
+    }
+
+    /**
+     * Must be called after a slave launched in {@link Mode#DUMP} has exited.  The archive it dumped is only kept if
+     * it exited normally, otherwise it might be truncated.
+     *
+     * @param classPath The slave's classpath
+     * @param success true if the slave exited with a status of 0
+     */
+    public void finishDump( String classPath , boolean success ) {
+        File tmp = dumping.remove(classPath);
+        if( tmp == null || !tmp.exists() )
+            return;
+
+        if( !success || tmp.length() == 0 || !tmp.renameTo(archiveFor(classPath)) ) {
+            if( !tmp.delete() )
+                System.err.println("Can't delete "+tmp.getPath());
+        }
+    }
+
+    /**
+     * Records how long a slave took to start
+     *
+     * @param mode How the slave was launched
+     * @param millis Time from the JVM starting until the slave was ready to run the first trial
+     */
+    public synchronized void addStartup( Mode mode , long millis ) {
+        startup.get(mode).add(millis);
+    }
+
+    /**
+     * Prints the number of launches and the mean and median startup time for each mode
+     */
+    public synchronized void printSummary( PrintStream out ) {
+        out.println("# mode  launches  mean (ms)  median (ms)");
+        for( Mode m : Mode.values() ) {
+            List<Long> times = startup.get(m);
+            if( times.isEmpty() )
+                continue;
+            List<Long> sorted = new ArrayList<Long>(times);
+            Collections.sort(sorted);
+            long sum = 0;
+            for( long t : sorted )
+                sum += t;
+            out.printf("%-6s  %8d  %9.1f  %11d\n",m,sorted.size(),sum/(double)sorted.size(),sorted.get(sorted.size()/2));
+        }
+    }
+
+    public void saveSummary( File file ) throws FileNotFoundException {
+        PrintStream out = new PrintStream(file);
+        printSummary(out);
+        out.close();
+    }
+
+    public void setBaselinePeriod(int baselinePeriod) {
+        this.baselinePeriod = baselinePeriod;
+    }
+
+    public synchronized List<Long> getStartup( Mode mode ) {
+        return new ArrayList<Long>(startup.get(mode));
+    }
+}
@@ -22,7 +22,9 @@ package jmbench.tools;
 import jmbench.tools.stability.UtilXmlSerialization;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -53,20 +55,33 @@ public class EvaluatorSlave {
 
     private static final boolean VERBOSE = false;
 
+    /**
+     * If this system property is true then the slave will print {@link #HANDSHAKE_READY} after the
+     * evaluation has finished and wait for the master to write to its standard in before exiting.  This
+     * gives the master a chance to read the process's peak memory usage while it is still alive.
+     */
+    public static final String HANDSHAKE_PROPERTY = "jmbench.handshake";
+    public static final String HANDSHAKE_READY = "EvaluatorSlave: waiting for master";
+
     private static long requestID;
 
+    // where the results are written to.  Can be changed so that several slaves can run at once
+    private static String resultsFile = "slave_results.xml";
+
     public static void main( String args[] ) throws FileNotFoundException {
         // catch control-c
 //        install("INT");
 //        install("TERM");
 
         // parse the input arguments
-        if( args.length != 3 ) {
+        if( args.length != 3 && args.length != 4 ) {
             throw new IllegalArgumentException("Unexpected number of arguments");
         }
         String fileName = args[0];
         int numTrials = Integer.parseInt(args[1]);
         requestID = Long.parseLong(args[2]);
+        if( args.length == 4 )
+            resultsFile = args[3];
 
         // load the plan
         EvaluationTest eval = UtilXmlSerialization.deserializeXml(fileName);
@@ -86,10 +101,12 @@ public class EvaluatorSlave {
         try {
             Results r = evaluationLoop(numTrials, eval);
 
+            handshake();
+
             // save the results
             if( VERBOSE ) System.out.println("Slave done");
             r.requestID = requestID;
-            UtilXmlSerialization.serializeXml(r,"slave_results.xml");
+            UtilXmlSerialization.serializeXml(r,resultsFile);
         } catch( Exception e ) {
             e.printStackTrace();
             String message = e.toString() +"\n";
@@ -149,18 +166,38 @@ public class EvaluatorSlave {
 //        }
 //    }
 
+    /**
+     * Lets the master know that the evaluation is finished and blocks until the master responds.  If the
+     * master dies then standard in is closed and it will return.
+     */
+    private static void handshake() {
+        if( !Boolean.getBoolean(HANDSHAKE_PROPERTY) )
+            return;
+
+        System.out.println(HANDSHAKE_READY);
+        System.out.flush();
+        try {
+            System.in.read();
+        } catch (IOException ignore) {
+        }
+    }
+
     private static void writeOutFailure( long requestID , FailReason reason , String message ) throws FileNotFoundException {
         Results r = new Results();
         r.failed = reason;
         r.requestID = requestID;
         r.detailedError = message;
-        UtilXmlSerialization.serializeXml(r,"slave_results.xml");
+        UtilXmlSerialization.serializeXml(r,resultsFile);
     }
 
     /**
      * Evaluate each algorithm several times and result the results.
      */
     private static Results evaluationLoop(int numTrials, EvaluationTest eval) {
+        // time it took the JVM to start and load the test.  Measured before the test is initialized since
+        // that depends on the size of the inputs
+        long startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
         // make sure it is in the correct state
         eval.init();
 
@@ -198,6 +235,7 @@ public class EvaluatorSlave {
         Results r = new Results();
         r.results = results;
         r.failed = fail;
+        r.startupMillis = startupMillis;
 
         return r;
     }
@@ -219,6 +257,9 @@ public class EvaluatorSlave {
 
         public String detailedError;
 
+        // milliseconds from the JVM starting until the first trial could start.  0 if unknown
+        public long startupMillis;
+
         public List<TestResults> getResults() {
             return results;
         }
@@ -243,6 +284,14 @@ public class EvaluatorSlave {
             this.requestID = requestID;
         }
 
+        public long getStartupMillis() {
+            return startupMillis;
+        }
+
+        public void setStartupMillis(long startupMillis) {
+            this.startupMillis = startupMillis;
+        }
+
         public String getDetailedError() {
             return detailedError;
         }
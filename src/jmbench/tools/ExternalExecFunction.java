@@ -22,7 +22,6 @@ package jmbench.tools;
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Date;
 import java.util.List;
 import java.util.Random;
 
@@ -52,10 +51,7 @@ public class ExternalExecFunction {
             Runtime rt = Runtime.getRuntime();
             Process pr = rt.exec(createParams(functionName,fileName));
 
-            BufferedReader input = new BufferedReader(new InputStreamReader(pr.getInputStream()));
-            BufferedReader error = new BufferedReader(new InputStreamReader(pr.getErrorStream()));
-
-            if( !monitorSlave(pr,input,error) )
+            if( !monitorSlave(pr) )
                 throw new RuntimeException("Slave failed.");
 
             return (T)readResult(fileName);
@@ -86,60 +82,23 @@ public class ExternalExecFunction {
 
 
     /**
-     * Prints out the standard out and error from the slave and checks its health.  Exits if
+     * Prints out the standard out and error from the slave and checks its health.  Returns once
      * the slave has finished or is declared frozen.
      *
-     * @rewturn true of successful
+     * @return true of successful
      */
-    private boolean monitorSlave(Process pr, BufferedReader input, BufferedReader error)
-            throws IOException, InterruptedException {
-
-        long mustBeFrozenTime = 5000;
-
-        boolean frozen = false;
-
-        long startTime = System.currentTimeMillis();
-        long lastAliveMessage = startTime;
-        for(;;) {
+    private boolean monitorSlave(Process pr) throws IOException, InterruptedException {
 
-            printBuffer(error);
+        SlaveSupervisor supervisor = new SlaveSupervisor(pr);
+        supervisor.setTimeout(5000);
+        supervisor.setAliveMessage("Master is still alive:");
 
-            if( input.ready() ) {
-                printBuffer(input);
-            } else {
-                Thread.sleep(500);
-            }
-
-            try {
-                // exit value throws an exception is the process has yet to stop
-                pr.exitValue();
-                break;
-            } catch( IllegalThreadStateException e) {
-                // check to see if the process is frozen
-                if(System.currentTimeMillis() - startTime > mustBeFrozenTime ) {
-                    frozen = true;
-                    break;
-                }
-
-                // let everyone know its still alive
-                if( System.currentTimeMillis() - lastAliveMessage > 60000 ) {
-                    System.out.println("\nMaster is still alive: "+new Date());
-                    lastAliveMessage = System.currentTimeMillis();
-                }
-            }
-        }
+        boolean errorFlag = !supervisor.waitFor();
 
-        boolean errorFlag = frozen;
-
-        // clean up
-        printBuffer(input);
-        printBuffer(error);
-        input.close();
-        error.close();
-        pr.getOutputStream().close();
-
-        // see if it exited normally
-        if( pr.waitFor() != 0 ) {
+        if( errorFlag ) {
+            supervisor.destroy();
+        } else if( pr.waitFor() != 0 ) {
+            // see if it exited normally
             System.out.println("Did not exit normally");
             errorFlag = true;
         }
@@ -147,16 +106,6 @@ public class ExternalExecFunction {
         return !errorFlag;
     }
 
-    private void printBuffer(BufferedReader input) throws IOException {
-
-        while( input.ready() ) {
-            int val = input.read();
-            if( val < 0 ) break;
-
-            System.out.print(Character.toChars(val));
-        }
-    }
-
     protected String[] createParams( String functionName , String fileName  ) {
         String app = System.getProperty("java.home")+"/bin/java";
 
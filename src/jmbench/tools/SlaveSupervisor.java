@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools;
+
+import java.io.*;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>
+ * Watches over a slave process launched by the master.  The slave's standard out and error are forwarded by
+ * dedicated threads as soon as they arrive and the slave's exit is detected using {@link Process#onExit()}, so
+ * the master reacts to the slave finishing immediately instead of polling.  While the slave is running a watchdog
+ * samples its CPU time and number of threads from /proc, checks to see if the user wants to quit, and declares
+ * the slave frozen if it runs for too long.
+ * </p>
+ *
+ * <p>
+ * Usage: create the supervisor after launching the process, adjust the settings, then call {@link #waitFor()}.
+ * If the slave is frozen call {@link #destroy()}.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class SlaveSupervisor {
+
+    // clock ticks per second used by /proc/stat and /proc/[pid]/stat.  Is 100 on all common Linux platforms
+    static final int USER_HZ = 100;
+
+    // number of slaves which are being supervised and how many have ever been launched.  Used to tell if
+    // another slave ran at the same time as this one
+    private static final AtomicInteger numActive = new AtomicInteger();
+    private static final AtomicLong numLaunched = new AtomicLong();
+
+    /**
+     * Receives each line the slave writes to standard out.  When a listener is used output is forwarded
+     * one line at a time.
+     */
+    public static interface LineListener {
+        /**
+         * @return true if the line should be printed
+         */
+        boolean handleLine( String line );
+    }
+
+    /**
+     * Called by the watchdog every sample period while the slave is running
+     */
+    public static interface Watchdog {
+        void sample( SlaveSupervisor supervisor );
+    }
+
+    private Process process;
+    private long pid;
+
+    // how long the slave can run for before it's declared frozen.  If <= 0 it can run forever
+    private long timeout;
+    // how often the watchdog samples the slave in milliseconds
+    private long samplePeriod = 1000;
+    // if true the user can kill the benchmark by pressing 'q'
+    private boolean userQuit;
+    // if not null a message is printed periodically to show that the master is still alive
+    private String aliveMessage;
+
+    private PrintStream out = System.out;
+    private PrintStream err = System.out;
+    // if not null the slave's standard error is also copied to this stream
+    private PrintStream errCopy;
+
+    private LineListener lineListener;
+    private Watchdog watchdog;
+
+    private Thread pumpOut;
+    private Thread pumpErr;
+
+    private long startNano;
+    private long exitNano;
+
+    // statistics sampled from /proc.  -1 if not available
+    private long cpuTimeMillis = -1;
+    // CPU time of this process's children which have exited, when the slave was launched.  -1 if not available
+    private long childCpuStart;
+    // value of numLaunched when this slave was launched
+    private long launchedStart;
+    // true if no other slave has run at the same time as this one
+    private boolean alone;
+    private boolean released;
+    private int numThreads = -1;
+    private int maxThreads = -1;
+
+    public SlaveSupervisor( Process process ) {
+        this.process = process;
+        this.pid = process.pid();
+        this.startNano = System.nanoTime();
+        this.childCpuStart = readChildCpuMillis();
+        this.launchedStart = numLaunched.incrementAndGet();
+        this.alone = numActive.incrementAndGet() == 1;
+    }
+
+    /**
+     * Starts forwarding the slave's output and waits until it exits or is declared frozen.
+     *
+     * @return true if the slave exited or false if it was frozen
+     */
+    public boolean waitFor() throws IOException, InterruptedException {
+        process.getOutputStream().flush();
+
+        pumpOut = startPump(process.getInputStream(),out,null,lineListener,"slave-out");
+        pumpErr = startPump(process.getErrorStream(),err,errCopy,null,"slave-err");
+
+        if( userQuit ) {
+            // flush the input buffer
+            System.in.skip(System.in.available());
+        }
+
+        long lastAliveMessage = System.currentTimeMillis();
+        for(;;) {
+            long wait = samplePeriod;
+            if( timeout > 0 ) {
+                long remaining = timeout - (System.nanoTime()-startNano)/1000000;
+                if( remaining <= 0 )
+                    return false;
+                wait = Math.min(wait,remaining);
+            }
+
+            try {
+                process.onExit().get(wait,TimeUnit.MILLISECONDS);
+                exitNano = System.nanoTime();
+                sampleExited();
+                break;
+            } catch( TimeoutException e ) {
+                // still running
+            } catch( ExecutionException e ) {
+                throw new RuntimeException(e);
+            }
+
+            sampleProc();
+            if( watchdog != null )
+                watchdog.sample(this);
+
+            if( userQuit ) {
+                while( System.in.available() > 0 ) {
+                    if( System.in.read() == 'q' ) {
+                        System.out.println("User requested for the application to quit by pressing 'q'");
+                        System.exit(0);
+                    }
+                }
+            }
+
+            // let everyone know its still alive
+            if( aliveMessage != null && System.currentTimeMillis() - lastAliveMessage > 60000 ) {
+                System.out.println("\n"+aliveMessage+" "+new Date());
+                lastAliveMessage = System.currentTimeMillis();
+            }
+        }
+
+        finishPumps();
+        return true;
+    }
+
+    /**
+     * Kills the slave and waits for it to die
+     */
+    public void destroy() throws InterruptedException {
+        process.destroyForcibly();
+        process.waitFor();
+        release();
+        finishPumps();
+    }
+
+    /**
+     * Waits for all the output to be forwarded then closes the streams
+     */
+    private void finishPumps() throws InterruptedException {
+        // a child of the slave could keep the pipes open, so don't wait forever
+        if( pumpOut != null )
+            pumpOut.join(5000);
+        if( pumpErr != null )
+            pumpErr.join(5000);
+        try {
+            process.getInputStream().close();
+            process.getErrorStream().close();
+            process.getOutputStream().close();
+        } catch( IOException ignore ) {
+        }
+    }
+
+    private static Thread startPump( final InputStream stream , final PrintStream out , final PrintStream copy ,
+                                     final LineListener listener , String name ) {
+        Thread t = new Thread(name) {
+            @Override
+            public void run() {
+                try {
+                    if( listener == null )
+                        pumpChunks(new InputStreamReader(stream),out,copy);
+                    else
+                        pumpLines(new BufferedReader(new InputStreamReader(stream)),out,listener);
+                } catch( IOException ignore ) {
+                    // stream was closed
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static void pumpChunks( Reader reader , PrintStream out , PrintStream copy ) throws IOException {
+        char buffer[] = new char[1024];
+        for(;;) {
+            int length = reader.read(buffer);
+            if( length < 0 )
+                break;
+            out.print(new String(buffer,0,length));
+            out.flush();
+            if( copy != null ) {
+                copy.print(new String(buffer,0,length));
+                copy.flush();
+            }
+        }
+    }
+
+    private static void pumpLines( BufferedReader reader , PrintStream out , LineListener listener ) throws IOException {
+        for(;;) {
+            String line = reader.readLine();
+            if( line == null )
+                break;
+            if( listener.handleLine(line) )
+                out.println(line);
+        }
+    }
+
+    /**
+     * Reads the CPU time and number of threads from /proc/[pid]/stat
+     */
+    private void sampleProc() {
+        String fields[] = readStat("/proc/"+pid+"/stat");
+        if( fields == null )
+            return;
+        try {
+            long utime = Long.parseLong(fields[11]);
+            long stime = Long.parseLong(fields[12]);
+            cpuTimeMillis = (utime+stime)*1000/USER_HZ;
+            numThreads = Integer.parseInt(fields[17]);
+            if( numThreads > maxThreads )
+                maxThreads = numThreads;
+        } catch( RuntimeException ignore ) {
+            // unexpected format
+        }
+    }
+
+    /**
+     * The last sample can be up to a sample period old when the slave exits.  Once the slave has been reaped its
+     * CPU time is added to this process's children.  That's only the slave's CPU time if no other slave
+     * started or exited while it ran, e.g. the memory benchmark runs several at once, otherwise the last sample
+     * is kept.
+     */
+    private void sampleExited() {
+        long end = readChildCpuMillis();
+        if( release() && childCpuStart >= 0 && end >= 0 )
+            cpuTimeMillis = Math.max(cpuTimeMillis,end-childCpuStart);
+    }
+
+    /**
+     * Marks the slave as no longer running
+     *
+     * @return true if no other slave ran at the same time as this one
+     */
+    private boolean release() {
+        if( !released ) {
+            released = true;
+            alone &= numLaunched.get() == launchedStart;
+            numActive.decrementAndGet();
+        }
+        return alone;
+    }
+
+    /**
+     * CPU time used by children of this process which have exited, from /proc/self/stat.  -1 if not available
+     */
+    private static long readChildCpuMillis() {
+        String fields[] = readStat("/proc/self/stat");
+        if( fields == null )
+            return -1;
+        try {
+            long cutime = Long.parseLong(fields[13]);
+            long cstime = Long.parseLong(fields[14]);
+            return (cutime+cstime)*1000/USER_HZ;
+        } catch( RuntimeException e ) {
+            // unexpected format
+            return -1;
+        }
+    }
+
+    /**
+     * Reads a /proc/[pid]/stat file and splits it into fields.  The fields start at the state, which is the third
+     * field in the file.
+     *
+     * @return the fields or null if the file can't be read
+     */
+    static String[] readStat( String fileName ) {
+        try {
+            BufferedReader input = new BufferedReader(new FileReader(fileName));
+            String line = input.readLine();
+            input.close();
+            if( line == null )
+                return null;
+
+            // the command name is in parentheses and can contain spaces
+            return line.substring(line.lastIndexOf(')')+2).split(" ");
+        } catch( IOException ignore ) {
+            // not linux or the process has exited
+            return null;
+        } catch( RuntimeException ignore ) {
+            // unexpected format
+            return null;
+        }
+    }
+
+    /**
+     * Sends a message to the slave's standard in
+     */
+    public void send( String message ) throws IOException {
+        OutputStream stream = process.getOutputStream();
+        stream.write(message.getBytes());
+        stream.flush();
+    }
+
+    public Process getProcess() {
+        return process;
+    }
+
+    public long getPid() {
+        return pid;
+    }
+
+    /**
+     * How long the slave ran for in milliseconds.  If the slave is still running then how long it has been running.
+     */
+    public long getDurationMilli() {
+        long end = exitNano != 0 ? exitNano : System.nanoTime();
+        return (end-startNano)/1000000;
+    }
+
+    /**
+     * CPU time used by the slave in milliseconds.  While it's running this is from the most recent sample and
+     * after it exits it's the total.  -1 if not known.
+     */
+    public long getCpuTimeMillis() {
+        return cpuTimeMillis;
+    }
+
+    /**
+     * Number of threads in the slave from the most recent sample.  -1 if not known.
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Largest number of threads seen in the slave.  -1 if not known.
+     */
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public void setSamplePeriod(long samplePeriod) {
+        this.samplePeriod = samplePeriod;
+    }
+
+    public void setUserQuit(boolean userQuit) {
+        this.userQuit = userQuit;
+    }
+
+    public void setAliveMessage(String aliveMessage) {
+        this.aliveMessage = aliveMessage;
+    }
+
+    public void setOut(PrintStream out) {
+        this.out = out;
+    }
+
+    public void setErr(PrintStream err) {
+        this.err = err;
+    }
+
+    public void setErrCopy(PrintStream errCopy) {
+        this.errCopy = errCopy;
+    }
+
+    public void setLineListener(LineListener lineListener) {
+        this.lineListener = lineListener;
+    }
+
+    public void setWatchdog(Watchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+}
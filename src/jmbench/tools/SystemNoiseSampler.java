@@ -0,0 +1,479 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * <p>
+ * Samples the state of the machine in the background while the benchmark runs so that outliers can be
+ * explained.  CPU frequency is read from /sys/devices/system/cpu and the fastest CPU is compared against its base
+ * frequency, since the slave keeps one core busy while idle cores drop to their lowest frequency.  Temperature is
+ * read from the thermal zones in /sys/class/thermal, and the load average and steal time from /proc.  Values which
+ * can't be read, e.g. on a virtual machine without frequency scaling or on a non Linux system, are NaN.
+ * </p>
+ *
+ * <p>
+ * The samples taken while a block was running are summarized with {@link #summarize(CpuTime, CpuTime, long)}
+ * and a block is considered noisy if the CPU was throttled or something else was competing for the CPU.  External
+ * load is the CPU time used by the whole machine, from /proc/stat, minus the CPU time used by the slave and by
+ * the master itself.  Unlike the load average it covers exactly the block and doesn't mistake the slave's
+ * own threads, e.g. a multithreaded library, JIT or GC, for competition.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class SystemNoiseSampler {
+
+    public static final String FILE_NAME = "noise.csv";
+
+    private static final int MAX_SAMPLES = 10000;
+
+    private static SystemNoiseSampler instance = new SystemNoiseSampler();
+
+    // a block is throttled if the fastest CPU dropped below this fraction of its base frequency.  If the base
+    // frequency isn't available then the maximum frequency is used instead
+    public double minFrequencyRatio = 0.9;
+    // a block is throttled if a thermal zone is at or above this temperature in Celsius
+    public double maxTemperature = 85;
+    // a block is loaded if processes other than the master and slave used more than this fraction of all the CPUs
+    public double maxExternalLoad = 0.25;
+    // a block is loaded if more than this fraction of CPU time was stolen by the hypervisor
+    public double maxSteal = 0.05;
+
+    // IDs of the CPUs which are online.  This can differ from the CPUs the JVM is allowed to use, but it's
+    // what the totals in /proc/stat are summed over
+    int cpus[] = onlineCpus();
+    // number of CPUs
+    int numCpu = cpus.length;
+
+    private List<Sample> samples = new ArrayList<Sample>();
+    private Thread thread;
+    private volatile boolean running;
+    private PrintStream output;
+
+    // CPU times from /proc/stat in the previous sample, used to compute steal
+    private long previousTotal = -1;
+    private long previousSteal;
+
+    /**
+     * State of the system at one point in time
+     */
+    public static class Sample {
+        public long time;
+        // current frequency of the fastest CPU divided by its base frequency, see frequencyRatio()
+        public double frequencyRatio = Double.NaN;
+        // current frequency of the fastest CPU in MHz
+        public double frequency = Double.NaN;
+        // hottest thermal zone in Celsius
+        public double temperature = Double.NaN;
+        // one minute load average
+        public double loadAverage = Double.NaN;
+        // fraction of CPU time stolen since the previous sample
+        public double steal = Double.NaN;
+    }
+
+    /**
+     * Summary of the samples taken while a block was being processed
+     */
+    public static class Summary {
+        public int numSamples;
+        // lowest frequency ratio
+        public double frequencyRatio = Double.NaN;
+        // highest temperature
+        public double temperature = Double.NaN;
+        // highest load average.  Only informational, see externalLoad
+        public double loadAverage = Double.NaN;
+        // mean steal fraction
+        public double steal = Double.NaN;
+        // fraction of all the CPUs used by other processes, see externalLoad()
+        public double externalLoad = Double.NaN;
+
+        public boolean throttled;
+        public boolean loaded;
+
+        public boolean isNoisy() {
+            return throttled || loaded;
+        }
+
+        public String toString() {
+            return String.format("freq %.2f temp %.1f load %.2f steal %.3f external %.2f%s%s",frequencyRatio,
+                    temperature,loadAverage,steal,externalLoad,throttled ? " THROTTLED" : "",loaded ? " LOADED" : "");
+        }
+    }
+
+    /**
+     * CPU time used by the whole machine and by this process at one point in time
+     */
+    public static class CpuTime {
+        public long time;
+        // time all the CPUs spent doing something in milliseconds.  -1 if unknown
+        public long busyMillis = -1;
+        // CPU time used by this process in milliseconds.  -1 if unknown
+        public long selfMillis = -1;
+    }
+
+    public static SystemNoiseSampler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts sampling in a background thread
+     *
+     * @param periodMillis How often it samples
+     * @param file If not null each sample is appended to this file
+     */
+    public synchronized void start( final long periodMillis , File file ) {
+        if( thread != null )
+            return;
+
+        if( file != null ) {
+            try {
+                boolean exists = file.exists();
+                output = new PrintStream(new FileOutputStream(file,true));
+                if( !exists )
+                    output.println("time,frequencyMHz,frequencyRatio,temperature,loadAverage,steal");
+            } catch (FileNotFoundException e) {
+                System.err.println("Can't save noise samples to "+file.getPath());
+            }
+        }
+
+        running = true;
+        thread = new Thread("noise sampler") {
+            @Override
+            public void run() {
+                while( running ) {
+                    addSample(sample());
+                    try {
+                        Thread.sleep(periodMillis);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds a sample to the list which is summarized and saves it to the output file
+     */
+    synchronized void addSample( Sample s ) {
+        // don't let it grow forever if nothing is summarizing the samples
+        if( samples.size() >= MAX_SAMPLES )
+            samples.remove(0);
+        samples.add(s);
+        if( output != null ) {
+            output.println(s.time+","+s.frequency+","+s.frequencyRatio+","+s.temperature+","+
+                    s.loadAverage+","+s.steal);
+            output.flush();
+        }
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if( thread != null ) {
+            thread.interrupt();
+            thread = null;
+        }
+        if( output != null ) {
+            output.close();
+            output = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Reads the current state of the system
+     */
+    public Sample sample() {
+        Sample s = new Sample();
+        s.time = System.currentTimeMillis();
+
+        // CPU frequency in kHz
+        double current[] = new double[ cpus.length ];
+        double reference[] = new double[ cpus.length ];
+        for( int i = 0; i < cpus.length; i++ ) {
+            String dir = "/sys/devices/system/cpu/cpu"+cpus[i]+"/cpufreq/";
+            current[i] = readNumber(dir+"scaling_cur_freq");
+            // only intel_pstate provides the base frequency
+            reference[i] = readNumber(dir+"base_frequency");
+            if( Double.isNaN(reference[i]) )
+                reference[i] = readNumber(dir+"cpuinfo_max_freq");
+            s.frequency = max(s.frequency,current[i]/1000.0);
+        }
+        s.frequencyRatio = frequencyRatio(current,reference);
+
+        // temperature in milli-Celsius
+        File[] zones = new File("/sys/class/thermal").listFiles();
+        if( zones != null ) {
+            for( File zone : zones ) {
+                if( !zone.getName().startsWith("thermal_zone") )
+                    continue;
+                double t = readNumber(zone.getPath()+"/temp")/1000.0;
+                if( !Double.isNaN(t) && (Double.isNaN(s.temperature) || t > s.temperature) )
+                    s.temperature = t;
+            }
+        }
+
+        s.loadAverage = readNumber("/proc/loadavg");
+
+        // the first line of /proc/stat has the total time in each state.  steal is the eighth value
+        String line = readLine("/proc/stat");
+        if( line != null && line.startsWith("cpu ") ) {
+            String fields[] = line.substring(4).trim().split("\\s+");
+            try {
+                long total = 0;
+                for( int i = 0; i < 8; i++ )
+                    total += Long.parseLong(fields[i]);
+                long steal = Long.parseLong(fields[7]);
+                synchronized( this ) {
+                    if( previousTotal >= 0 && total > previousTotal )
+                        s.steal = (steal-previousSteal)/(double)(total-previousTotal);
+                    previousTotal = total;
+                    previousSteal = steal;
+                }
+            } catch( RuntimeException ignore ) {
+                // unexpected format
+            }
+        }
+
+        return s;
+    }
+
+    /**
+     * Ratio of the current frequency to the reference frequency for the fastest CPU.  The ratio of the fastest
+     * CPU is used because the benchmark only keeps some of the CPUs busy and the others slow down while idle.
+     * A busy CPU can run above its base frequency, so the ratio can be more than one.
+     *
+     * @param current Current frequency of each CPU.  NaN if unknown.
+     * @param reference Base frequency of each CPU, or the maximum if the base is unknown.  NaN if unknown.
+     * @return The largest ratio or NaN if no CPU has both frequencies
+     */
+    static double frequencyRatio( double current[] , double reference[] ) {
+        double ret = Double.NaN;
+        for( int i = 0; i < current.length; i++ ) {
+            if( Double.isNaN(current[i]) || Double.isNaN(reference[i]) || reference[i] <= 0 )
+                continue;
+            ret = max(ret,current[i]/reference[i]);
+        }
+        return ret;
+    }
+
+    /**
+     * Reads the CPU time used by the whole machine from /proc/stat and by this process from /proc/self/stat
+     */
+    public static CpuTime readCpuTime() {
+        CpuTime ret = new CpuTime();
+        ret.time = System.currentTimeMillis();
+
+        // user, nice, system, idle, iowait, irq, softirq, steal.  Waiting for IO and stolen time isn't busy
+        String line = readLine("/proc/stat");
+        if( line != null && line.startsWith("cpu ") ) {
+            String fields[] = line.substring(4).trim().split("\\s+");
+            try {
+                long busy = Long.parseLong(fields[0]) + Long.parseLong(fields[1]) + Long.parseLong(fields[2]) +
+                        Long.parseLong(fields[5]) + Long.parseLong(fields[6]);
+                ret.busyMillis = busy*1000/SlaveSupervisor.USER_HZ;
+            } catch( RuntimeException ignore ) {
+                // unexpected format
+            }
+        }
+
+        String fields[] = SlaveSupervisor.readStat("/proc/self/stat");
+        if( fields != null ) {
+            try {
+                ret.selfMillis = (Long.parseLong(fields[11])+Long.parseLong(fields[12]))*1000/SlaveSupervisor.USER_HZ;
+            } catch( RuntimeException ignore ) {
+                // unexpected format
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Fraction of all the CPUs used by processes other than this one and the slave between the two times.
+     *
+     * @param slaveCpuMillis CPU time used by the slave.  If negative the slave is assumed to have run inside
+     *                       this process.
+     * @return The external load or NaN if unknown
+     */
+    static double externalLoad( CpuTime start , CpuTime end , long slaveCpuMillis , int numCpu ) {
+        long elapsed = end.time - start.time;
+        if( elapsed <= 0 || start.busyMillis < 0 || end.busyMillis < 0 || start.selfMillis < 0 || end.selfMillis < 0 )
+            return Double.NaN;
+
+        long external = (end.busyMillis - start.busyMillis) - (end.selfMillis - start.selfMillis);
+        if( slaveCpuMillis > 0 )
+            external -= slaveCpuMillis;
+
+        // the clock ticks are coarse so it can end up slightly negative
+        return Math.max(0,external)/(double)(elapsed*numCpu);
+    }
+
+    /**
+     * Summarizes the samples taken while a slave ran and computes the external load.
+     *
+     * @param start CPU time before the slave was launched
+     * @param end CPU time after the slave exited
+     * @param slaveCpuMillis CPU time used by the slave.  Negative if unknown or if it ran inside this process.
+     * @return summary or null if there are no samples
+     */
+    public synchronized Summary summarize( CpuTime start , CpuTime end , long slaveCpuMillis ) {
+        Summary summary = summarize(start.time,end.time);
+        if( summary == null )
+            return null;
+
+        summary.externalLoad = externalLoad(start,end,slaveCpuMillis,numCpu);
+        if( summary.externalLoad > maxExternalLoad )
+            summary.loaded = true;
+
+        return summary;
+    }
+
+    /**
+     * Summarizes the samples taken in the time period.  External load isn't known, so only steal is used to decide
+     * if the block was loaded.  If no samples were taken during the period, e.g. it was
+     * shorter than the sample period, the one closest to the end is used.
+     *
+     * @return summary or null if there are no samples
+     */
+    public synchronized Summary summarize( long startTime , long endTime ) {
+        Summary summary = new Summary();
+        double sumSteal = 0;
+        int numSteal = 0;
+
+        Sample closest = null;
+        for( Sample s : samples ) {
+            if( s.time <= endTime )
+                closest = s;
+            if( s.time < startTime || s.time > endTime )
+                continue;
+            add(summary,s);
+            if( !Double.isNaN(s.steal) ) {
+                sumSteal += s.steal;
+                numSteal++;
+            }
+        }
+
+        if( summary.numSamples == 0 ) {
+            if( closest == null )
+                return null;
+            add(summary,closest);
+            sumSteal = closest.steal;
+            numSteal = Double.isNaN(closest.steal) ? 0 : 1;
+        }
+        if( numSteal > 0 )
+            summary.steal = sumSteal/numSteal;
+
+        summary.throttled = summary.frequencyRatio < minFrequencyRatio || summary.temperature >= maxTemperature;
+        summary.loaded = summary.steal > maxSteal;
+
+        // samples older than this are no longer needed
+        while( samples.size() > 1 && samples.get(1).time < startTime )
+            samples.remove(0);
+
+        return summary;
+    }
+
+    private static void add( Summary summary , Sample s ) {
+        summary.numSamples++;
+        summary.frequencyRatio = min(summary.frequencyRatio,s.frequencyRatio);
+        summary.temperature = max(summary.temperature,s.temperature);
+        summary.loadAverage = max(summary.loadAverage,s.loadAverage);
+    }
+
+    private static double min( double a , double b ) {
+        if( Double.isNaN(a) ) return b;
+        if( Double.isNaN(b) ) return a;
+        return Math.min(a,b);
+    }
+
+    private static double max( double a , double b ) {
+        if( Double.isNaN(a) ) return b;
+        if( Double.isNaN(b) ) return a;
+        return Math.max(a,b);
+    }
+
+    /**
+     * Finds the online CPUs from the "cpuN" lines in /proc/stat.  If it can't be read then the number of
+     * processors available to the JVM is used instead.
+     */
+    static int[] onlineCpus() {
+        List<Integer> found = new ArrayList<Integer>();
+        try {
+            BufferedReader input = new BufferedReader(new FileReader("/proc/stat"));
+            try {
+                String line;
+                while( (line = input.readLine()) != null ) {
+                    if( line.length() < 4 || !line.startsWith("cpu") || !Character.isDigit(line.charAt(3)) )
+                        continue;
+                    found.add(Integer.parseInt(line.substring(3).split("\\s+")[0]));
+                }
+            } finally {
+                input.close();
+            }
+        } catch( IOException ignore ) {
+            // not linux
+        }
+
+        if( found.isEmpty() ) {
+            for( int i = 0; i < Runtime.getRuntime().availableProcessors(); i++ )
+                found.add(i);
+        }
+
+        int ret[] = new int[ found.size() ];
+        for( int i = 0; i < ret.length; i++ )
+            ret[i] = found.get(i);
+        return ret;
+    }
+
+    /**
+     * Reads the first number in a file or NaN if it can't
+     */
+    private static double readNumber( String fileName ) {
+        String line = readLine(fileName);
+        if( line == null )
+            return Double.NaN;
+        try {
+            return Double.parseDouble(line.trim().split("\\s+")[0]);
+        } catch( NumberFormatException e ) {
+            return Double.NaN;
+        }
+    }
+
+    private static String readLine( String fileName ) {
+        try {
+            BufferedReader input = new BufferedReader(new FileReader(fileName));
+            String line = input.readLine();
+            input.close();
+            return line;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.conversion;
+
+import jmbench.impl.FactoryLibraryDescriptions;
+import jmbench.impl.LibraryDescription;
+import jmbench.impl.LibraryLocation;
+import jmbench.tools.BenchmarkTools;
+import jmbench.tools.EvaluatorSlave;
+import jmbench.tools.SystemInfo;
+import jmbench.tools.TestResults;
+import jmbench.tools.runtime.FactoryRuntimeEvaluationCase;
+import jmbench.tools.stability.UtilXmlSerialization;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * <p>
+ * Measures the cost of converting a matrix from every library into every other library for a range of
+ * matrix sizes.  Each pair of libraries is evaluated in its own slave JVM by {@link ConversionEvaluationTest}.
+ * Two paths are timed, the element by element path used by the benchmark's factories and a bulk path
+ * which goes through double[][].
+ * </p>
+ *
+ * <p>
+ * The raw results are saved to conversion.xml.  For each matrix size a cost matrix is saved for each path,
+ * where each row is the source library, each column the destination library, and each element
+ * is the number of nanoseconds it takes to perform a single conversion.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class ConversionBenchmark {
+
+    // where should the results be saved to
+    private String directorySave;
+
+    // libraries which are to be evaluated
+    private List<LibraryDescription> libraries = new ArrayList<LibraryDescription>();
+
+    private int minMatrixSize = 2;
+    private int maxMatrixSize = 1000;
+    // number of trials in each slave.  The fastest trial is used.
+    private int numTrials = 3;
+    // how long each measurement should take in milliseconds
+    private long trialTime = 200;
+    // amount of memory given to each slave.  If zero it is determined dynamically
+    private long memory = 0;
+    private long seed = 0xDEADBEEF;
+
+    private List<ConversionResults> results = new ArrayList<ConversionResults>();
+
+    public ConversionBenchmark() {
+        DateFormat df = new SimpleDateFormat("MM-dd-yyyy-HH:mm:ss");
+        Date today = Calendar.getInstance().getTime();
+
+        directorySave = "results/conversion-"+df.format(today);
+
+        // libraries which share the same matrix type only need to be tested once
+        for( LibraryDescription desc : FactoryLibraryDescriptions.createDefault() ) {
+            boolean duplicate = false;
+            for( LibraryDescription l : libraries ) {
+                if( l.factoryRuntime == desc.factoryRuntime )
+                    duplicate = true;
+            }
+            if( !duplicate )
+                libraries.add(desc);
+        }
+    }
+
+    public void performBenchmark() {
+        File dir = new File(directorySave);
+        if( !dir.exists() && !dir.mkdirs() )
+            throw new IllegalArgumentException("Can't make directories to save results.");
+
+        SystemInfo info = new SystemInfo();
+        info.grabCurrentInfo();
+        UtilXmlSerialization.serializeXml(info,directorySave+"/info.xml");
+
+        int sizes[] = FactoryRuntimeEvaluationCase.createDimenList(minMatrixSize,maxMatrixSize);
+
+        // the slave needs to be able to load every library
+        BenchmarkTools tools = new BenchmarkTools(numTrials,20,4,LibraryLocation.AUTO.listOfJarFilePaths());
+        tools.setVerbose(false);
+        tools.setOverrideMemory(memory);
+
+        Random rand = new Random(seed);
+        long startTime = System.currentTimeMillis();
+
+        for( LibraryDescription src : libraries ) {
+            for( LibraryDescription dst : libraries ) {
+                String srcName = src.location.getPlotName();
+                String dstName = dst.location.getPlotName();
+                System.out.println("#### "+srcName+" to "+dstName+" ####");
+
+                // generous upper limit on how long the slave should run for
+                long maxRuntime = 2*numTrials*sizes.length*trialTime*20 + 60000;
+
+                ConversionEvaluationTest test =
+                        new ConversionEvaluationTest(src,dst,sizes,trialTime,maxRuntime,rand.nextLong());
+
+                EvaluatorSlave.Results r = tools.runTest(test);
+
+                ConversionResults found = new ConversionResults(srcName,dstName,sizes);
+                for( int i = 0; i < sizes.length; i++ ) {
+                    found.elementOpsPerSec[i] = Double.NaN;
+                    found.bulkOpsPerSec[i] = Double.NaN;
+                }
+
+                if( r == null || r.failed != null ) {
+                    System.out.println("  Failed: "+(r == null ? "null results" : r.failed));
+                    if( r != null && r.detailedError != null )
+                        System.out.println(r.detailedError);
+                } else {
+                    for( TestResults t : r.results ) {
+                        found.keepBest((ConversionResults)t);
+                    }
+                }
+                results.add(found);
+            }
+        }
+
+        UtilXmlSerialization.serializeXml(results,directorySave+"/conversion.xml");
+
+        try {
+            for( int size : sizes ) {
+                saveCostMatrix(size,true);
+                saveCostMatrix(size,false);
+            }
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+
+        for( int size : sizes ) {
+            printCostMatrix(System.out,size,true);
+            printCostMatrix(System.out,size,false);
+        }
+
+        double seconds = (System.currentTimeMillis()-startTime)/1000.0;
+        System.out.println("Total processing time = "+seconds+" (s)");
+    }
+
+    /**
+     * Saves the cost matrix for a single matrix size to a CSV file.
+     */
+    private void saveCostMatrix( int size , boolean element ) throws FileNotFoundException {
+        String name = (element ? "element_" : "bulk_")+size+".csv";
+        PrintStream out = new PrintStream(directorySave+"/"+name);
+
+        out.print("source");
+        for( LibraryDescription dst : libraries ) {
+            out.print(","+dst.location.getPlotName());
+        }
+        out.println();
+
+        for( LibraryDescription src : libraries ) {
+            out.print(src.location.getPlotName());
+            for( LibraryDescription dst : libraries ) {
+                out.print(","+nanoSeconds(src,dst,size,element));
+            }
+            out.println();
+        }
+        out.close();
+    }
+
+    private void printCostMatrix( PrintStream out , int size , boolean element ) {
+        out.println();
+        out.println((element ? "Element" : "Bulk")+" conversion, size "+size+", nanoseconds.  Rows are the source.");
+        out.printf("%12s","");
+        for( LibraryDescription dst : libraries ) {
+            out.printf(" %12s",dst.location.getPlotName());
+        }
+        out.println();
+        for( LibraryDescription src : libraries ) {
+            out.printf("%12s",src.location.getPlotName());
+            for( LibraryDescription dst : libraries ) {
+                out.printf(" %12.1f",nanoSeconds(src,dst,size,element));
+            }
+            out.println();
+        }
+    }
+
+    /**
+     * Number of nanoseconds it takes to perform a single conversion or NaN if it failed or isn't supported
+     */
+    private double nanoSeconds( LibraryDescription src , LibraryDescription dst , int size , boolean element ) {
+        for( ConversionResults r : results ) {
+            if( !r.source.equals(src.location.getPlotName()) || !r.destination.equals(dst.location.getPlotName()) )
+                continue;
+            int index = r.indexOfSize(size);
+            if( index < 0 )
+                return Double.NaN;
+            double opsPerSec = element ? r.elementOpsPerSec[index] : r.bulkOpsPerSec[index];
+            return 1e9/opsPerSec;
+        }
+        return Double.NaN;
+    }
+
+    public static void printHelp() {
+        System.out.println("The following options are valid for the conversion benchmark:");
+        System.out.println("  --Size=min:max           |  Test matrices from the specified minimum size to the specified maximum size.");
+        System.out.println("  --Quick                  |  Generate results much faster by sacrificing accuracy/stability of the results.");
+        System.out.println("  --Library=<lib>,<lib>    |  Only convert between the specified libraries.  --Library=? will print a list");
+        System.out.println("  --Seed=<number>          |  used to set the random seed to the specified value.");
+        System.out.println("  --TrailTime=<ms>         |  The minimum amount of time spent in each measurement.  Typical is 200.");
+        System.out.println("  --Memory=<MB>            |  Sets the amount of memory allocated to java for each slave in megabytes.");
+        System.out.println("                           |  If not specified then the memory is dynamically determined.");
+        System.out.println("  --Directory=<dir>        |  Where the results are saved.");
+    }
+
+    public static void main( String args[] ) {
+        ConversionBenchmark app = new ConversionBenchmark();
+
+        boolean failed = false;
+
+        for( int i = 0; i < args.length; i++ ) {
+            String splits[] = args[i].split("=");
+
+            String flag = splits[0];
+
+            if( flag.length() < 2 || flag.charAt(0) != '-' || flag.charAt(1) != '-') {
+                failed = true;
+                break;
+            }
+
+            flag = flag.substring(2);
+
+            if( flag.compareTo("Size") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                String rangeStr[] = splits[1].split(":");
+                if( rangeStr.length != 2 ) {failed = true; break;}
+                app.minMatrixSize = Integer.parseInt(rangeStr[0]);
+                app.maxMatrixSize = Integer.parseInt(rangeStr[1]);
+                System.out.println("Set min/max matrix size to: "+app.minMatrixSize+" "+app.maxMatrixSize);
+            } else if( flag.compareTo("Quick") == 0 ) {
+                if( splits.length != 1 ) {failed = true; break;}
+                app.numTrials = 1;
+                app.trialTime = 50;
+                System.out.println("Using quick and dirty config.");
+            } else if( flag.compareTo("Library") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                app.libraries.clear();
+                for( String name : splits[1].split(",") ) {
+                    LibraryDescription match = FactoryLibraryDescriptions.find(name);
+                    if( match == null ) {
+                        System.out.println("Can't find library "+name+".  See list below:");
+                        FactoryLibraryDescriptions.printAllNames();
+                        failed = true;
+                        break;
+                    }
+                    app.libraries.add(match);
+                }
+                if( failed ) break;
+            } else if( flag.compareTo("Seed") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                app.seed = Long.parseLong(splits[1]);
+                System.out.println("Random seed set to "+app.seed);
+            } else if( flag.compareTo("TrailTime") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                app.trialTime = Long.parseLong(splits[1]);
+                System.out.println("Time per measurement set to "+app.trialTime+" (ms).");
+            } else if( flag.compareTo("Memory") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                app.memory = Long.parseLong(splits[1]);
+                System.out.println("Memory used by each slave will be "+app.memory+" (MB).");
+            } else if( flag.compareTo("Directory") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                app.directorySave = splits[1];
+            } else {
+                System.out.println("Unknown flag: "+flag);
+                failed = true;
+                break;
+            }
+        }
+
+        if( failed ) {
+            printHelp();
+        } else {
+            app.performBenchmark();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.conversion;
+
+import jmbench.impl.LibraryConfigure;
+import jmbench.impl.LibraryDescription;
+import jmbench.interfaces.ArrayConversionFactory;
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
+import jmbench.interfaces.RuntimePerformanceFactory;
+import jmbench.misc.RandomizeMatrices;
+import jmbench.tools.EvaluationTest;
+import jmbench.tools.TestResults;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.MatrixFeatures;
+
+import java.util.Random;
+
+
+/**
+ * <p>
+ * Measures how long it takes to convert a matrix from one library into another library for each matrix size.
+ * Two paths are timed.  The element path is {@link RuntimePerformanceFactory#convertToEjml} followed by
+ * {@link RuntimePerformanceFactory#convertToLib}, which is what the benchmark itself uses.  The bulk path
+ * goes through a double[][] and is only timed when both factories implement {@link ArrayConversionFactory}.
+ * </p>
+ *
+ * <p>
+ * Each trial creates new random matrices in the source library.  The output of each path is checked once
+ * against the input before it is timed.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class ConversionEvaluationTest extends EvaluationTest {
+
+    // how close the converted matrix needs to be to the original
+    public static final double TOL = 1e-8;
+
+    private String nameSource;
+    private String nameDestination;
+    private Class<LibraryConfigure> classConfigureSource;
+    private Class<RuntimePerformanceFactory> classFactorySource;
+    private Class<LibraryConfigure> classConfigureDestination;
+    private Class<RuntimePerformanceFactory> classFactoryDestination;
+
+    private int sizes[];
+    // how long each measurement should take in milliseconds
+    private long goalRuntime;
+    // the max amount of time it will let a test run for
+    private long maxRuntime;
+
+    private volatile Random masterRand;
+    private volatile RuntimePerformanceFactory source;
+    private volatile RuntimePerformanceFactory destination;
+    private volatile BenchmarkMatrix inputs[];
+
+    public ConversionEvaluationTest( LibraryDescription source , LibraryDescription destination ,
+                                     int sizes[] , long goalRuntime , long maxRuntime , long randomSeed )
+    {
+        super(randomSeed);
+        this.nameSource = source.location.getPlotName();
+        this.nameDestination = destination.location.getPlotName();
+        this.classConfigureSource = source.configure;
+        this.classFactorySource = source.factoryRuntime;
+        this.classConfigureDestination = destination.configure;
+        this.classFactoryDestination = destination.factoryRuntime;
+        this.sizes = sizes;
+        this.goalRuntime = goalRuntime;
+        this.maxRuntime = maxRuntime;
+    }
+
+    public ConversionEvaluationTest(){}
+
+    @Override
+    public void init() {
+        try {
+            source = classFactorySource.newInstance();
+            destination = classFactoryDestination.newInstance();
+            classConfigureSource.newInstance().runtimeConfigure();
+            classConfigureDestination.newInstance().runtimeConfigure();
+        } catch (InstantiationException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+
+        masterRand = new Random(randomSeed);
+    }
+
+    @Override
+    public void setupTrial() {
+        Random rand = new Random(masterRand.nextLong());
+
+        inputs = new BenchmarkMatrix[ sizes.length ];
+        for( int i = 0; i < sizes.length; i++ ) {
+            inputs[i] = source.create(sizes[i],sizes[i]);
+            RandomizeMatrices.randomize(inputs[i],-1,1,rand);
+        }
+    }
+
+    @Override
+    public void printInfo() {
+    }
+
+    @Override
+    public long getMaximumRuntime() {
+        return maxRuntime;
+    }
+
+    /**
+     * The inputs for every size plus the source, intermediate, and destination copies of the largest.
+     */
+    @Override
+    public long getInputMemorySize() {
+        long total = 0;
+        int largest = 0;
+        for( int N : sizes ) {
+            total += 8L*N*N;
+            largest = Math.max(largest,N);
+        }
+        return total + 3*8L*largest*largest;
+    }
+
+    @Override
+    public TestResults evaluate() {
+        ConversionResults results = new ConversionResults(nameSource,nameDestination,sizes);
+
+        boolean bulk = source instanceof ArrayConversionFactory && destination instanceof ArrayConversionFactory;
+
+        for( int i = 0; i < sizes.length; i++ ) {
+            results.elementOpsPerSec[i] = measure(new ElementPath(),inputs[i]);
+            results.bulkOpsPerSec[i] = Double.NaN;
+            if( bulk ) {
+                try {
+                    results.bulkOpsPerSec[i] = measure(new BulkPath(),inputs[i]);
+                } catch( LinkageError e ) {
+                    // the bulk functions need a class which isn't in the library's jar
+                    System.err.println("Bulk conversion not available: "+e);
+                    bulk = false;
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Computes the number of conversions per second.  The number of conversions is increased until it
+     * takes at least 90% of the goal runtime.
+     */
+    private double measure( Path path , BenchmarkMatrix input ) {
+        // make sure the conversion produces the same matrix before timing it
+        DenseMatrix64F expected = source.convertToEjml(input);
+        DenseMatrix64F found = destination.convertToEjml(path.convert(input));
+        if( !MatrixFeatures.isIdentical(expected,found,TOL) )
+            throw new RuntimeException("Conversion from "+nameSource+" to "+nameDestination+" modified the matrix");
+
+        long goalDuration = goalRuntime*1000000;
+        long numTrials = 1;
+
+        for( int cycles = 0; cycles < 40; cycles++ ) {
+            long before = System.nanoTime();
+            for( long i = 0; i < numTrials; i++ ) {
+                Blackhole.consume(path.convert(input));
+            }
+            long elapsedTime = System.nanoTime()-before;
+
+            if( elapsedTime > goalDuration*0.9 )
+                return numTrials/(elapsedTime/1e9);
+
+            long oldNumTrials = numTrials;
+            numTrials = (long)Math.ceil(goalDuration*(double)numTrials/Math.max(1,elapsedTime));
+            if( numTrials <= oldNumTrials )
+                numTrials = oldNumTrials*2;
+        }
+        throw new RuntimeException("Exceeded the maximum number of cycles");
+    }
+
+    private interface Path {
+        BenchmarkMatrix convert( BenchmarkMatrix input );
+    }
+
+    private class ElementPath implements Path {
+        @Override
+        public BenchmarkMatrix convert(BenchmarkMatrix input) {
+            return destination.convertToLib(source.convertToEjml(input));
+        }
+    }
+
+    private class BulkPath implements Path {
+        @Override
+        public BenchmarkMatrix convert(BenchmarkMatrix input) {
+            double a[][] = ((ArrayConversionFactory)source).convertToArray2D(input);
+            return ((ArrayConversionFactory)destination).convertFromArray2D(a);
+        }
+    }
+
+    public String getNameSource() {
+        return nameSource;
+    }
+
+    public void setNameSource(String nameSource) {
+        this.nameSource = nameSource;
+    }
+
+    public String getNameDestination() {
+        return nameDestination;
+    }
+
+    public void setNameDestination(String nameDestination) {
+        this.nameDestination = nameDestination;
+    }
+
+    public int[] getSizes() {
+        return sizes;
+    }
+
+    public void setSizes(int[] sizes) {
+        this.sizes = sizes;
+    }
+
+    public long getGoalRuntime() {
+        return goalRuntime;
+    }
+
+    public void setGoalRuntime(long goalRuntime) {
+        this.goalRuntime = goalRuntime;
+    }
+
+    public void setMaximumRuntime(long maxRuntime) {
+        this.maxRuntime = maxRuntime;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.conversion;
+
+import jmbench.tools.TestResults;
+
+
+/**
+ * Speed of converting matrices from one library into another for several matrix sizes.  If a path isn't
+ * supported then the number of conversions per second is set to NaN.
+ *
+ * @author Peter Abeles
+ */
+public class ConversionResults implements TestResults {
+    // name of the library being converted from
+    public String source;
+    // name of the library being converted into
+    public String destination;
+    // size of the square matrices
+    public int sizes[];
+    // conversions per second going through EJML element by element
+    public double elementOpsPerSec[];
+    // conversions per second going through a row-major double[][] using bulk functions
+    public double bulkOpsPerSec[];
+
+    public ConversionResults( String source , String destination , int sizes[] ) {
+        this.source = source;
+        this.destination = destination;
+        this.sizes = sizes.clone();
+        this.elementOpsPerSec = new double[ sizes.length ];
+        this.bulkOpsPerSec = new double[ sizes.length ];
+    }
+
+    public ConversionResults(){}
+
+    /**
+     * Keeps the fastest measurement for each size.  Used to combine results from multiple trials.
+     */
+    public void keepBest( ConversionResults r ) {
+        for( int i = 0; i < sizes.length; i++ ) {
+            elementOpsPerSec[i] = best(elementOpsPerSec[i],r.elementOpsPerSec[i]);
+            bulkOpsPerSec[i] = best(bulkOpsPerSec[i],r.bulkOpsPerSec[i]);
+        }
+    }
+
+    private static double best( double a , double b ) {
+        if( Double.isNaN(a) )
+            return b;
+        if( Double.isNaN(b) )
+            return a;
+        return Math.max(a,b);
+    }
+
+    /**
+     * Returns the index of the specified matrix size or -1 if it wasn't tested.
+     */
+    public int indexOfSize( int size ) {
+        for( int i = 0; i < sizes.length; i++ ) {
+            if( sizes[i] == size )
+                return i;
+        }
+        return -1;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    public int[] getSizes() {
+        return sizes;
+    }
+
+    public void setSizes(int[] sizes) {
+        this.sizes = sizes;
+    }
+
+    public double[] getElementOpsPerSec() {
+        return elementOpsPerSec;
+    }
+
+    public void setElementOpsPerSec(double[] elementOpsPerSec) {
+        this.elementOpsPerSec = elementOpsPerSec;
+    }
+
+    public double[] getBulkOpsPerSec() {
+        return bulkOpsPerSec;
+    }
+
+    public void setBulkOpsPerSec(double[] bulkOpsPerSec) {
+        this.bulkOpsPerSec = bulkOpsPerSec;
+    }
+}
@@ -19,23 +19,40 @@
 
 package jmbench.tools.memory;
 
+import jmbench.impl.LibraryDescription;
+
 /**
- * Computes the memory overhead in just launching a process.
+ * <p>
+ * Computes the memory overhead in just launching a process.  If a library is specified then its jars are
+ * put on the classpath and its {@link jmbench.impl.LibraryConfigure#runtimeConfigure()} is called, but no
+ * operation is performed.  This captures the fixed cost of a library, such as loading native code or
+ * starting thread pools, which is then subtracted from each of its operations.
+ * </p>
  *
  * @author Peter Abeles
  */
 public class DetermineOverhead {
 
     MemoryConfig config;
-    MemoryBenchmarkTools tool = new MemoryBenchmarkTools();
+    MemoryBenchmarkTools tool;
+    // library whose fixed cost is measured.  If null then only the JVM is measured
+    LibraryDescription desc;
 
     int numTrials;
 
     public DetermineOverhead(MemoryConfig config , int numTrials ) {
+        this(config,null,numTrials);
+    }
+
+    public DetermineOverhead(MemoryConfig config , LibraryDescription desc , int numTrials ) {
         this.numTrials = numTrials;
         this.config = config;
+        this.desc = desc;
+        tool = desc == null ? new MemoryBenchmarkTools() :
+                new MemoryBenchmarkTools(desc.location.listOfJarFilePaths());
         tool.setVerbose(false);
         tool.sampleType = config.memorySampleType;
+        tool.setNativeMemoryTracking(config.nativeMemoryTracking);
     }
 
     public long computeOverhead() {
@@ -60,7 +77,10 @@ public class DetermineOverhead {
         tool.setMemory(config.memoryMinMB,config.memoryMaxMB);
 
         MemoryTest test = new MemoryTest();
-        test.setup(null,null,null,null,1,0);
+        if( desc == null )
+            test.setup(null,null,null,null,1,0);
+        else
+            test.setup(desc.configure,desc.factoryRuntime,null,null,1,0);
         test.setRandomSeed(config.seed);
 
         return tool.runTest(test);
@@ -28,14 +28,33 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 
 /**
+ * <p>
+ * Measures how much memory each library uses for each operation.  Every operation is run in its own slave
+ * and several slaves can run at the same time since memory is measured per process.  The total memory which
+ * can be used by slaves running at once is limited by {@link MemoryConfig#memoryBudgetMB} so that the
+ * system never needs to swap.
+ * </p>
+ *
  * @author Peter Abeles
  */
 public class MemoryBenchmark {
 
+    // fraction of physical memory used by slaves when no budget is specified
+    public static final double DEFAULT_BUDGET_FRACTION = 0.75;
+
     String directorySave;
 
     public MemoryBenchmark() {
@@ -67,10 +86,14 @@ public class MemoryBenchmark {
         saveLibraryDescriptions(directorySave,config.libraries);
 
         System.out.print("Computing overhead ");
-        long overhead = new DetermineOverhead(config,10).computeOverhead();
+        long overhead = new DetermineOverhead(config,config.overheadTrials).computeOverhead();
         System.out.println(overhead/1024+" KB");
 
-        processLibraries(config.libraries,config,overhead);
+        Map<LibraryDescription,Long> libraryOverhead = computeLibraryOverhead(config.libraries,config,overhead);
+
+        processLibraries(config.libraries,config,libraryOverhead,overhead);
+
+        fitCurves(config);
 
         long stopTime = System.currentTimeMillis();
 
@@ -78,7 +101,43 @@ public class MemoryBenchmark {
         System.out.println("  elapsed time "+(stopTime-startTime)+" (ms) "+((stopTime-startTime)/(60*60*1000.0))+" hrs");
     }
 
-    private void processLibraries( List<LibraryDescription> libs, MemoryConfig config , long overhead ) {
+    /**
+     * Measures the memory used by each library after it has been loaded and configured, but before it has
+     * done anything.  These fixed costs vary a lot between libraries, e.g. native code and thread pools.
+     *
+     * @param jvmOverhead Memory used by a slave without any library in bytes
+     * @return Memory used by a slave with each library in bytes
+     */
+    private Map<LibraryDescription,Long> computeLibraryOverhead( List<LibraryDescription> libs ,
+                                                                 MemoryConfig config , long jvmOverhead ) {
+        Map<LibraryDescription,Long> ret = new HashMap<LibraryDescription,Long>();
+
+        try {
+            PrintStream out = new PrintStream(directorySave+"/library_overhead.csv");
+            out.println("library,overhead,jvm");
+            for( LibraryDescription desc : libs ) {
+                System.out.print("Computing overhead "+desc.location.getPlotName()+" ");
+                long overhead = new DetermineOverhead(config,desc,config.overheadTrials).computeOverhead();
+                System.out.println(overhead/1024+" KB  library "+(overhead-jvmOverhead)/1024+" KB");
+                out.println(desc.location.getPlotName()+","+overhead+","+jvmOverhead);
+                ret.put(desc,overhead);
+            }
+            out.close();
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        return ret;
+    }
+
+    private void processLibraries( List<LibraryDescription> libs, MemoryConfig config ,
+                                   Map<LibraryDescription,Long> libraryOverhead , long jvmOverhead ) {
+
+        MemoryBudget budget = new MemoryBudget(selectBudget(config));
+        int numThreads = Math.max(1,config.numThreads);
+        System.out.println("Slaves running at once "+numThreads+"  memory budget "+budget.getBudgetMB()+" (MB)");
+
+        List<MemoryBenchmarkLibrary> benchmarks = new ArrayList<MemoryBenchmarkLibrary>();
+        List<Runnable> jobs = new ArrayList<Runnable>();
 
         for( int i = 0; i < config.matrixSizes.length; i++ ) {
 
@@ -93,14 +152,63 @@ public class MemoryBenchmark {
                 // run the benchmark
                 String libOutputDir = directorySave+"/"+size+"/"+desc.location.getSaveDirName();
 
+                long overhead = libraryOverhead.get(desc);
                 MemoryBenchmarkLibrary bench = new MemoryBenchmarkLibrary(config,desc,libOutputDir,size,overhead);
+                bench.setLibraryOverhead(overhead-jvmOverhead);
+                bench.setBudget(budget);
 
-                bench.process();
-
-                System.out.println("Finished Library Benchmark");
-                System.out.println();
+                benchmarks.add(bench);
+                jobs.addAll(bench.createJobs());
             }
         }
+
+        // process the tasks in a random order so that slow libraries are spread out
+        Collections.shuffle(jobs,new Random(config.seed));
+
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        for( Runnable job : jobs ) {
+            pool.execute(job);
+        }
+        pool.shutdown();
+        try {
+            while( !pool.awaitTermination(1, TimeUnit.MINUTES) ) {}
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+
+        for( MemoryBenchmarkLibrary bench : benchmarks ) {
+            bench.close();
+        }
+    }
+
+    /**
+     * Returns the memory budget in megabytes.  If none is specified then it's a fraction of physical memory.
+     */
+    public static long selectBudget( MemoryConfig config ) {
+        if( config.memoryBudgetMB > 0 )
+            return config.memoryBudgetMB;
+
+        long physical = MemoryBudget.physicalMemoryMB();
+        if( physical <= 0 ) {
+            // can't determine the amount of memory, so only run one slave at a time
+            return config.memoryMaxMB;
+        }
+        return (long)(physical*DEFAULT_BUDGET_FRACTION);
+    }
+
+    /**
+     * Fits memory as a function of matrix size and forecasts memory for other sizes
+     */
+    private void fitCurves( MemoryConfig config ) {
+        int forecast[] = config.forecastSizes == null ? new int[0] : config.forecastSizes;
+        MemoryCurves curves = new MemoryCurves(directorySave);
+        curves.process();
+        curves.print(System.out,forecast);
+        try {
+            curves.saveCsv(directorySave+"/memory_curves.csv",forecast);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private void saveMatrixSize( String fileName , int size ) {
@@ -129,6 +237,14 @@ public class MemoryBenchmark {
         System.out.println("The following options are valid for memory benchmark:");
         System.out.println("  --Config=<file>          |  Configure using the specified xml file.");
         System.out.println("  --Library=<lib>          |  To run a specific library only.  --Library=? will print a list");
+        System.out.println("  --Size=min:max           |  Test matrices from the specified minimum size to the specified maximum size.");
+        System.out.println("  --NumSizes=<number>      |  Number of matrix sizes between min and max.  Sizes are evenly spaced on a log scale.");
+        System.out.println("  --Forecast=<N>,<N>,...   |  Matrix sizes that memory is forecast for using the fitted curves.");
+        System.out.println("  --Threads=<number>       |  Maximum number of slaves which can run at the same time.");
+        System.out.println("  --Budget=<MB>            |  Total memory the slaves running at the same time can use.");
+        System.out.println("                           |  By default "+(int)(DEFAULT_BUDGET_FRACTION*100)+"% of physical memory.");
+        System.out.println("  --NMT=<boolean>          |  Launch slaves with native memory tracking to break down non-heap memory.");
+        System.out.println("                           |  Tracking uses memory itself and inflates the results.  Default is false.");
     }
 
     public static void main( String args[] ) throws IOException, InterruptedException {
@@ -136,6 +252,7 @@ public class MemoryBenchmark {
 
         boolean failed = false;
         MemoryConfig config = MemoryConfig.createDefault();
+        int minSize = -1, maxSize = -1, numSizes = -1;
 
         System.out.println("** Parsing Command Line **");
         System.out.println();
@@ -161,10 +278,47 @@ public class MemoryBenchmark {
                 }
                 config.libraries.clear();
                 config.libraries.add(match);
+            } else if( flag.compareTo("Size") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                String rangeStr[] = splits[1].split(":");
+                if( rangeStr.length != 2 ) {failed = true; break;}
+                minSize = Integer.parseInt(rangeStr[0]);
+                maxSize = Integer.parseInt(rangeStr[1]);
+            } else if( flag.compareTo("NumSizes") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                numSizes = Integer.parseInt(splits[1]);
+            } else if( flag.compareTo("Forecast") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                String sizes[] = splits[1].split(",");
+                config.forecastSizes = new int[ sizes.length ];
+                for( int j = 0; j < sizes.length; j++ )
+                    config.forecastSizes[j] = Integer.parseInt(sizes[j]);
+            } else if( flag.compareTo("Threads") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.numThreads = Integer.parseInt(splits[1]);
+                System.out.println("Slaves running at once "+config.numThreads);
+            } else if( flag.compareTo("Budget") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.memoryBudgetMB = Long.parseLong(splits[1]);
+                System.out.println("Memory budget "+config.memoryBudgetMB+" (MB)");
+            } else if( flag.compareTo("NMT") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.nativeMemoryTracking = Boolean.parseBoolean(splits[1]);
+                System.out.println("Native memory tracking "+config.nativeMemoryTracking);
             } else {
                 failed = true;
             }
         }
+        if( minSize > 0 || numSizes > 0 ) {
+            int sizes[] = config.matrixSizes;
+            if( minSize <= 0 ) {
+                minSize = sizes[0];
+                maxSize = sizes[sizes.length-1];
+            }
+            config.matrixSizes = MemoryConfig.createSizes(minSize,maxSize,numSizes > 0 ? numSizes : sizes.length);
+            System.out.println("Matrix sizes "+ Arrays.toString(config.matrixSizes));
+        }
+
         if( failed ) {
             printHelp();
         } else {
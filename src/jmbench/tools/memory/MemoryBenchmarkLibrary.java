@@ -33,6 +33,7 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.*;
 
 
 /**
@@ -45,20 +46,23 @@ public class MemoryBenchmarkLibrary {
     String libraryName;
     MemoryConfig config;
 
-    MemoryBenchmarkTools tool = new MemoryBenchmarkTools();
-
     List<Task> activeTasks = new ArrayList<Task>();
 
     String directorySave;
 
     private PrintStream logStream = System.err;
 
-    // how much overhead is involved in just launching a process
-    // this is subtracted from the results in each library
+    // how much overhead is involved in launching a process with this library loaded and configured
+    // this is subtracted from the results of each operation
     private long memoryOverhead;
+    // how much of the overhead is caused by the library and not the JVM
+    private long libraryOverhead;
 
     private LibraryDescription desc;
 
+    // limits the memory used by slaves running at the same time.  Can be null.
+    private MemoryBudget budget;
+
     public MemoryBenchmarkLibrary( MemoryConfig config ,
                                    LibraryDescription desc,
                                    String directorySave ,
@@ -72,10 +76,6 @@ public class MemoryBenchmarkLibrary {
         this.memoryOverhead = memoryOverhead;
         this.desc = desc;
 
-        tool.setJars(desc.location.listOfJarFilePaths());
-        tool.setVerbose(false);
-        tool.sampleType = config.memorySampleType;
-
         if( config.add )
             addOperation(config, new AddGenerator(), "add", "C=A+B", libraryName, 0 , matrixSize);
 
@@ -95,7 +95,8 @@ public class MemoryBenchmarkLibrary {
             addOperation(config, new InvertSymmPosDefGenerator(), "invertSymmPosDef", "inv |A| > 1", libraryName,0 , matrixSize);
 
         if( config.svd )
-            addOperation(config, new SvdGenerator(), "svd", "SVD", libraryName,0 , matrixSize/2 );
+            addOperation(config, new SvdGenerator(), "svd", "SVD", libraryName,0 ,
+                    (int)(matrixSize*config.svdSizeFraction) );
 
         if( config.eig )
             addOperation(config, new EigSymmGenerator(), "eigSymm", "Eigen", libraryName,0 , matrixSize);
@@ -120,41 +121,115 @@ public class MemoryBenchmarkLibrary {
                               String nameOperation,
                               String displayName , String libraryName ,
                               int scale , int matrixSize ) {
-        activeTasks.add( new Task(nameOperation,
-                gen,displayName,libraryName,config.maxTestTimeMilli,scale,matrixSize));
+        Task task = new Task(nameOperation,
+                gen,displayName,libraryName,config.maxTestTimeMilli,scale,matrixSize);
+        task.tool = createTool();
+        activeTasks.add(task);
+    }
+
+    /**
+     * Each task has its own tool so that tasks can be run at the same time.
+     */
+    private MemoryBenchmarkTools createTool() {
+        MemoryBenchmarkTools tool = new MemoryBenchmarkTools(desc.location.listOfJarFilePaths());
+        tool.setVerbose(false);
+        tool.sampleType = config.memorySampleType;
+        tool.setNativeMemoryTracking(config.nativeMemoryTracking);
+        tool.setErrorStream(logStream);
+        return tool;
     }
 
+    /**
+     * Processes each task one at a time in a random order.
+     */
     public void process() {
         while( !activeTasks.isEmpty() ) {
             Task task = activeTasks.get( rand.nextInt(activeTasks.size()));
 
-            System.out.println(libraryName+" operation "+task.results.displayName +"  remaining tasks "+activeTasks.size());
+            processTask(task);
+
+            activeTasks.remove(task);
+        }
 
-            boolean failed = false;
+        logStream.close();
+    }
 
-            for( int i = 0; i < config.numTrials && !failed ; i++ ) {
-                if( !findMemory(task) ) {
-                    System.out.println("Failed!");
-                    logStream.println("FAILED: operation "+task.results.displayName);
-                    failed = true;
+    /**
+     * Creates a job for each task so that they can be processed by a thread pool.  Once all
+     * the jobs have finished {@link #close()} must be called.
+     */
+    public List<Runnable> createJobs() {
+        List<Runnable> jobs = new ArrayList<Runnable>();
+        for( final Task task : activeTasks ) {
+            jobs.add(new Runnable() {
+                @Override
+                public void run() {
+                    processTask(task);
                 }
+            });
+        }
+        activeTasks.clear();
+        return jobs;
+    }
+
+    public void close() {
+        logStream.close();
+    }
+
+    private void processTask( Task task ) {
+        System.out.println(libraryName+" size "+task.matrixSize+" operation "+task.results.displayName);
+
+        boolean failed = false;
+
+        for( int i = 0; i < config.numTrials && !failed ; i++ ) {
+            if( !findMemory(task) ) {
+                System.out.println("Failed! "+libraryName+" "+task.results.displayName);
+                logStream.println("FAILED: operation "+task.results.displayName);
+                failed = true;
             }
+        }
 
-            saveResults(task.results);
+        saveResults(task.results);
+    }
 
-            activeTasks.remove(task);
+    /**
+     * Specifies how much of the overhead is caused by loading and configuring the library.  Must be
+     * called before any tasks are processed.
+     */
+    public void setLibraryOverhead(long libraryOverhead) {
+        this.libraryOverhead = libraryOverhead;
+        logStream.println("Library Overhead = "+libraryOverhead+" bytes");
+        for( Task task : activeTasks ) {
+            task.results.libraryOverhead = libraryOverhead;
         }
+    }
 
-        logStream.close();
+    public void setBudget(MemoryBudget budget) {
+        this.budget = budget;
     }
 
-    private void logMeasurement( Task task , long mem ) {
-        if( mem > 0 ) {
-            mem -= memoryOverhead;
-            if( mem < 0 ) {
-                logStream.println("Memory less than overhead!! "+mem+"  operation "+task.results.displayName);
+    /**
+     * Saves the three metrics found by {@link #findMemory}
+     *
+     * @param rss Peak resident memory at the minimum heap in bytes
+     * @param minHeapMB The smallest maximum heap size it could run with in megabytes
+     * @param breakdown Where the memory went at the minimum heap.  Can be null, then native memory isn't saved.
+     */
+    private void logMeasurement( Task task , long rss , long minHeapMB , MemoryBreakdown breakdown ) {
+        if( rss > 0 ) {
+            rss -= memoryOverhead;
+            if( rss < 0 ) {
+                logStream.println("Memory less than overhead!! "+rss+"  operation "+task.results.displayName);
+            }
+            long heap = minHeapMB*1024*1024;
+            synchronized ( task.results ) {
+                task.results.results.add(rss);
+                task.results.minimumHeap.add(heap);
+                if( breakdown != null ) {
+                    task.results.nativeMemory.add(breakdown.nativeMemory());
+                    task.results.breakdown.add(breakdown);
+                }
             }
-            task.results.results.add(mem);
         }
     }
 
@@ -181,11 +256,13 @@ public class MemoryBenchmarkLibrary {
         // For debugging purposes output the slave's classpath
         logStream.println("Current directory = "+new File(".").getAbsolutePath());
         logStream.println("Classpath:");
-        logStream.println(tool.getClassPath());
+        logStream.println(createTool().getClassPath());
         logStream.println();
         logStream.println("Overhead = "+memoryOverhead+" bytes");
 
-        tool.setErrorStream(logStream);
+        for( Task task : activeTasks ) {
+            task.tool.setErrorStream(logStream);
+        }
     }
 
     private void saveResults( MemoryResults results  ) {
@@ -196,49 +273,127 @@ public class MemoryBenchmarkLibrary {
     }
 
     /**
-     * Adjusts the amount of memory allocated until it converges to a solution.  This is done
-     * to take in account the garbage collector using up memory when it does not have to.
+     * <p>
+     * Searches for the smallest maximum heap size (-Xmx) that the operation can run with.  The garbage
+     * collector will use up memory when it does not have to, so the memory used at the smallest heap
+     * is a better measure of what the operation requires.
+     * </p>
+     *
+     * <p>
+     * First the operation is run with the maximum amount of memory and its peak memory is used as the
+     * initial upper bound.  The interval between the largest heap size known to fail and the smallest
+     * known to work is then split by {@link MemoryConfig#numProbes} heap sizes which are tested at the
+     * same time, until the interval is less than 1% of the heap.
+     * </p>
      */
-    public boolean findMemory( Task task )
+    public boolean findMemory( final Task task )
     {
-        int iteration = 0;
-
         // measuring by giving it the maximum amount of memory
-        long found = testMemory(task,config.memoryMaxMB);
-        System.out.println(" iteration "+0+"  found "+(found/1024/1024)+" (MB)");
+        long found = testMemory(task.tool,task,config.memoryMaxMB);
+        System.out.println(" "+task.results.displayName+" with max heap found "+(found/1024/1024)+" (MB)");
 
         // it failed
-        if( tool.isFailed() || found <= 0 ) {
-            task.results.numFailed++;
+        if( task.tool.isFailed() || found <= 0 ) {
+            synchronized ( task.results ) {
+                task.results.numFailed++;
+            }
             return false;
         }
 
-        while( true )  {
-            long test = testMemory(task,found/1024/1024);
-            if( !tool.failed )
-                System.out.println(" iteration "+(++iteration)+"  found "+(test/1024/1024)+" (MB)");
-            else
-                System.out.println(" iteration "+(++iteration)+" stopped");
+        // largest heap known to fail and smallest known to work
+        long lower = config.memoryMinMB-1;
+        long upper = config.memoryMaxMB;
+        long upperRss = found;
+        MemoryBreakdown upperBreakdown = task.tool.getBreakdown();
 
-            // make sure the improvement is significant
-            long tol = (long)(found * 0.01);
+        // the heap can't be larger than the peak memory used, so try that first
+        long guess = Math.max(config.memoryMinMB,(found+1024*1024-1)/1024/1024);
 
-            if( test <= 0 || tool.failed || test >= found-tol ) {
-                logMeasurement(task,found);
-                return true;
-            }
-            
-            found = test;
+        int numProbes = Math.max(1,config.numProbes);
+        ExecutorService pool = Executors.newFixedThreadPool(numProbes);
+        final MemoryBenchmarkTools tools[] = new MemoryBenchmarkTools[ numProbes ];
+        for( int i = 0; i < numProbes; i++ )
+            tools[i] = i == 0 ? task.tool : createTool();
+
+        try {
+            for( int iteration = 0; upper-lower > Math.max(1,upper/100); iteration++ ) {
+                if( iteration > 30 ) {
+                    System.out.println("Too many iterations!!");
+                    logStream.println("Too many iterations!");
+                    return false;
+                }
 
-            if( iteration > 30 ) {
-                System.out.println("Too many iterations!!");
-                logStream.println("Too many iterations!");
-                return false;
+                // select the heap sizes which will be tested
+                long probes[] = new long[ numProbes ];
+                int N = 0;
+                long top = upper;
+                if( guess > lower && guess < upper ) {
+                    probes[N++] = guess;
+                    top = guess;
+                    guess = -1;
+                }
+                int remaining = numProbes-N;
+                for( int i = 1; i <= remaining; i++ ) {
+                    long v = lower + (top-lower)*i/(remaining+1);
+                    if( v <= lower || v >= top || (N > 0 && v == probes[N-1]) )
+                        continue;
+                    probes[N++] = v;
+                }
+                if( N == 0 )
+                    break;
+
+                List<Future<Long>> futures = new ArrayList<Future<Long>>();
+                final MemoryBreakdown breakdowns[] = new MemoryBreakdown[ N ];
+                for( int i = 0; i < N; i++ ) {
+                    final int index = i;
+                    final MemoryBenchmarkTools tool = tools[i];
+                    final long heap = probes[i];
+                    futures.add(pool.submit(new Callable<Long>() {
+                        @Override
+                        public Long call() throws Exception {
+                            long rss = testMemory(tool,task,heap);
+                            breakdowns[index] = tool.getBreakdown();
+                            return tool.isFailed() ? -1 : rss;
+                        }
+                    }));
+                }
+
+                // assume that if it works with a heap then it will also work with a larger heap
+                for( int i = 0; i < N; i++ ) {
+                    long rss = futures.get(i).get();
+                    if( rss > 0 ) {
+                        if( probes[i] < upper ) {
+                            upper = probes[i];
+                            upperRss = rss;
+                            upperBreakdown = breakdowns[i];
+                        }
+                    } else if( probes[i] > lower ) {
+                        lower = probes[i];
+                    }
+                }
+                if( lower >= upper ) {
+                    logStream.println("Not monotonic: operation "+task.results.displayName+" failed at "+lower+" worked at "+upper);
+                    lower = upper-1;
+                }
+                System.out.println(" "+task.results.displayName+" iteration "+iteration+"  heap in ("+lower+","+upper+"] (MB)");
             }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdown();
         }
+
+        logMeasurement(task,upperRss,upper,upperBreakdown);
+        return true;
+    }
+
+    public long testMemory( Task task , long maxMemory ) {
+        return testMemory(task.tool,task,maxMemory);
     }
 
-    public long testMemory( Task task , long maxMemory )
+    public long testMemory( MemoryBenchmarkTools tool , Task task , long maxMemory )
     {
         if( maxMemory < config.memoryMinMB )
             return -1;
@@ -250,13 +405,23 @@ public class MemoryBenchmarkLibrary {
         test.setup(desc.configure,desc.factoryRuntime,task.gen,task.nameOperation,1,task.matrixSize);
         test.setRandomSeed(config.seed);
 
-        return tool.runTest(test);
+        if( budget == null )
+            return tool.runTest(test);
+
+        // the slave can use its entire heap plus what the JVM needs outside of the heap
+        long reserved = budget.acquire(maxMemory + memoryOverhead/1024/1024);
+        try {
+            return tool.runTest(test);
+        } finally {
+            budget.release(reserved);
+        }
     }
 
     private static class Task {
         String nameOperation;
         MemoryResults results;
         InputOutputGenerator gen;
+        MemoryBenchmarkTools tool;
 
         long timeout;
 
@@ -275,6 +440,8 @@ public class MemoryBenchmarkLibrary {
             this.timeout = time;
             results = new MemoryResults();
             results.displayName = displayName;
+            results.nameOperation = nameOperation;
+            results.matrixSize = matrixSize;
             results.nameLibrary = nameLibrary;
             this.memoryScale = memoryScale;
             this.matrixSize = matrixSize;
@@ -21,37 +21,47 @@ package jmbench.tools.memory;
 
 import jmbench.tools.EvaluationTest;
 import jmbench.tools.EvaluatorSlave;
+import jmbench.tools.SlaveSupervisor;
 import jmbench.tools.TestResults;
 import jmbench.tools.stability.UtilXmlSerialization;
 
 import java.io.*;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 
 /**
- * Launches test processes for memory benchmark
+ * <p>
+ * Launches test processes for memory benchmark.
+ * </p>
+ *
+ * <p>
+ * The peak memory usage is maintained by the kernel, so it doesn't need to be sampled.  Once the slave has
+ * finished its evaluation it tells the master and waits, see {@link EvaluatorSlave#HANDSHAKE_PROPERTY}.  The
+ * master then reads the peak memory a single time and lets the slave exit.  Only
+ * {@link MemoryConfig.SampleType#PS} samples memory while the slave runs, since ps does not provide the peak.
+ * </p>
  *
  * @author Peter Abeles
  */
-// TODO use proc/status
-    // todo implement child pause
-    // todo make it selectable if it should check proc or use ps
 public class MemoryBenchmarkTools {
 
-    // how often the size is sampled
+    // how often the slave's output is checked and, if using ps, memory is sampled
     long samplePeriod = 20;
 
-    // how long the child process should pause for at the end
-    // this allows for the peak memory usage to be read before it dies
-    // time is specified in milliseconds.
-    long childPauseTimeMS = samplePeriod*3;
-
 
     // used to ID stale results
     int requestID= new Random().nextInt();
 
+    // used to give each slave its own files, so that several slaves can run at the same time
+    private static final AtomicLong nextSlaveID = new AtomicLong();
+    String caseFile = "case.xml";
+    String resultsFile = "slave_results.xml";
+
     // if not zero it will allocate this much memory (MB)
     long memoryMin = 0;
     long memoryMax = 0;
@@ -67,11 +77,18 @@ public class MemoryBenchmarkTools {
     long durationMilli;
 
     long memoryUsage;
+    // where the memory went in the most recent slave.  null if not available
+    MemoryBreakdown breakdown;
+
+    // should the slave be launched with native memory tracking
+    boolean nativeMemoryTracking = false;
 
     // if the test failed or not
     boolean failed;
     // did it fail because it froze?
     boolean froze;
+    // did the slave perform the handshake
+    boolean handshake;
 
     boolean verbose = true;
 
@@ -128,6 +145,10 @@ public class MemoryBenchmarkTools {
     public long runTest( MemoryTest test ) {
 
         requestID++;
+        breakdown = null;
+        long slaveID = nextSlaveID.incrementAndGet();
+        caseFile = "memory_case_"+slaveID+".xml";
+        resultsFile = "memory_results_"+slaveID+".xml";
         failed = false;
         froze = false;
 
@@ -141,21 +162,12 @@ public class MemoryBenchmarkTools {
             Runtime rt = Runtime.getRuntime();
             Process pr = rt.exec(params);
 
-            long processID = getProcessID("EvaluatorSlave");
-
-            if( processID < 0 ) {
-                System.out.println("Get Process ID failed");
-                errorStream.println("  get process ID failed.");
-                return -1;
-            }
-
-            BufferedReader input = new BufferedReader(new InputStreamReader(pr.getInputStream()));
-            BufferedReader error = new BufferedReader(new InputStreamReader(pr.getErrorStream()));
+            SlaveSupervisor supervisor = new SlaveSupervisor(pr);
 
             // print the output from the slave
-            froze = monitorSlave2(test, pr, input, error,processID);
+            froze = monitorSlave(supervisor);
 
-            cleanUp(froze, pr, input, error, test.getNameOperation());
+            cleanUp(froze, supervisor, test.getNameOperation());
 
             return memoryUsage;
         } catch (IOException e) {
@@ -166,58 +178,61 @@ public class MemoryBenchmarkTools {
     }
 
     /**
-     * Prints out the standard out and error from the slave and checks its health.  Exits if
+     * Prints out the standard out and error from the slave and checks its health.  Returns once
      * the slave has finished or is declared frozen.
      */
-    private boolean monitorSlave2(EvaluationTest test, Process pr,
-                                 BufferedReader input, BufferedReader error ,
-                                 long PID )
-            throws IOException, InterruptedException {
-
-        boolean frozen = false;
-
-        long startTime = System.currentTimeMillis();
-        long lastAliveMessage = startTime;
+    private boolean monitorSlave( final SlaveSupervisor supervisor ) throws IOException, InterruptedException {
 
         memoryUsage = 0;
-
-        for(;;) {
-
-            long mem = getMemoryForPid(PID);
-            if( mem > memoryUsage )
-                memoryUsage = mem;
-
-            printError(error);
-
-            if( input.ready() ) {
-                printInputBuffer(input);
-            } else {
-                Thread.sleep(samplePeriod);
-            }
-
-            try {
-                // exit value throws an exception is the process has yet to stop
-                pr.exitValue();
-                break;
-            } catch( IllegalThreadStateException e) {
-                // check to see if the process is frozen
-                if(System.currentTimeMillis() - startTime > frozenDefaultTime ) {
-                    frozen = true;
-                    break;
+        handshake = false;
+
+        supervisor.setTimeout(frozenDefaultTime);
+        supervisor.setSamplePeriod(samplePeriod);
+        supervisor.setAliveMessage("Master is still alive:");
+        supervisor.setErrCopy(errorStream);
+        supervisor.setLineListener(new SlaveSupervisor.LineListener() {
+            @Override
+            public boolean handleLine(String line) {
+                if( !line.equals(EvaluatorSlave.HANDSHAKE_READY) )
+                    return true;
+
+                // the slave is done and waiting, read its peak memory then let it exit
+                long mem = getPeakMemoryForPid(supervisor.getPid());
+                synchronized( MemoryBenchmarkTools.this ) {
+                    if( mem > memoryUsage )
+                        memoryUsage = mem;
+                    handshake = true;
                 }
-
-                // let everyone know its still alive
-                if( System.currentTimeMillis() - lastAliveMessage > 60000 ) {
-                    System.out.println("\nMaster is still alive: "+new Date());
-                    lastAliveMessage = System.currentTimeMillis();
+                try {
+                    supervisor.send("\n");
+                } catch (IOException e) {
+                    errorStream.println("Failed to send the handshake to the slave");
                 }
+                return false;
             }
+        });
+        if( sampleType == MemoryConfig.SampleType.PS ) {
+            supervisor.setWatchdog(new SlaveSupervisor.Watchdog() {
+                @Override
+                public void sample(SlaveSupervisor supervisor) {
+                    long mem = getMemoryForPid_PS(supervisor.getPid());
+                    synchronized( MemoryBenchmarkTools.this ) {
+                        if( mem > memoryUsage )
+                            memoryUsage = mem;
+                    }
+                }
+            });
         }
-        durationMilli = System.currentTimeMillis()-startTime;
+
+        boolean frozen = !supervisor.waitFor();
+        durationMilli = supervisor.getDurationMilli();
         return frozen;
     }
 
-    public long getMemoryForPid( long PID ) {
+    /**
+     * Returns the peak memory used by the process in bytes or -1 if it can't be read
+     */
+    public long getPeakMemoryForPid( long PID ) {
         switch( sampleType ) {
             case PROC:
                 return getMemoryForPid_PROC(PID);
@@ -228,7 +243,6 @@ public class MemoryBenchmarkTools {
             default:
                 throw new RuntimeException("Unknown sample type "+sampleType);
         }
-
     }
 
     public static long getMemoryForPid_PS( long PID ) {
@@ -329,104 +343,42 @@ public class MemoryBenchmarkTools {
     }
 
     /**
-     * Uses jps to get a list of java processes.  It then looks for the first process
-     * that is the specified class and returns its PID.
+     * Reads everything the process writes to standard out until it exits.  If it hasn't exited after half a
+     * second it's assumed to be frozen and is killed, which also ends the read.
      *
-     * @param name The java class that was launched.
-     * @return The process PID or -1 if it wasn't found.
+     * @return true if the process exited normally
      */
-    public static long getProcessID( String name ) {
-
-        String params[] = new String[]{"jps"};
-
-        StringBuffer buff = new StringBuffer();
-
-
-        long foundID = -1;
-
-        try {
-            Process pr = Runtime.getRuntime().exec(params);
-            if (!getProcessInput(pr, buff))
-                return -1;
-
-            // find the ID
-            String prev = null;
-            String curr = null;
-
-            String text = buff.toString();
-
-            for( int i = 0; i < text.length(); i++ ) {
-                char c = text.charAt(i);
-
-                if( c == ' ' || c == '\n') {
-                    if( curr != null ) {
-                        // see if it found the process it was looking for
-                        if( curr.compareTo(name) == 0 ) {
-                            if( foundID != -1 )
-                                throw new RuntimeException("Multiple instances of process "+name);
-                            foundID = Long.parseLong(prev);
-                        }
-
-                        prev = curr;
-                        curr = null;
+    private static boolean getProcessInput( final Process pr, StringBuffer buff) throws IOException, InterruptedException {
+        final boolean frozen[] = new boolean[1];
+        pr.onExit().orTimeout(500,TimeUnit.MILLISECONDS).whenComplete(new BiConsumer<Process, Throwable>() {
+            @Override
+            public void accept(Process process, Throwable throwable) {
+                if( throwable != null ) {
+                    synchronized( frozen ) {
+                        frozen[0] = true;
                     }
-                } else {
-                   if( curr == null ) {
-                       curr = Character.toString(c);
-                   } else {
-                       curr += c;
-                   }
+                    pr.destroyForcibly();
                 }
             }
-            return foundID;
-
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-    }
+        });
 
-    private static boolean getProcessInput( Process pr, StringBuffer buff) throws IOException, InterruptedException {
-        long startTime = System.currentTimeMillis();
-
-        BufferedReader input = new BufferedReader(new InputStreamReader(pr.getInputStream()));
-
-        boolean worked = true;
-
-        for(;;) {
-            if( input.ready() ) {
-                while( input.ready() ) {
-                    buff.append((char)input.read());
-                }
-            } else {
-                Thread.sleep(50);
-            }
-
-            try {
-                // exit value throws an exception is the process has yet to stop
-                pr.exitValue();
-                pr.waitFor();
-                break;
-            } catch( IllegalThreadStateException e) {
-                // check to see if the process is frozen
-                if(System.currentTimeMillis() - startTime > 500 ) {
-                    pr.destroy();
-                    pr.waitFor();
-                    worked = false;
-                    break;
-                }
+        pr.getOutputStream().close();
+        Reader input = new InputStreamReader(pr.getInputStream());
+        try {
+            char buffer[] = new char[1024];
+            int length;
+            while( (length = input.read(buffer)) >= 0 ) {
+                buff.append(buffer,0,length);
             }
+        } finally {
+            input.close();
+            pr.getErrorStream().close();
         }
 
-        // clean up
-        while( input.ready() ) {
-            buff.append((char)input.read());
+        int exitValue = pr.waitFor();
+        synchronized( frozen ) {
+            return !frozen[0] && exitValue == 0;
         }
-        pr.getOutputStream().close();
-        pr.getErrorStream().close();
-        input.close();
-        return worked;
     }
 
 
@@ -436,7 +388,7 @@ public class MemoryBenchmarkTools {
      */
     private String[] setupSlave(EvaluationTest test) {
         // write out a file describing what the slave should process.
-        UtilXmlSerialization.serializeXml(test,"case.xml");
+        UtilXmlSerialization.serializeXml(test,caseFile);
 
         // grab the current classpath and add some additional jars
         String classPath = getClassPath();
@@ -445,52 +397,32 @@ public class MemoryBenchmarkTools {
         if(verbose)
             System.out.println("Memory = "+memoryMax+" MB");
 
-        params = new String[10];
-        params[0] = app;
-        params[1] = "-server";
-        params[2] = "-Xms"+memoryMin+"M";
-        params[3] = "-Xmx"+memoryMax+"M";
-        params[4] = "-classpath";
-        params[5] = classPath;
-        params[6] = "jmbench.tools.EvaluatorSlave";
-        params[7] = "case.xml";
-        params[8] = Integer.toString(1);
-        params[9] = Long.toString(requestID);
+        List<String> p = new ArrayList<String>();
+        p.add(app);
+        p.add("-server");
+        p.add("-Xms"+memoryMin+"M");
+        p.add("-Xmx"+memoryMax+"M");
+        if( nativeMemoryTracking )
+            p.add("-XX:NativeMemoryTracking=summary");
+        p.add("-D"+EvaluatorSlave.HANDSHAKE_PROPERTY+"=true");
+        p.add("-classpath");
+        p.add(classPath);
+        p.add("jmbench.tools.EvaluatorSlave");
+        p.add(caseFile);
+        p.add(Integer.toString(1));
+        p.add(Long.toString(requestID));
+        p.add(resultsFile);
+
+        params = p.toArray(new String[p.size()]);
         return params;
     }
 
-    private void printError(BufferedReader error) throws IOException {
-        while( error.ready() ) {
-            int val = error.read();
-            if( val < 0 ) break;
-
-            char []message = Character.toChars(val);
-            System.out.print(message);
-            errorStream.print(message);
-        }
-    }
-
-    private void printInputBuffer(BufferedReader input) throws IOException {
-
-        while( input.ready() ) {
-            int val = input.read();
-            if( val < 0 ) break;
-
-            System.out.print(Character.toChars(val));
-        }
-    }
-
     /**
      * Cleans up after the slave and compiles the results that are returned.
      */
-    private void cleanUp(boolean frozen,
-                         Process pr,
-                         BufferedReader input, BufferedReader error, String nameOp )
+    private void cleanUp(boolean frozen, SlaveSupervisor supervisor, String nameOp )
             throws InterruptedException, IOException {
-
-        // flush whatever is left
-        printInputBuffer(input);
-        printError(error);
+        Process pr = supervisor.getProcess();
 
         // now look to see what happened
         if( !frozen ) {
@@ -501,11 +433,11 @@ public class MemoryBenchmarkTools {
                 errorStream.println("None 0 exit value returned by the slave. val = "+exitVal);
                 failed = true;
             } else {
-                EvaluatorSlave.Results results = UtilXmlSerialization.deserializeXml("slave_results.xml");
+                EvaluatorSlave.Results results = UtilXmlSerialization.deserializeXml(resultsFile);
 
                 // make sure these results are not stale
                 if( results == null ) {
-                    errorStream.println("Can't find slave_results.xml");
+                    errorStream.println("Can't find "+resultsFile);
                     failed = true;
                 } if( results.getRequestID() != requestID ) {
                     errorStream.println("Stale request ID");
@@ -525,6 +457,9 @@ public class MemoryBenchmarkTools {
                         System.out.println(results.detailedError);
                     }
                     failed = true;
+                } else if( !handshake ) {
+                    errorStream.println("Slave exited without performing the handshake, peak memory is unknown.");
+                    failed = true;
                 }  else {
                     // See if the slave caught an error.  Typically this will be the operation isn't supported or
                     // sanity check failed
@@ -538,6 +473,9 @@ public class MemoryBenchmarkTools {
                             memoryUsage = -1;
                             break;
                         }
+                        breakdown = rm.breakdown;
+                        if( breakdown != null )
+                            breakdown.residentPeak = memoryUsage;
                     }
                 }
             }
@@ -545,18 +483,12 @@ public class MemoryBenchmarkTools {
             errorStream.println("BenchmarkTools: Killing a frozen slave.");
             System.out.println("BenchmarkTools: Killing a frozen slave.");
             // kill the frozen process
-            pr.destroy();
-            pr.waitFor();
+            supervisor.destroy();
 
             // report that there is no results because the slave froze
             System.out.println("Frozen slave is dead.");
             failed = true;
         }
-        
-        // close the IO streams
-        input.close();
-        error.close();
-        pr.getOutputStream().close();
 
         // delete temporary files
         cleanup();
@@ -565,13 +497,13 @@ public class MemoryBenchmarkTools {
     /**
      * Delete temporary files that it created to pass information between the master and the slave.
      */
-    private static void cleanup() {
-        if( !new File("case.xml").delete() ) {
-            System.out.println("Couldn't delete case.xml");
+    private void cleanup() {
+        if( !new File(caseFile).delete() ) {
+            System.out.println("Couldn't delete "+caseFile);
         }
 
-        if( !new File("slave_results.xml").delete() ) {
-            System.out.println("Couldn't delete slave_results.xml");
+        if( !new File(resultsFile).delete() ) {
+            System.out.println("Couldn't delete "+resultsFile);
         }
     }
 
@@ -593,6 +525,17 @@ public class MemoryBenchmarkTools {
         return params;
     }
 
+    /**
+     * Where the memory went in the most recent slave.  null if not available.
+     */
+    public MemoryBreakdown getBreakdown() {
+        return breakdown;
+    }
+
+    public void setNativeMemoryTracking(boolean nativeMemoryTracking) {
+        this.nativeMemoryTracking = nativeMemoryTracking;
+    }
+
     public boolean isFailed() {
         return failed;
     }
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.memory;
+
+import javax.management.ObjectName;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * <p>
+ * Breaks down where the memory used by a slave went.  Resident memory lumps together the Java heap,
+ * class metadata, JIT code, thread stacks, direct buffers, and memory allocated by native libraries.  The
+ * slave fills in everything it can see from inside the JVM.  If it was launched with Native Memory
+ * Tracking (-XX:NativeMemoryTracking=summary) then what the JVM has committed for each category is
+ * also recorded.  Memory allocated by native code outside of the JVM is the resident memory minus
+ * everything the JVM tracks.
+ * </p>
+ *
+ * <p>
+ * All values are in bytes.  Peak values come from the memory pools and are the sum of each pool's
+ * peak, which can be larger than the peak of the sum.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class MemoryBreakdown implements Serializable {
+
+    // labels used when the breakdown is plotted
+    public static final String HEAP_USED = "Heap Used";
+    public static final String HEAP_UNUSED = "Heap Unused";
+    public static final String JVM = "JVM";
+    public static final String DIRECT = "Direct Buffers";
+    public static final String UNTRACKED = "Untracked Native";
+
+    // peak memory used inside the heap
+    public long heapUsed;
+    // peak memory committed to the heap
+    public long heapCommitted;
+    // peak memory used by non-heap pools, e.g. metaspace and code cache
+    public long nonHeapUsed;
+    // peak memory used by direct byte buffers
+    public long directBuffers;
+    // total memory committed by the JVM according to native memory tracking.  -1 if not available
+    public long nativeCommitted = -1;
+    // memory committed by the JVM for each native memory tracking category
+    public Map<String,Long> nativeCategories = new TreeMap<String,Long>();
+    // peak resident memory of the slave, filled in by the master
+    public long residentPeak;
+
+    /**
+     * Reads everything which can be read from the current JVM.
+     *
+     * @param directPeak Peak memory used by direct buffers, see {@link #directBuffersUsed()}
+     */
+    public static MemoryBreakdown capture( long directPeak ) {
+        MemoryBreakdown ret = new MemoryBreakdown();
+
+        for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if( pool.getPeakUsage() == null )
+                continue;
+            if( pool.getType() == MemoryType.HEAP ) {
+                ret.heapUsed += pool.getPeakUsage().getUsed();
+                ret.heapCommitted += pool.getPeakUsage().getCommitted();
+            } else {
+                ret.nonHeapUsed += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        ret.directBuffers = Math.max(directPeak,directBuffersUsed());
+        ret.parseNativeMemoryTracking(readNativeMemoryTracking());
+
+        return ret;
+    }
+
+    /**
+     * Memory currently used by direct byte buffers.  There is no peak value, so it needs to be sampled.
+     */
+    public static long directBuffersUsed() {
+        for( BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class) ) {
+            if( pool.getName().equals("direct") )
+                return pool.getMemoryUsed();
+        }
+        return 0;
+    }
+
+    /**
+     * Asks the JVM for its native memory tracking summary.  Returns null if it isn't available.
+     */
+    private static String readNativeMemoryTracking() {
+        try {
+            Object o = ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"),"vmNativeMemory",
+                    new Object[]{new String[]{"summary"}},new String[]{String[].class.getName()});
+            return o == null ? null : o.toString();
+        } catch( Exception e ) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses the output of "VM.native_memory summary"
+     */
+    protected void parseNativeMemoryTracking( String summary ) {
+        if( summary == null )
+            return;
+
+        Pattern total = Pattern.compile("^Total: reserved=(\\d+)KB, committed=(\\d+)KB");
+        Pattern category = Pattern.compile("^-\\s+(.+?) \\(reserved=(\\d+)KB, committed=(\\d+)KB");
+
+        try {
+            BufferedReader reader = new BufferedReader(new StringReader(summary));
+            String line;
+            while( (line = reader.readLine()) != null ) {
+                Matcher m = total.matcher(line);
+                if( m.find() ) {
+                    nativeCommitted = Long.parseLong(m.group(2))*1024;
+                    continue;
+                }
+                m = category.matcher(line);
+                if( m.find() ) {
+                    nativeCategories.put(m.group(1),Long.parseLong(m.group(3))*1024);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Splits the resident memory into components which add up to it.  Components are heap used, heap unused,
+     * JVM (everything else the JVM committed), direct buffers, and untracked native memory.
+     *
+     * @return Map from component label to bytes.
+     */
+    public Map<String,Long> components() {
+        Map<String,Long> ret = new TreeMap<String,Long>();
+
+        ret.put(HEAP_USED,heapUsed);
+        ret.put(HEAP_UNUSED,Math.max(0,heapCommitted-heapUsed));
+        ret.put(DIRECT,directBuffers);
+
+        long tracked;
+        if( nativeCommitted >= 0 ) {
+            // direct buffers are allocated through malloc and tracked by the JVM
+            Long heap = nativeCategories.get("Java Heap");
+            long jvm = nativeCommitted - (heap == null ? heapCommitted : heap) - directBuffers;
+            ret.put(JVM,Math.max(0,jvm));
+            tracked = nativeCommitted;
+        } else {
+            ret.put(JVM,nonHeapUsed);
+            tracked = heapCommitted + nonHeapUsed + directBuffers;
+        }
+        ret.put(UNTRACKED,Math.max(0,residentPeak-tracked));
+
+        return ret;
+    }
+
+    /**
+     * Resident memory outside of the Java heap.  The sum of the JVM, direct buffer, and untracked native
+     * components.
+     */
+    public long nativeMemory() {
+        Map<String,Long> c = components();
+        return c.get(JVM) + c.get(DIRECT) + c.get(UNTRACKED);
+    }
+
+    public long getHeapUsed() {
+        return heapUsed;
+    }
+
+    public void setHeapUsed(long heapUsed) {
+        this.heapUsed = heapUsed;
+    }
+
+    public long getHeapCommitted() {
+        return heapCommitted;
+    }
+
+    public void setHeapCommitted(long heapCommitted) {
+        this.heapCommitted = heapCommitted;
+    }
+
+    public long getNonHeapUsed() {
+        return nonHeapUsed;
+    }
+
+    public void setNonHeapUsed(long nonHeapUsed) {
+        this.nonHeapUsed = nonHeapUsed;
+    }
+
+    public long getDirectBuffers() {
+        return directBuffers;
+    }
+
+    public void setDirectBuffers(long directBuffers) {
+        this.directBuffers = directBuffers;
+    }
+
+    public long getNativeCommitted() {
+        return nativeCommitted;
+    }
+
+    public void setNativeCommitted(long nativeCommitted) {
+        this.nativeCommitted = nativeCommitted;
+    }
+
+    public Map<String, Long> getNativeCategories() {
+        return nativeCategories;
+    }
+
+    public void setNativeCategories(Map<String, Long> nativeCategories) {
+        this.nativeCategories = nativeCategories;
+    }
+
+    public long getResidentPeak() {
+        return residentPeak;
+    }
+
+    public void setResidentPeak(long residentPeak) {
+        this.residentPeak = residentPeak;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.memory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.Semaphore;
+
+
+/**
+ * Limits how much memory all the slaves running at the same time can use, so that the system never
+ * has to swap.  Before a slave is launched the most memory it could use is reserved and after it exits
+ * the reservation is released.  If a single slave needs more than the entire budget then it is
+ * allowed to run by itself.
+ *
+ * @author Peter Abeles
+ */
+public class MemoryBudget {
+
+    // total budget in megabytes
+    private long budgetMB;
+
+    // one permit is one megabyte
+    private Semaphore available;
+
+    public MemoryBudget( long budgetMB ) {
+        if( budgetMB <= 0 || budgetMB > Integer.MAX_VALUE )
+            throw new IllegalArgumentException("Invalid budget "+budgetMB);
+        this.budgetMB = budgetMB;
+        // fair so that large requests don't starve
+        this.available = new Semaphore((int)budgetMB,true);
+    }
+
+    /**
+     * Blocks until the requested memory is available.
+     *
+     * @param requestMB How much memory the slave might use in megabytes
+     * @return The amount that was actually reserved.  Pass this into {@link #release}
+     */
+    public long acquire( long requestMB ) {
+        long reserved = Math.max(1,Math.min(requestMB,budgetMB));
+        available.acquireUninterruptibly((int)reserved);
+        return reserved;
+    }
+
+    public void release( long reservedMB ) {
+        available.release((int)reservedMB);
+    }
+
+    public long getBudgetMB() {
+        return budgetMB;
+    }
+
+    /**
+     * Returns the amount of physical memory in megabytes or -1 if it can't be determined
+     */
+    public static long physicalMemoryMB() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if( os instanceof com.sun.management.OperatingSystemMXBean ) {
+            return ((com.sun.management.OperatingSystemMXBean)os).getTotalPhysicalMemorySize()/1024/1024;
+        }
+        return -1;
+    }
+}
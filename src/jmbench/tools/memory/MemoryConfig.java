@@ -22,6 +22,7 @@ package jmbench.tools.memory;
 import jmbench.impl.FactoryLibraryDescriptions;
 import jmbench.impl.LibraryDescription;
 
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -48,6 +49,23 @@ public class MemoryConfig {
 
     // number of rows/cols of tested matrices
     public int[] matrixSizes;
+    // SVD is much slower than the other operations, so it is tested with smaller matrices
+    public double svdSizeFraction;
+    // sizes at which memory usage is forecast from the fitted curves
+    public int[] forecastSizes;
+
+    // maximum number of slaves which can run at the same time
+    public int numThreads;
+    // total memory all the slaves running at once can use in megabytes.  If zero then a fraction of
+    // the physical memory is used
+    public long memoryBudgetMB;
+    // number of heap sizes tested at the same time when searching for the minimum heap
+    public int numProbes;
+    // number of slaves launched to measure the memory used by a library before it does anything
+    public int overheadTrials;
+    // should slaves run with native memory tracking so that non-heap memory can be broken down.  Tracking
+    // adds its own overhead to the memory being measured, so it's off by default
+    public boolean nativeMemoryTracking;
 
     // ops that it tests
     public boolean mult;
@@ -67,11 +85,11 @@ public class MemoryConfig {
     public static enum SampleType
     {
         /**
-         * Use the unix command 'ps' to get memory usage
+         * Use the unix command 'ps' to sample memory usage while the slave runs.  Can miss short peaks.
          */
         PS,
         /**
-         * Use the /proc/PID/status to get the maximum memory usage.  Less standardized
+         * Use VmHWM in /proc/PID/status to get the maximum memory usage.  Less standardized
          * than PS, but more accurate
          */
         PROC
@@ -88,7 +106,14 @@ public class MemoryConfig {
         ret.numTrials = 3;
         ret.memoryMinMB = 50;
         ret.memoryMaxMB = 1024*2;
-        ret.matrixSizes = new int[]{1000,2000,3000};
+        ret.matrixSizes = createSizes(500,3000,6);
+        ret.svdSizeFraction = 0.5;
+        ret.forecastSizes = new int[]{5000,10000};
+        ret.numThreads = Runtime.getRuntime().availableProcessors();
+        ret.memoryBudgetMB = 0;
+        ret.numProbes = 3;
+        ret.overheadTrials = 5;
+        ret.nativeMemoryTracking = false;
         ret.memorySampleType = SampleType.PROC;
 
         ret.mult = true;
@@ -103,6 +128,31 @@ public class MemoryConfig {
         return ret;
     }
 
+    /**
+     * Creates a list of matrix sizes which are evenly spaced on a log scale.  Memory is fit
+     * as a function of size across these, see {@link MemoryCurves}.
+     *
+     * @param min Smallest matrix size
+     * @param max Largest matrix size
+     * @param num Number of sizes.
+     */
+    public static int[] createSizes( int min , int max , int num ) {
+        if( num <= 1 || min >= max )
+            return new int[]{max};
+
+        List<Integer> sizes = new ArrayList<Integer>();
+        for( int i = 0; i < num; i++ ) {
+            int N = (int)Math.round(min*Math.pow((double)max/min,(double)i/(num-1)));
+            if( sizes.isEmpty() || sizes.get(sizes.size()-1) != N )
+                sizes.add(N);
+        }
+
+        int ret[] = new int[ sizes.size() ];
+        for( int i = 0; i < ret.length; i++ )
+            ret[i] = sizes.get(i);
+        return ret;
+    }
+
     public List<LibraryDescription> getLibraries() {
         return libraries;
     }
@@ -207,6 +257,62 @@ public class MemoryConfig {
         this.eig = eig;
     }
 
+    public double getSvdSizeFraction() {
+        return svdSizeFraction;
+    }
+
+    public void setSvdSizeFraction(double svdSizeFraction) {
+        this.svdSizeFraction = svdSizeFraction;
+    }
+
+    public int[] getForecastSizes() {
+        return forecastSizes;
+    }
+
+    public void setForecastSizes(int[] forecastSizes) {
+        this.forecastSizes = forecastSizes;
+    }
+
+    public int getOverheadTrials() {
+        return overheadTrials;
+    }
+
+    public void setOverheadTrials(int overheadTrials) {
+        this.overheadTrials = overheadTrials;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public long getMemoryBudgetMB() {
+        return memoryBudgetMB;
+    }
+
+    public void setMemoryBudgetMB(long memoryBudgetMB) {
+        this.memoryBudgetMB = memoryBudgetMB;
+    }
+
+    public int getNumProbes() {
+        return numProbes;
+    }
+
+    public void setNumProbes(int numProbes) {
+        this.numProbes = numProbes;
+    }
+
+    public boolean isNativeMemoryTracking() {
+        return nativeMemoryTracking;
+    }
+
+    public void setNativeMemoryTracking(boolean nativeMemoryTracking) {
+        this.nativeMemoryTracking = nativeMemoryTracking;
+    }
+
     public SampleType getMemorySampleType() {
         return memorySampleType;
     }
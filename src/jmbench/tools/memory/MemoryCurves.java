@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.memory;
+
+import jmbench.tools.WeightedPolynomialFit;
+import jmbench.tools.runtime.evaluation.PlotRuntimeResults;
+import jmbench.tools.stability.UtilXmlSerialization;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.*;
+
+
+/**
+ * <p>
+ * Fits memory usage as a function of matrix size for each library and operation.  Memory for dense
+ * matrices grows with the number of elements, so a quadratic c0 + c1*N + c2*N^2 is fit to the
+ * minimum heap and to the peak resident memory.  The results can then be used to forecast how much memory
+ * is needed for a matrix size which wasn't tested.
+ * </p>
+ *
+ * <p>
+ * The overhead factor is c2 divided by the number of bytes per N^2 which the inputs and outputs of
+ * the operation require, see {@link #footprint}.  A factor of 1 means the library doesn't use any
+ * memory beyond what is needed to store the inputs and outputs.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class MemoryCurves {
+
+    public static final String MINIMUM_HEAP = "minimumHeap";
+    public static final String RESIDENT = "resident";
+
+    // directory containing a sub-directory for each matrix size
+    File directory;
+
+    List<Curve> curves = new ArrayList<Curve>();
+
+    public MemoryCurves( String directory ) {
+        this.directory = new File(directory);
+        if( !this.directory.isDirectory() )
+            throw new IllegalArgumentException("Need to specify a directory.");
+    }
+
+    /**
+     * Theoretical memory in bytes required to store the inputs and outputs of an operation
+     *
+     * @param nameOperation Name of the function in the factory
+     * @param N Matrix size
+     * @return Number of bytes or -1 if the operation is unknown
+     */
+    public static long footprint( String nameOperation , long N ) {
+        long elements;
+        if( nameOperation.equals("add") || nameOperation.equals("mult") || nameOperation.equals("multTransB") )
+            elements = 3*N*N;                 // A, B, C
+        else if( nameOperation.equals("solveExact") )
+            elements = N*N + 2*N;             // A, b, x
+        else if( nameOperation.equals("solveOver") )
+            elements = 3*N*N + 3*N + N;       // A is 3N by N, b, x
+        else if( nameOperation.equals("invertSymmPosDef") )
+            elements = 2*N*N;                 // A, inverse
+        else if( nameOperation.equals("svd") )
+            elements = 4*N*N;                 // A, U, W, V
+        else if( nameOperation.equals("eigSymm") )
+            elements = 2*N*N + N;             // A, vectors, values
+        else
+            return -1;
+        return 8*elements;
+    }
+
+    /**
+     * Loads the results for every size and fits a curve to each library and operation
+     */
+    public void process() {
+        // library -> operation -> results across sizes
+        Map<String,Map<String,List<MemoryResults>>> all = new TreeMap<String,Map<String,List<MemoryResults>>>();
+
+        File[] sizeDirs = directory.listFiles();
+        if( sizeDirs == null )
+            return;
+
+        for( File sizeDir : sizeDirs ) {
+            if( !sizeDir.isDirectory() || !new File(sizeDir,"size.txt").exists() )
+                continue;
+            File[] libDirs = sizeDir.listFiles();
+            for( File libDir : libDirs ) {
+                if( !libDir.isDirectory() )
+                    continue;
+                for( File f : libDir.listFiles() ) {
+                    if( !f.getName().endsWith(".xml") )
+                        continue;
+                    Object o = UtilXmlSerialization.deserializeXml(f.getPath());
+                    if( !(o instanceof MemoryResults) )
+                        continue;
+                    MemoryResults r = (MemoryResults)o;
+                    if( r.nameOperation == null || r.matrixSize <= 0 || r.results.isEmpty() )
+                        continue;
+
+                    Map<String,List<MemoryResults>> ops = all.get(r.nameLibrary);
+                    if( ops == null ) {
+                        ops = new TreeMap<String,List<MemoryResults>>();
+                        all.put(r.nameLibrary,ops);
+                    }
+                    List<MemoryResults> l = ops.get(r.nameOperation);
+                    if( l == null ) {
+                        l = new ArrayList<MemoryResults>();
+                        ops.put(r.nameOperation,l);
+                    }
+                    l.add(r);
+                }
+            }
+        }
+
+        curves.clear();
+        for( String lib : all.keySet() ) {
+            for( Map.Entry<String,List<MemoryResults>> e : all.get(lib).entrySet() ) {
+                Curve heap = fit(lib,e.getKey(),MINIMUM_HEAP,e.getValue());
+                if( heap != null )
+                    curves.add(heap);
+                Curve rss = fit(lib,e.getKey(),RESIDENT,e.getValue());
+                if( rss != null )
+                    curves.add(rss);
+            }
+        }
+    }
+
+    /**
+     * Fits a quadratic to the median of each size.  Returns null if there aren't enough sizes.
+     */
+    private Curve fit( String library , String operation , String metric , List<MemoryResults> results ) {
+        WeightedPolynomialFit fit = new WeightedPolynomialFit(3);
+        int numSizes = 0;
+        for( MemoryResults r : results ) {
+            List<Long> values = metric.equals(MINIMUM_HEAP) ? r.minimumHeap : r.results;
+            if( values == null || values.isEmpty() )
+                continue;
+            List<Long> sorted = new ArrayList<Long>(values);
+            Collections.sort(sorted);
+            fit.add(1,r.matrixSize,sorted.get(sorted.size()/2));
+            numSizes++;
+        }
+        if( numSizes < 3 )
+            return null;
+
+        Curve c = new Curve();
+        c.library = library;
+        c.operation = operation;
+        c.metric = metric;
+        c.coef = fit.compute();
+        long perN2 = footprint(operation,1000)/(1000*1000);
+        c.overheadFactor = perN2 > 0 ? c.coef[2]/perN2 : Double.NaN;
+        return c;
+    }
+
+    public void print( PrintStream out , int[] forecastSizes ) {
+        out.printf("%-12s %-18s %-12s %12s %12s %12s %9s","library","operation","metric","c0 (MB)","c1 (KB)","c2 (B)","overhead");
+        for( int N : forecastSizes )
+            out.printf(" %10s","N="+N);
+        out.println();
+        for( Curve c : curves ) {
+            out.printf("%-12s %-18s %-12s %12.2f %12.3f %12.3f %9.2f",c.library,c.operation,c.metric,
+                    c.coef[0]/1024/1024,c.coef[1]/1024,c.coef[2],c.overheadFactor);
+            for( int N : forecastSizes )
+                out.printf(" %7.1f MB",c.predict(N)/1024/1024);
+            out.println();
+        }
+    }
+
+    /**
+     * Saves the curves to a CSV file.  Forecasts are in bytes.
+     */
+    public void saveCsv( String fileName , int[] forecastSizes ) throws FileNotFoundException {
+        PrintStream out = new PrintStream(fileName);
+        out.print("library,operation,metric,c0,c1,c2,overheadFactor");
+        for( int N : forecastSizes )
+            out.print(",N"+N);
+        out.println();
+        for( Curve c : curves ) {
+            out.print(c.library+","+c.operation+","+c.metric+","+c.coef[0]+","+c.coef[1]+","+c.coef[2]+","+c.overheadFactor);
+            for( int N : forecastSizes )
+                out.print(","+(long)c.predict(N));
+            out.println();
+        }
+        out.close();
+    }
+
+    public List<Curve> getCurves() {
+        return curves;
+    }
+
+    /**
+     * Memory as a function of matrix size, c0 + c1*N + c2*N^2, in bytes.
+     */
+    public static class Curve {
+        public String library;
+        public String operation;
+        public String metric;
+        public double coef[];
+        // c2 divided by the bytes per N^2 needed by the inputs and outputs
+        public double overheadFactor;
+
+        public double predict( int N ) {
+            return coef[0] + coef[1]*N + coef[2]*(double)N*N;
+        }
+    }
+
+    public static void main( String args[] ) throws FileNotFoundException {
+        String dir = args.length > 0 ? args[0] : PlotRuntimeResults.findMostRecentDirectory();
+
+        int forecast[] = new int[ Math.max(0,args.length-1) ];
+        for( int i = 1; i < args.length; i++ )
+            forecast[i-1] = Integer.parseInt(args[i]);
+
+        MemoryCurves app = new MemoryCurves(dir);
+        app.process();
+        app.print(System.out,forecast);
+        app.saveCsv(dir+"/memory_curves.csv",forecast);
+    }
+}
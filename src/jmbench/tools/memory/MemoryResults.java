@@ -25,6 +25,8 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 
 /**
@@ -34,11 +36,24 @@ public class MemoryResults implements Serializable {
     String nameLibrary;
     String versionLibrary;
     String displayName;
+    // name of the function in the factory which was tested
+    String nameOperation;
+    // number of rows and columns in the tested matrix
+    int matrixSize;
 
     EvaluatorSlave.FailReason error;
     String errorMessage;
 
+    // peak resident memory, minus the overhead of launching a process, at the minimum heap size in bytes
     List<Long> results = new ArrayList<Long>();
+    // smallest maximum heap size that the operation could run with in bytes
+    List<Long> minimumHeap = new ArrayList<Long>();
+    // resident memory outside of the Java heap in bytes, see MemoryBreakdown.nativeMemory()
+    List<Long> nativeMemory = new ArrayList<Long>();
+    // where the memory went at the minimum heap
+    List<MemoryBreakdown> breakdown = new ArrayList<MemoryBreakdown>();
+    // memory used by the library before it does anything, minus the overhead of launching a process, in bytes
+    long libraryOverhead;
     int numFailed;
 
     public MemoryResults() {
@@ -83,6 +98,22 @@ public class MemoryResults implements Serializable {
         this.displayName = displayName;
     }
 
+    public String getNameOperation() {
+        return nameOperation;
+    }
+
+    public void setNameOperation(String nameOperation) {
+        this.nameOperation = nameOperation;
+    }
+
+    public int getMatrixSize() {
+        return matrixSize;
+    }
+
+    public void setMatrixSize(int matrixSize) {
+        this.matrixSize = matrixSize;
+    }
+
     public String getVersionLibrary() {
         return versionLibrary;
     }
@@ -115,6 +146,60 @@ public class MemoryResults implements Serializable {
         this.results = results;
     }
 
+    public List<Long> getMinimumHeap() {
+        return minimumHeap;
+    }
+
+    public void setMinimumHeap(List<Long> minimumHeap) {
+        this.minimumHeap = minimumHeap;
+    }
+
+    public List<Long> getNativeMemory() {
+        return nativeMemory;
+    }
+
+    public void setNativeMemory(List<Long> nativeMemory) {
+        this.nativeMemory = nativeMemory;
+    }
+
+    public List<MemoryBreakdown> getBreakdown() {
+        return breakdown;
+    }
+
+    public void setBreakdown(List<MemoryBreakdown> breakdown) {
+        this.breakdown = breakdown;
+    }
+
+    /**
+     * Averages each component of the memory breakdown across trials.  Returns null if there is no breakdown.
+     *
+     * @return Map from component name to bytes
+     */
+    public Map<String,Long> getAverageComponents() {
+        if( breakdown == null || breakdown.isEmpty() )
+            return null;
+
+        Map<String,Long> ret = new TreeMap<String,Long>();
+        for( MemoryBreakdown b : breakdown ) {
+            for( Map.Entry<String,Long> e : b.components().entrySet() ) {
+                Long total = ret.get(e.getKey());
+                ret.put(e.getKey(),(total == null ? 0 : total) + e.getValue());
+            }
+        }
+        for( Map.Entry<String,Long> e : ret.entrySet() ) {
+            e.setValue(e.getValue()/breakdown.size());
+        }
+        return ret;
+    }
+
+    public long getLibraryOverhead() {
+        return libraryOverhead;
+    }
+
+    public void setLibraryOverhead(long libraryOverhead) {
+        this.libraryOverhead = libraryOverhead;
+    }
+
     public int getNumFailed() {
         return numFailed;
     }
@@ -116,11 +116,16 @@ public class MemoryTest extends EvaluationTest {
             return new Results(-1);
         }
 
+        DirectBufferSampler sampler = new DirectBufferSampler();
+        sampler.start();
+
         long start = System.currentTimeMillis();
         // output is null since that might require creating new memory, which isn't strictly part of th test
         operation.process(inputs,null,N);
         long stop= System.currentTimeMillis();
 
+        sampler.finished = true;
+
         if( gen != null ) {
             for( int i = 0; i < inputs.length; i++ ) {
                 if( mod[i] != inputs[i].get(0,0) )
@@ -128,21 +133,40 @@ public class MemoryTest extends EvaluationTest {
             }
         }
 
-        // pause it for a bit so if its sampling the max it has a time to catch it before
-        // the application exits
-        synchronized (this){
-            try {
-                wait(300);
-            } catch (InterruptedException e) {
-            }
+        Results results = new Results(stop-start);
+        results.breakdown = MemoryBreakdown.capture(sampler.peak);
+        return results;
+    }
+
+    /**
+     * The JVM doesn't keep track of the peak memory used by direct buffers, so it's sampled
+     */
+    private static class DirectBufferSampler extends Thread {
+        volatile boolean finished = false;
+        volatile long peak = 0;
+
+        DirectBufferSampler() {
+            setDaemon(true);
         }
 
-        return new Results(stop-start);
+        @Override
+        public void run() {
+            while( !finished ) {
+                peak = Math.max(peak,MemoryBreakdown.directBuffersUsed());
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
     }
 
     public static class Results implements TestResults
     {
         long elapsedTime;
+        // where the memory went
+        MemoryBreakdown breakdown;
 
         public Results(long elapsedTime) {
             this.elapsedTime = elapsedTime;
@@ -159,6 +183,14 @@ public class MemoryTest extends EvaluationTest {
         public void setElapsedTime(long elapsedTime) {
             this.elapsedTime = elapsedTime;
         }
+
+        public MemoryBreakdown getBreakdown() {
+            return breakdown;
+        }
+
+        public void setBreakdown(MemoryBreakdown breakdown) {
+            this.breakdown = breakdown;
+        }
     }
 
     private MatrixProcessorInterface createAlgorithm() {
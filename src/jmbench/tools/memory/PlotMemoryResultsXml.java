@@ -149,6 +149,51 @@ public class PlotMemoryResultsXml {
 
         plot.displayWindow(plotWidth,plotHeight);
         plot.savePDF(directory.getPath()+"/plot_memory.pdf",plotWidth,plotHeight);
+
+        for( String key : keys ) {
+            plotBreakdown(key,opMap.get(key),matrixSize);
+        }
+    }
+
+    /**
+     * Creates a stacked plot showing how each library's memory is split between the heap, the JVM,
+     * and native memory.  Nothing is plotted if there is no breakdown.
+     */
+    private void plotBreakdown( String operation , List<MemoryResults> l , int matrixSize ) {
+        List<String> libNames = new ArrayList<String>();
+        List<Map<String,Long>> components = new ArrayList<Map<String,Long>>();
+        long max = 0;
+
+        for( MemoryResults m : l ) {
+            if( m.results.isEmpty() || (!plotFailed && m.numFailed != 0) )
+                continue;
+            Map<String,Long> c = m.getAverageComponents();
+            if( c == null )
+                continue;
+
+            long total = 0;
+            for( long v : c.values() )
+                total += v;
+            max = Math.max(max,total);
+
+            libNames.add(m.getNameLibrary());
+            components.add(c);
+        }
+
+        if( libNames.isEmpty() )
+            return;
+
+        MemoryRelativeBarPlot plot = new MemoryRelativeBarPlot("Memory Breakdown: "+operation+" Size "+matrixSize,true);
+
+        for( int i = 0; i < libNames.size(); i++ ) {
+            for( Map.Entry<String,Long> e : components.get(i).entrySet() ) {
+                plot.addComponent(libNames.get(i),e.getKey(),(double)e.getValue()/max);
+            }
+        }
+
+        if( displayResults )
+            plot.displayWindow(plotWidth,plotHeight);
+        plot.savePDF(directory.getPath()+"/plot_memory_"+operation+"_breakdown.pdf",plotWidth,plotHeight);
     }
 
     private static class CompareByLibName implements Comparator<MemoryResults>
@@ -203,11 +248,16 @@ public class PlotMemoryResultsXml {
 
         //dir = "results/memory_2010_04";
 
-        PlotMemoryResultsXml plotter = new PlotMemoryResultsXml(dir+"/1000");
-        plotter.plot();
-        plotter = new PlotMemoryResultsXml(dir+"/2000");
-        plotter.plot();
-        plotter = new PlotMemoryResultsXml(dir+"/3000");
-        plotter.plot();
+        // each matrix size has its own directory
+        File[] children = new File(dir).listFiles();
+        if( children == null )
+            throw new IllegalArgumentException("Not a directory "+dir);
+        Arrays.sort(children);
+        for( File f : children ) {
+            if( !new File(f,"size.txt").exists() )
+                continue;
+            PlotMemoryResultsXml plotter = new PlotMemoryResultsXml(f.getPath());
+            plotter.plot();
+        }
     }
 }
@@ -20,8 +20,10 @@
 package jmbench.tools.runtime;
 
 import jmbench.impl.LibraryConfigure;
+import jmbench.interfaces.AllocatingPerformanceFactory;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.runtime.generator.*;
+import jmbench.tools.runtime.workload.FactoryWorkload;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -83,9 +85,37 @@ public class FactoryRuntimeEvaluationCase {
 
         if( config.eigSymm ) ret.add( createEigSymm(configure,factory));
 
+        if( config.allocatingVariants ) {
+            int N = ret.size();
+            for( int i = 0; i < N; i++ ) {
+                RuntimeEvaluationCase c = ret.get(i);
+                // determinant has no matrix output so there is nothing to allocate
+                if( c.getNameAlgorithm().equals("det"))
+                    continue;
+                ret.add( createAllocating(c));
+            }
+        }
+
+        if( config.kalman ) ret.add( createKalman(configure,factory));
+
+        if( config.leastSquares ) ret.add( createLeastSquares(configure,factory));
+
+        if( config.pca ) ret.add( createPca(configure,factory));
+
+        if( config.newton ) ret.add( createNewton(configure,factory));
+
         return ret;
     }
 
+    /**
+     * Creates a case which benchmarks the same operation as the provided case, but with an output
+     * matrix that is allocated on each call.  See {@link AllocatingPerformanceFactory}.
+     */
+    public RuntimeEvaluationCase createAllocating( RuntimeEvaluationCase c ) {
+        return new RuntimeEvaluationCase(c.getOpName()+" (alloc)",c.getNameAlgorithm()+AllocatingPerformanceFactory.SUFFIX,
+                c.getDimens(),c.getClassConfigure(),c.getClassFactory(),c.getGenerator());
+    }
+
 
     public RuntimeEvaluationCase createMatrixMult( Class<LibraryConfigure> configure , Class<RuntimePerformanceFactory> factory ) {
 
@@ -262,7 +292,43 @@ public class FactoryRuntimeEvaluationCase {
                 factory,generator);
     }
 
-    private static int[] createDimenList( int min , int max ) {
+    public RuntimeEvaluationCase createKalman( Class<LibraryConfigure> configure , Class<RuntimePerformanceFactory> factory ) {
+
+        InputOutputGenerator generator = new KalmanGenerator();
+        int matDimen[] = createDimenList(config.minMatrixSize, config.maxMatrixSize);
+
+        return new RuntimeEvaluationCase("Kalman Filter Predict/Update",FactoryWorkload.KALMAN,matDimen,configure,
+                factory,generator);
+    }
+
+    public RuntimeEvaluationCase createLeastSquares( Class<LibraryConfigure> configure , Class<RuntimePerformanceFactory> factory ) {
+
+        InputOutputGenerator generator = new LeastSquaresGenerator();
+        int matDimen[] = createDimenList(config.minMatrixSize, config.maxMatrixSize);
+
+        return new RuntimeEvaluationCase("Linear Least-Squares Fit",FactoryWorkload.LEAST_SQUARES,matDimen,configure,
+                factory,generator);
+    }
+
+    public RuntimeEvaluationCase createPca( Class<LibraryConfigure> configure , Class<RuntimePerformanceFactory> factory ) {
+
+        InputOutputGenerator generator = new PcaGenerator();
+        int matDimen[] = createDimenList(config.minMatrixSize, config.maxMatrixSize);
+
+        return new RuntimeEvaluationCase("PCA using SVD",FactoryWorkload.PCA,matDimen,configure,
+                factory,generator);
+    }
+
+    public RuntimeEvaluationCase createNewton( Class<LibraryConfigure> configure , Class<RuntimePerformanceFactory> factory ) {
+
+        InputOutputGenerator generator = new NewtonGenerator();
+        int matDimen[] = createDimenList(config.minMatrixSize, config.maxMatrixSize);
+
+        return new RuntimeEvaluationCase("Newton Iteration",FactoryWorkload.NEWTON,matDimen,configure,
+                factory,generator);
+    }
+
+    public static int[] createDimenList( int min , int max ) {
         List<Integer> a = new ArrayList<Integer>();
 
         int val = min;
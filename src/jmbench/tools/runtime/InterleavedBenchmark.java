@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.runtime;
+
+import jmbench.impl.FactoryLibraryDescriptions;
+import jmbench.impl.LibraryDescription;
+import jmbench.tools.BenchmarkTools;
+import jmbench.tools.ClassDataSharing;
+import jmbench.tools.EvaluatorSlave;
+import jmbench.tools.TestResults;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * <p>
+ * Compares two or more libraries on a single operation and matrix size by alternating short measurement
+ * blocks between them.  The regular benchmark processes one library at a time, so libraries are measured hours
+ * apart and changes in the machine's thermal state, background load, or CPU frequency bias the comparison.
+ * Here each round runs one block from every library, so drift affects all of them nearly equally.  The
+ * library which goes first is rotated each round to cancel out any ordering effect.
+ * </p>
+ *
+ * <p>
+ * Every library in a round is given the same random seed, i.e. the same inputs.  The median ops/sec of each block
+ * is paired across libraries within a round and the log of the ratio is used to compute the geometric mean
+ * speed ratio with a Student-t confidence interval.  If the interval does not include 1 then the difference is
+ * significant.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class InterleavedBenchmark {
+
+    public static final String BLOCKS_FILE = "blocks.csv";
+    public static final String PAIRED_FILE = "paired.csv";
+
+    // critical values of Student's t for a two sided 95% confidence interval.  index is degrees of freedom
+    private static final double T_975[] = new double[]{Double.NaN,
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+    RuntimeBenchmarkConfig config;
+    List<LibraryDescription> libraries = new ArrayList<LibraryDescription>();
+    // name of the operation, e.g. "mult", and the matrix size
+    String operation;
+    int size;
+    // number of times every library is run
+    int numRounds = 10;
+
+    // median ops/sec of each block.  [round][library]  NaN if the block failed
+    double blocks[][];
+
+    PrintStream logStream = System.out;
+
+    /**
+     * Ratio of two libraries performance computed from paired blocks
+     */
+    public static class Paired {
+        // number of rounds both libraries had valid results in
+        public int numRounds;
+        // geometric mean of ops/sec of B divided by ops/sec of A.  Greater than one means B is faster
+        public double ratio;
+        // 95% confidence interval of the ratio
+        public double lower;
+        public double upper;
+
+        public boolean isSignificant() {
+            return lower > 1 || upper < 1;
+        }
+    }
+
+    public InterleavedBenchmark( RuntimeBenchmarkConfig config , List<LibraryDescription> libraries ,
+                                 String operation , int size ) {
+        this.config = config;
+        this.libraries.addAll(libraries);
+        this.operation = operation;
+        this.size = size;
+    }
+
+    /**
+     * Runs all the rounds
+     */
+    public void process() {
+        int N = libraries.size();
+
+        // find the case for the operation in each library and create a slave launcher for it
+        RuntimeEvaluationCase cases[] = new RuntimeEvaluationCase[N];
+        BenchmarkTools tools[] = new BenchmarkTools[N];
+        for( int i = 0; i < N; i++ ) {
+            LibraryDescription desc = libraries.get(i);
+            cases[i] = findCase(desc);
+            if( cases[i] == null )
+                throw new IllegalArgumentException("Unknown operation "+operation);
+            cases[i].setDimens(new int[]{size});
+
+            tools[i] = new BenchmarkTools(config.numBlockTrials,config.memorySlaveBase,config.memorySlaveScale,
+                    desc.location.listOfJarFilePaths());
+            tools[i].setVerbose(false);
+            tools[i].setOverrideMemory(config.memoryTrial);
+            tools[i].setClassDataSharing(new ClassDataSharing(
+                    config.classDataSharing ? new File(RuntimeBenchmarkLibrary.CDS_DIRECTORY) : null));
+        }
+
+        Random rand = new Random(config.seed);
+        blocks = new double[numRounds][N];
+
+        for( int round = 0; round < numRounds; round++ ) {
+            long seed = rand.nextLong();
+            for( int k = 0; k < N; k++ ) {
+                int i = (round+k) % N;
+                String name = libraries.get(i).location.getPlotName();
+
+                RuntimeEvaluationTest test = cases[i].createTest(config.numBlockTrials,0,
+                        config.trialTime,config.maxTrialTime,config.sanityCheck);
+                test.setRandomSeed(seed);
+
+                blocks[round][i] = medianOpsPerSec(tools[i].runTest(test));
+                logStream.printf("round %3d  %-10s  %12.5g ops/sec\n",round,name,blocks[round][i]);
+            }
+        }
+    }
+
+    private RuntimeEvaluationCase findCase( LibraryDescription desc ) {
+        List<RuntimeEvaluationCase> cases =
+                new FactoryRuntimeEvaluationCase(desc.configure,desc.factoryRuntime,config).createCases();
+        for( RuntimeEvaluationCase c : cases ) {
+            if( c.getNameAlgorithm().equals(operation) )
+                return c;
+        }
+        return null;
+    }
+
+    /**
+     * Median of the trials in a block or NaN if it failed
+     */
+    private static double medianOpsPerSec( EvaluatorSlave.Results r ) {
+        if( r == null || r.failed != null || r.results == null )
+            return Double.NaN;
+
+        List<Double> ops = new ArrayList<Double>();
+        for( TestResults tr : r.results ) {
+            RuntimeMeasurement m = (RuntimeMeasurement)tr;
+            if( m.error == null && m.opsPerSec > 0 )
+                ops.add(m.opsPerSec);
+        }
+        if( ops.isEmpty() )
+            return Double.NaN;
+
+        double a[] = new double[ops.size()];
+        for( int i = 0; i < a.length; i++ )
+            a[i] = ops.get(i);
+        Arrays.sort(a);
+        int m = a.length/2;
+        return a.length % 2 == 1 ? a[m] : (a[m-1]+a[m])/2.0;
+    }
+
+    /**
+     * Computes how much faster B is than A using blocks from the same rounds.  Rounds where either block failed
+     * are skipped.
+     *
+     * @param a ops/sec of library A in each round
+     * @param b ops/sec of library B in each round
+     */
+    public static Paired pairedRatio( double a[] , double b[] ) {
+        double diff[] = new double[a.length];
+        int n = 0;
+        for( int i = 0; i < a.length; i++ ) {
+            if( Double.isNaN(a[i]) || Double.isNaN(b[i]) || a[i] <= 0 || b[i] <= 0 )
+                continue;
+            diff[n++] = Math.log(b[i]/a[i]);
+        }
+
+        Paired p = new Paired();
+        p.numRounds = n;
+        if( n == 0 ) {
+            p.ratio = p.lower = p.upper = Double.NaN;
+            return p;
+        }
+
+        double mean = 0;
+        for( int i = 0; i < n; i++ )
+            mean += diff[i];
+        mean /= n;
+
+        p.ratio = Math.exp(mean);
+        if( n < 2 ) {
+            p.lower = p.upper = Double.NaN;
+            return p;
+        }
+
+        double var = 0;
+        for( int i = 0; i < n; i++ ) {
+            double d = diff[i]-mean;
+            var += d*d;
+        }
+        var /= n-1;
+
+        double margin = criticalT(n-1)*Math.sqrt(var/n);
+        p.lower = Math.exp(mean-margin);
+        p.upper = Math.exp(mean+margin);
+        return p;
+    }
+
+    /**
+     * Critical value of Student's t for a two sided 95% interval
+     */
+    public static double criticalT( int degreesOfFreedom ) {
+        if( degreesOfFreedom < T_975.length )
+            return T_975[degreesOfFreedom];
+
+        // Cornish-Fisher expansion around the normal distribution
+        double z = 1.959964;
+        double v = degreesOfFreedom;
+        double z3 = z*z*z;
+        return z + (z3+z)/(4*v) + (5*z3*z*z+16*z3+3*z)/(96*v*v);
+    }
+
+    /**
+     * Saves the blocks and paired comparison to the directory and prints a summary
+     */
+    public void save( String directory ) throws FileNotFoundException {
+        File dir = new File(directory);
+        if( !dir.exists() && !dir.mkdirs() )
+            throw new IllegalArgumentException("Can't create directory "+directory);
+
+        int N = libraries.size();
+
+        PrintStream out = new PrintStream(new File(dir,BLOCKS_FILE));
+        out.println("# operation "+operation+" size "+size);
+        out.println("round,library,opsPerSec");
+        for( int round = 0; round < blocks.length; round++ ) {
+            for( int i = 0; i < N; i++ )
+                out.println(round+","+libraries.get(i).location.getPlotName()+","+blocks[round][i]);
+        }
+        out.close();
+
+        out = new PrintStream(new File(dir,PAIRED_FILE));
+        out.println("# ratio is ops/sec of B divided by A with a 95% confidence interval");
+        out.println("libraryA,libraryB,rounds,ratio,lower,upper,significant");
+        System.out.println();
+        System.out.println("Operation "+operation+" size "+size+"   ratio = B/A, greater than one means B is faster");
+        System.out.printf("%-10s  %-10s  %6s  %8s  %8s  %8s\n","A","B","rounds","ratio","lower","upper");
+        for( int i = 0; i < N; i++ ) {
+            for( int j = i+1; j < N; j++ ) {
+                double a[] = new double[blocks.length];
+                double b[] = new double[blocks.length];
+                for( int round = 0; round < blocks.length; round++ ) {
+                    a[round] = blocks[round][i];
+                    b[round] = blocks[round][j];
+                }
+                Paired p = pairedRatio(a,b);
+                String nameA = libraries.get(i).location.getPlotName();
+                String nameB = libraries.get(j).location.getPlotName();
+                out.println(nameA+","+nameB+","+p.numRounds+","+p.ratio+","+p.lower+","+p.upper+","+p.isSignificant());
+                System.out.printf("%-10s  %-10s  %6d  %8.4f  %8.4f  %8.4f %s\n",nameA,nameB,p.numRounds,
+                        p.ratio,p.lower,p.upper,p.isSignificant() ? "*" : "");
+            }
+        }
+        out.close();
+    }
+
+    public void setNumRounds(int numRounds) {
+        this.numRounds = numRounds;
+    }
+
+    public double[][] getBlocks() {
+        return blocks;
+    }
+
+    public static void printHelp() {
+        System.out.println("Alternates short blocks between libraries for a single operation and matrix size then");
+        System.out.println("reports the paired speed ratio between each pair of libraries.");
+        System.out.println();
+        System.out.println("  --Library=<lib>,<lib>    |  Libraries being compared.  At least two.  --Library=? will print a list");
+        System.out.println("  --Operation=<name>       |  Name of the operation, e.g. mult, as used in the results file names.");
+        System.out.println("  --Size=<number>          |  Size of the matrix.");
+        System.out.println("  --Memory=<MB>            |  Memory allocated to each slave in megabytes.  Must be specified.");
+        System.out.println("  --Rounds=<number>        |  Number of blocks each library runs.  Default 10.");
+        System.out.println("  --Trials=<number>        |  Number of trials in each block.  Default 3.");
+        System.out.println("  --TrailTime=<ms>         |  The minimum amount of time spent in each trial.  Default 1000.");
+        System.out.println("  --Seed=<number>          |  Random seed used to create the inputs.");
+        System.out.println("  --Output=<dir>           |  Where the results are saved.  Default interleaved");
+        System.out.println("  --CDS=<boolean>          |  Launch slaves with a class data sharing archive.  Default true.");
+    }
+
+    public static void main( String args[] ) throws FileNotFoundException {
+        RuntimeBenchmarkConfig config = RuntimeBenchmarkConfig.createAllConfig();
+        config.allocatingVariants = true;
+        config.kalman = config.leastSquares = config.pca = config.newton = true;
+        config.numBlockTrials = 3;
+        config.trialTime = 1000;
+
+        List<LibraryDescription> libraries = new ArrayList<LibraryDescription>();
+        String operation = null;
+        int size = -1;
+        int numRounds = 10;
+        String output = "interleaved";
+
+        boolean failed = false;
+
+        for( int i = 0; i < args.length; i++ ) {
+            String splits[] = args[i].split("=");
+
+            String flag = splits[0];
+
+            if( flag.length() < 2 || flag.charAt(0) != '-' || flag.charAt(1) != '-') {
+                failed = true;
+                break;
+            }
+
+            flag = flag.substring(2);
+
+            if( flag.compareTo("Library") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                for( String name : splits[1].split(",") ) {
+                    LibraryDescription match = FactoryLibraryDescriptions.find(name);
+                    if( match == null ) {
+                        failed = true;
+                        System.out.println("Can't find library.  See list below:");
+                        FactoryLibraryDescriptions.printAllNames();
+                        break;
+                    }
+                    libraries.add(match);
+                }
+                if( failed ) break;
+            } else if( flag.compareTo("Operation") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                operation = splits[1];
+            } else if( flag.compareTo("Size") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                size = Integer.parseInt(splits[1]);
+            } else if( flag.compareTo("Memory") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.memoryTrial = Integer.parseInt(splits[1]);
+            } else if( flag.compareTo("Rounds") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                numRounds = Integer.parseInt(splits[1]);
+            } else if( flag.compareTo("Trials") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.numBlockTrials = Integer.parseInt(splits[1]);
+            } else if( flag.compareTo("TrailTime") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.trialTime = Integer.parseInt(splits[1]);
+            } else if( flag.compareTo("Seed") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.seed = Long.parseLong(splits[1]);
+            } else if( flag.compareTo("Output") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                output = splits[1];
+            } else if( flag.compareTo("CDS") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.classDataSharing = Boolean.parseBoolean(splits[1]);
+            } else {
+                System.out.println("Unknown flag: "+flag);
+                failed = true;
+                break;
+            }
+        }
+
+        if( !failed && (libraries.size() < 2 || operation == null || size <= 0 || config.memoryTrial <= 0) ) {
+            System.out.println("Two libraries, the operation, size, and memory must be specified.");
+            failed = true;
+        }
+
+        if( failed ) {
+            printHelp();
+            System.exit(2);
+        }
+
+        InterleavedBenchmark app = new InterleavedBenchmark(config,libraries,operation,size);
+        app.setNumRounds(numRounds);
+        app.process();
+        app.save(output);
+    }
+}
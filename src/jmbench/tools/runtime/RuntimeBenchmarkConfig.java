@@ -59,6 +59,15 @@ public class RuntimeBenchmarkConfig implements Serializable {
     public boolean transposeTall;
     public boolean transposeWide;
 
+    // also benchmark each operation using the library's API which returns a new matrix
+    public boolean allocatingVariants;
+
+    // application level workloads which are composed of the operations above
+    public boolean kalman;
+    public boolean leastSquares;
+    public boolean pca;
+    public boolean newton;
+
     // which libraries are to be evaluated
     public List<LibraryDescription> targets;
 
@@ -90,6 +99,22 @@ public class RuntimeBenchmarkConfig implements Serializable {
     // really doing what it should be doing.
     public boolean sanityCheck;
 
+    // save results in the binary format, which includes GC and allocation statistics, instead of CSV
+    public boolean binaryResults;
+
+    // if not zero live metrics are served at http://127.0.0.1:<metricsPort>/metrics
+    public int metricsPort;
+
+    // record an extra untimed block for each matrix size with Java Flight Recorder and summarize where the time
+    // was spent
+    public boolean flightRecorder;
+
+    // launch slaves with a class data sharing archive created for each library's classpath
+    public boolean classDataSharing;
+
+    // number of times a block is run again if the CPU was throttled or under external load
+    public int noiseRetries;
+
     /**
      * This config will process everything
      *
@@ -110,6 +135,12 @@ public class RuntimeBenchmarkConfig implements Serializable {
         config.maxMatrixSize = 10000;
         config.minMatrixSize = 2;
         config.sanityCheck = false;
+        config.allocatingVariants = false;
+        config.binaryResults = false;
+        config.metricsPort = 0;
+        config.flightRecorder = false;
+        config.classDataSharing = true;
+        config.noiseRetries = 1;
 
 //        config.chol = true;
 //        config.lu = true;
@@ -271,6 +302,46 @@ public class RuntimeBenchmarkConfig implements Serializable {
         this.transposeWide = transposeWide;
     }
 
+    public boolean isKalman() {
+        return kalman;
+    }
+
+    public void setKalman(boolean kalman) {
+        this.kalman = kalman;
+    }
+
+    public boolean isLeastSquares() {
+        return leastSquares;
+    }
+
+    public void setLeastSquares(boolean leastSquares) {
+        this.leastSquares = leastSquares;
+    }
+
+    public boolean isPca() {
+        return pca;
+    }
+
+    public void setPca(boolean pca) {
+        this.pca = pca;
+    }
+
+    public boolean isNewton() {
+        return newton;
+    }
+
+    public void setNewton(boolean newton) {
+        this.newton = newton;
+    }
+
+    public boolean isAllocatingVariants() {
+        return allocatingVariants;
+    }
+
+    public void setAllocatingVariants(boolean allocatingVariants) {
+        this.allocatingVariants = allocatingVariants;
+    }
+
     public List<LibraryDescription> getTargets() {
         return targets;
     }
@@ -374,4 +445,44 @@ public class RuntimeBenchmarkConfig implements Serializable {
     public void setSanityCheck(boolean sanityCheck) {
         this.sanityCheck = sanityCheck;
     }
+
+    public boolean isBinaryResults() {
+        return binaryResults;
+    }
+
+    public void setBinaryResults(boolean binaryResults) {
+        this.binaryResults = binaryResults;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    public boolean isFlightRecorder() {
+        return flightRecorder;
+    }
+
+    public void setFlightRecorder(boolean flightRecorder) {
+        this.flightRecorder = flightRecorder;
+    }
+
+    public boolean isClassDataSharing() {
+        return classDataSharing;
+    }
+
+    public void setClassDataSharing(boolean classDataSharing) {
+        this.classDataSharing = classDataSharing;
+    }
+
+    public int getNoiseRetries() {
+        return noiseRetries;
+    }
+
+    public void setNoiseRetries(int noiseRetries) {
+        this.noiseRetries = noiseRetries;
+    }
 }
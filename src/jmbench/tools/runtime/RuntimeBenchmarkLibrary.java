@@ -24,10 +24,15 @@ import jmbench.impl.LibraryConfigure;
 import jmbench.impl.LibraryDescription;
 import jmbench.impl.LibraryLocation;
 import jmbench.interfaces.RuntimePerformanceFactory;
+import jmbench.tools.BenchmarkMetrics;
 import jmbench.tools.BenchmarkTools;
+import jmbench.tools.ClassDataSharing;
 import jmbench.tools.EvaluationTest;
 import jmbench.tools.EvaluatorSlave;
+import jmbench.tools.SystemNoiseSampler;
 import jmbench.tools.TestResults;
+import jmbench.tools.runtime.evaluation.FlightRecordingSummary;
+import jmbench.tools.runtime.evaluation.RuntimeResultsBinaryIO;
 import jmbench.tools.runtime.evaluation.RuntimeResultsCsvIO;
 import jmbench.tools.version.PrintLibraryVersion;
 
@@ -90,6 +95,8 @@ public class RuntimeBenchmarkLibrary {
 
     // true if an evaluation case failed
     private boolean caseFailed;
+    // state of the system while the most recent block was running.  null if not known
+    private SystemNoiseSampler.Summary blockNoise;
     // is it too slow to continue testing
     private boolean tooSlow;
 
@@ -108,6 +115,11 @@ public class RuntimeBenchmarkLibrary {
     // should it spawn a slave to run the benchmark or do it in the same java instance as this class
     private static final boolean SPAWN_SLAVE = true;
 
+    // where class data sharing archives are saved.  Shared between benchmarks so they can be reused
+    public static final String CDS_DIRECTORY = "cds";
+    // name of the file which slave startup times are saved to
+    public static final String STARTUP_FILE = "startup.txt";
+
     public RuntimeBenchmarkLibrary( String outputDir , LibraryDescription desc ,
                                     RuntimeBenchmarkConfig config )
     {
@@ -134,6 +146,7 @@ public class RuntimeBenchmarkLibrary {
         tools = new BenchmarkTools(config.numBlockTrials,config.memorySlaveBase,config.memorySlaveScale,
                 desc.location.listOfJarFilePaths());
         tools.setVerbose(false);
+        tools.setClassDataSharing(new ClassDataSharing(config.classDataSharing ? new File(CDS_DIRECTORY) : null));
 
         this.libraryType = desc.location;
 
@@ -156,6 +169,7 @@ public class RuntimeBenchmarkLibrary {
                 new FactoryRuntimeEvaluationCase(classConfigure,classFactory,config).createCases();
 
         List<CaseState> states = createCaseList(cases);
+        BenchmarkMetrics.getInstance().setLibraryCases(states.size());
 
         if( states.isEmpty() ) {
             System.out.println("Benchmark already finished.  Deleting the new log and moving on.");
@@ -179,10 +193,26 @@ public class RuntimeBenchmarkLibrary {
 
             System.out.println("Total processing time = "+(System.currentTimeMillis()-startTime)/1000.0);
 
+            saveStartupTimes();
+
             logStream.close();
         }
     }
 
+    /**
+     * Saves how long slaves took to start with and without class data sharing
+     */
+    private void saveStartupTimes() {
+        ClassDataSharing cds = tools.getClassDataSharing();
+        logStream.println("Slave startup times:");
+        cds.printSummary(logStream);
+        try {
+            cds.saveSummary(new File(directorySave,STARTUP_FILE));
+        } catch (FileNotFoundException e) {
+            logStream.println("Failed to save startup times: "+e.getMessage());
+        }
+    }
+
     /**
      * Check to see if there are any previously saved results.  if so skip the test. 
      */
@@ -191,11 +221,13 @@ public class RuntimeBenchmarkLibrary {
 
         for( RuntimeEvaluationCase c : cases ) {
             // see if the file already exists
-            File f = new File(directorySave+"/"+c.getNameAlgorithm()+".csv");
+            File f = new File(directorySave+"/"+c.getNameAlgorithm()+RuntimeResultsBinaryIO.EXTENSION);
+            if( !f.exists() )
+                f = new File(directorySave+"/"+c.getNameAlgorithm()+RuntimeResultsCsvIO.EXTENSION);
 
             if( f.exists() ) {
                 // if it exists read it in and see if it finished
-                RuntimeResults oldResults = RuntimeResultsCsvIO.read(f);
+                RuntimeResults oldResults = RuntimeResultsCsvIO.load(f);
 //                UtilXmlSerialization.deserializeXml(f.getAbsolutePath());
 
                 if( !oldResults.isComplete() ) {
@@ -298,8 +330,14 @@ public class RuntimeBenchmarkLibrary {
 
         System.out.println("#### "+libraryType.getPlotName()+"  op "+e.getOpName()+"  Size "+matDimen[state.matrixIndex]+" numTrials "+state.results.size()+"  ####");
 
+        BenchmarkMetrics metrics = BenchmarkMetrics.getInstance();
+        metrics.startBlock(e.getOpName(),matDimen[state.matrixIndex]);
+
         RuntimeResults r = computeResults(e, state.matrixIndex , randSeedTrials , score , state.results);
 
+        RuntimeEvaluationMetrics m = score[state.matrixIndex];
+        metrics.finishBlock( caseFailed || m == null ? Double.NaN : m.getMedian() );
+
         if( r == null )
             throw new RuntimeException("Shouldn't return null any more.  This is a bug.");
 
@@ -318,14 +356,55 @@ public class RuntimeBenchmarkLibrary {
 
         // mark the this operation as being finished or not
         r.complete = done;
+        if( done ) {
+            metrics.finishCase();
+            if( config.flightRecorder )
+                summarizeRecordings(e);
+        }
 
         // save the current state of the test
-        RuntimeResultsCsvIO.write(r,directorySave+"/"+e.getNameAlgorithm()+".csv");
+        saveResults(r, directorySave+"/"+e.getNameAlgorithm());
 //        UtilXmlSerialization.serializeXml(r,directorySave+"/"+e.getFileName()+".xml");
 
         return done;
     }
 
+    /**
+     * Summarizes the flight recordings of an operation once all of its matrix sizes have been processed.  The
+     * recordings are then deleted since they are large and would pile up with each run.
+     */
+    private void summarizeRecordings( RuntimeEvaluationCase e ) {
+        try {
+            FlightRecordingSummary summary = new FlightRecordingSummary();
+            if( summary.summarizeOperation(directorySave,e.getNameAlgorithm()) )
+                summary.deleteRecordings(directorySave,e.getNameAlgorithm());
+        } catch (IOException ex) {
+            logStream.println("Failed to summarize flight recordings for "+e.getNameAlgorithm()+": "+ex.getMessage());
+        }
+    }
+
+    /**
+     * Saves the results using the format selected in the config.  A file in the other format from before a resume
+     * is removed since its results have been carried over, otherwise it would be loaded instead of or as well as
+     * the new file.
+     */
+    private void saveResults( RuntimeResults r , String path ) {
+        File old;
+        if( config.binaryResults ) {
+            RuntimeResultsBinaryIO.write(r,path+RuntimeResultsBinaryIO.EXTENSION);
+            old = new File(path+RuntimeResultsCsvIO.EXTENSION);
+        } else {
+            RuntimeResultsCsvIO.write(r,path+RuntimeResultsCsvIO.EXTENSION);
+            old = new File(path+RuntimeResultsBinaryIO.EXTENSION);
+        }
+        if( old.exists() && !old.delete() )
+            throw new RuntimeException("Can't delete "+old.getPath());
+    }
+
+    private boolean isBlockNoisy() {
+        return blockNoise != null && blockNoise.isNoisy();
+    }
+
     /**
      * Computes the current results
      */
@@ -336,11 +415,25 @@ public class RuntimeBenchmarkLibrary {
 
         List<RuntimeMeasurement> opsPerSecond = evaluateCase( e , randSeed , matrixIndex , rawResults.size() );
 
+        // the machine was throttled or busy with something else, so the results are suspect
+        for( int retry = 0; !caseFailed && isBlockNoisy() && retry < config.noiseRetries; retry++ ) {
+            logStream.println("    Noisy block, trying again: op = "+e.getOpName()+" matrix size = "+
+                    e.getDimens()[matrixIndex]+" "+blockNoise);
+            opsPerSecond = evaluateCase( e , randSeed , matrixIndex , rawResults.size() );
+        }
+        if( !caseFailed && isBlockNoisy() ) {
+            logStream.println("    Noisy block: op = "+e.getOpName()+" matrix size = "+
+                    e.getDimens()[matrixIndex]+" "+blockNoise);
+        }
+
         if( caseFailed ) {
             System.out.println("      ---- ***** -----");
             System.out.println("Evaluation Case Failed ");
             System.out.println("      ---- ***** -----");
         } else {
+            // record once for each matrix size
+            if( config.flightRecorder && rawResults.isEmpty() )
+                recordCase( e , randSeed , matrixIndex );
             rawResults.addAll(opsPerSecond);
         }
 
@@ -355,6 +448,29 @@ public class RuntimeBenchmarkLibrary {
         return results;
     }
 
+    /**
+     * Runs a block again with Java Flight Recorder turned on.  Recording slows down the slave, so this block
+     * isn't timed and its results are thrown away.
+     */
+    private void recordCase( RuntimeEvaluationCase e , long seed , int indexDimen ) {
+        // the state of the timed block is what matters
+        boolean caseFailed = this.caseFailed;
+        boolean tooSlow = this.tooSlow;
+        SystemNoiseSampler.Summary blockNoise = this.blockNoise;
+
+        File f = FlightRecordingSummary.createRecordingFile(directorySave,e.getNameAlgorithm(),e.getDimens()[indexDimen]);
+        tools.setFlightRecording(f.getAbsolutePath());
+        try {
+            evaluateCase(e,seed,indexDimen,0);
+        } finally {
+            tools.setFlightRecording(null);
+        }
+
+        this.caseFailed = caseFailed;
+        this.tooSlow = tooSlow;
+        this.blockNoise = blockNoise;
+    }
+
     private List<RuntimeMeasurement> evaluateCase( RuntimeEvaluationCase e , long seed , int indexDimen, int numTrials ) {
         if( config.memoryTrial == 0 ) {
             return evaluateCaseDynamic(e,seed,indexDimen,numTrials);
@@ -442,14 +558,41 @@ public class RuntimeBenchmarkLibrary {
         return (List<RuntimeMeasurement>)((List)r.results);
     }
 
+    /**
+     * Attaches the state of the system while the slave was running to each measurement and checks to see
+     * if the block was noisy
+     */
+    private void attachNoise( EvaluatorSlave.Results r , SystemNoiseSampler.CpuTime start ,
+                              SystemNoiseSampler.CpuTime end ) {
+        // when the slave isn't spawned its CPU time is part of this process
+        long slaveCpuMillis = SPAWN_SLAVE ? tools.getSlaveCpuMillis() : -1;
+        blockNoise = SystemNoiseSampler.getInstance().summarize(start,end,slaveCpuMillis);
+        if( blockNoise == null || r == null || r.results == null )
+            return;
+
+        for( TestResults tr : r.results ) {
+            if( !(tr instanceof RuntimeMeasurement) )
+                continue;
+            RuntimeMeasurement m = (RuntimeMeasurement)tr;
+            m.frequencyRatio = blockNoise.frequencyRatio;
+            m.temperature = blockNoise.temperature;
+            m.loadAverage = blockNoise.loadAverage;
+            m.steal = blockNoise.steal;
+            m.externalLoad = blockNoise.externalLoad;
+            m.noisy = blockNoise.isNoisy();
+        }
+    }
+
     private EvaluatorSlave.Results callRunTest(RuntimeEvaluationCase e, EvaluationTest test, int matrixSize) {
         tooSlow = false;
         caseFailed = false;
         EvaluatorSlave.Results r;
+        SystemNoiseSampler.CpuTime start = SystemNoiseSampler.readCpuTime();
         if( SPAWN_SLAVE )
             r = tools.runTest(test);
         else
             r = tools.runTestNoSpawn(test);
+        attachNoise(r,start,SystemNoiseSampler.readCpuTime());
 
         if( r == null ) {
             logStream.println("*** RunTest returned null: op = "+e.getOpName()+" matrix size = "+matrixSize+" memory = "+tools.getAllocatedMemory()+" mb duration = "+tools.getDurationMilli());
@@ -21,7 +21,9 @@ package jmbench.tools.runtime;
 
 import jmbench.impl.FactoryLibraryDescriptions;
 import jmbench.impl.LibraryDescription;
+import jmbench.tools.BenchmarkMetrics;
 import jmbench.tools.SystemInfo;
+import jmbench.tools.SystemNoiseSampler;
 import jmbench.tools.stability.UtilXmlSerialization;
 
 import java.io.File;
@@ -69,10 +71,27 @@ public class RuntimeBenchmarkMaster {
 
         saveSystemInfo(config);
 
+        BenchmarkMetrics metrics = BenchmarkMetrics.getInstance();
+        metrics.startFileExport(new File(directorySave,BenchmarkMetrics.FILE_NAME),10000);
+        if( config.metricsPort > 0 ) {
+            try {
+                metrics.startHttpServer(config.metricsPort);
+            } catch (IOException e) {
+                System.err.println("Failed to start metrics server: "+e.getMessage());
+            }
+        }
+
+        SystemNoiseSampler noise = SystemNoiseSampler.getInstance();
+        noise.start(1000,new File(directorySave,SystemNoiseSampler.FILE_NAME));
+
         long startTime = System.currentTimeMillis();
 
         processLibraries(config.getTargets(),config);
 
+        metrics.saveFile(new File(directorySave,BenchmarkMetrics.FILE_NAME));
+        metrics.stop();
+        noise.stop();
+
         double seconds = (System.currentTimeMillis()-startTime)/1000.0;
         double days = seconds/60.0/60.0/24.0;
         System.out.println("Total processing time = "+seconds+" (s) or "+days+" days");
@@ -80,6 +99,7 @@ public class RuntimeBenchmarkMaster {
 
     private void processLibraries( List<LibraryDescription> libs, RuntimeBenchmarkConfig config ) {
 
+        BenchmarkMetrics.getInstance().setTotalLibraries(libs.size());
 
         for( LibraryDescription desc : libs ) {
 
@@ -89,6 +109,8 @@ public class RuntimeBenchmarkMaster {
             String outputFile = libOutputDir+".xml";
             UtilXmlSerialization.serializeXml(desc,outputFile);
 
+            BenchmarkMetrics.getInstance().startLibrary(desc.location.getPlotName());
+
             RuntimeBenchmarkLibrary benchmark = new RuntimeBenchmarkLibrary(libOutputDir,desc,config);
 
             try {
@@ -96,6 +118,8 @@ public class RuntimeBenchmarkMaster {
             } catch (FileNotFoundException e) {
                 throw new RuntimeException(e);
             }
+
+            BenchmarkMetrics.getInstance().finishLibrary();
         }
     }
 
@@ -126,6 +150,7 @@ public class RuntimeBenchmarkMaster {
         System.out.println("  --Size=min:max           |  Test matrices from the specified minimum size to the specified maximum size.");
         System.out.println("  --Quick                  |  Generate results much faster by sacrificing accuracy/stability of the results.");
         System.out.println("  --Library=<lib>          |  To run a specific library only.  --Library=? will print a list");
+        System.out.println("                           |  --Library=Auto uses the fastest library for each operation, see CreateDispatchTable.");
         System.out.println("  --Seed=<number>          |  used to set the random seed to the specified value.");
         System.out.println("  --TrailTime=<ms>         |  The minimum amount of time spent in each trial.  Typical is 3000.");
         System.out.println("  --MaxTime=<ms>           |  Maximum number of milliseconds it can spend in a single test.  Typical is 300000.");
@@ -135,6 +160,16 @@ public class RuntimeBenchmarkMaster {
         System.out.println("                           |  then the memory is dynamically determined.  It is recommended that a fixed amount be used.");
         System.out.println("                           |  specified since the dynamic algorithm will slow down the benchmark and has some known issues.");
         System.out.println("  --SanityCheck=<boolean>  |  Should it check the output for correctness?  Adds time and memory.");
+        System.out.println("  --Allocating=<boolean>   |  Also benchmark each operation with an output that is allocated on every call.");
+        System.out.println("  --Binary=<boolean>       |  Save results in a compact binary format which includes GC and allocation statistics.");
+        System.out.println("  --MetricsPort=<port>     |  Serve live metrics in the OpenMetrics format at http://127.0.0.1:<port>/metrics");
+        System.out.println("                           |  Metrics are always saved to "+BenchmarkMetrics.FILE_NAME+" in the results directory.");
+        System.out.println("  --JFR=<boolean>          |  Record slaves with Java Flight Recorder and summarize hot methods, allocations,");
+        System.out.println("                           |  locks, and GC pauses next to the results.  Each matrix size is recorded in an");
+        System.out.println("                           |  extra block which isn't timed.  Recordings are deleted once summarized.");
+        System.out.println("  --CDS=<boolean>          |  Launch slaves with a class data sharing archive of each library's classpath.  Default true.");
+        System.out.println("  --NoiseRetries=<number>  |  Times a block is run again if the CPU was throttled or busy.  Default 1.");
+        System.out.println("  --Workloads=<boolean>    |  Also benchmark application level workloads, e.g. Kalman filter, which are composed of several operations.");
         System.out.println();
         System.out.println("The only option which must be specified is \"FixedMemory\".  If no other options are specified " +
                 "then a default configuration will be used and the results" +
@@ -226,6 +261,35 @@ public class RuntimeBenchmarkMaster {
                 if( splits.length != 2 ) {failed = true; break;}
                 config.sanityCheck = Boolean.parseBoolean(splits[1]);
                 System.out.println("Sanity check output = "+config.sanityCheck);
+            } else if( flag.compareTo("Allocating") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.allocatingVariants = Boolean.parseBoolean(splits[1]);
+                System.out.println("Allocating variants = "+config.allocatingVariants);
+            } else if( flag.compareTo("Binary") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.binaryResults = Boolean.parseBoolean(splits[1]);
+                System.out.println("Binary results = "+config.binaryResults);
+            } else if( flag.compareTo("MetricsPort") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.metricsPort = Integer.parseInt(splits[1]);
+                System.out.println("Metrics port = "+config.metricsPort);
+            } else if( flag.compareTo("JFR") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.flightRecorder = Boolean.parseBoolean(splits[1]);
+                System.out.println("Flight recorder = "+config.flightRecorder);
+            } else if( flag.compareTo("CDS") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.classDataSharing = Boolean.parseBoolean(splits[1]);
+                System.out.println("Class data sharing = "+config.classDataSharing);
+            } else if( flag.compareTo("NoiseRetries") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.noiseRetries = Integer.parseInt(splits[1]);
+                System.out.println("Noise retries = "+config.noiseRetries);
+            } else if( flag.compareTo("Workloads") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                boolean workloads = Boolean.parseBoolean(splits[1]);
+                config.kalman = config.leastSquares = config.pca = config.newton = workloads;
+                System.out.println("Workloads = "+workloads);
             } else {
                 System.out.println("Unknown flag: "+flag);
                 printHelp();
@@ -20,13 +20,18 @@
 package jmbench.tools.runtime;
 
 import jmbench.impl.LibraryConfigure;
+import jmbench.interfaces.AllocatingPerformanceFactory;
 import jmbench.interfaces.BenchmarkMatrix;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.EvaluationTest;
 import jmbench.tools.OutputError;
 import jmbench.tools.TestResults;
+import jmbench.tools.runtime.workload.FactoryWorkload;
 
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Random;
@@ -68,6 +73,11 @@ public class RuntimeEvaluationTest extends EvaluationTest {
     // used to configure the library at runtime
     private Class<LibraryConfigure> classConfigure;
 
+    // GC and allocation counters sampled at the start of the most recent timed block
+    private transient long startGcCount;
+    private transient long startGcTime;
+    private transient long startAllocated;
+
     /**
      * Creates a new evaluation test.
      *
@@ -179,6 +189,7 @@ public class RuntimeEvaluationTest extends EvaluationTest {
 
         while( true ) {
             // nano is more precise than the millisecond timer
+            sampleCountersStart();
             long elapsedTime = alg.process(inputs, outputs, numTrials);
 
 //            System.out.println("elapsed time = "+elapsedTime + "  numTrials "+numTrials+"  ops/sec "+(double)numTrials/(elapsedTime/1e9));
@@ -220,17 +231,65 @@ public class RuntimeEvaluationTest extends EvaluationTest {
     private RuntimeMeasurement compileResults( double opsPerSecond )
     {
         RuntimeMeasurement results = new RuntimeMeasurement(opsPerSecond,Runtime.getRuntime().totalMemory());
+        sampleCountersEnd(results);
         if( sanityCheck )
             results.error = generator.checkResults(outputs,MAX_ERROR_THRESHOLD);
 
         return results;
     }
 
+    private void sampleCountersStart() {
+        startGcCount = 0;
+        startGcTime = 0;
+        for( GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans() ) {
+            startGcCount += Math.max(0,gc.getCollectionCount());
+            startGcTime += Math.max(0,gc.getCollectionTime());
+        }
+        startAllocated = threadAllocatedBytes();
+    }
+
+    /**
+     * Records how many garbage collections and how many bytes were allocated since {@link #sampleCountersStart()}
+     */
+    private void sampleCountersEnd( RuntimeMeasurement results ) {
+        long count = 0, time = 0;
+        for( GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans() ) {
+            count += Math.max(0,gc.getCollectionCount());
+            time += Math.max(0,gc.getCollectionTime());
+        }
+        results.gcCount = count - startGcCount;
+        results.gcTimeMillis = time - startGcTime;
+
+        long allocated = threadAllocatedBytes();
+        if( allocated >= 0 && startAllocated >= 0 )
+            results.allocatedBytes = allocated - startAllocated;
+    }
+
+    /**
+     * Number of bytes allocated by the current thread or -1 if the JVM doesn't support it.
+     */
+    private static long threadAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if( !(bean instanceof com.sun.management.ThreadMXBean) )
+            return -1;
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean)bean;
+        if( !sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled() )
+            return -1;
+        return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
     private MatrixProcessorInterface createAlgorithm() {
+        // workloads are composed from several operations in the factory
+        if( FactoryWorkload.isWorkload(nameAlgorithm) )
+            return FactoryWorkload.create(nameAlgorithm,factory);
+
         try {
             Method m = factory.getClass().getMethod(nameAlgorithm);
             return (MatrixProcessorInterface)m.invoke(factory);
         } catch (NoSuchMethodException e) {
+            // the factory doesn't implement AllocatingPerformanceFactory
+            if( nameAlgorithm.endsWith(AllocatingPerformanceFactory.SUFFIX) )
+                return null;
             throw new RuntimeException(e);
         } catch (InvocationTargetException e) {
             throw new RuntimeException(e);
@@ -34,6 +34,23 @@ public class RuntimeMeasurement implements TestResults , Comparable<RuntimeMeasu
 
     public long memoryUsed;
 
+    // number of garbage collections and time spent in them while the trial was being timed.  -1 if unknown
+    public long gcCount = -1;
+    public long gcTimeMillis = -1;
+    // bytes allocated by the benchmark thread while the trial was being timed.  -1 if unknown
+    public long allocatedBytes = -1;
+
+    // state of the machine while the block this trial belongs to was running, see SystemNoiseSampler.
+    // lowest frequency ratio of the fastest CPU, highest temperature (C), highest load average,
+    // mean fraction of CPU time stolen, and fraction of all CPUs used by other processes.  NaN if unknown
+    public double frequencyRatio = Double.NaN;
+    public double temperature = Double.NaN;
+    public double loadAverage = Double.NaN;
+    public double steal = Double.NaN;
+    public double externalLoad = Double.NaN;
+    // true if the CPU was throttled or under external load
+    public boolean noisy;
+
     // If output sanity checking is turned on then any errors that were detected are reported here
     public OutputError error;
 
@@ -50,6 +67,13 @@ public class RuntimeMeasurement implements TestResults , Comparable<RuntimeMeasu
 
     public RuntimeMeasurement(){}
 
+    /**
+     * Returns true if the trial finished without an error and measured how fast the operation was
+     */
+    public boolean isValid() {
+        return opsPerSec > 0 && (error == null || error == OutputError.NO_ERROR);
+    }
+
     public String toString() {
         return "ops/sec = "+opsPerSec;
     }
@@ -74,6 +98,78 @@ public class RuntimeMeasurement implements TestResults , Comparable<RuntimeMeasu
         return memoryUsed;
     }
 
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public void setGcCount(long gcCount) {
+        this.gcCount = gcCount;
+    }
+
+    public long getGcTimeMillis() {
+        return gcTimeMillis;
+    }
+
+    public void setGcTimeMillis(long gcTimeMillis) {
+        this.gcTimeMillis = gcTimeMillis;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public double getFrequencyRatio() {
+        return frequencyRatio;
+    }
+
+    public void setFrequencyRatio(double frequencyRatio) {
+        this.frequencyRatio = frequencyRatio;
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    public void setTemperature(double temperature) {
+        this.temperature = temperature;
+    }
+
+    public double getLoadAverage() {
+        return loadAverage;
+    }
+
+    public void setLoadAverage(double loadAverage) {
+        this.loadAverage = loadAverage;
+    }
+
+    public double getSteal() {
+        return steal;
+    }
+
+    public void setSteal(double steal) {
+        this.steal = steal;
+    }
+
+    public double getExternalLoad() {
+        return externalLoad;
+    }
+
+    public void setExternalLoad(double externalLoad) {
+        this.externalLoad = externalLoad;
+    }
+
+    public boolean isNoisy() {
+        return noisy;
+    }
+
+    public void setNoisy(boolean noisy) {
+        this.noisy = noisy;
+    }
+
     public int compareTo( RuntimeMeasurement r ) {
         if( r.opsPerSec < opsPerSec )
             return 1;
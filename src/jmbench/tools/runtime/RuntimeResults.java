@@ -20,6 +20,8 @@
 package jmbench.tools.runtime;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -53,6 +55,29 @@ public class RuntimeResults implements Serializable {
 
     public RuntimeResults(){}
 
+    /**
+     * Removes trials which failed or didn't measure anything and recomputes the statistics.  Matrix sizes which
+     * are left without any trials have no metrics.
+     */
+    public void removeInvalidTrials() {
+        if( metrics == null )
+            return;
+
+        for( int i = 0; i < metrics.length; i++ ) {
+            RuntimeEvaluationMetrics m = metrics[i];
+            if( m == null || m.rawResults == null )
+                continue;
+
+            List<RuntimeMeasurement> valid = new ArrayList<RuntimeMeasurement>();
+            for( RuntimeMeasurement r : m.rawResults ) {
+                if( r.isValid() )
+                    valid.add(r);
+            }
+            if( valid.size() != m.rawResults.size() )
+                metrics[i] = valid.isEmpty() ? null : new RuntimeEvaluationMetrics(valid);
+        }
+    }
+
     public String getOpName() {
         return opName;
     }
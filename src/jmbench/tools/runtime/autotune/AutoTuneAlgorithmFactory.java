@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.autotune;
+
+import jmbench.impl.LibraryConfigure;
+import jmbench.impl.LibraryDescription;
+import jmbench.impl.wrapper.EjmlBenchmarkMatrix;
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.MatrixProcessorInterface;
+import jmbench.interfaces.RuntimePerformanceFactory;
+import jmbench.misc.RandomizeMatrices;
+import jmbench.tools.stability.UtilXmlSerialization;
+import org.ejml.data.DenseMatrix64F;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * <p>
+ * Routes each operation to the library which was the fastest for that operation and matrix size, as specified
+ * by a {@link DispatchTable}.  Matrices are stored in EJML's format and converted into the selected library's
+ * format when the operation is called.  The converted inputs are cached, so calling the same operation on the
+ * same inputs again does not convert them again.  The conversion time is included in the time returned by
+ * {@link MatrixProcessorInterface#process}.
+ * </p>
+ *
+ * <p>
+ * The slave creates the factory using its default constructor, so the table is loaded from {@link #TABLE_FILE}
+ * in the working directory.  See {@link CreateDispatchTable}.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class AutoTuneAlgorithmFactory implements RuntimePerformanceFactory {
+
+    public static final String TABLE_FILE = "dispatch.xml";
+
+    DispatchTable table;
+
+    // libraries which have been used, by name of their factory class
+    transient Map<String,Backend> backends = new HashMap<String,Backend>();
+
+    public AutoTuneAlgorithmFactory() {
+        this(UtilXmlSerialization.<DispatchTable>deserializeXml(TABLE_FILE));
+    }
+
+    public AutoTuneAlgorithmFactory( DispatchTable table ) {
+        if( table == null )
+            throw new IllegalArgumentException("Can't load the dispatch table "+TABLE_FILE);
+        this.table = table;
+    }
+
+    private MatrixProcessorInterface dispatch( String operation ) {
+        if( !table.contains(operation) )
+            return null;
+        return new Dispatch(operation);
+    }
+
+    @Override
+    public MatrixProcessorInterface chol() {
+        return dispatch("chol");
+    }
+
+    @Override
+    public MatrixProcessorInterface lu() {
+        return dispatch("lu");
+    }
+
+    @Override
+    public MatrixProcessorInterface svd() {
+        return dispatch("svd");
+    }
+
+    @Override
+    public MatrixProcessorInterface qr() {
+        return dispatch("qr");
+    }
+
+    @Override
+    public MatrixProcessorInterface eigSymm() {
+        return dispatch("eigSymm");
+    }
+
+    @Override
+    public MatrixProcessorInterface det() {
+        return dispatch("det");
+    }
+
+    @Override
+    public MatrixProcessorInterface invert() {
+        return dispatch("invert");
+    }
+
+    @Override
+    public MatrixProcessorInterface invertSymmPosDef() {
+        return dispatch("invertSymmPosDef");
+    }
+
+    @Override
+    public MatrixProcessorInterface add() {
+        return dispatch("add");
+    }
+
+    @Override
+    public MatrixProcessorInterface mult() {
+        return dispatch("mult");
+    }
+
+    @Override
+    public MatrixProcessorInterface multTransB() {
+        return dispatch("multTransB");
+    }
+
+    @Override
+    public MatrixProcessorInterface scale() {
+        return dispatch("scale");
+    }
+
+    @Override
+    public MatrixProcessorInterface solveExact() {
+        return dispatch("solveExact");
+    }
+
+    @Override
+    public MatrixProcessorInterface solveOver() {
+        return dispatch("solveOver");
+    }
+
+    @Override
+    public MatrixProcessorInterface transpose() {
+        return dispatch("transpose");
+    }
+
+    @Override
+    public BenchmarkMatrix create(int numRows, int numCols) {
+        return wrap(new DenseMatrix64F(numRows,numCols));
+    }
+
+    @Override
+    public BenchmarkMatrix wrap(Object matrix) {
+        return new EjmlBenchmarkMatrix((DenseMatrix64F)matrix);
+    }
+
+    @Override
+    public BenchmarkMatrix convertToLib(DenseMatrix64F input) {
+        return new EjmlBenchmarkMatrix(input);
+    }
+
+    @Override
+    public DenseMatrix64F convertToEjml(BenchmarkMatrix input) {
+        return (DenseMatrix64F)input.getOriginal();
+    }
+
+    private Backend getBackend( LibraryDescription desc ) {
+        String name = desc.factoryRuntime.getName();
+        Backend b = backends.get(name);
+        if( b == null ) {
+            try {
+                b = new Backend();
+                b.factory = desc.factoryRuntime.newInstance();
+                b.matrixType = b.factory.create(1,1).getOriginal().getClass();
+                LibraryConfigure configure = desc.configure.newInstance();
+                configure.runtimeConfigure();
+            } catch (InstantiationException e) {
+                throw new RuntimeException(e);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+            backends.put(name,b);
+        }
+        return b;
+    }
+
+    /**
+     * A library the operations are dispatched to and the processors which have been requested from it.
+     */
+    private static class Backend {
+        RuntimePerformanceFactory factory;
+        // type of matrix the library uses
+        Class matrixType;
+        Map<String,MatrixProcessorInterface> processors = new HashMap<String,MatrixProcessorInterface>();
+
+        /**
+         * Converts the matrix into the library's format, unless it's already in that format.  When
+         * operations are chained together the input can come from any library.
+         */
+        public BenchmarkMatrix convert( BenchmarkMatrix input ) {
+            Object original = input.getOriginal();
+            if( matrixType.isInstance(original) )
+                return input;
+            if( original instanceof DenseMatrix64F )
+                return factory.convertToLib((DenseMatrix64F)original);
+            return factory.convertToLib(RandomizeMatrices.convertToEjml(input));
+        }
+
+        public MatrixProcessorInterface getProcessor( String operation ) {
+            if( processors.containsKey(operation) )
+                return processors.get(operation);
+
+            try {
+                Method m = factory.getClass().getMethod(operation);
+                MatrixProcessorInterface alg = (MatrixProcessorInterface)m.invoke(factory);
+                processors.put(operation,alg);
+                return alg;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Selects the library based on the size of the first input.
+     */
+    private class Dispatch implements MatrixProcessorInterface {
+        String operation;
+
+        // the inputs the last time it was called and what they were converted into
+        BenchmarkMatrix[] cachedInputs;
+        BenchmarkMatrix[] converted;
+        Backend cachedBackend;
+
+        private Dispatch(String operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+            long prev = System.nanoTime();
+
+            // tall matrices are used for over determined systems so the smaller side is the matrix's size
+            int size = Math.min(inputs[0].numRows(),inputs[0].numCols());
+            Backend backend = getBackend(table.lookup(operation,size).library);
+
+            if( inputs != cachedInputs || backend != cachedBackend ) {
+                converted = new BenchmarkMatrix[ inputs.length ];
+                for( int i = 0; i < inputs.length; i++ ) {
+                    converted[i] = backend.convert(inputs[i]);
+                }
+                cachedInputs = inputs;
+                cachedBackend = backend;
+            }
+
+            backend.getProcessor(operation).process(converted,outputs,numTrials);
+
+            return System.nanoTime() - prev;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.autotune;
+
+import jmbench.impl.LibraryDescription;
+import jmbench.impl.LibraryLocation;
+import jmbench.tools.runtime.RuntimeEvaluationMetrics;
+import jmbench.tools.runtime.RuntimeResults;
+import jmbench.tools.runtime.evaluation.PlotRuntimeResults;
+import jmbench.tools.runtime.evaluation.RuntimeResultsCsvIO;
+import jmbench.tools.stability.StabilityTrialResults;
+import jmbench.tools.stability.UtilXmlSerialization;
+
+import java.io.File;
+import java.util.*;
+
+
+/**
+ * <p>
+ * Creates a {@link DispatchTable} from the results of a runtime benchmark.  For each operation and matrix size
+ * the library with the most operations per second is selected.  Consecutive sizes with the same library are
+ * merged into a single range, with the boundary between two ranges halfway between the sizes in log space.
+ * </p>
+ *
+ * <p>
+ * If the results from a stability benchmark are provided then only libraries which passed the stability benchmark
+ * for an operation are considered for that operation.  A library without stability results for an operation which
+ * the stability benchmark tests is not considered either.  A library fails if it had a fatal error or threw an
+ * unexpected exception in any of the tests, or if it produced a large error or an uncountable number in one
+ * of the accuracy tests.  Overflow, underflow and singular tests are expected to break eventually so their
+ * breaking points are not used.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class CreateDispatchTable {
+
+    // which operation each stability test is testing, by the start of its file name
+    private static final String[][] STABILITY_OPS = new String[][]{
+            {"Linear","solveExact"},
+            {"LeastSquares","solveOver"},
+            {"Svd","svd"},
+            {"EigSymm","eigSymm"},
+            {"InvSymm","invertSymmPosDef"}};
+
+    // runtime results for each operation
+    Map<String,List<Candidate>> opMap = new HashMap<String,List<Candidate>>();
+
+    // name of operation + library which failed the stability benchmark
+    Set<String> unstable = new HashSet<String>();
+    // name of operation + library which has stability results and passed at least one test
+    Set<String> stable = new HashSet<String>();
+    // operations which the loaded stability results test
+    Set<String> testedOps = new HashSet<String>();
+
+    public void loadRuntime( String dir ) {
+        File directory = checkDirectory(dir);
+
+        for( File level0 : directory.listFiles() ) {
+            if( !level0.isDirectory() )
+                continue;
+
+            LibraryDescription desc = UtilXmlSerialization.deserializeXml(level0.getPath()+".xml");
+            // skip directories which aren't results or if its results from a previous dispatch table
+            if( desc == null || desc.location.getPlotName().equals(LibraryLocation.AUTO.getPlotName()) )
+                continue;
+
+            Map<String,File> files = RuntimeResultsCsvIO.findResultsFiles(level0);
+            for( String opName : files.keySet() ) {
+                RuntimeResults r = RuntimeResultsCsvIO.load(files.get(opName));
+
+                List<Candidate> l = opMap.get(opName);
+                if( l == null ) {
+                    l = new ArrayList<Candidate>();
+                    opMap.put(opName,l);
+                }
+                l.add(new Candidate(desc,r));
+            }
+        }
+    }
+
+    public void loadStability( String dir ) {
+        File directory = checkDirectory(dir);
+
+        for( File level0 : directory.listFiles() ) {
+            if( !level0.isDirectory() )
+                continue;
+
+            for( String name : level0.list() ) {
+                if( !name.endsWith(".xml") )
+                    continue;
+
+                String opName = null;
+                for( String[] s : STABILITY_OPS ) {
+                    if( name.startsWith(s[0]) )
+                        opName = s[1];
+                }
+                if( opName == null )
+                    continue;
+
+                StabilityTrialResults r = UtilXmlSerialization.deserializeXml(new File(level0,name).getPath());
+
+                boolean failed = r.getFatalError() != null || r.getNumUnexpectedException() > 0;
+                if( name.contains("Accuracy") )
+                    failed |= r.getNumLargeError() > 0 || r.getNumUncountable() > 0;
+
+                testedOps.add(opName);
+                if( failed ) {
+                    System.out.println("Unstable: "+r.getLibraryName()+" "+name);
+                    unstable.add(opName+" "+r.getLibraryName());
+                } else {
+                    stable.add(opName+" "+r.getLibraryName());
+                }
+            }
+        }
+    }
+
+    public DispatchTable create() {
+        DispatchTable table = new DispatchTable();
+
+        List<String> opNames = new ArrayList<String>(opMap.keySet());
+        Collections.sort(opNames);
+
+        for( String opName : opNames ) {
+            // the fastest stable library at each size
+            TreeMap<Integer,Candidate> best = new TreeMap<Integer,Candidate>();
+            TreeMap<Integer,Double> bestOps = new TreeMap<Integer,Double>();
+
+            for( Candidate c : opMap.get(opName) ) {
+                String key = opName+" "+c.desc.location.getPlotName();
+                if( unstable.contains(key) )
+                    continue;
+                if( testedOps.contains(opName) && !stable.contains(key) )
+                    continue;
+
+                int sizes[] = c.results.getMatDimen();
+                RuntimeEvaluationMetrics metrics[] = c.results.getMetrics();
+
+                for( int i = 0; i < sizes.length; i++ ) {
+                    if( metrics[i] == null || metrics[i].getMax() <= 0 )
+                        continue;
+
+                    Double prev = bestOps.get(sizes[i]);
+                    if( prev == null || prev < metrics[i].getMax() ) {
+                        best.put(sizes[i],c);
+                        bestOps.put(sizes[i],metrics[i].getMax());
+                    }
+                }
+            }
+
+            // merge sizes which use the same library into a single range
+            Candidate current = null;
+            int rangeStart = 0;
+            double rangeOps = 0;
+            int prevSize = 0;
+            for( int size : best.keySet() ) {
+                Candidate c = best.get(size);
+                if( current != null && c != current ) {
+                    int boundary = (int)Math.ceil(Math.sqrt((double)prevSize*size));
+                    boundary = Math.max(boundary,prevSize+1);
+                    table.add(opName,rangeStart,boundary-1,current.desc,rangeOps);
+                    rangeStart = boundary;
+                }
+                if( c != current ) {
+                    current = c;
+                    rangeOps = bestOps.get(size);
+                }
+                prevSize = size;
+            }
+            if( current != null )
+                table.add(opName,rangeStart,Integer.MAX_VALUE,current.desc,rangeOps);
+        }
+
+        return table;
+    }
+
+    private static File checkDirectory( String dir ) {
+        File directory = new File(dir);
+
+        if( !directory.exists() ) {
+            throw new IllegalArgumentException("Directory does not exist: "+dir);
+        }
+
+        if( !directory.isDirectory() ) {
+            throw new IllegalArgumentException("Need to specify a directory");
+        }
+        return directory;
+    }
+
+    private static class Candidate {
+        LibraryDescription desc;
+        RuntimeResults results;
+
+        private Candidate(LibraryDescription desc, RuntimeResults results) {
+            this.desc = desc;
+            this.results = results;
+        }
+    }
+
+    public static void printHelp() {
+        System.out.println("Creates a table which specifies the fastest library for each operation and matrix size.");
+        System.out.println("The table is used by the \"Auto\" library in the runtime benchmark.");
+        System.out.println();
+        System.out.println("arguments: <runtime results directory> [stability results directory]");
+        System.out.println();
+        System.out.println("If the runtime results directory is not specified then the most recent directory is used.");
+        System.out.println("The table is saved to "+AutoTuneAlgorithmFactory.TABLE_FILE);
+    }
+
+    public static void main( String args[] ) {
+        if( args.length > 2 ) {
+            printHelp();
+            return;
+        }
+        String dir = args.length == 0 ? PlotRuntimeResults.findMostRecentDirectory() : args[0];
+
+        CreateDispatchTable alg = new CreateDispatchTable();
+        alg.loadRuntime(dir);
+        if( args.length == 2 )
+            alg.loadStability(args[1]);
+
+        DispatchTable table = alg.create();
+        table.print();
+
+        UtilXmlSerialization.serializeXml(table,AutoTuneAlgorithmFactory.TABLE_FILE);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.autotune;
+
+import jmbench.impl.LibraryDescription;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Specifies which library should be used for each operation and range of matrix sizes.
+ *
+ * @author Peter Abeles
+ */
+public class DispatchTable {
+
+    public List<Entry> entries = new ArrayList<Entry>();
+
+    public void add( String operation , int minSize , int maxSize , LibraryDescription library , double opsPerSec ) {
+        Entry e = new Entry();
+        e.operation = operation;
+        e.minSize = minSize;
+        e.maxSize = maxSize;
+        e.library = library;
+        e.opsPerSec = opsPerSec;
+        entries.add(e);
+    }
+
+    /**
+     * Returns true if any library can process the operation.
+     */
+    public boolean contains( String operation ) {
+        for( Entry e : entries ) {
+            if( e.operation.equals(operation) )
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the entry for the operation which covers the matrix size.  If none cover it then the entry
+     * with the closest range is returned.
+     *
+     * @return The entry or null if the operation is not in the table.
+     */
+    public Entry lookup( String operation , int size ) {
+        Entry best = null;
+        int bestDistance = Integer.MAX_VALUE;
+
+        for( Entry e : entries ) {
+            if( !e.operation.equals(operation) )
+                continue;
+
+            int distance;
+            if( size < e.minSize )
+                distance = e.minSize - size;
+            else if( size > e.maxSize )
+                distance = size - e.maxSize;
+            else
+                return e;
+
+            if( distance < bestDistance ) {
+                bestDistance = distance;
+                best = e;
+            }
+        }
+
+        return best;
+    }
+
+    public void print() {
+        for( Entry e : entries ) {
+            System.out.printf("%-20s %6d to %10d  %-10s %10.3e ops/sec\n",e.operation,e.minSize,e.maxSize,
+                    e.library.location.getPlotName(),e.opsPerSec);
+        }
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    public static class Entry {
+        // name of the function in RuntimePerformanceFactory
+        public String operation;
+        // inclusive range of matrix sizes this entry covers
+        public int minSize;
+        public int maxSize;
+        // the library which is used
+        public LibraryDescription library;
+        // the performance of the library at the size it was selected at
+        public double opsPerSec;
+    }
+}
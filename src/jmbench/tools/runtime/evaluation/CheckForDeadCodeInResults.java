@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.evaluation;
+
+import jmbench.tools.runtime.RuntimeEvaluationMetrics;
+import jmbench.tools.runtime.RuntimeResults;
+
+import java.io.File;
+
+
+/**
+ * <p>
+ * Examines all the results in a directory looking for operations whose performance hardly changes as the matrix
+ * size increases.  Every operation needs to at least touch every element in the matrix, so its cost grows at
+ * least with the square of the matrix size.  A flat ops/sec curve is a sign that the JIT removed the
+ * computation as dead code and the benchmark is timing an empty loop.
+ * </p>
+ *
+ * <p>
+ * Small matrices are ignored since their performance is dominated by fixed overhead.  The slope of a line fit to
+ * log(ops/sec) versus log(size) is used to decide if it is flat.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class CheckForDeadCodeInResults {
+
+    // matrices smaller than this are ignored
+    public static int MIN_SIZE = 20;
+    // if the log-log slope is above this the curve is considered to be flat.  An operation which is O(N^2) has
+    // a slope of -2
+    public static double MAX_SLOPE = -1.0;
+    // the sizes considered must span at least this factor for the slope to mean anything
+    public static double MIN_SPAN = 4.0;
+
+    File directory;
+
+    public CheckForDeadCodeInResults( String dir ) {
+        directory = new File(dir);
+
+        if( !directory.exists() ) {
+            throw new IllegalArgumentException("Directory does not exist: "+dir);
+        }
+
+        if( !directory.isDirectory() ) {
+            throw new IllegalArgumentException("Need to specify a directory");
+        }
+    }
+
+    public void examine() {
+        String[] files = directory.list();
+
+        for( String nameLevel0 : files ) {
+            File level0 = new File(directory.getPath()+"/"+nameLevel0);
+
+            if( level0.isDirectory() ) {
+                System.out.println("Examining "+level0);
+
+                for( File f : RuntimeResultsCsvIO.findResultsFiles(level0).values() ) {
+                    RuntimeResults r = RuntimeResultsCsvIO.load(f);
+
+                    checkForFlatCurve(r);
+                }
+            }
+        }
+    }
+
+    public boolean checkForFlatCurve( RuntimeResults r ) {
+        int N = 0;
+        RuntimeEvaluationMetrics metrics[] = r.getMetrics();
+        int sizes[] = new int[ metrics.length ];
+        double opsPerSec[] = new double[ metrics.length ];
+
+        for( int i = 0; i < metrics.length; i++ ) {
+            // if it is null then it didn't have any results for that matrix size
+            if( metrics[i] == null || metrics[i].getMax() <= 0 )
+                continue;
+            sizes[N] = r.getMatDimen()[i];
+            opsPerSec[N++] = metrics[i].getMax();
+        }
+
+        double slope = computeSlope(sizes,opsPerSec,N);
+
+        if( Double.isNaN(slope) || slope <= MAX_SLOPE )
+            return false;
+
+        System.out.printf("%s %s flat ops/sec curve: slope %5.2f\n",r.getLibraryName(),r.getOpName(),slope);
+        return true;
+    }
+
+    /**
+     * Returns true if the performance doesn't drop fast enough as the matrix size increases
+     *
+     * @param sizes Matrix size of each sample
+     * @param opsPerSec Performance of each sample
+     */
+    public static boolean isSuspiciouslyFlat( int sizes[] , double opsPerSec[] ) {
+        double slope = computeSlope(sizes,opsPerSec,sizes.length);
+        return !Double.isNaN(slope) && slope > MAX_SLOPE;
+    }
+
+    /**
+     * Slope of a line fit to log(ops/sec) versus log(size), ignoring small matrices.
+     *
+     * @return The slope or NaN if there is not enough data.
+     */
+    public static double computeSlope( int sizes[] , double opsPerSec[] , int length ) {
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        int minSize = Integer.MAX_VALUE, maxSize = 0;
+        int total = 0;
+
+        for( int i = 0; i < length; i++ ) {
+            if( sizes[i] < MIN_SIZE || opsPerSec[i] <= 0 )
+                continue;
+
+            double x = Math.log(sizes[i]);
+            double y = Math.log(opsPerSec[i]);
+
+            sumX += x; sumY += y;
+            sumXX += x*x; sumXY += x*y;
+
+            minSize = Math.min(minSize,sizes[i]);
+            maxSize = Math.max(maxSize,sizes[i]);
+            total++;
+        }
+
+        if( total < 2 || maxSize < minSize*MIN_SPAN )
+            return Double.NaN;
+
+        return (total*sumXY - sumX*sumY)/(total*sumXX - sumX*sumX);
+    }
+
+    public static void printHelp() {
+        System.out.println("This program runs through the results and looks for operations whose performance doesn't");
+        System.out.println("change with matrix size, which is a sign that the computation was removed as dead code.");
+        System.out.println();
+        System.out.println("arguments: <results directory>");
+        System.out.println();
+        System.out.println("If the results directory is not specified then the most recent directory is used.");
+    }
+
+    public static void main( String args[] ) {
+        String dir = args.length == 0 ? PlotRuntimeResults.findMostRecentDirectory() : args[0];
+
+        CheckForDeadCodeInResults p = new CheckForDeadCodeInResults(dir);
+
+        p.examine();
+    }
+}
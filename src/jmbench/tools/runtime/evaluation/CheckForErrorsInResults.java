@@ -57,19 +57,12 @@ public class CheckForErrorsInResults {
             File level0 = new File(directory.getPath()+"/"+nameLevel0);
 
             if( level0.isDirectory() ) {
-                String []files2 = level0.list();
-
                 System.out.println("Examining "+level0);
 
-                for( String name2 : files2 ) {
-                    if( name2.contains(".csv") ) {
-
-                        name2 = level0.getPath()+"/"+name2;
-
-                        RuntimeResults r = RuntimeResultsCsvIO.read(new File(name2));
+                for( File f : RuntimeResultsCsvIO.findResultsFiles(level0).values() ) {
+                    RuntimeResults r = RuntimeResultsCsvIO.load(f);
 
-                        checkForExceptions(r);
-                    }
+                    checkForExceptions(r);
                 }
             }
         }
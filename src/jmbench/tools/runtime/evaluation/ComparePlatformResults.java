@@ -21,8 +21,11 @@ package jmbench.tools.runtime.evaluation;
 
 import jmbench.tools.runtime.RuntimeEvaluationMetrics;
 import jmbench.tools.runtime.RuntimeResults;
+import jmbench.tools.store.ResultsStore;
+import jmbench.tools.store.StoreRun;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -47,6 +50,9 @@ public class ComparePlatformResults {
 
     File outputDirectory = new File(".");
 
+    // if not null results are loaded from the store instead of parsing the results directories
+    ResultsStore store;
+
     /**
      * Adds a new platform to compare.
      *
@@ -75,6 +81,14 @@ public class ComparePlatformResults {
         convertToPlotData(m,whichMetric);
     }
 
+    /**
+     * Results are loaded from the store.  Result directories which have not been added to the store yet are
+     * ingested the first time they are used.
+     */
+    public void setStore( ResultsStore store ) {
+        this.store = store;
+    }
+
     /**
      * Loads results from XML files
      */
@@ -83,6 +97,10 @@ public class ComparePlatformResults {
         List<List<XMLResults>> ret = new ArrayList<List<XMLResults>>();
 
         for( Platform p : platforms ) {
+            if( store != null ) {
+                ret.add( loadResultsStore(p) );
+                continue;
+            }
 
             String platformResultsDir = p.resultsDir+"/"+p.libraryDir;
 
@@ -94,21 +112,16 @@ public class ComparePlatformResults {
 
             List<XMLResults> opResults = new ArrayList<XMLResults>();
 
-            File[] files = platformDir.listFiles();
-
-            for( File f : files ) {
-                String fileName = f.getName();
-
-                if( fileName.contains(".csv")) {
-                    // extract the operation name
-                    String stripName = fileName.substring(0,fileName.length()-4);
+            Map<String,File> files = RuntimeResultsCsvIO.findResultsFiles(platformDir);
 
-                    XMLResults r = new XMLResults();
-                    r.fileName = stripName;
-                    r.results = RuntimeResultsCsvIO.read(new File(f.getAbsolutePath()));
+            for( String stripName : files.keySet() ) {
+                XMLResults r = new XMLResults();
+                r.fileName = stripName;
+                r.results = RuntimeResultsCsvIO.load(files.get(stripName));
+                // the same trials are used as when the results are loaded from the store
+                r.results.removeInvalidTrials();
 
-                    opResults.add(r);
-                }
+                opResults.add(r);
             }
 
             ret.add( opResults );
@@ -117,6 +130,30 @@ public class ComparePlatformResults {
         return ret;
     }
 
+    private List<XMLResults> loadResultsStore( Platform p ) {
+        StoreRun run;
+        try {
+            run = store.ingest(new File(p.resultsDir));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if( run == null )
+            throw new RuntimeException("No results found in "+p.resultsDir);
+
+        List<XMLResults> opResults = new ArrayList<XMLResults>();
+        Map<String,RuntimeResults> found = store.getRuntimeResults(run,p.libraryDir);
+        if( found.isEmpty() )
+            throw new RuntimeException("Results for "+p.libraryDir+" do not exist in "+p.resultsDir);
+
+        for( String op : found.keySet() ) {
+            XMLResults r = new XMLResults();
+            r.fileName = op;
+            r.results = found.get(op);
+            opResults.add(r);
+        }
+        return opResults;
+    }
+
     /**
      * Resorts the result from the platform -> operation order it was read in at to operation -> platform.
      */
@@ -271,6 +308,7 @@ public class ComparePlatformResults {
         System.out.println("--Library=<name>             : The library's name (name of its directory) which is being compared across platforms. *Must be specified*");
         System.out.println("--Input=<directory>          : Directory containing results.");
         System.out.println("--InputName=<name>           : Name used in plots for an input.  Specified in the same order as Input.");
+        System.out.println("--Store=<directory>          : Load results through a results store, see ResultsStore.");
         System.out.println();
         System.out.println("Example:");
         System.out.println("java -jar build/jar/benchmark_app.jar  comparePlatforms --Library=ejml --Input=results/Q9400_2010_08 --InputName=Q9400 --Input=results/PentiumM_2010_08 --InputName=PentiumM");
@@ -289,6 +327,7 @@ public class ComparePlatformResults {
         int minSize = 0;
         List<String> inputDirectories = new ArrayList<String>();
         List<String> names = new ArrayList<String>();
+        String storeDir = null;
 
         for( int i = 0; i < args.length; i++ ) {
             String splits[] = args[i].split("=");
@@ -334,6 +373,9 @@ public class ComparePlatformResults {
                 inputDirectories.add(splits[1]);
             } else if( flag.compareTo("InputName") == 0 ) {
                 names.add(splits[1]);
+            } else if( flag.compareTo("Store") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                storeDir = splits[1];
             } else {
                 System.out.println("Unknown flag: "+flag);
                 failed = true;
@@ -357,6 +399,9 @@ public class ComparePlatformResults {
                 app.addPlatform(dir,targetLibrary,name);
             }
 
+            if( storeDir != null )
+                app.setStore(new ResultsStore(new File(storeDir)));
+
             app.minMatrixSize = minSize;
             app.maxMatrixSize = maxSize;
             ComparePlatformResults.displayResults = displayResults;
@@ -0,0 +1,556 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.runtime.evaluation;
+
+import jmbench.tools.OutputError;
+import jmbench.tools.runtime.RuntimeEvaluationMetrics;
+import jmbench.tools.runtime.RuntimeMeasurement;
+import jmbench.tools.runtime.RuntimeResults;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.*;
+
+
+/**
+ * <p>
+ * Compares the runtime results in a candidate results directory against a baseline directory and flags
+ * statistically significant slow downs and speed ups.  Intended to be used when a library is upgraded to see
+ * if performance changed.
+ * </p>
+ *
+ * <p>
+ * For each library, operation, and matrix size found in either directory the raw ops/sec of each trial are compared
+ * using a two-sided Mann-Whitney U test.  The exact distribution is used for small samples without ties, otherwise
+ * a normal approximation with a tie correction.  Since thousands of tests can be performed at once the p-values
+ * are adjusted using the Benjamini-Hochberg procedure to control the false discovery rate.  A change is only
+ * reported if it is significant and the ratio of the medians changed by more than a threshold.  Effect size is
+ * reported as the ratio of medians and Cliff's delta, which is the probability that a candidate trial is faster
+ * minus the probability that it is slower.
+ * </p>
+ *
+ * <p>
+ * A matrix size which has successful trials in the baseline but is missing from the candidate, e.g. because the
+ * operation crashed or was never run, is reported as missing.  If the candidate has trials but all of them
+ * failed it is reported as failed.
+ * </p>
+ *
+ * <p>
+ * Results are saved to a CSV file and the application's exit code is 1 if any regression, missing, or failed
+ * result was found and 2 if the input is bad.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class DetectRuntimeRegressions {
+
+    public static final String REPORT_FILE = "regressions.csv";
+
+    /**
+     * If performance changed between the two runs
+     */
+    public static enum Status {
+        REGRESSION,
+        IMPROVEMENT,
+        NO_CHANGE,
+        // not enough trials to perform the test
+        INSUFFICIENT,
+        // the baseline has trials but the candidate has no results
+        MISSING,
+        // the baseline has trials but every trial in the candidate had an error
+        FAILED
+    }
+
+    // significance level after correcting for the number of tests
+    public double alpha = 0.01;
+    // the ratio of medians must change by more than this fraction to be reported
+    public double threshold = 0.05;
+    // minimum number of trials in each run needed to perform the test
+    public int minSamples = 3;
+
+    // if not empty only these libraries are compared.  name of the library's directory
+    public List<String> libraries = new ArrayList<String>();
+
+    /**
+     * Comparison of a single library, operation, and matrix size
+     */
+    public static class Comparison {
+        public String library;
+        public String operation;
+        public int size;
+
+        public int numBaseline;
+        public int numCandidate;
+        public double medianBaseline;
+        public double medianCandidate;
+
+        // medianCandidate/medianBaseline.  less than one means it is slower
+        public double ratio;
+        // Cliff's delta from -1 to 1.  negative means the candidate tends to be slower
+        public double cliffsDelta;
+        public double pValue;
+        // p-value adjusted for multiple comparisons
+        public double adjustedP;
+
+        public Status status;
+    }
+
+    /**
+     * Compares all the results found in either directory
+     *
+     * @throws IllegalArgumentException if either is not a directory
+     */
+    public List<Comparison> compare( File baseline , File candidate ) {
+        Map<String,RuntimeResults> baseResults = loadDirectory(baseline);
+        Map<String,RuntimeResults> candResults = loadDirectory(candidate);
+
+        Set<String> keys = new TreeSet<String>(baseResults.keySet());
+        keys.addAll(candResults.keySet());
+
+        List<Comparison> ret = new ArrayList<Comparison>();
+
+        for( String key : keys ) {
+            RuntimeResults b = baseResults.get(key);
+            RuntimeResults c = candResults.get(key);
+
+            String library = key.substring(0,key.indexOf('/'));
+            String operation = key.substring(library.length()+1);
+
+            Set<Integer> sizes = new TreeSet<Integer>();
+            if( b != null ) {
+                for( int size : b.matDimen )
+                    sizes.add(size);
+            }
+            if( c != null ) {
+                for( int size : c.matDimen )
+                    sizes.add(size);
+            }
+
+            for( int size : sizes ) {
+                RuntimeEvaluationMetrics metricsBase = metrics(b,size);
+                RuntimeEvaluationMetrics metricsCand = metrics(c,size);
+
+                double samplesBase[] = samples(metricsBase);
+                double samplesCand[] = samples(metricsCand);
+                if( samplesBase.length == 0 && samplesCand.length == 0 )
+                    continue;
+
+                Comparison comp = new Comparison();
+                comp.library = library;
+                comp.operation = operation;
+                comp.size = size;
+                if( samplesBase.length > 0 && samplesCand.length == 0 ) {
+                    comp.numBaseline = samplesBase.length;
+                    comp.medianBaseline = median(samplesBase);
+                    comp.medianCandidate = comp.ratio = Double.NaN;
+                    comp.cliffsDelta = comp.pValue = comp.adjustedP = Double.NaN;
+                    comp.status = numTrials(metricsCand) > 0 ? Status.FAILED : Status.MISSING;
+                } else {
+                    compare(samplesBase,samplesCand,comp);
+                }
+                ret.add(comp);
+            }
+        }
+
+        adjustPValues(ret);
+
+        for( Comparison c : ret ) {
+            // status is only already known if it couldn't be tested
+            if( c.status != null )
+                continue;
+            if( c.adjustedP < alpha && c.ratio < 1.0-threshold )
+                c.status = Status.REGRESSION;
+            else if( c.adjustedP < alpha && c.ratio > 1.0+threshold )
+                c.status = Status.IMPROVEMENT;
+            else
+                c.status = Status.NO_CHANGE;
+        }
+
+        Collections.sort(ret,new Comparator<Comparison>() {
+            @Override
+            public int compare(Comparison a, Comparison b) {
+                int v = a.library.compareTo(b.library);
+                if( v != 0 ) return v;
+                v = a.operation.compareTo(b.operation);
+                if( v != 0 ) return v;
+                return a.size - b.size;
+            }
+        });
+
+        return ret;
+    }
+
+    /**
+     * Computes the statistics for a single comparison
+     */
+    protected void compare( double baseline[] , double candidate[] , Comparison comp ) {
+        comp.numBaseline = baseline.length;
+        comp.numCandidate = candidate.length;
+        comp.medianBaseline = median(baseline);
+        comp.medianCandidate = median(candidate);
+        comp.ratio = comp.medianCandidate/comp.medianBaseline;
+
+        if( baseline.length < minSamples || candidate.length < minSamples ) {
+            comp.status = Status.INSUFFICIENT;
+            comp.cliffsDelta = Double.NaN;
+            comp.pValue = comp.adjustedP = Double.NaN;
+            return;
+        }
+
+        double u = mannWhitneyU(candidate, baseline);
+        comp.cliffsDelta = 2.0*u/(baseline.length*(double)candidate.length) - 1.0;
+        comp.pValue = mannWhitneyP(candidate,baseline,u);
+    }
+
+    /**
+     * The U statistic for the first set of samples.  The number of pairs where a sample from 'a' is larger
+     * than one from 'b', with ties counting as one half.
+     */
+    public static double mannWhitneyU( double a[] , double b[] ) {
+        double u = 0;
+        for( double x : a ) {
+            for( double y : b ) {
+                if( x > y )
+                    u += 1;
+                else if( x == y )
+                    u += 0.5;
+            }
+        }
+        return u;
+    }
+
+    /**
+     * Two-sided p-value for the Mann-Whitney U test
+     *
+     * @param u The U statistic for 'a' computed by {@link #mannWhitneyU}
+     */
+    public static double mannWhitneyP( double a[] , double b[] , double u ) {
+        int n1 = a.length, n2 = b.length;
+
+        double all[] = new double[ n1+n2 ];
+        System.arraycopy(a,0,all,0,n1);
+        System.arraycopy(b,0,all,n1,n2);
+        Arrays.sort(all);
+
+        // correction for ties
+        double tieSum = 0;
+        for( int i = 0; i < all.length; ) {
+            int j = i+1;
+            while( j < all.length && all[j] == all[i] )
+                j++;
+            double t = j-i;
+            tieSum += t*t*t-t;
+            i = j;
+        }
+
+        if( tieSum == 0 && n1*n2 <= 2500 ) {
+            double cdf[] = exactDistributionU(n1,n2);
+            int k = (int)Math.round(u);
+            double lower = cdf[k];
+            double upper = 1.0 - (k > 0 ? cdf[k-1] : 0);
+            return Math.min(1.0,2.0*Math.min(lower,upper));
+        }
+
+        double n = n1+n2;
+        double mean = n1*(double)n2/2.0;
+        double var = n1*(double)n2/12.0*((n+1) - tieSum/(n*(n-1)));
+        if( var <= 0 )
+            return 1.0;
+        double diff = Math.abs(u-mean);
+        // continuity correction
+        double z = Math.max(0,diff-0.5)/Math.sqrt(var);
+        return Math.min(1.0,erfc(z/Math.sqrt(2)));
+    }
+
+    /**
+     * Cumulative distribution of U when there are no ties.  Element k is P(U &le; k).
+     */
+    public static double[] exactDistributionU( int n1 , int n2 ) {
+        int maxU = n1*n2;
+        // count[i][j][u] = number of orderings of i and j samples with U = u.  Only two planes are kept in memory
+        double prev[][] = new double[ n2+1 ][];
+        for( int j = 0; j <= n2; j++ ) {
+            prev[j] = new double[ maxU+1 ];
+            prev[j][0] = 1;
+        }
+        for( int i = 1; i <= n1; i++ ) {
+            double curr[][] = new double[ n2+1 ][ maxU+1 ];
+            curr[0][0] = 1;
+            for( int j = 1; j <= n2; j++ ) {
+                for( int k = 0; k <= i*j; k++ ) {
+                    // largest element belongs to 'a', which is larger than all j elements of 'b'
+                    double v = k >= j ? prev[j][k-j] : 0;
+                    // largest element belongs to 'b'
+                    v += curr[j-1][k];
+                    curr[j][k] = v;
+                }
+            }
+            prev = curr;
+        }
+
+        double counts[] = prev[n2];
+        double total = 0;
+        for( double c : counts )
+            total += c;
+
+        double cdf[] = new double[ maxU+1 ];
+        double sum = 0;
+        for( int k = 0; k <= maxU; k++ ) {
+            sum += counts[k];
+            cdf[k] = sum/total;
+        }
+        return cdf;
+    }
+
+    /**
+     * Benjamini-Hochberg adjustment of p-values
+     */
+    public static void adjustPValues( List<Comparison> comparisons ) {
+        List<Comparison> tested = new ArrayList<Comparison>();
+        for( Comparison c : comparisons ) {
+            if( !Double.isNaN(c.pValue) )
+                tested.add(c);
+        }
+        Collections.sort(tested,new Comparator<Comparison>() {
+            @Override
+            public int compare(Comparison a, Comparison b) {
+                return Double.compare(a.pValue,b.pValue);
+            }
+        });
+
+        int m = tested.size();
+        double min = 1.0;
+        for( int i = m-1; i >= 0; i-- ) {
+            Comparison c = tested.get(i);
+            min = Math.min(min,c.pValue*m/(i+1));
+            c.adjustedP = min;
+        }
+    }
+
+    /**
+     * Complementary error function.  Fractional error is less than 1.2e-7.  From Numerical Recipes.
+     */
+    public static double erfc( double x ) {
+        double z = Math.abs(x);
+        double t = 1.0/(1.0+0.5*z);
+        double ans = t*Math.exp(-z*z-1.26551223+t*(1.00002368+t*(0.37409196+t*(0.09678418+
+                t*(-0.18628806+t*(0.27886807+t*(-1.13520398+t*(1.48851587+
+                t*(-0.82215223+t*0.17087277)))))))));
+        return x >= 0 ? ans : 2.0-ans;
+    }
+
+    /**
+     * Loads all the results in a directory.  Keyed by library directory and operation, e.g. "ejml/mult"
+     */
+    private Map<String,RuntimeResults> loadDirectory( File directory ) {
+        if( !directory.isDirectory() )
+            throw new IllegalArgumentException("Not a directory: "+directory.getPath());
+
+        Map<String,RuntimeResults> ret = new HashMap<String,RuntimeResults>();
+        for( File level0 : directory.listFiles() ) {
+            if( !level0.isDirectory() || level0.getName().equals("plots") )
+                continue;
+            if( !libraries.isEmpty() && !libraries.contains(level0.getName()) )
+                continue;
+
+            Map<String,File> files = RuntimeResultsCsvIO.findResultsFiles(level0);
+            for( String op : files.keySet() ) {
+                ret.put(level0.getName()+"/"+op,RuntimeResultsCsvIO.load(files.get(op)));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the metrics for the matrix size or null if there are none
+     */
+    private static RuntimeEvaluationMetrics metrics( RuntimeResults r , int size ) {
+        if( r == null )
+            return null;
+        int index = indexOf(r.matDimen,size);
+        return index < 0 ? null : r.metrics[index];
+    }
+
+    /**
+     * Number of trials, including those which failed
+     */
+    private static int numTrials( RuntimeEvaluationMetrics m ) {
+        if( m == null || m.rawResults == null )
+            return 0;
+        return m.rawResults.size();
+    }
+
+    /**
+     * Returns the ops/sec of all trials which finished without an error
+     */
+    private static double[] samples( RuntimeEvaluationMetrics m ) {
+        if( m == null || m.rawResults == null )
+            return new double[0];
+
+        int num = 0;
+        for( RuntimeMeasurement r : m.rawResults ) {
+            if( isValid(r) )
+                num++;
+        }
+        double ret[] = new double[ num ];
+        num = 0;
+        for( RuntimeMeasurement r : m.rawResults ) {
+            if( isValid(r) )
+                ret[num++] = r.opsPerSec;
+        }
+        return ret;
+    }
+
+    private static boolean isValid( RuntimeMeasurement r ) {
+        return r.opsPerSec > 0 && (r.error == null || r.error == OutputError.NO_ERROR);
+    }
+
+    private static double median( double v[] ) {
+        if( v.length == 0 )
+            return Double.NaN;
+        double s[] = v.clone();
+        Arrays.sort(s);
+        return s[s.length/2];
+    }
+
+    private static int indexOf( int array[] , int value ) {
+        for( int i = 0; i < array.length; i++ ) {
+            if( array[i] == value )
+                return i;
+        }
+        return -1;
+    }
+
+    public static void saveCsv( List<Comparison> comparisons , PrintStream out ) {
+        out.println("library,operation,size,status,baseline_trials,candidate_trials,baseline_median,"+
+                "candidate_median,ratio,cliffs_delta,p_value,adjusted_p");
+        for( Comparison c : comparisons ) {
+            out.println(c.library+","+c.operation+","+c.size+","+c.status+","+c.numBaseline+","+c.numCandidate+","+
+                    c.medianBaseline+","+c.medianCandidate+","+c.ratio+","+c.cliffsDelta+","+c.pValue+","+c.adjustedP);
+        }
+    }
+
+    public static void printHelp() {
+        System.out.println("Compares runtime results from a candidate run against a baseline run and reports statistically");
+        System.out.println("significant changes in performance.  Exit code is 1 if a regression is found or if results from the");
+        System.out.println("baseline are missing or failed in the candidate, and 2 on bad input.");
+        System.out.println();
+        System.out.println("--Baseline=<directory>       : Directory containing the baseline results. *Must be specified*");
+        System.out.println("--Candidate=<directory>      : Directory containing the candidate results. *Must be specified*");
+        System.out.println("--Library=<name>             : Only compare this library (name of its directory).  Can be repeated.");
+        System.out.println("--Alpha=<p>                  : Significance level after correcting for multiple tests.  Default 0.01");
+        System.out.println("--Threshold=<fraction>       : Ignore changes in median ops/sec smaller than this.  Default 0.05");
+        System.out.println("--MinSamples=<n>             : Minimum trials for each run.  Default 3");
+        System.out.println("--Output=<file>              : Where the report is saved.  Default is "+REPORT_FILE+" in the candidate directory.");
+        System.out.println();
+        System.out.println("Example:");
+        System.out.println("java -jar build/jar/benchmark_app.jar regression --Baseline=results/ejml_0.23 --Candidate=results/ejml_0.24");
+    }
+
+    public static void main( String args[] ) throws FileNotFoundException {
+        DetectRuntimeRegressions app = new DetectRuntimeRegressions();
+
+        String baseline = null;
+        String candidate = null;
+        String output = null;
+        boolean failed = false;
+
+        for( int i = 0; i < args.length; i++ ) {
+            String splits[] = args[i].split("=");
+
+            String flag = splits[0];
+
+            if( flag.length() < 2 || flag.charAt(0) != '-' || flag.charAt(1) != '-') {
+                failed = true;
+                break;
+            }
+
+            flag = flag.substring(2);
+            if( splits.length != 2 ) {failed = true; break;}
+
+            if( flag.compareTo("Baseline") == 0 ) {
+                baseline = splits[1];
+            } else if( flag.compareTo("Candidate") == 0 ) {
+                candidate = splits[1];
+            } else if( flag.compareTo("Library") == 0 ) {
+                app.libraries.add(splits[1]);
+            } else if( flag.compareTo("Alpha") == 0 ) {
+                app.alpha = Double.parseDouble(splits[1]);
+            } else if( flag.compareTo("Threshold") == 0 ) {
+                app.threshold = Double.parseDouble(splits[1]);
+            } else if( flag.compareTo("MinSamples") == 0 ) {
+                app.minSamples = Integer.parseInt(splits[1]);
+            } else if( flag.compareTo("Output") == 0 ) {
+                output = splits[1];
+            } else {
+                System.out.println("Unknown flag: "+flag);
+                failed = true;
+                break;
+            }
+        }
+
+        if( failed || baseline == null || candidate == null ) {
+            printHelp();
+            System.exit(2);
+        }
+
+        List<Comparison> results;
+        try {
+            results = app.compare(new File(baseline),new File(candidate));
+        } catch( IllegalArgumentException e ) {
+            System.out.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        if( output == null )
+            output = candidate+"/"+REPORT_FILE;
+        PrintStream out = new PrintStream(output);
+        saveCsv(results,out);
+        out.close();
+
+        int numRegression = 0, numImprovement = 0, numInsufficient = 0, numMissing = 0, numFailed = 0;
+        for( Comparison c : results ) {
+            if( c.status == Status.REGRESSION ) {
+                numRegression++;
+                System.out.printf("REGRESSION   %-15s %-20s %6d  ratio %6.3f  delta %6.3f  p %8.2e\n",
+                        c.library,c.operation,c.size,c.ratio,c.cliffsDelta,c.adjustedP);
+            } else if( c.status == Status.IMPROVEMENT ) {
+                numImprovement++;
+                System.out.printf("IMPROVEMENT  %-15s %-20s %6d  ratio %6.3f  delta %6.3f  p %8.2e\n",
+                        c.library,c.operation,c.size,c.ratio,c.cliffsDelta,c.adjustedP);
+            } else if( c.status == Status.MISSING ) {
+                numMissing++;
+                System.out.printf("MISSING      %-15s %-20s %6d\n",c.library,c.operation,c.size);
+            } else if( c.status == Status.FAILED ) {
+                numFailed++;
+                System.out.printf("FAILED       %-15s %-20s %6d\n",c.library,c.operation,c.size);
+            } else if( c.status == Status.INSUFFICIENT ) {
+                numInsufficient++;
+            }
+        }
+        System.out.println();
+        System.out.println("Compared "+results.size()+"  regressions "+numRegression+"  improvements "+numImprovement+
+                "  missing "+numMissing+"  failed "+numFailed+"  insufficient trials "+numInsufficient);
+        System.out.println("Report saved to "+output);
+
+        System.exit( numRegression+numMissing+numFailed > 0 ? 1 : 0 );
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.runtime.evaluation;
+
+import jdk.jfr.consumer.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.*;
+
+
+/**
+ * <p>
+ * Summarizes the Java Flight Recorder files created by slaves when the runtime benchmark is run with the
+ * flight recorder turned on.  The recorded slaves are run in addition to the timed ones so that the overhead
+ * of recording doesn't change the results.  For every matrix size of an operation it lists the hottest methods,
+ * the sites which allocated the most memory, the most contended locks, and the garbage collector pauses.  This gives
+ * some insight into why a library is slower than expected without having to open each recording.
+ * </p>
+ *
+ * <p>
+ * Recordings are stored in the {@link #DIRECTORY} directory inside of a library's results directory and are
+ * named "operation_size_number.jfr".  The summary for an operation is saved next to its results file with
+ * {@link #EXTENSION} appended to the operation's name.  Each line in the summary is tab separated and contains the
+ * matrix size, category, value, and name.  Hot methods are measured in execution samples and are combined across
+ * all the lines in a method, allocations in
+ * bytes, and locks in milliseconds spent blocked.  GC pauses have one line each for the number of collections,
+ * total pause time, and longest pause in milliseconds.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class FlightRecordingSummary {
+
+    public static final String DIRECTORY = "jfr";
+    public static final String EXTENSION = ".jfr.txt";
+
+    public static final String HOT_METHOD = "hot_method";
+    public static final String ALLOCATION = "allocation";
+    public static final String LOCK = "lock";
+    public static final String GC_COUNT = "gc_count";
+    public static final String GC_PAUSE_TOTAL = "gc_pause_total_ms";
+    public static final String GC_PAUSE_MAX = "gc_pause_max_ms";
+
+    // number of entries saved for each category
+    public int maxEntries = 10;
+
+    /**
+     * Statistics from all the recordings of a single matrix size
+     */
+    public static class Summary {
+        public int numRecordings;
+        public Map<String,Double> hotMethods = new HashMap<String,Double>();
+        public Map<String,Double> allocations = new HashMap<String,Double>();
+        public Map<String,Double> locks = new HashMap<String,Double>();
+        public Map<String,Double> gcCount = new HashMap<String,Double>();
+        public Map<String,Double> gcPauseTotal = new HashMap<String,Double>();
+        public Map<String,Double> gcPauseMax = new HashMap<String,Double>();
+    }
+
+    /**
+     * Returns the file that a slave's recording should be saved to.  A number is appended to the name
+     * so that recordings from previous blocks are not overwritten.
+     */
+    public static File createRecordingFile( String directoryLibrary , String operation , int matrixSize ) {
+        File dir = new File(directoryLibrary,DIRECTORY);
+        if( !dir.exists() && !dir.mkdirs() )
+            throw new RuntimeException("Can't create directory "+dir.getPath());
+
+        for( int i = 0;; i++ ) {
+            File f = new File(dir,operation+"_"+matrixSize+"_"+i+".jfr");
+            if( !f.exists() )
+                return f;
+        }
+    }
+
+    /**
+     * Summarizes all the recordings of an operation and saves the results next to its results file.
+     *
+     * @param directoryLibrary Directory containing the library's results
+     * @param operation Name of the operation, i.e. the name of the results file without the extension.
+     * @return true if there were any recordings
+     */
+    public boolean summarizeOperation( String directoryLibrary , String operation ) throws IOException {
+        File dir = new File(directoryLibrary,DIRECTORY);
+        File[] files = dir.listFiles();
+        if( files == null )
+            return false;
+
+        Map<Integer,Summary> summaries = new TreeMap<Integer,Summary>();
+
+        for( File f : files ) {
+            String name = f.getName();
+            if( !name.endsWith(".jfr") )
+                continue;
+            name = name.substring(0,name.length()-4);
+            int indexNumber = name.lastIndexOf('_');
+            if( indexNumber <= 0 )
+                continue;
+            int indexSize = name.lastIndexOf('_',indexNumber-1);
+            if( indexSize <= 0 || !name.substring(0,indexSize).equals(operation) )
+                continue;
+
+            int size;
+            try {
+                size = Integer.parseInt(name.substring(indexSize+1,indexNumber));
+            } catch( NumberFormatException e ) {
+                continue;
+            }
+
+            Summary s = summaries.get(size);
+            if( s == null ) {
+                s = new Summary();
+                summaries.put(size,s);
+            }
+            try {
+                process(f,s);
+            } catch( IOException e ) {
+                // the slave was killed before the recording could be written
+                System.err.println("Skipping bad recording "+f.getPath()+" "+e.getMessage());
+            }
+        }
+
+        if( summaries.isEmpty() )
+            return false;
+
+        save(summaries,new File(directoryLibrary,operation+EXTENSION));
+        return true;
+    }
+
+    /**
+     * Deletes all the recordings of an operation
+     *
+     * @param directoryLibrary Directory containing the library's results
+     * @param operation Name of the operation
+     */
+    public void deleteRecordings( String directoryLibrary , String operation ) {
+        File[] files = new File(directoryLibrary,DIRECTORY).listFiles();
+        if( files == null )
+            return;
+
+        for( File f : files ) {
+            if( operation.equals(operationOf(f.getName())) && !f.delete() )
+                System.err.println("Can't delete "+f.getPath());
+        }
+    }
+
+    /**
+     * Returns the name of the operation a recording is for or null if it isn't a recording
+     */
+    private static String operationOf( String name ) {
+        if( !name.endsWith(".jfr") )
+            return null;
+        int indexNumber = name.lastIndexOf('_');
+        int indexSize = indexNumber > 0 ? name.lastIndexOf('_',indexNumber-1) : -1;
+        return indexSize > 0 ? name.substring(0,indexSize) : null;
+    }
+
+    /**
+     * Adds the events in a recording to the summary
+     */
+    public void process( File recording , Summary summary ) throws IOException {
+        RecordingFile file = new RecordingFile(recording.toPath());
+        try {
+            while( file.hasMoreEvents() ) {
+                RecordedEvent event = file.readEvent();
+                String type = event.getEventType().getName();
+
+                if( type.equals("jdk.ExecutionSample") ) {
+                    add(summary.hotMethods,topMethod(event),1);
+                } else if( type.equals("jdk.ObjectAllocationSample") ) {
+                    add(summary.allocations,allocationSite(event),event.getLong("weight"));
+                } else if( type.equals("jdk.ObjectAllocationInNewTLAB") ) {
+                    add(summary.allocations,allocationSite(event),event.getLong("tlabSize"));
+                } else if( type.equals("jdk.ObjectAllocationOutsideTLAB") ) {
+                    add(summary.allocations,allocationSite(event),event.getLong("allocationSize"));
+                } else if( type.equals("jdk.JavaMonitorEnter") ) {
+                    RecordedClass c = event.getClass("monitorClass");
+                    String name = (c == null ? "?" : c.getName())+" at "+topFrame(event);
+                    add(summary.locks,name,event.getDuration().toNanos()/1e6);
+                } else if( type.equals("jdk.GarbageCollection") ) {
+                    String name = event.getString("name");
+                    double pause = event.getDuration("sumOfPauses").toNanos()/1e6;
+                    double longest = event.getDuration("longestPause").toNanos()/1e6;
+                    add(summary.gcCount,name,1);
+                    add(summary.gcPauseTotal,name,pause);
+                    Double max = summary.gcPauseMax.get(name);
+                    if( max == null || max < longest )
+                        summary.gcPauseMax.put(name,longest);
+                }
+            }
+        } finally {
+            file.close();
+        }
+        summary.numRecordings++;
+    }
+
+    private void save( Map<Integer,Summary> summaries , File output ) throws FileNotFoundException {
+        File tmp = new File(output.getPath()+".tmp");
+        PrintStream out = new PrintStream(tmp);
+
+        out.println("# size\tcategory\tvalue\tname");
+        for( Map.Entry<Integer,Summary> e : summaries.entrySet() ) {
+            int size = e.getKey();
+            Summary s = e.getValue();
+            out.println("# size "+size+" recordings "+s.numRecordings);
+            print(out,size,HOT_METHOD,s.hotMethods,maxEntries);
+            print(out,size,ALLOCATION,s.allocations,maxEntries);
+            print(out,size,LOCK,s.locks,maxEntries);
+            print(out,size,GC_COUNT,s.gcCount,Integer.MAX_VALUE);
+            print(out,size,GC_PAUSE_TOTAL,s.gcPauseTotal,Integer.MAX_VALUE);
+            print(out,size,GC_PAUSE_MAX,s.gcPauseMax,Integer.MAX_VALUE);
+        }
+        out.close();
+
+        if( output.exists() && !output.delete() )
+            throw new RuntimeException("Can't delete "+output.getPath());
+        if( !tmp.renameTo(output) )
+            throw new RuntimeException("Can't rename "+tmp.getPath());
+    }
+
+    private static void print( PrintStream out , int size , String category , Map<String,Double> values , int max ) {
+        List<Map.Entry<String,Double>> sorted = new ArrayList<Map.Entry<String,Double>>(values.entrySet());
+        Collections.sort(sorted,new Comparator<Map.Entry<String,Double>>() {
+            @Override
+            public int compare(Map.Entry<String,Double> a, Map.Entry<String,Double> b) {
+                return Double.compare(b.getValue(),a.getValue());
+            }
+        });
+
+        for( int i = 0; i < sorted.size() && i < max; i++ ) {
+            Map.Entry<String,Double> e = sorted.get(i);
+            double v = e.getValue();
+            String value = v == Math.rint(v) ? Long.toString((long)v) : String.format("%.3f",v);
+            out.println(size+"\t"+category+"\t"+value+"\t"+e.getKey());
+        }
+    }
+
+    private static void add( Map<String,Double> map , String key , double amount ) {
+        Double v = map.get(key);
+        map.put(key, v == null ? amount : v+amount);
+    }
+
+    private static String topMethod( RecordedEvent event ) {
+        RecordedStackTrace trace = event.getStackTrace();
+        if( trace == null || trace.getFrames().isEmpty() )
+            return "?";
+        RecordedMethod m = trace.getFrames().get(0).getMethod();
+        return m.getType().getName()+"."+m.getName();
+    }
+
+    private static String topFrame( RecordedEvent event ) {
+        RecordedStackTrace trace = event.getStackTrace();
+        if( trace == null || trace.getFrames().isEmpty() )
+            return "?";
+        RecordedFrame frame = trace.getFrames().get(0);
+        RecordedMethod m = frame.getMethod();
+        return m.getType().getName()+"."+m.getName()+":"+frame.getLineNumber();
+    }
+
+    private static String allocationSite( RecordedEvent event ) {
+        RecordedClass c = event.getClass("objectClass");
+        return (c == null ? "?" : c.getName())+" at "+topFrame(event);
+    }
+
+    /**
+     * Summarizes all the recordings in a runtime results directory
+     */
+    public static void main( String args[] ) throws IOException {
+        if( args.length != 1 ) {
+            System.out.println("Summarizes the flight recordings of every library in a runtime results directory.");
+            System.out.println("Usage: <results directory>");
+            return;
+        }
+
+        FlightRecordingSummary app = new FlightRecordingSummary();
+
+        File[] libraries = new File(args[0]).listFiles();
+        if( libraries == null )
+            throw new IllegalArgumentException("Not a directory: "+args[0]);
+
+        for( File lib : libraries ) {
+            File[] recordings = new File(lib,DIRECTORY).listFiles();
+            if( recordings == null )
+                continue;
+
+            Set<String> operations = new TreeSet<String>();
+            for( File f : recordings ) {
+                String op = operationOf(f.getName());
+                if( op != null )
+                    operations.add(op);
+            }
+
+            for( String op : operations ) {
+                System.out.println(lib.getName()+" "+op);
+                app.summarizeOperation(lib.getPath(),op);
+            }
+        }
+    }
+}
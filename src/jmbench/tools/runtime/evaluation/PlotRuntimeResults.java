@@ -24,17 +24,27 @@ import jmbench.impl.LibraryLocation;
 import jmbench.tools.runtime.RuntimeEvaluationMetrics;
 import jmbench.tools.runtime.RuntimeResults;
 import jmbench.tools.stability.UtilXmlSerialization;
+import jmbench.tools.store.ResultsStore;
+import jmbench.tools.store.StoreRun;
 
-import java.io.File;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import jmbench.tools.runtime.RuntimeMeasurement;
+
+import javax.swing.SwingUtilities;
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /**
  * Creates plots for all the results in a directory from raw csv files.  Plots are saved
- * int the plots directory.
+ * int the plots directory.  Operations are rendered in parallel and a hash of each operation's input is saved
+ * in the plots directory so that plots whose results haven't changed are skipped the next time.
  *
  * @author Peter Abeles
  */
@@ -56,6 +66,17 @@ public class PlotRuntimeResults {
     // should the summary plot weight the results based on how long an operation takes?
     boolean weightedSummary=true;
 
+    // number of threads used to render plots
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    // if true plots are only rendered if their input has changed
+    boolean incremental = true;
+
+    // if not null results are loaded from the store instead of parsing the results files
+    ResultsStore store;
+
+    // name of the file in the plots directory which stores the hash of each plot's input
+    public static final String HASH_FILE = "plot_hashes.txt";
+
     /**
      * Plots results from XML contained in the specified directory.
      *
@@ -73,11 +94,29 @@ public class PlotRuntimeResults {
         }
     }
 
-    @SuppressWarnings({"unchecked"})
+    /**
+     * Results are loaded from the store.  If the results directory has not been added to the store yet, or has
+     * changed since then, it is ingested first.
+     */
+    public void setStore( ResultsStore store ) {
+        this.store = store;
+    }
+
     public void plot(int whichMetric) {
         String[] files = directory.list();
 
-        Map<String, List> opMap = new HashMap<String,List>();
+        StoreRun run = null;
+        if( store != null ) {
+            try {
+                run = store.ingest(directory);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            if( run == null )
+                throw new RuntimeException("No results found in "+directory.getPath());
+        }
+
+        Map<String,List<RuntimeResults>> opMap = new HashMap<String,List<RuntimeResults>>();
 
         for( String nameLevel0 : files ) {
             File level0 = new File(directory.getPath()+"/"+nameLevel0);
@@ -90,60 +129,220 @@ public class PlotRuntimeResults {
                 if( !checkIncludeLibrary(level0.getAbsolutePath()))
                     continue;
 
-                String []files2 = level0.list();
-
-                for( String name2 : files2 ) {
-                    if( name2.contains(".csv") ) {
-
-                        String stripName = name2.substring(0,name2.length()-4);
-                        name2 = level0.getPath()+"/"+name2;
+                Map<String,RuntimeResults> found;
+                if( run != null ) {
+                    found = store.getRuntimeResults(run,level0.getName());
+                } else {
+                    found = new TreeMap<String,RuntimeResults>();
+                    Map<String,File> files2 = RuntimeResultsCsvIO.findResultsFiles(level0);
+                    for( String stripName : files2.keySet() ) {
+                        RuntimeResults r = RuntimeResultsCsvIO.load(files2.get(stripName));
+                        // the same trials are used as when the results are loaded from the store
+                        r.removeInvalidTrials();
+                        found.put(stripName,r);
+                    }
+                }
 
-                        RuntimeResults r = RuntimeResultsCsvIO.read(new File(name2));
+                for( String stripName : found.keySet() ) {
+                    RuntimeResults r = found.get(stripName);
 
-                        List l;
-                        if( opMap.containsKey(stripName) ) {
-                            l = opMap.get(stripName);
-                        } else {
-                            l = new ArrayList();
-                            opMap.put(stripName,l);
-                        }
-                        l.add(r);
+                    List<RuntimeResults> l;
+                    if( opMap.containsKey(stripName) ) {
+                        l = opMap.get(stripName);
+                    } else {
+                        l = new ArrayList<RuntimeResults>();
+                        opMap.put(stripName,l);
                     }
+                    l.add(r);
                 }
             }
 
         }
 
-        createPlots(minMatrixSize,maxMatrixSize,directory,whichMetric, opMap, weightedSummary);
+        createPlots(minMatrixSize,maxMatrixSize,directory,whichMetric, opMap, weightedSummary,numThreads,incremental);
     }
 
-    public static void createPlots( int minMatrixSize , int maxMatrixSize ,
-                                    File outputDirectory , int whichMetric,
-                                    Map<String, List> opMap , boolean weightedSummary ) {
-        List<RuntimePlotData> allResults = new ArrayList<RuntimePlotData>();
+    /**
+     * Renders plots for each operation and the summary plots.  If results are displayed the windows are opened
+     * on the Swing event dispatch thread once all the plots have been saved.
+     *
+     * @param numThreads Number of threads that operations are rendered on.
+     * @param incremental If true then plots whose input hasn't changed since the last time are not rendered again
+     */
+    public static void createPlots( final int minMatrixSize , final int maxMatrixSize ,
+                                    File outputDirectory , final int whichMetric,
+                                    Map<String,List<RuntimeResults>> opMap , final boolean weightedSummary ,
+                                    int numThreads , boolean incremental ) {
+        final RuntimeResultPlotter.Reference refType = RuntimeResultPlotter.Reference.MAX;
+        final String plotDir = outputDirectory.getPath()+"/plots";
+
+        Map<String,String> oldHashes = incremental ? loadHashes(new File(plotDir,HASH_FILE)) : new HashMap<String,String>();
+        Map<String,String> newHashes = new TreeMap<String,String>();
+
+        List<String> keys = new ArrayList<String>(opMap.keySet());
+        Collections.sort(keys);
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1,numThreads));
+        List<Future<RuntimePlotData>> futures = new ArrayList<Future<RuntimePlotData>>();
+        int numSkipped = 0;
+
+        for( final String key : keys ) {
+            final List<RuntimeResults> l = opMap.get(key);
+
+            String hash = computeHash(key,l,whichMetric,minMatrixSize,maxMatrixSize);
+            newHashes.put(key,hash);
+
+            final String fileNameVar = plotDir+"/variability/"+key;
+            final String fileNameRel = plotDir+"/relative/"+key;
+            final String fileNameAbs = plotDir+"/absolute/"+key;
+
+            final boolean render = !hash.equals(oldHashes.get(key)) || !new File(fileNameVar+".pdf").exists() ||
+                    !new File(fileNameRel+".pdf").exists() || !new File(fileNameAbs+".pdf").exists();
+            if( !render )
+                numSkipped++;
+
+            futures.add(pool.submit(new Callable<RuntimePlotData>() {
+                @Override
+                public RuntimePlotData call() throws Exception {
+                    RuntimePlotData plotData = convertToPlotData(l,whichMetric);
+
+                    truncatePlotData(minMatrixSize,maxMatrixSize,plotData);
+
+                    if( render ) {
+                        RuntimeResultPlotter.variabilityPlots(l, fileNameVar,true,false);
+                        RuntimeResultPlotter.absolutePlots(plotData, fileNameAbs,plotData.plotName,true,false);
+                        RuntimeResultPlotter.relativePlots(plotData, refType,null,fileNameRel,plotData.plotName,
+                                true,false);
+                    }
+                    return plotData;
+                }
+            }));
+        }
 
-        RuntimeResultPlotter.Reference refType = RuntimeResultPlotter.Reference.MAX;
+        // results are collected in the same order as the keys so that the summary doesn't change between runs
+        final List<RuntimePlotData> allResults = new ArrayList<RuntimePlotData>();
+        try {
+            for( Future<RuntimePlotData> f : futures ) {
+                allResults.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        // the summary depends on everything
+        StringBuilder all = new StringBuilder();
+        for( String hash : newHashes.values() )
+            all.append(hash);
+        String summaryHash = hashString(all.toString()+" "+weightedSummary);
+        newHashes.put("summary",summaryHash);
+
+        boolean renderSummary = !summaryHash.equals(oldHashes.get("summary")) ||
+                !new File(plotDir,"summary_bar.pdf").exists();
+        if( renderSummary ) {
+            RuntimeResultPlotter.summaryPlots(allResults,refType,weightedSummary,plotDir,true,false);
+            RuntimeResultPlotter.summaryAreaPlot(allResults,refType,plotDir,true,false);
+        }
 
-        for( String key : opMap.keySet() ) {
-            List<RuntimeResults> l = opMap.get(key);
+        if( displayResults ) {
+            // Swing isn't thread safe so the windows can't be created by the threads rendering the plots
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    for( RuntimePlotData plotData : allResults )
+                        RuntimeResultPlotter.relativePlots(plotData,refType,null,null,plotData.plotName,false,true);
+                    RuntimeResultPlotter.summaryPlots(allResults,refType,weightedSummary,plotDir,false,true);
+                    RuntimeResultPlotter.summaryAreaPlot(allResults,refType,plotDir,false,true);
+                }
+            });
+        }
 
-            RuntimePlotData plotData = convertToPlotData(l,whichMetric);
-            allResults.add( plotData );
+        saveHashes(new File(plotDir,HASH_FILE),newHashes);
 
-            truncatePlotData(minMatrixSize,maxMatrixSize,plotData);
+        if( numSkipped > 0 )
+            System.out.println("Skipped "+numSkipped+" of "+keys.size()+" operations with unchanged results");
+    }
 
-            String fileNameVar = outputDirectory.getPath()+"/plots/variability/"+key;
-            String fileNameRel = outputDirectory.getPath()+"/plots/relative/"+key;
-            String fileNameAbs = outputDirectory.getPath()+"/plots/absolute/"+key;
+    /**
+     * Computes a hash of everything which goes into the plots for an operation
+     */
+    public static String computeHash( String key , List<RuntimeResults> results , int whichMetric ,
+                                      int minMatrixSize , int maxMatrixSize ) {
+        // the order libraries are loaded in depends on the file system, so sort them first
+        List<RuntimeResults> sorted = new ArrayList<RuntimeResults>(results);
+        Collections.sort(sorted,new Comparator<RuntimeResults>() {
+            @Override
+            public int compare(RuntimeResults a, RuntimeResults b) {
+                return a.getLibraryName().compareTo(b.getLibraryName());
+            }
+        });
+
+        StringBuilder text = new StringBuilder();
+        text.append(key).append(' ').append(whichMetric).append(' ').append(minMatrixSize).append(' ').
+                append(maxMatrixSize).append('\n');
+        for( RuntimeResults r : sorted ) {
+            text.append(r.getLibraryName()).append(' ').append(r.getOpName()).append('\n');
+            for( int i = 0; i < r.matDimen.length; i++ ) {
+                text.append(r.matDimen[i]);
+                RuntimeEvaluationMetrics m = r.metrics[i];
+                if( m != null && m.rawResults != null ) {
+                    for( RuntimeMeasurement raw : m.rawResults )
+                        text.append(' ').append(raw.opsPerSec).append(' ').append(raw.error);
+                }
+                text.append('\n');
+            }
+        }
+        return hashString(text.toString());
+    }
 
+    private static String hashString( String text ) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte digest[] = md.digest(text.getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder();
+            for( byte b : digest )
+                hex.append(String.format("%02x",b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            RuntimeResultPlotter.variabilityPlots(l, fileNameVar,true,false);
-            RuntimeResultPlotter.relativePlots(plotData, refType,null,fileNameRel,plotData.plotName,true,displayResults);
-            RuntimeResultPlotter.absolutePlots(plotData, fileNameAbs,plotData.plotName,true,false);
+    private static Map<String,String> loadHashes( File file ) {
+        Map<String,String> ret = new HashMap<String,String>();
+        if( !file.exists() )
+            return ret;
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            String line;
+            while( (line = reader.readLine()) != null ) {
+                String words[] = line.split(" ");
+                if( words.length == 2 )
+                    ret.put(words[0],words[1]);
+            }
+            reader.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
+        return ret;
+    }
 
-        RuntimeResultPlotter.summaryPlots(allResults,refType,weightedSummary,outputDirectory.getPath()+"/plots",true,displayResults);
-        RuntimeResultPlotter.summaryAreaPlot(allResults,refType,outputDirectory.getPath()+"/plots",true,displayResults);
+    private static void saveHashes( File file , Map<String,String> hashes ) {
+        if( !file.getParentFile().exists() && !file.getParentFile().mkdirs() )
+            throw new RuntimeException("Can't create "+file.getParent());
+        try {
+            PrintStream out = new PrintStream(file);
+            for( String key : hashes.keySet() )
+                out.println(key+" "+hashes.get(key));
+            out.close();
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
@@ -263,6 +462,9 @@ public class PlotRuntimeResults {
         System.out.println("--Display=<true|false>         : If true some results will be displayed.");
         System.out.println("--Size=min:max                 : Only plot data from matrix size min to max inclusive.");
         System.out.println("--WeightedSummary=<true|false> : Should the summary chart weight operations more if they take longer?");
+        System.out.println("--Threads=<number>             : Number of threads used to render plots.  Default is the number of CPUs.");
+        System.out.println("--Force=<true|false>           : Render all plots even if their results haven't changed.");
+        System.out.println("--Store=<directory>            : Load results through a results store, see ResultsStore.");
         System.out.println();
         System.out.println("The last argument is the directory that contains the results.  If this is not specified");
         System.out.println("then the most recently modified directory is used.");
@@ -280,6 +482,9 @@ public class PlotRuntimeResults {
         int minSize = 0;
 
         boolean weightedSummary = true;
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        boolean force = false;
+        String storeDir = null;
 
         for( int i = 0; i < args.length; i++ ) {
             String splits[] = args[i].split("=");
@@ -323,10 +528,21 @@ public class PlotRuntimeResults {
                 if( splits.length != 2 ) {failed = true; break;}
                 weightedSummary = Boolean.parseBoolean(splits[1]);
                 System.out.println("WeightedSummary = "+weightedSummary);
+            } else if( flag.compareTo("Threads") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                numThreads = Integer.parseInt(splits[1]);
+                System.out.println("Threads = "+numThreads);
+            } else if( flag.compareTo("Force") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                force = Boolean.parseBoolean(splits[1]);
+                System.out.println("Force = "+force);
             } else if( flag.compareTo("Display") ==0 ) {
                 if( splits.length != 2 ) {failed = true; break;}
                 displayResults = Boolean.parseBoolean(splits[1]);
                 System.out.println("Display = "+displayResults);
+            } else if( flag.compareTo("Store") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                storeDir = splits[1];
             } else {
                 System.out.println("Unknown flag: "+flag);
                 failed = true;
@@ -351,6 +567,10 @@ public class PlotRuntimeResults {
         p.minMatrixSize = minSize;
         p.maxMatrixSize = maxSize;
         p.weightedSummary = weightedSummary;
+        p.numThreads = numThreads;
+        p.incremental = !force;
+        if( storeDir != null )
+            p.setStore(new ResultsStore(new File(storeDir)));
         p.plot(metric);
     }
 }
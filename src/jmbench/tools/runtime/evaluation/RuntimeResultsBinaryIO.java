@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.runtime.evaluation;
+
+import jmbench.tools.OutputError;
+import jmbench.tools.runtime.RuntimeEvaluationMetrics;
+import jmbench.tools.runtime.RuntimeMeasurement;
+import jmbench.tools.runtime.RuntimeResults;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Compact binary format for {@link RuntimeResults}.  Unlike {@link RuntimeResultsCsvIO} it also stores the memory,
+ * garbage collection and allocation statistics of each trial.  The whole file is read into memory at once
+ * instead of being memory mapped, since a mapping can't be released and would keep the file locked on some
+ * platforms while the benchmark replaces it.
+ * </p>
+ *
+ * <p>
+ * After the header the trials for all the matrix sizes are stored as columns, one column for each field in
+ * {@link RuntimeMeasurement}:
+ * <pre>
+ * int magic, int version
+ * string libraryName, string opName, byte complete
+ * int numErrors, string errorNames[numErrors]
+ * int numSizes, int matDimen[numSizes], int numResults[numSizes]   (-1 if there are no results for a size)
+ * double opsPerSec[total], byte error[total], long memoryUsed[total],
+ * long gcCount[total], long gcTimeMillis[total], long allocatedBytes[total],
+ * double frequencyRatio[total], double temperature[total], double loadAverage[total], double steal[total],
+ * byte noisy[total], double externalLoad[total]
+ * </pre>
+ * Strings are an int length followed by UTF-8 bytes.  Errors are stored as an index into errorNames,
+ * with 0 meaning no error, so that reordering {@link OutputError} doesn't break old files.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class RuntimeResultsBinaryIO {
+
+    public static final String EXTENSION = ".bin";
+
+    // "JMBR"
+    private static final int MAGIC = 0x4A4D4252;
+    private static final int VERSION = 1;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public static RuntimeResults read( File file ) {
+        try {
+            byte data[];
+            RandomAccessFile raf = new RandomAccessFile(file,"r");
+            try {
+                data = new byte[ (int)raf.length() ];
+                raf.readFully(data);
+            } finally {
+                raf.close();
+            }
+            return read(ByteBuffer.wrap(data));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static RuntimeResults read( ByteBuffer input ) {
+        if( input.getInt() != MAGIC )
+            throw new IllegalArgumentException("Not a binary runtime results file");
+        int version = input.getInt();
+        if( version != VERSION )
+            throw new IllegalArgumentException("Unsupported version "+version);
+
+        RuntimeResults ret = new RuntimeResults();
+        ret.libraryName = readString(input);
+        ret.opName = readString(input);
+        ret.complete = input.get() != 0;
+
+        OutputError errors[] = new OutputError[ input.getInt()+1 ];
+        for( int i = 1; i < errors.length; i++ ) {
+            errors[i] = OutputError.valueOf(readString(input));
+        }
+
+        int numSizes = input.getInt();
+        ret.matDimen = new int[ numSizes ];
+        ret.metrics = new RuntimeEvaluationMetrics[ numSizes ];
+        int numResults[] = new int[ numSizes ];
+
+        for( int i = 0; i < numSizes; i++ )
+            ret.matDimen[i] = input.getInt();
+        int total = 0;
+        for( int i = 0; i < numSizes; i++ ) {
+            numResults[i] = input.getInt();
+            total += Math.max(0,numResults[i]);
+        }
+
+        // create all the measurements then fill in one column at a time
+        RuntimeMeasurement all[] = new RuntimeMeasurement[ total ];
+        for( int i = 0; i < total; i++ )
+            all[i] = new RuntimeMeasurement();
+
+        for( int i = 0; i < total; i++ )
+            all[i].opsPerSec = input.getDouble();
+        for( int i = 0; i < total; i++ )
+            all[i].error = errors[input.get() & 0xFF];
+        for( int i = 0; i < total; i++ )
+            all[i].memoryUsed = input.getLong();
+        for( int i = 0; i < total; i++ )
+            all[i].gcCount = input.getLong();
+        for( int i = 0; i < total; i++ )
+            all[i].gcTimeMillis = input.getLong();
+        for( int i = 0; i < total; i++ )
+            all[i].allocatedBytes = input.getLong();
+        for( int i = 0; i < total; i++ )
+            all[i].frequencyRatio = input.getDouble();
+        for( int i = 0; i < total; i++ )
+            all[i].temperature = input.getDouble();
+        for( int i = 0; i < total; i++ )
+            all[i].loadAverage = input.getDouble();
+        for( int i = 0; i < total; i++ )
+            all[i].steal = input.getDouble();
+        for( int i = 0; i < total; i++ )
+            all[i].noisy = input.get() != 0;
+        for( int i = 0; i < total; i++ )
+            all[i].externalLoad = input.getDouble();
+
+        int index = 0;
+        for( int i = 0; i < numSizes; i++ ) {
+            // same as the CSV format, sizes without any trials have no metrics
+            if( numResults[i] <= 0 )
+                continue;
+
+            RuntimeEvaluationMetrics e = ret.metrics[i] = new RuntimeEvaluationMetrics();
+            e.rawResults = new ArrayList<RuntimeMeasurement>(numResults[i]);
+            for( int j = 0; j < numResults[i]; j++ )
+                e.rawResults.add(all[index++]);
+            e.computeStatistics();
+        }
+
+        return ret;
+    }
+
+    /**
+     * Saves the results.  They are first written to a temporary file which is then renamed so that a partially
+     * written file is never left behind if the benchmark is killed.
+     */
+    public static void write( RuntimeResults results , String fileName ) {
+        File file = new File(fileName);
+        File tmp = new File(fileName+".tmp");
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            write(results,output);
+            output.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if( file.exists() && !file.delete() )
+            throw new RuntimeException("Can't delete old results "+file.getPath());
+        if( !tmp.renameTo(file) )
+            throw new RuntimeException("Can't rename "+tmp.getPath());
+    }
+
+    public static void write( RuntimeResults results , DataOutputStream output ) throws IOException {
+        OutputError errors[] = OutputError.values();
+
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        writeString(output,results.getLibraryName());
+        writeString(output,results.getOpName());
+        output.writeByte(results.isComplete() ? 1 : 0);
+
+        output.writeInt(errors.length);
+        for( OutputError e : errors )
+            writeString(output,e.name());
+
+        int matDimen[] = results.matDimen;
+        output.writeInt(matDimen.length);
+        for( int i = 0; i < matDimen.length; i++ )
+            output.writeInt(matDimen[i]);
+
+        List<RuntimeMeasurement> all = new ArrayList<RuntimeMeasurement>();
+        for( int i = 0; i < matDimen.length; i++ ) {
+            RuntimeEvaluationMetrics m = results.metrics[i];
+            if( m == null || m.rawResults == null ) {
+                output.writeInt(-1);
+            } else {
+                output.writeInt(m.rawResults.size());
+                all.addAll(m.rawResults);
+            }
+        }
+
+        for( RuntimeMeasurement m : all )
+            output.writeDouble(m.opsPerSec);
+        for( RuntimeMeasurement m : all )
+            output.writeByte(m.error == null ? 0 : m.error.ordinal()+1);
+        for( RuntimeMeasurement m : all )
+            output.writeLong(m.memoryUsed);
+        for( RuntimeMeasurement m : all )
+            output.writeLong(m.gcCount);
+        for( RuntimeMeasurement m : all )
+            output.writeLong(m.gcTimeMillis);
+        for( RuntimeMeasurement m : all )
+            output.writeLong(m.allocatedBytes);
+        for( RuntimeMeasurement m : all )
+            output.writeDouble(m.frequencyRatio);
+        for( RuntimeMeasurement m : all )
+            output.writeDouble(m.temperature);
+        for( RuntimeMeasurement m : all )
+            output.writeDouble(m.loadAverage);
+        for( RuntimeMeasurement m : all )
+            output.writeDouble(m.steal);
+        for( RuntimeMeasurement m : all )
+            output.writeByte(m.noisy ? 1 : 0);
+        for( RuntimeMeasurement m : all )
+            output.writeDouble(m.externalLoad);
+    }
+
+    private static String readString( ByteBuffer input ) {
+        byte data[] = new byte[ input.getInt() ];
+        input.get(data);
+        return new String(data,UTF8);
+    }
+
+    private static void writeString( DataOutputStream output , String text ) throws IOException {
+        byte data[] = text.getBytes(UTF8);
+        output.writeInt(data.length);
+        output.write(data);
+    }
+}
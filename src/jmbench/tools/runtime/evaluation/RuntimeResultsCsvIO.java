@@ -27,19 +27,65 @@ import jmbench.tools.runtime.RuntimeResults;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Converts {@link RuntimeResults} to and from a very simple CSV format.  Replaces the old XML format that kept on
- * getting screwed up each time refactoring was done.
+ * getting screwed up each time refactoring was done.  See {@link RuntimeResultsBinaryIO} for a more compact format
+ * which also stores the garbage collection and allocation statistics of each trial.
  *
  * @author Peter Abeles
  */
 public class RuntimeResultsCsvIO {
 
+    public static final String EXTENSION = ".csv";
+
+    /**
+     * Loads results from either the CSV or the binary format, selected using the file's extension.
+     */
+    public static RuntimeResults load( File file ) {
+        if( file.getName().endsWith(RuntimeResultsBinaryIO.EXTENSION) )
+            return RuntimeResultsBinaryIO.read(file);
+        else
+            return read(file);
+    }
+
+    /**
+     * Returns true if the file name is a results file which can be read by {@link #load(java.io.File)}
+     */
+    public static boolean isResultsFile( String fileName ) {
+        return fileName.endsWith(EXTENSION) || fileName.endsWith(RuntimeResultsBinaryIO.EXTENSION);
+    }
+
+    /**
+     * Finds the results file of each operation in a directory.  If an operation was saved in both formats the
+     * binary file is used, the same as when a benchmark is resumed.
+     *
+     * @return Results files sorted by operation name.  Empty if the directory can't be read.
+     */
+    public static Map<String,File> findResultsFiles( File directory ) {
+        Map<String,File> ret = new TreeMap<String,File>();
+        File files[] = directory.listFiles();
+        if( files == null )
+            return ret;
+
+        for( File f : files ) {
+            String name = f.getName();
+            if( !isResultsFile(name) )
+                continue;
+            String opName = name.substring(0,name.length()-EXTENSION.length());
+            if( ret.containsKey(opName) && !name.endsWith(RuntimeResultsBinaryIO.EXTENSION) )
+                continue;
+            ret.put(opName,f);
+        }
+        return ret;
+    }
+
     public static RuntimeResults read( File file ){
 
         try {
-            FileInputStream stream = new FileInputStream(file);
+            InputStream stream = new FileInputStream(file);
             RuntimeResults ret = read( stream );
             stream.close();
             return ret;
@@ -50,29 +96,29 @@ public class RuntimeResultsCsvIO {
         }
     }
 
-    public static RuntimeResults read( InputStream input ){
+    public static RuntimeResults read( InputStream stream ){
         try{
+            Tokenizer input = new Tokenizer(stream);
+
             RuntimeResults ret = new RuntimeResults();
-            ret.libraryName = readString(input);
-            ret.opName = readString(input);
-            ret.complete = readBoolean(input);
-            ret.matDimen = new int[ readInt(input) ];
+            ret.libraryName = input.readString();
+            ret.opName = input.readString();
+            ret.complete = input.readBoolean();
+            ret.matDimen = new int[ input.readInt() ];
             ret.metrics = new RuntimeEvaluationMetrics[ret.matDimen.length];
 
             for( int i = 0; i < ret.matDimen.length; i++ ) {
-                ret.matDimen[i] = readInt(input);
+                ret.matDimen[i] = input.readInt();
 
 
-                int numResults = readInt(input);
+                int numResults = input.readInt();
                 if( numResults > 0 ) {
                     RuntimeEvaluationMetrics e = ret.metrics[i] = new RuntimeEvaluationMetrics();
-                    e.rawResults = new ArrayList<RuntimeMeasurement>();
+                    e.rawResults = new ArrayList<RuntimeMeasurement>(numResults);
 
                     for( int j = 0; j < numResults; j++ ) {
-                        double opsPerSec = readDouble(input);
-                        String faultName = readString(input);
-
-                        OutputError error = faultName.compareTo("null") == 0 ? null : OutputError.valueOf(faultName);
+                        double opsPerSec = input.readDouble();
+                        OutputError error = input.readError();
 
                         e.rawResults.add(new RuntimeMeasurement(opsPerSec,0,error));
                     }
@@ -87,67 +133,155 @@ public class RuntimeResultsCsvIO {
         }
     }
 
+    /**
+     * Reads tokens from a buffered stream.  Numbers are parsed from a reusable character buffer so that
+     * very few objects are created for each measurement.
+     */
+    private static class Tokenizer {
+        InputStream input;
 
-    private static String readString( InputStream input ) throws IOException {
-        char c = readEmptySapce(input);
+        byte buffer[] = new byte[ 1 << 16 ];
+        int length;
+        int index;
 
-        checkChar('\"',c);
+        char token[] = new char[ 64 ];
+        int tokenLength;
 
-        String ret = "";
-        while( true ) {
-            c = (char)input.read();
-            if( c == '\"')
-                break;
+        OutputError errors[] = OutputError.values();
 
-            ret += c;
+        private Tokenizer( InputStream input ) {
+            this.input = input;
         }
 
-        return ret;
-    }
+        private int read() throws IOException {
+            if( index >= length ) {
+                length = input.read(buffer, 0, buffer.length);
+                index = 0;
+                if( length <= 0 )
+                    throw new EOFException("Unexpected end of results file");
+            }
+            return buffer[index++] & 0xFF;
+        }
 
-    private static String readToken( InputStream input ) throws IOException {
-        char c = readEmptySapce(input);
+        private int readEmptySpace() throws IOException {
+            int c = read();
+            while( isEmpty(c) )
+                c = read();
+            return c;
+        }
 
-        String ret = c+"";
-        while( true ) {
-            c = (char)input.read();
-            if( isEmpty(c) )
-                break;
+        private void append( int c ) {
+            if( tokenLength == token.length ) {
+                char tmp[] = new char[ token.length*2 ];
+                System.arraycopy(token,0,tmp,0,tokenLength);
+                token = tmp;
+            }
+            token[tokenLength++] = (char)c;
+        }
 
-            ret += c;
+        /**
+         * Reads the next string inside of quotes into the token buffer
+         */
+        private void readQuoted() throws IOException {
+            checkChar('\"',(char)readEmptySpace());
+
+            tokenLength = 0;
+            while( true ) {
+                int c = read();
+                if( c == '\"')
+                    break;
+                append(c);
+            }
         }
 
-        return ret;
-    }
+        /**
+         * Reads the next white space delimited token into the token buffer
+         */
+        private void readToken() throws IOException {
+            tokenLength = 0;
+            int c = readEmptySpace();
+            do {
+                append(c);
+                // the last token in a file might not be followed by white space
+                if( index >= length && !fill() )
+                    break;
+                c = read();
+            } while( !isEmpty(c) );
+        }
 
-    private static int readInt( InputStream input ) throws IOException {
-        String s = readToken(input);
+        private boolean fill() throws IOException {
+            length = input.read(buffer, 0, buffer.length);
+            index = 0;
+            if( length <= 0 ) {
+                length = 0;
+                return false;
+            }
+            return true;
+        }
 
-        return Integer.parseInt(s);
-    }
+        private String readString() throws IOException {
+            readQuoted();
+            return new String(token,0,tokenLength);
+        }
 
-    private static boolean readBoolean( InputStream input ) throws IOException {
-        String s = readToken(input);
+        /**
+         * Reads an {@link OutputError} without creating a string for it
+         */
+        private OutputError readError() throws IOException {
+            readQuoted();
+            if( matches("null") )
+                return null;
+            for( OutputError e : errors ) {
+                if( matches(e.name()) )
+                    return e;
+            }
+            throw new IllegalArgumentException("Unknown error "+new String(token,0,tokenLength));
+        }
 
-        return Boolean.parseBoolean(s);
-    }
+        private boolean matches( String text ) {
+            if( text.length() != tokenLength )
+                return false;
+            for( int i = 0; i < tokenLength; i++ ) {
+                if( text.charAt(i) != token[i] )
+                    return false;
+            }
+            return true;
+        }
 
-    private static double readDouble( InputStream input ) throws IOException {
-        String s = readToken(input);
+        private int readInt() throws IOException {
+            readToken();
 
-        return Double.parseDouble(s);
-    }
+            int i = 0;
+            boolean negative = false;
+            if( token[0] == '-' ) {
+                negative = true;
+                i++;
+            }
+            if( i >= tokenLength )
+                throw new NumberFormatException("Bad integer");
+            int value = 0;
+            for( ; i < tokenLength; i++ ) {
+                int digit = token[i] - '0';
+                if( digit < 0 || digit > 9 )
+                    throw new NumberFormatException("Bad integer "+new String(token,0,tokenLength));
+                value = value*10 + digit;
+            }
+            return negative ? -value : value;
+        }
 
-    private static char readEmptySapce( InputStream input ) throws IOException {
-        char c = (char)input.read();
+        private boolean readBoolean() throws IOException {
+            readToken();
+            return matches("true");
+        }
 
-        while( isEmpty(c) )
-            c = (char)input.read();
-        return c;
+        private double readDouble() throws IOException {
+            readToken();
+            return Double.parseDouble(new String(token,0,tokenLength));
+        }
     }
 
-    private static boolean isEmpty( char c ) {
-        return c == ' ' || c == '\t' || c == '\n';
+    private static boolean isEmpty( int c ) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
     }
 
     private static void checkChar( char expected , char found ) {
@@ -157,7 +291,7 @@ public class RuntimeResultsCsvIO {
 
     public static void write( RuntimeResults results , String fileName) {
         try {
-            PrintStream output = new PrintStream(fileName);
+            PrintStream output = new PrintStream(new BufferedOutputStream(new FileOutputStream(fileName)));
             write(results,output);
             output.close();
         } catch (FileNotFoundException e) {
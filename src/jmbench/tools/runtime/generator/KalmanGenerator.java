@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.generator;
+
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.MatrixFactory;
+import jmbench.tools.OutputError;
+import jmbench.tools.runtime.InputOutputGenerator;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+
+import java.util.Random;
+
+import static jmbench.misc.RandomizeMatrices.*;
+
+
+/**
+ * Inputs for {@link jmbench.tools.runtime.workload.KalmanWorkload}.  The state has 'size' elements and the
+ * measurement half as many.
+ *
+ * @author Peter Abeles
+ */
+public class KalmanGenerator implements InputOutputGenerator {
+
+    DenseMatrix64F expectedX;
+    DenseMatrix64F expectedP;
+
+    @Override
+    public BenchmarkMatrix[] createInputs( MatrixFactory factory , Random rand ,
+                                           boolean checkResults , int size ) {
+        int N = size;
+        int M = Math.max(1,size/2);
+
+        BenchmarkMatrix[] inputs = new  BenchmarkMatrix[8];
+
+        inputs[0] = factory.create(N,1); // x
+        inputs[1] = factory.create(N,N); // P
+        inputs[2] = factory.create(N,N); // F
+        inputs[3] = factory.create(N,N); // Q
+        inputs[4] = factory.create(M,N); // H
+        inputs[5] = factory.create(M,N); // -H
+        inputs[6] = factory.create(M,M); // R
+        inputs[7] = factory.create(M,1); // z
+
+        randomize(inputs[0],-1,1,rand);
+        symmPosDef(inputs[1],rand);
+        randomize(inputs[2],-1,1,rand);
+        symmPosDef(inputs[3],rand);
+        randomize(inputs[4],-1,1,rand);
+        symmPosDef(inputs[6],rand);
+        randomize(inputs[7],-1,1,rand);
+
+        DenseMatrix64F H = convertToEjml(inputs[4]);
+        DenseMatrix64F negH = H.copy();
+        CommonOps.scale(-1,negH);
+        convertToBm(negH,inputs[5]);
+
+        if( checkResults ) {
+            DenseMatrix64F x = convertToEjml(inputs[0]);
+            DenseMatrix64F P = convertToEjml(inputs[1]);
+            DenseMatrix64F F = convertToEjml(inputs[2]);
+            DenseMatrix64F Q = convertToEjml(inputs[3]);
+            DenseMatrix64F R = convertToEjml(inputs[6]);
+            DenseMatrix64F z = convertToEjml(inputs[7]);
+
+            // predict
+            DenseMatrix64F xp = new DenseMatrix64F(N,1);
+            CommonOps.mult(F,x,xp);
+            DenseMatrix64F FP = new DenseMatrix64F(N,N);
+            CommonOps.mult(F,P,FP);
+            DenseMatrix64F Pp = new DenseMatrix64F(N,N);
+            CommonOps.multTransB(FP,F,Pp);
+            CommonOps.addEquals(Pp,Q);
+
+            // update
+            DenseMatrix64F y = z.copy();
+            CommonOps.multAdd(-1,H,xp,y);
+            DenseMatrix64F PHt = new DenseMatrix64F(N,M);
+            CommonOps.multTransB(Pp,H,PHt);
+            DenseMatrix64F S = R.copy();
+            CommonOps.multAdd(H,PHt,S);
+            DenseMatrix64F S_inv = new DenseMatrix64F(M,M);
+            CommonOps.invert(S,S_inv);
+            DenseMatrix64F K = new DenseMatrix64F(N,M);
+            CommonOps.mult(PHt,S_inv,K);
+
+            expectedX = xp.copy();
+            CommonOps.multAdd(K,y,expectedX);
+            DenseMatrix64F HP = new DenseMatrix64F(M,N);
+            CommonOps.mult(H,Pp,HP);
+            expectedP = Pp.copy();
+            CommonOps.multAdd(-1,K,HP,expectedP);
+        }
+
+        return inputs;
+    }
+
+    @Override
+    public OutputError checkResults(BenchmarkMatrix[] output, double tol) {
+        if( output[0] == null || output[1] == null ) {
+            return OutputError.MISC;
+        }
+
+        OutputError error = ResultsChecking.checkResult(convertToEjml(output[0]),expectedX,tol);
+        if( error != OutputError.NO_ERROR )
+            return error;
+
+        return ResultsChecking.checkResult(convertToEjml(output[1]),expectedP,tol);
+    }
+
+    @Override
+    public int numOutputs() {
+        return 2;
+    }
+
+    @Override
+    public long getRequiredMemory( int matrixSize ) {
+        return 8L*matrixSize*matrixSize*16L;
+    }
+}
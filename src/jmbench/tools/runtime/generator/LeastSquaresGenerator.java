@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.generator;
+
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.MatrixFactory;
+import jmbench.tools.OutputError;
+import jmbench.tools.runtime.InputOutputGenerator;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.ejml.ops.RandomMatrices;
+
+import java.util.Random;
+
+import static jmbench.misc.RandomizeMatrices.*;
+
+
+/**
+ * Inputs for {@link jmbench.tools.runtime.workload.LeastSquaresWorkload}.  Observations are generated from a
+ * known model plus noise, so the fit has a non-zero residual.
+ *
+ * @author Peter Abeles
+ */
+public class LeastSquaresGenerator implements InputOutputGenerator {
+
+    DenseMatrix64F expectedX;
+    DenseMatrix64F expectedR;
+
+    @Override
+    public BenchmarkMatrix[] createInputs( MatrixFactory factory , Random rand ,
+                                           boolean checkResults , int size ) {
+        BenchmarkMatrix[] inputs = new  BenchmarkMatrix[3];
+
+        inputs[0] = factory.create(3*size,size);  // A
+        inputs[1] = factory.create(3*size,1);     // b
+        inputs[2] = factory.create(3*size,1);     // -b
+
+        randomize(inputs[0],-1,1,rand);
+
+        DenseMatrix64F A = convertToEjml(inputs[0]);
+        DenseMatrix64F X = RandomMatrices.createRandom(size,1,-1,1,rand);
+        DenseMatrix64F B = RandomMatrices.createRandom(3*size,1,-0.1,0.1,rand);
+
+        CommonOps.multAdd(A,X,B);
+        convertToBm(B,inputs[1]);
+
+        DenseMatrix64F negB = B.copy();
+        CommonOps.scale(-1,negB);
+        convertToBm(negB,inputs[2]);
+
+        if( checkResults ) {
+            expectedX = new DenseMatrix64F(size,1);
+            CommonOps.solve(A,B,expectedX);
+            expectedR = new DenseMatrix64F(3*size,1);
+            CommonOps.mult(A,expectedX,expectedR);
+            CommonOps.addEquals(expectedR,negB);
+        }
+
+        return inputs;
+    }
+
+    @Override
+    public OutputError checkResults(BenchmarkMatrix[] output, double tol) {
+        if( output[0] == null || output[1] == null ) {
+            return OutputError.MISC;
+        }
+
+        OutputError error = ResultsChecking.checkResult(convertToEjml(output[0]),expectedX,tol);
+        if( error != OutputError.NO_ERROR )
+            return error;
+
+        return ResultsChecking.checkResult(convertToEjml(output[1]),expectedR,tol);
+    }
+
+    @Override
+    public int numOutputs() {
+        return 2;
+    }
+
+    @Override
+    public long getRequiredMemory( int matrixSize ) {
+        return 8L*matrixSize*matrixSize*12L;
+    }
+}
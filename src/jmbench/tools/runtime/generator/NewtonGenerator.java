@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.generator;
+
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.MatrixFactory;
+import jmbench.tools.OutputError;
+import jmbench.tools.runtime.InputOutputGenerator;
+import jmbench.tools.runtime.workload.NewtonWorkload;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+
+import java.util.Random;
+
+import static jmbench.misc.RandomizeMatrices.*;
+
+
+/**
+ * Inputs for {@link NewtonWorkload}.  A is made diagonally dominant so that every Jacobian can be solved.
+ *
+ * @author Peter Abeles
+ */
+public class NewtonGenerator implements InputOutputGenerator {
+
+    DenseMatrix64F expectedX;
+
+    @Override
+    public BenchmarkMatrix[] createInputs( MatrixFactory factory , Random rand ,
+                                           boolean checkResults , int size ) {
+        BenchmarkMatrix[] inputs = new  BenchmarkMatrix[5];
+
+        inputs[0] = factory.create(size,size); // A
+        inputs[1] = factory.create(size,size); // -A
+        inputs[2] = factory.create(size,1);    // b
+        inputs[3] = factory.create(size,1);    // x0
+        inputs[4] = factory.create(size,1);    // d0
+
+        randomize(inputs[0],-1,1,rand);
+        for( int i = 0; i < size; i++ ) {
+            inputs[0].set(i,i,inputs[0].get(i,i)+size);
+        }
+        randomize(inputs[2],-1,1,rand);
+        randomize(inputs[3],-1,1,rand);
+        randomize(inputs[4],-0.1,0.1,rand);
+
+        DenseMatrix64F A = convertToEjml(inputs[0]);
+        DenseMatrix64F negA = A.copy();
+        CommonOps.scale(-1,negA);
+        convertToBm(negA,inputs[1]);
+
+        if( checkResults ) {
+            DenseMatrix64F b = convertToEjml(inputs[2]);
+            DenseMatrix64F x = convertToEjml(inputs[3]);
+            DenseMatrix64F d = convertToEjml(inputs[4]);
+
+            DenseMatrix64F r = new DenseMatrix64F(size,1);
+            DenseMatrix64F J = new DenseMatrix64F(size,size);
+
+            for( int i = 0; i < NewtonWorkload.ITERATIONS; i++ ) {
+                r.set(b);
+                CommonOps.multAdd(negA,x,r);
+                J.set(A);
+                CommonOps.multAddTransB(d,d,J);
+                CommonOps.solve(J,r,d);
+                CommonOps.addEquals(x,d);
+            }
+
+            expectedX = x;
+        }
+
+        return inputs;
+    }
+
+    @Override
+    public OutputError checkResults(BenchmarkMatrix[] output, double tol) {
+        if( output[0] == null ) {
+            return OutputError.MISC;
+        }
+
+        return ResultsChecking.checkResult(convertToEjml(output[0]),expectedX,tol);
+    }
+
+    @Override
+    public int numOutputs() {
+        return 1;
+    }
+
+    @Override
+    public long getRequiredMemory( int matrixSize ) {
+        return 8L*matrixSize*matrixSize*8L;
+    }
+}
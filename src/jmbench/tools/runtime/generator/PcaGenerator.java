@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.generator;
+
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.MatrixFactory;
+import jmbench.tools.OutputError;
+import jmbench.tools.runtime.InputOutputGenerator;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+
+import java.util.Random;
+
+import static jmbench.misc.RandomizeMatrices.*;
+
+
+/**
+ * Inputs for {@link jmbench.tools.runtime.workload.PcaWorkload}.  There are twice as many samples as there are
+ * features.  Since the sign of each principal component is arbitrary the output is checked by making sure
+ * that Y'*Y is equal to the singular values.
+ *
+ * @author Peter Abeles
+ */
+public class PcaGenerator implements InputOutputGenerator {
+
+    @Override
+    public BenchmarkMatrix[] createInputs( MatrixFactory factory , Random rand ,
+                                           boolean checkResults , int size ) {
+        int numSamples = 2*size;
+
+        BenchmarkMatrix[] inputs = new  BenchmarkMatrix[2];
+
+        inputs[0] = factory.create(numSamples,size); // X
+        inputs[1] = factory.create(numSamples,size); // -mean
+
+        randomize(inputs[0],-1,1,rand);
+
+        DenseMatrix64F X = convertToEjml(inputs[0]);
+        DenseMatrix64F negMean = new DenseMatrix64F(numSamples,size);
+        for( int col = 0; col < size; col++ ) {
+            double mean = 0;
+            for( int row = 0; row < numSamples; row++ ) {
+                mean += X.get(row,col);
+            }
+            mean /= numSamples;
+            for( int row = 0; row < numSamples; row++ ) {
+                negMean.set(row,col,-mean);
+            }
+        }
+        convertToBm(negMean,inputs[1]);
+
+        return inputs;
+    }
+
+    @Override
+    public OutputError checkResults(BenchmarkMatrix[] output, double tol) {
+        if( output[0] == null || output[1] == null ) {
+            return OutputError.MISC;
+        }
+
+        DenseMatrix64F Y = convertToEjml(output[0]);
+        DenseMatrix64F W = convertToEjml(output[1]);
+
+        DenseMatrix64F YtY = new DenseMatrix64F(Y.numCols,Y.numCols);
+        CommonOps.multTransA(Y,Y,YtY);
+
+        return ResultsChecking.checkResult(YtY,W,tol);
+    }
+
+    @Override
+    public int numOutputs() {
+        return 2;
+    }
+
+    @Override
+    public long getRequiredMemory( int matrixSize ) {
+        return 8L*matrixSize*matrixSize*20L;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.workload;
+
+import jmbench.interfaces.MatrixProcessorInterface;
+import jmbench.interfaces.RuntimePerformanceFactory;
+
+
+/**
+ * Creates workloads from their name.  The name is what {@link jmbench.tools.runtime.RuntimeEvaluationCase}
+ * uses as the algorithm's name.
+ *
+ * @author Peter Abeles
+ */
+public class FactoryWorkload {
+
+    public static final String KALMAN = "kalman";
+    public static final String LEAST_SQUARES = "leastSquares";
+    public static final String PCA = "pca";
+    public static final String NEWTON = "newton";
+
+    public static boolean isWorkload( String name ) {
+        return name.equals(KALMAN) || name.equals(LEAST_SQUARES) || name.equals(PCA) || name.equals(NEWTON);
+    }
+
+    /**
+     * Creates the specified workload for the library.
+     *
+     * @return The workload or null if the library doesn't support it.
+     */
+    public static MatrixProcessorInterface create( String name , RuntimePerformanceFactory factory ) {
+        WorkloadProcessor ret;
+
+        if( name.equals(KALMAN) )
+            ret = new KalmanWorkload(factory);
+        else if( name.equals(LEAST_SQUARES) )
+            ret = new LeastSquaresWorkload(factory);
+        else if( name.equals(PCA) )
+            ret = new PcaWorkload(factory);
+        else if( name.equals(NEWTON) )
+            ret = new NewtonWorkload(factory);
+        else
+            throw new IllegalArgumentException("Unknown workload "+name);
+
+        return ret.isSupported() ? ret : null;
+    }
+}
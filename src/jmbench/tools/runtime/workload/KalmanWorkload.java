@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.workload;
+
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.MatrixProcessorInterface;
+import jmbench.interfaces.RuntimePerformanceFactory;
+
+
+/**
+ * <p>
+ * One predict and update cycle of a linear Kalman filter.
+ * </p>
+ *
+ * <pre>
+ * predict: x = F*x , P = F*P*F' + Q
+ * update:  y = z - H*x , S = H*P*H' + R , K = P*H'*inv(S)
+ *          x = x + K*y , P = P - K*H*P
+ * </pre>
+ *
+ * <p>
+ * Inputs: x, P, F, Q, H, -H, R, z.  Outputs: x, P.  Subtraction is done by adding -H since there is
+ * no subtract operation.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class KalmanWorkload extends WorkloadProcessor {
+
+    MatrixProcessorInterface mult;
+    MatrixProcessorInterface multTransB;
+    MatrixProcessorInterface add;
+    MatrixProcessorInterface invert;
+
+    public KalmanWorkload( RuntimePerformanceFactory factory ) {
+        super(factory);
+        mult = factory.mult();
+        multTransB = factory.multTransB();
+        add = factory.add();
+        invert = factory.invert();
+    }
+
+    @Override
+    public BenchmarkMatrix[] compute( BenchmarkMatrix[] inputs ) {
+        BenchmarkMatrix x = inputs[0];
+        BenchmarkMatrix P = inputs[1];
+        BenchmarkMatrix F = inputs[2];
+        BenchmarkMatrix Q = inputs[3];
+        BenchmarkMatrix H = inputs[4];
+        BenchmarkMatrix negH = inputs[5];
+        BenchmarkMatrix R = inputs[6];
+        BenchmarkMatrix z = inputs[7];
+
+        // predict
+        x = call(mult,F,x);
+        P = call(add,call(multTransB,call(mult,F,P),F),Q);
+
+        // update
+        BenchmarkMatrix y = call(add,z,call(mult,negH,x));
+        BenchmarkMatrix S = call(add,call(multTransB,call(mult,H,P),H),R);
+        BenchmarkMatrix K = call(mult,call(multTransB,P,H),call(invert,S));
+
+        x = call(add,x,call(mult,K,y));
+        P = call(add,P,call(mult,K,call(mult,negH,P)));
+
+        return new BenchmarkMatrix[]{x,P};
+    }
+
+    @Override
+    public boolean isSupported() {
+        return mult != null && multTransB != null && add != null && invert != null;
+    }
+}
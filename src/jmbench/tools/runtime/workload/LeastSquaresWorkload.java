@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.workload;
+
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.MatrixProcessorInterface;
+import jmbench.interfaces.RuntimePerformanceFactory;
+
+
+/**
+ * <p>
+ * Fits a linear model to noisy observations and computes the residual of the fit.
+ * </p>
+ *
+ * <pre>
+ * x = arg min ||A*x - b|| , r = A*x - b
+ * </pre>
+ *
+ * <p>
+ * Inputs: A, b, -b.  Outputs: x, r.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class LeastSquaresWorkload extends WorkloadProcessor {
+
+    MatrixProcessorInterface solveOver;
+    MatrixProcessorInterface mult;
+    MatrixProcessorInterface add;
+
+    public LeastSquaresWorkload( RuntimePerformanceFactory factory ) {
+        super(factory);
+        solveOver = factory.solveOver();
+        mult = factory.mult();
+        add = factory.add();
+    }
+
+    @Override
+    public BenchmarkMatrix[] compute( BenchmarkMatrix[] inputs ) {
+        BenchmarkMatrix A = inputs[0];
+        BenchmarkMatrix b = inputs[1];
+        BenchmarkMatrix negB = inputs[2];
+
+        BenchmarkMatrix x = call(solveOver,A,b);
+        BenchmarkMatrix r = call(add,call(mult,A,x),negB);
+
+        return new BenchmarkMatrix[]{x,r};
+    }
+
+    @Override
+    public boolean isSupported() {
+        return solveOver != null && mult != null && add != null;
+    }
+}
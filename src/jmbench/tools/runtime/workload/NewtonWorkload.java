@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.workload;
+
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.MatrixProcessorInterface;
+import jmbench.interfaces.RuntimePerformanceFactory;
+
+
+/**
+ * <p>
+ * A Newton style iteration where the Jacobian changes every iteration, forcing a new linear system to be
+ * solved each time.  The Jacobian is A plus a rank one update from the previous step.
+ * </p>
+ *
+ * <pre>
+ * for k = 1:ITERATIONS
+ *     r = b - A*x , J = A + d*d' , d = solve(J,r) , x = x + d
+ * </pre>
+ *
+ * <p>
+ * Inputs: A, -A, b, x0, d0.  Outputs: x.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class NewtonWorkload extends WorkloadProcessor {
+
+    public static final int ITERATIONS = 5;
+
+    MatrixProcessorInterface mult;
+    MatrixProcessorInterface multTransB;
+    MatrixProcessorInterface add;
+    MatrixProcessorInterface solveExact;
+
+    public NewtonWorkload( RuntimePerformanceFactory factory ) {
+        super(factory);
+        mult = factory.mult();
+        multTransB = factory.multTransB();
+        add = factory.add();
+        solveExact = factory.solveExact();
+    }
+
+    @Override
+    public BenchmarkMatrix[] compute( BenchmarkMatrix[] inputs ) {
+        BenchmarkMatrix A = inputs[0];
+        BenchmarkMatrix negA = inputs[1];
+        BenchmarkMatrix b = inputs[2];
+        BenchmarkMatrix x = inputs[3];
+        BenchmarkMatrix d = inputs[4];
+
+        for( int i = 0; i < ITERATIONS; i++ ) {
+            BenchmarkMatrix r = call(add,b,call(mult,negA,x));
+            BenchmarkMatrix J = call(add,A,call(multTransB,d,d));
+            d = call(solveExact,J,r);
+            x = call(add,x,d);
+        }
+
+        return new BenchmarkMatrix[]{x};
+    }
+
+    @Override
+    public boolean isSupported() {
+        return mult != null && multTransB != null && add != null && solveExact != null;
+    }
+}
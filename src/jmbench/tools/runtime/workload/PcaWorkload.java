@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.workload;
+
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.MatrixProcessorInterface;
+import jmbench.interfaces.RuntimePerformanceFactory;
+
+
+/**
+ * <p>
+ * Principal component analysis using SVD.  The data is centered, its scatter matrix is decomposed, and then
+ * the data is projected onto the principal components.
+ * </p>
+ *
+ * <pre>
+ * Xc = X - mean , C = Xc'*Xc , [U,W,V] = svd(C) , Y = Xc*V
+ * </pre>
+ *
+ * <p>
+ * Inputs: X, -mean with one row for each sample.  Outputs: Y, W.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class PcaWorkload extends WorkloadProcessor {
+
+    MatrixProcessorInterface add;
+    MatrixProcessorInterface transpose;
+    MatrixProcessorInterface mult;
+    MatrixProcessorInterface svd;
+
+    public PcaWorkload( RuntimePerformanceFactory factory ) {
+        super(factory);
+        add = factory.add();
+        transpose = factory.transpose();
+        mult = factory.mult();
+        svd = factory.svd();
+    }
+
+    @Override
+    public BenchmarkMatrix[] compute( BenchmarkMatrix[] inputs ) {
+        BenchmarkMatrix X = inputs[0];
+        BenchmarkMatrix negMean = inputs[1];
+
+        BenchmarkMatrix Xc = call(add,X,negMean);
+        BenchmarkMatrix C = call(mult,call(transpose,Xc),Xc);
+
+        BenchmarkMatrix usv[] = callAll(svd,3,C);
+
+        BenchmarkMatrix Y = call(mult,Xc,usv[2]);
+
+        return new BenchmarkMatrix[]{Y,usv[1]};
+    }
+
+    @Override
+    public boolean isSupported() {
+        return add != null && transpose != null && mult != null && svd != null;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.workload;
+
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.Blackhole;
+import jmbench.interfaces.MatrixProcessorInterface;
+import jmbench.interfaces.RuntimePerformanceFactory;
+
+
+/**
+ * <p>
+ * A workload is an application level kernel which is built by chaining together the operations provided by
+ * a {@link RuntimePerformanceFactory}.  The output of one operation is passed in as the input to the next one,
+ * just like in application code, so the cost of the glue between operations is included in the measurement.
+ * The number of workloads processed per second is what gets reported.
+ * </p>
+ *
+ * <p>
+ * If the library doesn't support one of the operations needed by a workload then the workload isn't
+ * supported either.  See {@link #isSupported()}.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public abstract class WorkloadProcessor implements MatrixProcessorInterface {
+
+    protected RuntimePerformanceFactory factory;
+
+    protected WorkloadProcessor( RuntimePerformanceFactory factory ) {
+        this.factory = factory;
+    }
+
+    /**
+     * Computes the workload once.
+     *
+     * @param inputs Inputs created by the workload's generator.
+     * @return The workload's outputs.
+     */
+    public abstract BenchmarkMatrix[] compute( BenchmarkMatrix[] inputs );
+
+    /**
+     * Returns true if the library provides all the operations needed by the workload.
+     */
+    public abstract boolean isSupported();
+
+    @Override
+    public long process(BenchmarkMatrix[] inputs, BenchmarkMatrix[] outputs, long numTrials) {
+        BenchmarkMatrix found[] = null;
+
+        long prev = System.nanoTime();
+
+        for( long i = 0; i < numTrials; i++ ) {
+            found = compute(inputs);
+            Blackhole.consume(found);
+        }
+
+        long elapsedTime = System.nanoTime() - prev;
+        if( outputs != null ) {
+            System.arraycopy(found,0,outputs,0,outputs.length);
+        }
+        return elapsedTime;
+    }
+
+    /**
+     * Invokes the operation once and returns its first output.
+     */
+    protected static BenchmarkMatrix call( MatrixProcessorInterface alg , BenchmarkMatrix ...inputs ) {
+        return callAll(alg,1,inputs)[0];
+    }
+
+    /**
+     * Invokes the operation once and returns all of its outputs.
+     */
+    protected static BenchmarkMatrix[] callAll( MatrixProcessorInterface alg , int numOutputs ,
+                                                BenchmarkMatrix ...inputs ) {
+        BenchmarkMatrix outputs[] = new BenchmarkMatrix[ numOutputs ];
+        alg.process(inputs,outputs,1);
+        return outputs;
+    }
+}
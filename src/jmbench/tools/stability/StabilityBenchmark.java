@@ -178,6 +178,10 @@ public class StabilityBenchmark {
         System.out.println("Stability Benchmark: The following options are valid:");
         System.out.println("  --Config=<file>          |  Configure using the specified xml file.");
         System.out.println("  --Library=<lib>          |  To run a specific library only.  --Library=? will print a list");
+        System.out.println("  --Threads=<number>       |  Number of threads the trials of each test are run in.");
+        System.out.println("  --Resume=<directory>     |  It will resume an unfinished benchmark at the specified directory.");
+        System.out.println("  --Checkpoint=<trials>    |  Number of trials each slave performs before the results are saved.");
+        System.out.println("  --Reference=<dir|none>   |  Where high precision reference solutions are saved.  'none' to turn off.");
         System.out.println();
         System.out.println("If no options are specified then a default configuration will be used.");
     }
@@ -216,6 +220,24 @@ public class StabilityBenchmark {
                 }
                 config.targets.clear();
                 config.targets.add(match);
+            } else if( flag.compareTo("Resume") == 0 ) {
+                if( splits.length != 2 || args.length != 1 ) {failed = true; break;}
+                System.out.println("Resuming a benchmark in dir "+splits[1]);
+                StabilityBenchmark master = new StabilityBenchmark(splits[1]);
+                config = UtilXmlSerialization.deserializeXml(splits[1]+"/config.xml");
+                master.performBenchmark(config);
+                return;
+            } else if( flag.compareTo("Reference") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.referenceDirectory = splits[1].compareTo("none") == 0 ? null : splits[1];
+            } else if( flag.compareTo("Checkpoint") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.trialsPerCheckpoint = Integer.parseInt(splits[1]);
+                System.out.println("Trials per checkpoint = "+config.trialsPerCheckpoint);
+            } else if( flag.compareTo("Threads") == 0 ) {
+                if( splits.length != 2 ) {failed = true; break;}
+                config.numThreads = Integer.parseInt(splits[1]);
+                System.out.println("Threads = "+config.numThreads);
             } else {
                 System.out.println("Unknown flag: "+flag);
                 failed = true;
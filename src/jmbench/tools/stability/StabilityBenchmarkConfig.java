@@ -67,6 +67,19 @@ public class StabilityBenchmarkConfig implements Serializable {
     public int trialsMediumSvd;
     public int trialsLargeSvd;
 
+    // number of threads the trials of a test are run in inside the slave
+    public int numThreads;
+
+    // directory that high precision reference solutions for accuracy tests are saved in.  If null
+    // then accuracy is not compared against reference solutions
+    public String referenceDirectory;
+    // reference solutions are not computed for matrices larger than this since it's expensive
+    public int referenceMaxLength;
+
+    // number of trials each slave performs.  Results are saved after each slave finishes so that an
+    // interrupted benchmark can be resumed
+    public int trialsPerCheckpoint;
+
     // which tests it should run
     public boolean checkAccuracy;
     public boolean checkOverflow;
@@ -114,6 +127,13 @@ public class StabilityBenchmarkConfig implements Serializable {
         config.trialsMediumSvd = 18*off;
         config.trialsLargeSvd = 7*off;
 
+        config.numThreads = Runtime.getRuntime().availableProcessors();
+
+        config.trialsPerCheckpoint = 1;
+
+        config.referenceDirectory = "stability_reference";
+        config.referenceMaxLength = 200;
+
         config.targets = FactoryLibraryDescriptions.createDefault();
 
         config.checkAccuracy = true;
@@ -297,6 +317,38 @@ public class StabilityBenchmarkConfig implements Serializable {
         this.checkOverflow = checkOverflow;
     }
 
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public int getTrialsPerCheckpoint() {
+        return trialsPerCheckpoint;
+    }
+
+    public void setTrialsPerCheckpoint(int trialsPerCheckpoint) {
+        this.trialsPerCheckpoint = trialsPerCheckpoint;
+    }
+
+    public String getReferenceDirectory() {
+        return referenceDirectory;
+    }
+
+    public void setReferenceDirectory(String referenceDirectory) {
+        this.referenceDirectory = referenceDirectory;
+    }
+
+    public int getReferenceMaxLength() {
+        return referenceMaxLength;
+    }
+
+    public void setReferenceMaxLength(int referenceMaxLength) {
+        this.referenceMaxLength = referenceMaxLength;
+    }
+
     public boolean isCheckUnderflow() {
         return checkUnderflow;
     }
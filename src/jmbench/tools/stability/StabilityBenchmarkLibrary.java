@@ -31,6 +31,7 @@ import jmbench.tools.version.PrintLibraryVersion;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
@@ -122,7 +123,8 @@ public class StabilityBenchmarkLibrary {
      */
     private void setupLog() {
         try {
-            logStream = new PrintStream(directorySave+"/log.txt");
+            // append so that the log isn't lost when a benchmark is resumed
+            logStream = new PrintStream(new FileOutputStream(directorySave+"/log.txt",true));
         } catch (FileNotFoundException e) {
             throw new RuntimeException(e);
         }
@@ -269,9 +271,14 @@ public class StabilityBenchmarkLibrary {
 
         for( StabilityTestBase op : operations ) {
 
+            if( directorySave != null && new File(directorySave,op.getFileName()+".xml").exists() ) {
+                System.out.println(libraryName+" :  Already finished op: "+op.getTestName());
+                continue;
+            }
+
             System.out.println(libraryName+" :  Processing op: "+op.getTestName());
 
-            StabilityTrialResults results = evaluateOperation(op);
+            StabilityTrialResults results = evaluateCheckpoints(op);
 
             // if a fatal error occurred create some results so that this is marked
             if( fatalError != null ) {
@@ -280,13 +287,12 @@ public class StabilityBenchmarkLibrary {
                 results.fatalError = fatalError;
             }
             // add environmental information for debugging later on
-            results.durationMilli = tools.getDurationMilli();
             results.libraryName = libraryName;
             results.benchmarkName = op.getTestName();
-            results.memoryBytes = slaveMemoryMegaBytes;
 
             // save the results to a file
             saveResults(results,op.getFileName());
+            deleteCheckpoint(op.getFileName());
 
             // print the results to the screen
             if( fatalError == null )
@@ -298,6 +304,86 @@ public class StabilityBenchmarkLibrary {
         }
     }
 
+    /**
+     * Splits the operation's trials between several slaves and saves the results after each one finishes.  If
+     * results from a previous run were saved then only the remaining trials are performed.
+     */
+    private StabilityTrialResults evaluateCheckpoints( StabilityTestBase op ) {
+        int totalTrials = op.getTotalTrials();
+        int trialsPerSlave = Math.max(1,config.trialsPerCheckpoint);
+
+        StabilityTrialResults results = loadCheckpoint(op.getFileName());
+        if( results == null ) {
+            results = new StabilityTrialResults();
+        } else {
+            System.out.println("  Resuming after "+results.trialsCompleted+" of "+totalTrials+" trials");
+            logStream.println("Resuming op "+op.getTestName()+" after "+results.trialsCompleted+" trials");
+        }
+
+        try {
+            while( results.trialsCompleted < totalTrials ) {
+                int numTrials = Math.min(trialsPerSlave,totalTrials-results.trialsCompleted);
+                op.setFirstTrial(results.trialsCompleted);
+                op.setTotalTrials(numTrials);
+
+                StabilityTrialResults r = evaluateOperation(op);
+                if( fatalError != null )
+                    return null;
+
+                r.durationMilli = tools.getDurationMilli();
+                r.memoryBytes = slaveMemoryMegaBytes;
+                results.addResults(r);
+                results.trialsCompleted += numTrials;
+
+                // the operation can't be performed, such as when it isn't supported
+                if( r.fatalError != null )
+                    break;
+
+                if( results.trialsCompleted < totalTrials )
+                    saveCheckpoint(results,op.getFileName());
+            }
+        } finally {
+            op.setFirstTrial(0);
+            op.setTotalTrials(totalTrials);
+        }
+
+        return results;
+    }
+
+    private File checkpointFile( String opFileName ) {
+        // not ending in .xml so that it isn't mistaken for finished results
+        return new File(directorySave,opFileName+".checkpoint");
+    }
+
+    private StabilityTrialResults loadCheckpoint( String opFileName ) {
+        if( directorySave == null || !checkpointFile(opFileName).exists() )
+            return null;
+
+        return UtilXmlSerialization.deserializeXml(checkpointFile(opFileName).getPath());
+    }
+
+    private void saveCheckpoint( StabilityTrialResults results , String opFileName ) {
+        if( directorySave == null )
+            return;
+
+        // write to a temporary file first so that a crash while saving doesn't lose the checkpoint
+        File f = checkpointFile(opFileName);
+        File tmp = new File(f.getPath()+".tmp");
+        UtilXmlSerialization.serializeXml(results,tmp.getPath());
+        if( f.exists() && !f.delete() )
+            throw new RuntimeException("Can't delete old checkpoint "+f.getPath());
+        if( !tmp.renameTo(f) )
+            throw new RuntimeException("Can't rename checkpoint "+tmp.getPath());
+    }
+
+    private void deleteCheckpoint( String opFileName ) {
+        if( directorySave == null )
+            return;
+        File f = checkpointFile(opFileName);
+        if( f.exists() )
+            f.delete();
+    }
+
     private void printResults( StabilityTrialResults results ) {
         System.out.println("    Median             = "+StabilityBenchmark.computePercent(results.breakingPoints,0.5));
         System.out.println("    Finished           = "+results.getNumFinished());
@@ -305,6 +391,8 @@ public class StabilityBenchmarkLibrary {
         System.out.println("    Large Error        = "+results.getNumLargeError());
         System.out.println("    Detected           = "+results.getNumGraceful());
         System.out.println("    Runtime Exception  = "+results.getNumUnexpectedException());
+        if( results.referenceErrors != null && results.referenceErrors.size() > 0 )
+            System.out.println("    Reference Error    = "+StabilityBenchmark.computePercent(results.referenceErrors,0.5));
     }
 
     private void saveResults( StabilityTrialResults results , String opFileName ) {
@@ -317,6 +405,11 @@ public class StabilityBenchmarkLibrary {
     public StabilityTrialResults evaluateOperation( StabilityTestBase e ) {
         fatalError = null;
         e.setRandomSeed(config.randomSeed);
+        e.setNumThreads(config.numThreads);
+        // the slave might not have the same working directory
+        if( config.referenceDirectory != null )
+            e.setReferenceDirectory(new File(config.referenceDirectory).getAbsolutePath());
+        e.setReferenceMaxLength(config.referenceMaxLength);
 
         for( int attempts = 0; attempts < 5; attempts++ ) {
 
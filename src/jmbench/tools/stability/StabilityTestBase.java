@@ -20,26 +20,48 @@
 package jmbench.tools.stability;
 
 import jmbench.impl.LibraryConfigure;
+import jmbench.interfaces.BenchmarkMatrix;
 import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.EvaluationTest;
 import jmbench.tools.OutputError;
 import jmbench.tools.TestResults;
+import jmbench.tools.stability.reference.ReferenceCache;
+import org.ejml.data.DenseMatrix64F;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
+ * <p>
+ * Base class for stability tests.  Each test consists of {@link #totalTrials} independent trials, starting at
+ * trial {@link #firstTrial}, and each trial
+ * has its own random seed which is derived from the test's random seed.  This allows the trials to be split
+ * across several threads inside the slave and still produce the same results as when run in a single thread.
+ * Each thread works on its own copy of the test, created by {@link #createWorker()}.
+ * </p>
+ *
  * @author Peter Abeles
  */
-public abstract class StabilityTestBase extends EvaluationTest {
+public abstract class StabilityTestBase extends EvaluationTest implements Cloneable {
 
     protected Class<RuntimePerformanceFactory> classFactory;
     protected Class<LibraryConfigure> classConfigure;
     protected String nameOperation;
     protected int totalTrials;
+    // index of the first trial.  Allows the trials to be split between several slaves
+    protected int firstTrial;
+    // maximum number of threads that trials are run in
+    protected int numThreads = 1;
+    // where high precision reference solutions are saved.  If null then they are not computed
+    protected String referenceDirectory;
+    // reference solutions are not computed for matrices with more rows or columns than this
+    protected int referenceMaxLength;
 
     protected double breakingPoint;
     protected transient Random rand;
@@ -49,6 +71,10 @@ public abstract class StabilityTestBase extends EvaluationTest {
     protected transient OutputError reason;
     protected transient StabilityTrialResults results;
     protected transient int numResults;
+    // random seed of the current trial
+    protected transient long trialSeed;
+    // error relative to the high precision reference solution.  NaN if there is none
+    protected transient double referenceError;
 
     protected StabilityTestBase(long randomSeed,
                                 Class<LibraryConfigure> classConfigure,
@@ -66,7 +92,30 @@ public abstract class StabilityTestBase extends EvaluationTest {
 
     public StabilityTestBase(){}
 
-    abstract public void performTest();
+    /**
+     * Performs a single trial using {@link #rand} and then calls {@link #saveResults()}.
+     */
+    protected abstract void performTrial();
+
+    /**
+     * Called once by each worker before it performs any trials.  Any state that is modified by a trial and is
+     * not recreated by each trial needs to be created here so that it isn't shared between workers.
+     */
+    protected void setupTrials() {
+    }
+
+    /**
+     * Memory required by a single trial in bytes.
+     */
+    protected abstract long getTrialMemorySize();
+
+    /**
+     * Each thread needs its own memory
+     */
+    @Override
+    public long getInputMemorySize() {
+        return getTrialMemorySize()*getNumWorkers();
+    }
 
     /**
      * The full name of the test being performed.
@@ -114,17 +163,110 @@ public abstract class StabilityTestBase extends EvaluationTest {
 
     @Override
     public TestResults evaluate() {
-        results = new StabilityTrialResults();
+        int numWorkers = getNumWorkers();
+        AtomicBoolean stop = new AtomicBoolean(false);
+
+        if( numWorkers <= 1 ) {
+            return performTrials(firstTrial,firstTrial+totalTrials,stop);
+        }
+
+        // split the trials into more pieces than threads since the time each trial takes varies
+        int minTrials = Math.max(1,totalTrials/(numWorkers*4));
+
+        ForkJoinPool pool = new ForkJoinPool(numWorkers);
+        try {
+            return pool.invoke(new TrialsTask(firstTrial,firstTrial+totalTrials,minTrials,stop));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private int getNumWorkers() {
+        return Math.max(1,Math.min(numThreads,totalTrials));
+    }
 
+    /**
+     * Performs trials from start to end-1 and returns their results.
+     *
+     * @param stop Set to true if a fatal problem is encountered and all the workers should stop
+     */
+    protected StabilityTrialResults performTrials( int start , int end , AtomicBoolean stop ) {
+        results = new StabilityTrialResults();
         numResults = 0;
 
+        setupTrials();
+
         try {
-            performTest();
-        } catch( FatalProblem ignore ){}
+            for( int trial = start; trial < end && !stop.get(); trial++ ) {
+                trialSeed = trialSeed(randomSeed,trial);
+                rand = new Random(trialSeed);
+                referenceError = Double.NaN;
+                performTrial();
+            }
+        } catch( FatalProblem e ) {
+            stop.set(true);
+        }
 
         return results;
     }
 
+    /**
+     * Creates a copy of this test which can perform trials at the same time as the original.
+     */
+    protected StabilityTestBase createWorker() {
+        try {
+            StabilityTestBase worker = (StabilityTestBase)clone();
+            worker.results = null;
+            worker.reason = null;
+            return worker;
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Computes the random seed used by a trial.  The bits are mixed so that seeds of adjacent trials
+     * are not correlated.
+     */
+    public static long trialSeed( long randomSeed , int trial ) {
+        long z = randomSeed + (trial+1)*0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Recursively splits the trials up and combines the results in the order of the trials
+     */
+    private class TrialsTask extends RecursiveTask<StabilityTrialResults> {
+        int start,end;
+        int minTrials;
+        AtomicBoolean stop;
+
+        private TrialsTask(int start, int end, int minTrials, AtomicBoolean stop) {
+            this.start = start;
+            this.end = end;
+            this.minTrials = minTrials;
+            this.stop = stop;
+        }
+
+        @Override
+        protected StabilityTrialResults compute() {
+            if( end-start <= minTrials ) {
+                return createWorker().performTrials(start,end,stop);
+            }
+
+            int middle = (start+end)/2;
+            TrialsTask left = new TrialsTask(start,middle,minTrials,stop);
+            TrialsTask right = new TrialsTask(middle,end,minTrials,stop);
+            left.fork();
+            StabilityTrialResults resultsRight = right.compute();
+            StabilityTrialResults resultsLeft = left.join();
+            resultsLeft.addResults(resultsRight);
+            return resultsLeft;
+        }
+    }
+
     protected void addUnexpectedException( Exception e ) {
         String name = e.getClass().getSimpleName();
 
@@ -147,8 +289,42 @@ public abstract class StabilityTestBase extends EvaluationTest {
         }
     }
 
+    /**
+     * Computes a solution to the current trial in high precision.  Only tests which compare against a
+     * reference solution need to override this.
+     *
+     * @return The solution or null if there is none
+     */
+    protected double[] computeReference() {
+        return null;
+    }
+
+    /**
+     * Returns the high precision reference solution for the current trial.  It's loaded from disk if it has been
+     * computed before, otherwise it's computed by {@link #computeReference()} and saved.
+     *
+     * @param numRows Rows in the input matrix
+     * @param numCols Columns in the input matrix
+     * @return The solution or null if references are turned off or the matrix is too large
+     */
+    protected double[] getReference( int numRows , int numCols ) {
+        if( referenceDirectory == null || Math.max(numRows,numCols) > referenceMaxLength )
+            return null;
+
+        ReferenceCache cache = new ReferenceCache(referenceDirectory);
+        double ret[] = cache.load(getFileName(),trialSeed,numRows,numCols);
+        if( ret == null ) {
+            ret = computeReference();
+            if( ret != null )
+                cache.save(getFileName(),trialSeed,numRows,numCols,ret);
+        }
+        return ret;
+    }
+
     protected void saveResults() {
         results.breakingPoints.add(foundResult);
+        if( !Double.isNaN(referenceError) )
+            results.referenceErrors.add(referenceError);
 
         switch( reason ) {
             case NO_ERROR:
@@ -178,7 +354,29 @@ public abstract class StabilityTestBase extends EvaluationTest {
             default:
                 throw new RuntimeException("Unknown reason: "+reason);
         }
-        System.gc();
+        // when trials are run in parallel a full GC after each one would stop the other threads
+        if( numThreads <= 1 )
+            System.gc();
+    }
+
+    /**
+     * Copies the matrix into a matrix from the library being tested, reusing the library's matrix if
+     * it has the same shape.  Avoids converting and declaring a new matrix each time the inputs change.
+     *
+     * @param src Matrix being copied
+     * @param dst Library's matrix which can be reused.  Can be null.
+     * @return Library's matrix with the values in src.
+     */
+    protected BenchmarkMatrix copyToLib( DenseMatrix64F src , BenchmarkMatrix dst ) {
+        if( dst == null || dst.numRows() != src.numRows || dst.numCols() != src.numCols )
+            return factory.convertToLib(src);
+
+        for( int i = 0; i < src.numRows; i++ ) {
+            for( int j = 0; j < src.numCols; j++ ) {
+                dst.set(i,j,src.unsafe_get(i,j));
+            }
+        }
+        return dst;
     }
 
     protected MatrixProcessorInterface createAlgorithm() {
@@ -225,6 +423,38 @@ public abstract class StabilityTestBase extends EvaluationTest {
         this.totalTrials = totalTrials;
     }
 
+    public int getFirstTrial() {
+        return firstTrial;
+    }
+
+    public void setFirstTrial(int firstTrial) {
+        this.firstTrial = firstTrial;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public String getReferenceDirectory() {
+        return referenceDirectory;
+    }
+
+    public void setReferenceDirectory(String referenceDirectory) {
+        this.referenceDirectory = referenceDirectory;
+    }
+
+    public int getReferenceMaxLength() {
+        return referenceMaxLength;
+    }
+
+    public void setReferenceMaxLength(int referenceMaxLength) {
+        this.referenceMaxLength = referenceMaxLength;
+    }
+
     public double getBreakingPoint() {
         return breakingPoint;
     }
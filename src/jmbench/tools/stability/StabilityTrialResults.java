@@ -33,6 +33,8 @@ import java.util.List;
 public class StabilityTrialResults implements TestResults {
 
     List<Double> breakingPoints = new ArrayList<Double>();
+    // error relative to a high precision reference solution for trials which have one
+    List<Double> referenceErrors = new ArrayList<Double>();
 
     // how many times the test was finished without any errors
     int numFinished;
@@ -52,6 +54,9 @@ public class StabilityTrialResults implements TestResults {
 
     List<ExceptionInfo> unexpectedExceptions = new ArrayList<ExceptionInfo>();
 
+    // number of trials which have been performed.  Used to resume an operation which didn't finish
+    public int trialsCompleted;
+
     // how long it took to finish the trial in milliseconds
     public long durationMilli;
 
@@ -63,6 +68,8 @@ public class StabilityTrialResults implements TestResults {
 
     public void addResults( StabilityTrialResults r ) {
         breakingPoints.addAll(r.breakingPoints);
+        if( r.referenceErrors != null )
+            referenceErrors.addAll(r.referenceErrors);
 
         numFinished += r.numFinished;
         numLargeError += r.numLargeError;
@@ -82,7 +89,13 @@ public class StabilityTrialResults implements TestResults {
 
     public void addUnexpectedExceptions(StabilityTrialResults r) {
         for( ExceptionInfo s : r.unexpectedExceptions ) {
-            int where = unexpectedExceptions.indexOf(s);
+            int where = -1;
+            for( int i = 0; i < unexpectedExceptions.size(); i++ ) {
+                if( unexpectedExceptions.get(i).getShortName().compareTo(s.getShortName()) == 0 ) {
+                    where = i;
+                    break;
+                }
+            }
 
             if( where == -1 ) {
                 unexpectedExceptions.add(s);
@@ -107,6 +120,14 @@ public class StabilityTrialResults implements TestResults {
         this.breakingPoints = breakingPoints;
     }
 
+    public List<Double> getReferenceErrors() {
+        return referenceErrors;
+    }
+
+    public void setReferenceErrors(List<Double> referenceErrors) {
+        this.referenceErrors = referenceErrors;
+    }
+
     public int getNumFinished() {
         return numFinished;
     }
@@ -179,6 +200,14 @@ public class StabilityTrialResults implements TestResults {
         this.fatalError = fatalError;
     }
 
+    public int getTrialsCompleted() {
+        return trialsCompleted;
+    }
+
+    public void setTrialsCompleted(int trialsCompleted) {
+        this.trialsCompleted = trialsCompleted;
+    }
+
     public long getDurationMilli() {
         return durationMilli;
     }
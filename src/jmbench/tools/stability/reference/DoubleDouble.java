@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.stability.reference;
+
+
+/**
+ * <p>
+ * A double-double number.  The value is the unevaluated sum of two doubles, where the low part is smaller
+ * than half an ulp of the high part, which gives about 32 significant digits.  Operations modify this
+ * instance so that no memory is declared in inner loops.
+ * </p>
+ *
+ * <p>
+ * Based on the algorithms of Dekker and Knuth.  The rounding error of a product is computed exactly with a fused
+ * multiply add.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public final class DoubleDouble {
+    public double hi;
+    public double lo;
+
+    public DoubleDouble() {
+    }
+
+    public DoubleDouble( double hi , double lo ) {
+        set(hi,lo);
+    }
+
+    public DoubleDouble set( double hi , double lo ) {
+        this.hi = hi;
+        this.lo = lo;
+        return this;
+    }
+
+    public DoubleDouble set( DoubleDouble a ) {
+        this.hi = a.hi;
+        this.lo = a.lo;
+        return this;
+    }
+
+    /**
+     * this = this + b
+     */
+    public DoubleDouble add( double bh , double bl ) {
+        double s = hi + bh;
+        double bb = s - hi;
+        double e = (hi - (s - bb)) + (bh - bb);
+        e += lo + bl;
+        hi = s + e;
+        lo = e - (hi - s);
+        return this;
+    }
+
+    public DoubleDouble add( DoubleDouble b ) {
+        return add(b.hi,b.lo);
+    }
+
+    /**
+     * this = this - b
+     */
+    public DoubleDouble subtract( DoubleDouble b ) {
+        return add(-b.hi,-b.lo);
+    }
+
+    /**
+     * this = this * b
+     */
+    public DoubleDouble multiply( double bh , double bl ) {
+        double p = hi*bh;
+        double e = productError(hi,bh,p) + (hi*bl + lo*bh);
+        hi = p + e;
+        lo = e - (hi - p);
+        return this;
+    }
+
+    public DoubleDouble multiply( DoubleDouble b ) {
+        return multiply(b.hi,b.lo);
+    }
+
+    /**
+     * this = this + a*b
+     */
+    public DoubleDouble addProduct( double ah , double al , double bh , double bl ) {
+        double p = ah*bh;
+        double e = productError(ah,bh,p) + (ah*bl + al*bh);
+        double ph = p + e;
+        double pl = e - (ph - p);
+        return add(ph,pl);
+    }
+
+    /**
+     * this = this / b
+     */
+    public DoubleDouble divide( double bh , double bl ) {
+        double q1 = hi/bh;
+
+        // remainder = this - q1*b
+        double p = q1*bh;
+        double pe = productError(q1,bh,p) + q1*bl;
+        double s = hi - p;
+        double bb = s - hi;
+        double e = (hi - (s - bb)) + (-p - bb);
+        e += lo - pe;
+
+        double q2 = (s + e)/bh;
+        hi = q1 + q2;
+        lo = q2 - (hi - q1);
+        return this;
+    }
+
+    public DoubleDouble divide( DoubleDouble b ) {
+        return divide(b.hi,b.lo);
+    }
+
+    /**
+     * this = sqrt(this) using one Newton step from the double square root
+     */
+    public DoubleDouble sqrt() {
+        if( hi <= 0 ) {
+            if( hi < 0 )
+                return set(Double.NaN,0);
+            return set(0,0);
+        }
+        double x = Math.sqrt(hi);
+        double p = x*x;
+        double r = ((hi - p) - productError(x,x,p)) + lo;
+        double y = r/(2*x);
+        hi = x + y;
+        lo = y - (hi - x);
+        return this;
+    }
+
+    public DoubleDouble negate() {
+        hi = -hi;
+        lo = -lo;
+        return this;
+    }
+
+    public DoubleDouble abs() {
+        if( hi < 0 )
+            negate();
+        return this;
+    }
+
+    public double doubleValue() {
+        return hi + lo;
+    }
+
+    /**
+     * Rounding error of the product p = a*b
+     */
+    private static double productError( double a , double b , double p ) {
+        return Math.fma(a,b,-p);
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleDouble( "+hi+" , "+lo+" )";
+    }
+}
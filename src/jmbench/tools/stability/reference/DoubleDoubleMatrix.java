@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.stability.reference;
+
+import org.ejml.data.DenseMatrix64F;
+
+import java.util.Arrays;
+
+
+/**
+ * A dense row major matrix of {@link DoubleDouble} values, stored as separate arrays of high and low parts.
+ * Only the few algorithms needed to compute reference solutions are provided.  These are simple and slow,
+ * but in double-double their rounding errors are far smaller than the errors being measured.
+ *
+ * @author Peter Abeles
+ */
+public class DoubleDoubleMatrix {
+    public int numRows;
+    public int numCols;
+    public double hi[];
+    public double lo[];
+
+    public DoubleDoubleMatrix( int numRows , int numCols ) {
+        this.numRows = numRows;
+        this.numCols = numCols;
+        hi = new double[ numRows*numCols ];
+        lo = new double[ numRows*numCols ];
+    }
+
+    public DoubleDoubleMatrix( DenseMatrix64F orig ) {
+        this(orig.numRows,orig.numCols);
+        System.arraycopy(orig.data,0,hi,0,numRows*numCols);
+    }
+
+    public static DoubleDoubleMatrix identity( int N ) {
+        DoubleDoubleMatrix ret = new DoubleDoubleMatrix(N,N);
+        for( int i = 0; i < N; i++ )
+            ret.hi[i*N+i] = 1;
+        return ret;
+    }
+
+    /**
+     * Returns a^T*b computed in double-double
+     */
+    public static DoubleDoubleMatrix multTransA( DenseMatrix64F a , DenseMatrix64F b ) {
+        DoubleDoubleMatrix ret = new DoubleDoubleMatrix(a.numCols,b.numCols);
+        DoubleDouble sum = new DoubleDouble();
+        for( int i = 0; i < a.numCols; i++ ) {
+            for( int j = 0; j < b.numCols; j++ ) {
+                sum.set(0,0);
+                for( int k = 0; k < a.numRows; k++ ) {
+                    sum.addProduct(a.unsafe_get(k,i),0,b.unsafe_get(k,j),0);
+                }
+                ret.hi[i*ret.numCols+j] = sum.hi;
+                ret.lo[i*ret.numCols+j] = sum.lo;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns a*b^T computed in double-double
+     */
+    public static DoubleDoubleMatrix multTransB( DenseMatrix64F a , DenseMatrix64F b ) {
+        DoubleDoubleMatrix ret = new DoubleDoubleMatrix(a.numRows,b.numRows);
+        DoubleDouble sum = new DoubleDouble();
+        for( int i = 0; i < a.numRows; i++ ) {
+            for( int j = 0; j < b.numRows; j++ ) {
+                sum.set(0,0);
+                for( int k = 0; k < a.numCols; k++ ) {
+                    sum.addProduct(a.unsafe_get(i,k),0,b.unsafe_get(j,k),0);
+                }
+                ret.hi[i*ret.numCols+j] = sum.hi;
+                ret.lo[i*ret.numCols+j] = sum.lo;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * <p>
+     * Solves A*X = B using LU decomposition with partial pivoting.  This matrix is A and is modified.  B is
+     * overwritten with the solution.
+     * </p>
+     *
+     * @return false if the matrix is singular
+     */
+    public boolean solve( DoubleDoubleMatrix B ) {
+        if( numRows != numCols || B.numRows != numRows )
+            throw new IllegalArgumentException("Incompatible shapes");
+
+        int N = numRows;
+        DoubleDouble f = new DoubleDouble();
+        DoubleDouble sum = new DoubleDouble();
+
+        for( int k = 0; k < N; k++ ) {
+            int pivot = k;
+            for( int i = k+1; i < N; i++ ) {
+                if( Math.abs(hi[i*N+k]) > Math.abs(hi[pivot*N+k]) )
+                    pivot = i;
+            }
+            if( hi[pivot*N+k] == 0 )
+                return false;
+            swapRows(pivot,k);
+            B.swapRows(pivot,k);
+
+            double pivotHi = hi[k*N+k], pivotLo = lo[k*N+k];
+            for( int i = k+1; i < N; i++ ) {
+                f.set(hi[i*N+k],lo[i*N+k]).divide(pivotHi,pivotLo).negate();
+                for( int j = k+1; j < N; j++ ) {
+                    sum.set(hi[i*N+j],lo[i*N+j]).addProduct(f.hi,f.lo,hi[k*N+j],lo[k*N+j]);
+                    hi[i*N+j] = sum.hi;
+                    lo[i*N+j] = sum.lo;
+                }
+                for( int j = 0; j < B.numCols; j++ ) {
+                    int indexI = i*B.numCols+j, indexK = k*B.numCols+j;
+                    sum.set(B.hi[indexI],B.lo[indexI]).addProduct(f.hi,f.lo,B.hi[indexK],B.lo[indexK]);
+                    B.hi[indexI] = sum.hi;
+                    B.lo[indexI] = sum.lo;
+                }
+            }
+        }
+
+        // back substitution
+        for( int j = 0; j < B.numCols; j++ ) {
+            for( int i = N-1; i >= 0; i-- ) {
+                sum.set(B.hi[i*B.numCols+j],B.lo[i*B.numCols+j]);
+                for( int l = i+1; l < N; l++ ) {
+                    sum.addProduct(-hi[i*N+l],-lo[i*N+l],B.hi[l*B.numCols+j],B.lo[l*B.numCols+j]);
+                }
+                sum.divide(hi[i*N+i],lo[i*N+i]);
+                B.hi[i*B.numCols+j] = sum.hi;
+                B.lo[i*B.numCols+j] = sum.lo;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <p>
+     * Computes the eigenvalues of a symmetric matrix using cyclic Jacobi rotations.  The matrix is modified.
+     * </p>
+     *
+     * @return Eigenvalues in ascending order
+     */
+    public double[] eigenvaluesSymm() {
+        if( numRows != numCols )
+            throw new IllegalArgumentException("Must be square");
+        int N = numRows;
+
+        double norm = 0;
+        for( int i = 0; i < N*N; i++ )
+            norm += hi[i]*hi[i];
+        norm = Math.sqrt(norm);
+
+        DoubleDouble theta = new DoubleDouble();
+        DoubleDouble t = new DoubleDouble();
+        DoubleDouble c = new DoubleDouble();
+        DoubleDouble s = new DoubleDouble();
+        DoubleDouble tmp = new DoubleDouble();
+        DoubleDouble a = new DoubleDouble();
+        DoubleDouble b = new DoubleDouble();
+
+        for( int sweep = 0; sweep < 100; sweep++ ) {
+            double off = 0;
+            for( int p = 0; p < N; p++ )
+                for( int q = p+1; q < N; q++ )
+                    off += hi[p*N+q]*hi[p*N+q];
+            if( Math.sqrt(off) <= 1e-30*norm )
+                break;
+
+            for( int p = 0; p < N; p++ ) {
+                for( int q = p+1; q < N; q++ ) {
+                    int pq = p*N+q;
+                    if( Math.abs(hi[pq]) <= 1e-34*norm ) {
+                        hi[pq] = lo[pq] = hi[q*N+p] = lo[q*N+p] = 0;
+                        continue;
+                    }
+
+                    // theta = (a_qq - a_pp)/(2*a_pq)
+                    theta.set(hi[q*N+q],lo[q*N+q]).add(-hi[p*N+p],-lo[p*N+p]).divide(2*hi[pq],2*lo[pq]);
+
+                    // t = sign(theta)/(|theta| + sqrt(theta^2+1))
+                    if( Math.abs(theta.hi) > 1e100 ) {
+                        t.set(0.5,0).divide(theta);
+                    } else {
+                        tmp.set(theta).multiply(theta).add(1,0).sqrt();
+                        tmp.add(Math.abs(theta.hi),theta.hi < 0 ? -theta.lo : theta.lo);
+                        t.set(theta.hi < 0 ? -1 : 1,0).divide(tmp);
+                    }
+                    // c = 1/sqrt(t^2+1) , s = t*c
+                    tmp.set(t).multiply(t).add(1,0).sqrt();
+                    c.set(1,0).divide(tmp);
+                    s.set(t).multiply(c);
+
+                    // a_pp -= t*a_pq , a_qq += t*a_pq
+                    tmp.set(t).multiply(hi[pq],lo[pq]);
+                    a.set(hi[p*N+p],lo[p*N+p]).subtract(tmp);
+                    hi[p*N+p] = a.hi; lo[p*N+p] = a.lo;
+                    a.set(hi[q*N+q],lo[q*N+q]).add(tmp);
+                    hi[q*N+q] = a.hi; lo[q*N+q] = a.lo;
+                    hi[pq] = lo[pq] = hi[q*N+p] = lo[q*N+p] = 0;
+
+                    for( int k = 0; k < N; k++ ) {
+                        if( k == p || k == q )
+                            continue;
+                        int kp = k*N+p, kq = k*N+q;
+                        double kpHi = hi[kp], kpLo = lo[kp];
+                        double kqHi = hi[kq], kqLo = lo[kq];
+
+                        // a_kp = c*a_kp - s*a_kq
+                        a.set(c).multiply(kpHi,kpLo).addProduct(-s.hi,-s.lo,kqHi,kqLo);
+                        // a_kq = s*a_kp + c*a_kq
+                        b.set(s).multiply(kpHi,kpLo).addProduct(c.hi,c.lo,kqHi,kqLo);
+
+                        hi[kp] = hi[p*N+k] = a.hi; lo[kp] = lo[p*N+k] = a.lo;
+                        hi[kq] = hi[q*N+k] = b.hi; lo[kq] = lo[q*N+k] = b.lo;
+                    }
+                }
+            }
+        }
+
+        double ret[] = new double[N];
+        for( int i = 0; i < N; i++ )
+            ret[i] = hi[i*N+i] + lo[i*N+i];
+        Arrays.sort(ret);
+        return ret;
+    }
+
+    private void swapRows( int a , int b ) {
+        if( a == b )
+            return;
+        for( int j = 0; j < numCols; j++ ) {
+            double t = hi[a*numCols+j]; hi[a*numCols+j] = hi[b*numCols+j]; hi[b*numCols+j] = t;
+            t = lo[a*numCols+j]; lo[a*numCols+j] = lo[b*numCols+j]; lo[b*numCols+j] = t;
+        }
+    }
+
+    /**
+     * Rounds each element to the nearest double
+     */
+    public double[] toDoubles() {
+        double ret[] = new double[ hi.length ];
+        for( int i = 0; i < ret.length; i++ )
+            ret[i] = hi[i] + lo[i];
+        return ret;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.stability.reference;
+
+import java.io.*;
+
+
+/**
+ * <p>
+ * Saves reference solutions to disk so that the expensive high precision solution is only computed once and
+ * then shared by every library.  A test's inputs are completely specified by the test, the random seed of the
+ * trial and the matrix's size, which are used to name the file.  Several slaves can use the same directory
+ * at once since files are written to a temporary file first and then renamed.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class ReferenceCache {
+
+    File directory;
+
+    public ReferenceCache( String directory ) {
+        this.directory = new File(directory);
+    }
+
+    /**
+     * Loads a previously saved solution.  Returns null if there is none.
+     */
+    public double[] load( String testName , long seed , int numRows , int numCols ) {
+        File f = createFile(testName,seed,numRows,numCols);
+        if( !f.exists() )
+            return null;
+
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+            try {
+                double ret[] = new double[ in.readInt() ];
+                for( int i = 0; i < ret.length; i++ )
+                    ret[i] = in.readDouble();
+                return ret;
+            } finally {
+                in.close();
+            }
+        } catch( IOException e ) {
+            // treat a damaged file as if it was missing
+            return null;
+        }
+    }
+
+    public void save( String testName , long seed , int numRows , int numCols , double solution[] ) {
+        File f = createFile(testName,seed,numRows,numCols);
+        File dir = f.getParentFile();
+        if( !dir.exists() && !dir.mkdirs() && !dir.exists() )
+            throw new RuntimeException("Can't create directory "+dir.getPath());
+
+        try {
+            File tmp = File.createTempFile(f.getName(),".tmp",dir);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(solution.length);
+                for( double d : solution )
+                    out.writeDouble(d);
+            } finally {
+                out.close();
+            }
+            if( !tmp.renameTo(f) ) {
+                // another process saved it first
+                tmp.delete();
+            }
+        } catch( IOException e ) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private File createFile( String testName , long seed , int numRows , int numCols ) {
+        return new File(directory,testName+"/"+Long.toHexString(seed)+"_"+numRows+"x"+numCols+".bin");
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.stability.reference;
+
+import org.ejml.data.DenseMatrix64F;
+
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Computes reference solutions in double-double precision which the output of each library is compared
+ * against.  The inputs are exact, so the only error in a reference solution comes from double-double
+ * rounding, which is negligible compared to the errors of double precision libraries.  Results are rounded
+ * to double.
+ * </p>
+ *
+ * <p>
+ * Least squares is solved using the normal equations, which squares the condition number.  In double-double
+ * this is still accurate to double precision for condition numbers up to about 10<sup>8</sup>.  Singular values
+ * are found the same way from the eigenvalues of A<sup>T</sup>A.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class ReferenceSolutions {
+
+    /**
+     * Solves A*x = b.  If A has more rows than columns then the least squares solution is found.
+     *
+     * @return The solution or null if A is singular
+     */
+    public static double[] solve( DenseMatrix64F A , DenseMatrix64F b ) {
+        DoubleDoubleMatrix AA,B;
+        if( A.numRows == A.numCols ) {
+            AA = new DoubleDoubleMatrix(A);
+            B = new DoubleDoubleMatrix(b);
+        } else {
+            AA = DoubleDoubleMatrix.multTransA(A,A);
+            B = DoubleDoubleMatrix.multTransA(A,b);
+        }
+
+        if( !AA.solve(B) )
+            return null;
+        return B.toDoubles();
+    }
+
+    /**
+     * Computes the inverse of a square matrix.
+     *
+     * @return The inverse in row major order or null if A is singular
+     */
+    public static double[] invert( DenseMatrix64F A ) {
+        DoubleDoubleMatrix AA = new DoubleDoubleMatrix(A);
+        DoubleDoubleMatrix B = DoubleDoubleMatrix.identity(A.numRows);
+
+        if( !AA.solve(B) )
+            return null;
+        return B.toDoubles();
+    }
+
+    /**
+     * Eigenvalues of a symmetric matrix in ascending order
+     */
+    public static double[] eigenvaluesSymm( DenseMatrix64F A ) {
+        return new DoubleDoubleMatrix(A).eigenvaluesSymm();
+    }
+
+    /**
+     * Singular values in ascending order
+     */
+    public static double[] singularValues( DenseMatrix64F A ) {
+        DoubleDoubleMatrix AA;
+        if( A.numRows >= A.numCols )
+            AA = DoubleDoubleMatrix.multTransA(A,A);
+        else
+            AA = DoubleDoubleMatrix.multTransB(A,A);
+
+        double ret[] = AA.eigenvaluesSymm();
+        for( int i = 0; i < ret.length; i++ )
+            ret[i] = Math.sqrt(Math.max(0,ret[i]));
+        return ret;
+    }
+
+    /**
+     * Returns the diagonal elements of a matrix in ascending order.  If the matrix is a vector then its elements
+     * are returned instead.
+     *
+     * @param abs If true the absolute value of each element is used
+     */
+    public static double[] sortedDiagonal( DenseMatrix64F D , boolean abs ) {
+        double ret[];
+        if( D.numRows == 1 || D.numCols == 1 ) {
+            ret = new double[ D.getNumElements() ];
+            System.arraycopy(D.data,0,ret,0,ret.length);
+        } else {
+            ret = new double[ Math.min(D.numRows,D.numCols) ];
+            for( int i = 0; i < ret.length; i++ )
+                ret[i] = D.unsafe_get(i,i);
+        }
+        if( abs ) {
+            for( int i = 0; i < ret.length; i++ )
+                ret[i] = Math.abs(ret[i]);
+        }
+        Arrays.sort(ret);
+        return ret;
+    }
+
+    /**
+     * Computes the relative error of a matrix whose elements are compared in row major order.
+     *
+     * @see #relativeError(double[], double[])
+     */
+    public static double relativeError( DenseMatrix64F found , double expected[] ) {
+        double elements[] = new double[ found.getNumElements() ];
+        System.arraycopy(found.data,0,elements,0,elements.length);
+        return relativeError(elements,expected);
+    }
+
+    /**
+     * Computes ||found - expected|| / ||expected|| using the Euclidean norm.  If expected is zero
+     * then the norm of the difference is returned.
+     */
+    public static double relativeError( double found[] , double expected[] ) {
+        if( found.length != expected.length )
+            throw new IllegalArgumentException("Different lengths");
+
+        // scale to avoid overflow
+        double max = 0;
+        for( int i = 0; i < found.length; i++ ) {
+            max = Math.max(max,Math.abs(found[i]));
+            max = Math.max(max,Math.abs(expected[i]));
+        }
+        if( max == 0 )
+            return 0;
+
+        double error = 0, norm = 0;
+        for( int i = 0; i < found.length; i++ ) {
+            double d = (found[i]-expected[i])/max;
+            double e = expected[i]/max;
+            error += d*d;
+            norm += e*e;
+        }
+        if( norm == 0 )
+            return Math.sqrt(error)*max;
+        return Math.sqrt(error/norm);
+    }
+}
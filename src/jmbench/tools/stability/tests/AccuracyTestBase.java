@@ -53,17 +53,14 @@ public abstract class AccuracyTestBase extends StabilityTestBase {
     protected AccuracyTestBase(){}
 
     @Override
-    public void performTest() {
-        for( int i = 0; i < totalTrials; i++ ) {
-//            System.out.print("Trial "+i+"  ");
-            int m = rand.nextInt(maxLength-minLength)+minLength;
-            int n = rand.nextInt(maxLength-minLength)+minLength;
+    protected void performTrial() {
+        int m = rand.nextInt(maxLength-minLength)+minLength;
+        int n = rand.nextInt(maxLength-minLength)+minLength;
 
-            createMatrix(m,n);
-            evaluateTestCase();
+        createMatrix(m,n);
+        evaluateTestCase();
 
-            saveResults();
-        }
+        saveResults();
     }
 
     protected void evaluateTestCase() {
@@ -21,6 +21,24 @@ package jmbench.tools.stability.tests;
 
 
 /**
+ * <p>
+ * Searches for the point at which an operation stops working.  Test points are exponents, e.g. the power
+ * that the input is scaled by, and it's assumed that if a test point fails then all larger points also fail.
+ * The critical point is the first test point which fails.
+ * </p>
+ *
+ * <p>
+ * If no failing point is known the step away from the last working point grows exponentially until one is
+ * found.  The bracket is then bisected until the two points are next to each other.  A point outside of the
+ * bracket is never tested, so when the caller already knows a failing point, e.g. where the scale factor
+ * overflows, only the bisection is done.
+ * </p>
+ *
+ * <p>
+ * Each search is independent of the ones before it, so the critical point found for a trial doesn't depend on
+ * which trials were run before it.  Not every test is strictly monotonic near its threshold.
+ * </p>
+ *
  * @author Peter Abeles
  */
 public class BreakingPointBinarySearch {
@@ -31,31 +49,32 @@ public class BreakingPointBinarySearch {
         this.processor = processor;
     }
 
+    /**
+     * Finds the critical point.
+     *
+     * @param lower Largest point known to work.  If -1 then no point is known to work.
+     * @param upper Smallest point known to fail.  If -1 then it is unbounded.
+     * @return The first point which fails.
+     */
     public int findCriticalPoint( int lower , int upper ) {
-        int testPoint = 0;
-
-//        int numIterations = 0;
-        while( true ) {
-//            numIterations++;
+        // find a point which fails
+        for( int step = 1; upper == -1; step *= 2 ) {
+            int testPoint = lower+step;
             if( processor.check(testPoint) ) {
                 lower = testPoint;
             } else {
                 upper = testPoint;
             }
+        }
 
-//            System.out.println("testPoint "+testPoint);
-            if( upper == -1 ) {
-                testPoint = (lower+1)*2;
-            } else if( lower == -1 ) {
-                break;
-            } else if( upper-lower <= 1 ) {
-                break;
+        while( upper-lower > 1 ) {
+            int testPoint = (upper+lower)/2;
+            if( processor.check(testPoint) ) {
+                lower = testPoint;
             } else {
-                testPoint = (upper+lower)/2;
+                upper = testPoint;
             }
         }
-
-//        System.out.println("Iterations = "+numIterations);
         return upper;
     }
 
@@ -23,6 +23,7 @@ import jmbench.impl.LibraryConfigure;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.OutputError;
 import jmbench.tools.stability.StabilityBenchmark;
+import jmbench.tools.stability.reference.ReferenceSolutions;
 import org.ejml.data.DenseMatrix64F;
 import org.ejml.ops.CommonOps;
 import org.ejml.ops.MatrixFeatures;
@@ -80,6 +81,16 @@ public class EigSymmAccuracy extends AccuracyTestBase {
         CommonOps.mult(V,D,R);
 
         foundResult = StabilityBenchmark.residualError(L,R);
+
+        double reference[] = getReference(A.numRows,A.numCols);
+        double found[] = ReferenceSolutions.sortedDiagonal(D,false);
+        if( reference != null && reference.length == found.length )
+            referenceError = ReferenceSolutions.relativeError(found,reference);
+    }
+
+    @Override
+    protected double[] computeReference() {
+        return ReferenceSolutions.eigenvaluesSymm(A);
     }
 
     @Override
@@ -93,7 +104,7 @@ public class EigSymmAccuracy extends AccuracyTestBase {
     }
 
     @Override
-    public long getInputMemorySize() {
+    protected long getTrialMemorySize() {
         return 8*maxLength*maxLength*10;
     }
 }
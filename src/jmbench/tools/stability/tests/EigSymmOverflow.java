@@ -94,7 +94,7 @@ public class EigSymmOverflow extends OverflowTestBase
     }
 
     @Override
-    public long getInputMemorySize() {
+    protected long getTrialMemorySize() {
         return 8*maxLength*maxLength*10;
     }
 }
@@ -23,6 +23,7 @@ import jmbench.impl.LibraryConfigure;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.OutputError;
 import jmbench.tools.stability.StabilityBenchmark;
+import jmbench.tools.stability.reference.ReferenceSolutions;
 import org.ejml.data.DenseMatrix64F;
 import org.ejml.ops.CommonOps;
 import org.ejml.ops.MatrixFeatures;
@@ -79,6 +80,15 @@ public class InvSymmAccuracy extends AccuracyTestBase {
         CommonOps.mult(A,A_inv,I_found);
 
         foundResult = StabilityBenchmark.residualError(I_found,I);
+
+        double reference[] = getReference(A.numRows,A.numCols);
+        if( reference != null && reference.length == A_inv.getNumElements() )
+            referenceError = ReferenceSolutions.relativeError(A_inv,reference);
+    }
+
+    @Override
+    protected double[] computeReference() {
+        return ReferenceSolutions.invert(A);
     }
 
     @Override
@@ -92,7 +102,7 @@ public class InvSymmAccuracy extends AccuracyTestBase {
     }
 
     @Override
-    public long getInputMemorySize() {
+    protected long getTrialMemorySize() {
         return 8*maxLength*maxLength*10;
     }
 }
\ No newline at end of file
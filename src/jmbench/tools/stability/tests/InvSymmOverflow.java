@@ -93,7 +93,7 @@ public class InvSymmOverflow extends OverflowTestBase {
     }
 
     @Override
-    public long getInputMemorySize() {
+    protected long getTrialMemorySize() {
         return 8*maxLength*maxLength*10;
     }
 }
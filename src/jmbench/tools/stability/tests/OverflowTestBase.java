@@ -47,6 +47,10 @@ public abstract class OverflowTestBase extends StabilityTestBase
 
     private volatile BreakingPointBinarySearch search;
 
+    // reused by each point tested in a trial
+    private transient MatrixProcessorInterface operation;
+    private transient BenchmarkMatrix[] inputsB;
+
     public OverflowTestBase(long randomSeed,
                             Class<LibraryConfigure> classConfigure , Class<RuntimePerformanceFactory> classFactory ,
                             String operation,
@@ -62,7 +66,7 @@ public abstract class OverflowTestBase extends StabilityTestBase
     public OverflowTestBase(){}
 
     @Override
-    public void performTest() {
+    protected void setupTrials() {
         if( overflow ) {
             scaling = 10.0;
         } else {
@@ -70,17 +74,18 @@ public abstract class OverflowTestBase extends StabilityTestBase
         }
 
         search = new BreakingPointBinarySearch(this);
+    }
 
-        for( int i = 0; i < totalTrials; i++ ) {
-            int m = rand.nextInt(maxLength-minLength)+minLength;
-            int n = rand.nextInt(maxLength-minLength)+minLength;
+    @Override
+    protected void performTrial() {
+        int m = rand.nextInt(maxLength-minLength)+minLength;
+        int n = rand.nextInt(maxLength-minLength)+minLength;
 
-            createMatrix(m,n);
+        createMatrix(m,n);
 
-            beakOperation();
+        beakOperation();
 
-            saveResults();
-        }
+        saveResults();
     }
 
     protected abstract void createMatrix( int m , int n);
@@ -88,8 +93,19 @@ public abstract class OverflowTestBase extends StabilityTestBase
     private void beakOperation() {
 
         reason = OutputError.NO_ERROR;
+
+        operation = createAlgorithm();
+        if( operation == null ) {
+            reason = OutputError.NOT_SUPPORTED;
+            return;
+        }
+        inputsB = new BenchmarkMatrix[1];
+
         int where = search.findCriticalPoint(-1,findMaxPow(scaling));
         foundResult = Math.pow(scaling,where);
+
+        operation = null;
+        inputsB = null;
     }
 
     @Override
@@ -98,20 +114,9 @@ public abstract class OverflowTestBase extends StabilityTestBase
         Ascaled.set(A);
         CommonOps.scale(scale,Ascaled);
 
-        DenseMatrix64F inputs[] = new DenseMatrix64F[]{Ascaled};
-        BenchmarkMatrix[] inputsB = new BenchmarkMatrix[inputs.length];
         BenchmarkMatrix[] outputB = new BenchmarkMatrix[getNumOutputs()];
 
-        for( int i = 0; i < inputs.length; i++ ) {
-            inputsB[i] = factory.convertToLib(inputs[i]);
-        }
-
-        MatrixProcessorInterface operation = createAlgorithm();
-
-        if( operation == null ) {
-            reason = OutputError.NOT_SUPPORTED;
-            return false;
-        }
+        inputsB[0] = copyToLib(Ascaled,inputsB[0]);
 
         try {
             operation.process(inputsB,outputB,1);
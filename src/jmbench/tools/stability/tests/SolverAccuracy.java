@@ -26,6 +26,7 @@ import jmbench.interfaces.MatrixProcessorInterface;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.OutputError;
 import jmbench.tools.stability.StabilityBenchmark;
+import jmbench.tools.stability.reference.ReferenceSolutions;
 import org.ejml.data.DenseMatrix64F;
 import org.ejml.ops.MatrixFeatures;
 
@@ -47,28 +48,24 @@ public class SolverAccuracy extends SolverCommon {
     public SolverAccuracy(){}
 
     @Override
-    public void performTest() {
-        for( int i = 0; i < totalTrials; i++ ) {
-//            System.out.print("Trial "+i+"  ");
-            int m,n;
-
-            if( isLinearSolver ) {
-                m = n = rand.nextInt(maxLength-minLength)+minLength;
-            } else {
-                // least squares can handle over determined systems
-                m = rand.nextInt(maxLength-minLength)+minLength;
-                n = minLength;
-                if( m > minLength )
-                    n += rand.nextInt(m-minLength);
-            }
-
+    protected void performTrial() {
+        int m,n;
+
+        if( isLinearSolver ) {
+            m = n = rand.nextInt(maxLength-minLength)+minLength;
+        } else {
+            // least squares can handle over determined systems
+            m = rand.nextInt(maxLength-minLength)+minLength;
+            n = minLength;
+            if( m > minLength )
+                n += rand.nextInt(m-minLength);
+        }
 
-            createMatrix(m,n,1);
+        createMatrix(m,n,1);
 
-            evaluateSolver();
+        evaluateSolver();
 
-            saveResults();
-        }
+        saveResults();
     }
 
     private void evaluateSolver() {
@@ -116,6 +113,15 @@ public class SolverAccuracy extends SolverCommon {
             reason = OutputError.LARGE_ERROR;
             return;
         }
+
+        double reference[] = getReference(A.numRows,A.numCols);
+        if( reference != null && reference.length == x.getNumElements() )
+            referenceError = ReferenceSolutions.relativeError(x,reference);
+    }
+
+    @Override
+    protected double[] computeReference() {
+        return ReferenceSolutions.solve(A,b);
     }
 
     @Override
@@ -57,7 +57,7 @@ public abstract class SolverCommon extends StabilityTestBase {
     }
 
     @Override
-    public long getInputMemorySize() {
+    protected long getTrialMemorySize() {
         return 8*maxLength*maxLength*10;
     }
 
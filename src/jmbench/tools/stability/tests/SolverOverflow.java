@@ -47,6 +47,10 @@ public class SolverOverflow extends SolverCommon
 
     private volatile double scaling;
 
+    // reused by each point tested in a trial
+    private transient MatrixProcessorInterface operation;
+    private transient BenchmarkMatrix[] inputsB;
+
     public SolverOverflow(long randomSeed,
                           Class<LibraryConfigure> classConfigure ,
                           Class<RuntimePerformanceFactory> classFactory ,
@@ -95,7 +99,7 @@ public class SolverOverflow extends SolverCommon
     }
 
     @Override
-    public void performTest() {
+    protected void setupTrials() {
 
         if(overflow) {
             scaling = 10.0;
@@ -105,29 +109,30 @@ public class SolverOverflow extends SolverCommon
 
         search = new BreakingPointBinarySearch(this);
 
-        for( int i = 0; i < totalTrials; i++ ) {
-            int m,n;
+        // workers are copies, so they need their own work space
+        A_scale = new DenseMatrix64F(10,10);
+        b_scale = new DenseMatrix64F(10,1);
+        y = new DenseMatrix64F(10,1);
+    }
 
-//            long mem1 = Runtime.getRuntime().totalMemory() -
-//                  Runtime.getRuntime().freeMemory();
-//
-//            System.out.println("Memory usage = "+mem1);
+    @Override
+    protected void performTrial() {
+        int m,n;
 
-            if( isLinearSolver ) {
-                m = n = rand.nextInt(maxLength-minLength)+minLength;
-            } else {
-                // least squares can handle over determined systems
-                m = rand.nextInt(maxLength-minLength)+minLength;
-                n = minLength;
-                if( m > minLength )
-                    n += rand.nextInt(m-minLength);
-            }
+        if( isLinearSolver ) {
+            m = n = rand.nextInt(maxLength-minLength)+minLength;
+        } else {
+            // least squares can handle over determined systems
+            m = rand.nextInt(maxLength-minLength)+minLength;
+            n = minLength;
+            if( m > minLength )
+                n += rand.nextInt(m-minLength);
+        }
 
-            createMatrix(m,n,1);
-            evaluateOverflowSolver(m,n);
+        createMatrix(m,n,1);
+        evaluateOverflowSolver(m,n);
 
-            saveResults();
-        }
+        saveResults();
     }
 
     private void evaluateOverflowSolver( int m , int n ) {
@@ -146,8 +151,19 @@ public class SolverOverflow extends SolverCommon
         }
 
         reason = OutputError.NO_ERROR;
-        int where = search.findCriticalPoint(0,findMaxPow(scaling));
+
+        operation = createAlgorithm();
+        if( operation == null ) {
+            reason = OutputError.NOT_SUPPORTED;
+            return;
+        }
+        inputsB = new BenchmarkMatrix[2];
+
+        int where = search.findCriticalPoint(-1,findMaxPow(scaling));
         foundResult = Math.pow(scaling,where);
+
+        operation = null;
+        inputsB = null;
     }
 
     @Override
@@ -158,18 +174,10 @@ public class SolverOverflow extends SolverCommon
         CommonOps.scale(scale,A,A_scale);
         CommonOps.scale(scale,b,b_scale);
 
-        BenchmarkMatrix[] inputsB = new BenchmarkMatrix[2];
         BenchmarkMatrix[] outputB = new BenchmarkMatrix[1];
 
-        inputsB[0] = factory.convertToLib(A_scale);
-        inputsB[1] = factory.convertToLib(b_scale);
-
-        MatrixProcessorInterface operation = createAlgorithm();
-
-        if( operation == null ) {
-            reason = OutputError.NOT_SUPPORTED;
-            return false;
-        }
+        inputsB[0] = copyToLib(A_scale,inputsB[0]);
+        inputsB[1] = copyToLib(b_scale,inputsB[1]);
 
         try {
             operation.process(inputsB,outputB,1);
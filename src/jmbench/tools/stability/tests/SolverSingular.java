@@ -46,6 +46,10 @@ public class SolverSingular extends SolverCommon
     private volatile int whichSV;
     private volatile BreakingPointBinarySearch search;
 
+    // reused by each point tested in a trial
+    private transient MatrixProcessorInterface operation;
+    private transient BenchmarkMatrix[] inputsB;
+
     public SolverSingular(long randomSeed,
                           Class<LibraryConfigure> classConfigure ,
                           Class<RuntimePerformanceFactory> classFactory, String nameOperation,
@@ -77,33 +81,30 @@ public class SolverSingular extends SolverCommon
     }
 
     @Override
-    public void performTest() {
-
+    protected void setupTrials() {
         search = new BreakingPointBinarySearch(this);
+    }
 
-        for( int i = 0; i < totalTrials; i++ ) {
-//            System.out.print("Trial "+i+"  \n");
-            int m,n;
-
-            if( isLinearSolver ) {
-                m = n = rand.nextInt(maxLength-minLength)+minLength;
-            } else {
-                // least squares can handle over determined systems
-                m = rand.nextInt(maxLength-minLength)+minLength;
-                n = minLength;
-                if( m > minLength )
-                    n += rand.nextInt(m-minLength);
-            }
-
-            int min = Math.min(m,n);
-            whichSV = rand.nextInt(min);
+    @Override
+    protected void performTrial() {
+        int m,n;
+
+        if( isLinearSolver ) {
+            m = n = rand.nextInt(maxLength-minLength)+minLength;
+        } else {
+            // least squares can handle over determined systems
+            m = rand.nextInt(maxLength-minLength)+minLength;
+            n = minLength;
+            if( m > minLength )
+                n += rand.nextInt(m-minLength);
+        }
 
-//            System.out.println("trail = "+i+"( "+m+" "+n+" )");
+        int min = Math.min(m,n);
+        whichSV = rand.nextInt(min);
 
-            evaluateNearlySingular(m,n);
+        evaluateNearlySingular(m,n);
 
-            saveResults();
-        }
+        saveResults();
     }
 
     private void evaluateNearlySingular(int m, int n) {
@@ -123,8 +124,20 @@ public class SolverSingular extends SolverCommon
         CommonOps.mult(A,x,b);
 
         reason = OutputError.NO_ERROR;
+
+        operation = createAlgorithm();
+        if( operation == null ) {
+            reason = OutputError.NOT_SUPPORTED;
+            return;
+        }
+        inputsB = new BenchmarkMatrix[2];
+        inputsB[1] = factory.convertToLib(b);
+
         int point = search.findCriticalPoint(-1,findMaxPow(0.9)+1);
         foundResult = Math.pow(0.9,point)*svMag;
+
+        operation = null;
+        inputsB = null;
     }
 
     @Override
@@ -133,18 +146,11 @@ public class SolverSingular extends SolverCommon
 
         DenseMatrix64F A_adj = createMatrix(U,V,sv);
 
-        BenchmarkMatrix[] inputsB = new BenchmarkMatrix[2];
         BenchmarkMatrix[] outputB = new BenchmarkMatrix[1];
 
-        inputsB[0] = factory.convertToLib(A_adj);
-        inputsB[1] = factory.convertToLib(b);
-
-        MatrixProcessorInterface operation = createAlgorithm();
-
-        if( operation == null ) {
-            reason = OutputError.NOT_SUPPORTED;
-            return false;
-        }
+        inputsB[0] = copyToLib(A_adj,inputsB[0]);
+        // the solver might have modified b
+        inputsB[1] = copyToLib(b,inputsB[1]);
 
         try {
             operation.process(inputsB,outputB,1);
@@ -23,6 +23,7 @@ import jmbench.impl.LibraryConfigure;
 import jmbench.interfaces.RuntimePerformanceFactory;
 import jmbench.tools.OutputError;
 import jmbench.tools.stability.StabilityBenchmark;
+import jmbench.tools.stability.reference.ReferenceSolutions;
 import org.ejml.data.DenseMatrix64F;
 import org.ejml.ops.MatrixFeatures;
 import org.ejml.ops.RandomMatrices;
@@ -102,6 +103,16 @@ public class SvdAccuracy extends AccuracyTestBase {
         DenseMatrix64F foundA = U.mult(S).mult(V.transpose()).getMatrix();
 
         foundResult = StabilityBenchmark.residualError(foundA,A);
+
+        double reference[] = getReference(A.numRows,A.numCols);
+        double found[] = ReferenceSolutions.sortedDiagonal(S.getMatrix(),true);
+        if( reference != null && reference.length == found.length )
+            referenceError = ReferenceSolutions.relativeError(found,reference);
+    }
+
+    @Override
+    protected double[] computeReference() {
+        return ReferenceSolutions.singularValues(A);
     }
 
     @Override
@@ -115,7 +126,7 @@ public class SvdAccuracy extends AccuracyTestBase {
     }
 
     @Override
-    public long getInputMemorySize() {
+    protected long getTrialMemorySize() {
         return 8*maxLength*maxLength*10;
     }
 }
@@ -104,7 +104,7 @@ public class SvdOverflow extends OverflowTestBase {
     }
 
     @Override
-    public long getInputMemorySize() {
+    protected long getTrialMemorySize() {
         return 8*maxLength*maxLength*10;
     }
 }
\ No newline at end of file
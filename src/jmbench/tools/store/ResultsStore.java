@@ -0,0 +1,916 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.store;
+
+import jmbench.tools.SystemInfo;
+import jmbench.tools.memory.MemoryResults;
+import jmbench.tools.runtime.RuntimeEvaluationMetrics;
+import jmbench.tools.runtime.RuntimeMeasurement;
+import jmbench.tools.runtime.RuntimeResults;
+import jmbench.tools.runtime.evaluation.RuntimeResultsCsvIO;
+import jmbench.tools.stability.StabilityBenchmarkConfig;
+import jmbench.tools.stability.StabilityTrialResults;
+import jmbench.tools.stability.UtilXmlSerialization;
+
+import java.io.*;
+import java.util.*;
+
+
+/**
+ * <p>
+ * Embedded file backed store for results from many benchmark runs.  Runtime, memory, and stability results are
+ * ingested from their results directories once and after that can be queried by library, version, operation,
+ * matrix size, and machine without parsing the original files again.
+ * </p>
+ *
+ * <p>
+ * The store is a directory containing two files.  "runs.xml" describes each run which has been ingested, including
+ * its {@link SystemInfo}.  "records.dat" is a binary file which new {@link StoreRecord}s are appended to.  When the
+ * store is opened all the records are read into memory and indexed by (kind,operation,metric), which is
+ * small enough for thousands of runs and lets queries finish in milliseconds.
+ * </p>
+ *
+ * <p>
+ * A run is committed once "runs.xml" has been saved with it.  Each run saves the length of "records.dat" after
+ * its records were appended, and anything past the most recent length is truncated when the store is opened.
+ * That way records left behind by an ingest which was killed, including a partially written record, are never
+ * attached to a later run.
+ * </p>
+ *
+ * <p>
+ * Each run also saves the size and the most recent modification time of the files in its directory.  If either
+ * has changed, e.g. a benchmark was resumed after the run was ingested, then the directory is ingested again
+ * and replaces the old run.  Records of a replaced run are left in "records.dat" but are skipped when loaded.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class ResultsStore {
+
+    public static final String RUNS_FILE = "runs.xml";
+    public static final String RECORDS_FILE = "records.dat";
+
+    // names of runtime metrics
+    public static final String OPS_PER_SEC = "opsPerSec";
+    public static final String ALLOCATED_BYTES = "allocatedBytes";
+    public static final String GC_TIME = "gcTimeMillis";
+    // names of memory metrics
+    public static final String MEMORY = "memory";
+    public static final String MINIMUM_HEAP = "minimumHeap";
+    public static final String NATIVE_MEMORY = "nativeMemory";
+    // names of stability metrics
+    public static final String BREAKING_POINT = "breakingPoint";
+    public static final String REFERENCE_ERROR = "referenceError";
+    public static final String FINISHED = "finished";
+    public static final String LARGE_ERROR = "largeError";
+    public static final String UNCOUNTABLE = "uncountable";
+    public static final String GRACEFUL = "graceful";
+    public static final String UNEXPECTED_EXCEPTION = "unexpectedException";
+
+    // "JMBS"
+    private static final int MAGIC = 0x4A4D4253;
+    private static final int VERSION = 1;
+
+    // directory the store is saved in
+    private File directory;
+
+    private List<StoreRun> runs = new ArrayList<StoreRun>();
+    private Map<Integer,StoreRun> runById = new HashMap<Integer,StoreRun>();
+    private Map<String,StoreRun> runByDirectory = new HashMap<String,StoreRun>();
+
+    // records indexed by kind, operation, and metric
+    private Map<String,List<StoreRecord>> index = new HashMap<String,List<StoreRecord>>();
+    // records indexed by run
+    private Map<Integer,List<StoreRecord>> indexRun = new HashMap<Integer,List<StoreRecord>>();
+
+    // used to share identical strings between records
+    private Map<String,String> strings = new HashMap<String,String>();
+
+    // largest run ID of any record in the records file, including records which were skipped
+    private int maxRecordRun = -1;
+
+    /**
+     * Opens the store in the specified directory.  If it doesn't exist then a new store is created.
+     */
+    public ResultsStore( File directory ) {
+        this.directory = directory;
+
+        if( !directory.exists() && !directory.mkdirs() )
+            throw new RuntimeException("Can't create store directory "+directory.getPath());
+
+        List<StoreRun> saved = UtilXmlSerialization.deserializeXml(new File(directory,RUNS_FILE).getPath());
+        if( saved != null ) {
+            for( StoreRun r : saved )
+                addRun(r);
+        }
+
+        discardUncommittedRecords();
+        loadRecords();
+    }
+
+    /**
+     * Adds the results in the specified run directory to the store.  If the run has already been ingested and
+     * none of its files have changed since then nothing is done.
+     *
+     * @param runDirectory Directory containing the results from a single benchmark run
+     * @return The run, or null if the directory doesn't contain any known results
+     */
+    public StoreRun ingest( File runDirectory ) throws IOException {
+        String path = runDirectory.getCanonicalPath();
+        long stamp[] = new long[2];
+        stampFiles(runDirectory,stamp);
+
+        StoreRun old = runByDirectory.get(path);
+        if( old != null && old.filesModified == stamp[0] && old.filesBytes == stamp[1] )
+            return old;
+
+        StoreRun.Kind kind = determineKind(runDirectory);
+        if( kind == null )
+            return null;
+
+        StoreRun run = new StoreRun();
+        run.id = nextRunId();
+        run.kind = kind;
+        run.directory = path;
+        run.info = UtilXmlSerialization.deserializeXml(new File(runDirectory,"info.xml").getPath());
+        run.filesModified = stamp[0];
+        run.filesBytes = stamp[1];
+
+        List<StoreRecord> found = new ArrayList<StoreRecord>();
+        switch( kind ) {
+            case RUNTIME: ingestRuntime(run, runDirectory, found); break;
+            case MEMORY: ingestMemory(run, runDirectory, found); break;
+            case STABILITY: ingestStability(run, runDirectory, found); break;
+        }
+
+        // records are saved first and only become part of the store once the run list has been saved
+        appendRecords(found);
+        run.recordsEnd = new File(directory,RECORDS_FILE).length();
+        if( old != null )
+            removeRun(old);
+        addRun(run);
+        saveRuns();
+        for( StoreRecord r : found )
+            addRecord(r);
+
+        return run;
+    }
+
+    /**
+     * Returns all the records which match the query, ordered from the oldest run to the most recent.
+     */
+    public List<StoreRecord> query( StoreQuery query ) {
+        List<StoreRecord> candidates;
+        if( query.operation != null ) {
+            candidates = index.get(key(query.kind,query.operation,query.metric));
+        } else {
+            // all operations are requested so every list for this kind and metric is searched
+            candidates = new ArrayList<StoreRecord>();
+            for( List<StoreRecord> l : index.values() ) {
+                StoreRecord r = l.get(0);
+                if( r.kind == query.kind && r.metric.equals(query.metric) )
+                    candidates.addAll(l);
+            }
+        }
+        List<StoreRecord> ret = new ArrayList<StoreRecord>();
+        if( candidates == null )
+            return ret;
+
+        for( StoreRecord r : candidates ) {
+            if( query.size >= 0 && r.size != query.size )
+                continue;
+            if( !r.isLibrary(query.library) )
+                continue;
+            if( query.version != null && !query.version.equals(r.version) )
+                continue;
+            if( query.machine != null && !query.machine.equals(runById.get(r.run).getMachine()) )
+                continue;
+            ret.add(r);
+        }
+
+        Collections.sort(ret,new Comparator<StoreRecord>() {
+            @Override
+            public int compare(StoreRecord a, StoreRecord b) {
+                long ta = runById.get(a.run).getTime();
+                long tb = runById.get(b.run).getTime();
+                if( ta != tb )
+                    return ta < tb ? -1 : 1;
+                if( a.run != b.run )
+                    return a.run < b.run ? -1 : 1;
+                if( a.size != b.size )
+                    return a.size - b.size;
+                return a.operation.compareTo(b.operation);
+            }
+        });
+
+        if( query.lastRuns > 0 ) {
+            // walk backwards until enough runs have been found
+            Set<Integer> selected = new HashSet<Integer>();
+            int start = ret.size();
+            while( start > 0 ) {
+                int run = ret.get(start-1).run;
+                if( !selected.contains(run) ) {
+                    if( selected.size() == query.lastRuns )
+                        break;
+                    selected.add(run);
+                }
+                start--;
+            }
+            ret = new ArrayList<StoreRecord>(ret.subList(start,ret.size()));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Median value of all the records which match the query, e.g. the median ops/sec across the last 20 runs.
+     * Each record contributes its own median.
+     *
+     * @return the median or NaN if nothing matched
+     */
+    public double median( StoreQuery query ) {
+        List<StoreRecord> found = query(query);
+        if( found.isEmpty() )
+            return Double.NaN;
+
+        double values[] = new double[ found.size() ];
+        for( int i = 0; i < values.length; i++ )
+            values[i] = found.get(i).value;
+        Arrays.sort(values);
+        return values[values.length/2];
+    }
+
+    /**
+     * Recreates the runtime results for a library in the specified run.
+     *
+     * @param run The run
+     * @param library Name or directory of the library
+     * @return Map from operation name to its results
+     */
+    public Map<String,RuntimeResults> getRuntimeResults( StoreRun run , String library ) {
+        Map<String,List<StoreRecord>> byOp = new TreeMap<String,List<StoreRecord>>();
+
+        List<StoreRecord> records = indexRun.get(run.id);
+        if( records != null ) {
+            for( StoreRecord r : records ) {
+                if( r.kind != StoreRun.Kind.RUNTIME || !r.metric.equals(OPS_PER_SEC) || !r.isLibrary(library))
+                    continue;
+                List<StoreRecord> l = byOp.get(r.operation);
+                if( l == null ) {
+                    l = new ArrayList<StoreRecord>();
+                    byOp.put(r.operation,l);
+                }
+                l.add(r);
+            }
+        }
+
+        Map<String,RuntimeResults> ret = new TreeMap<String,RuntimeResults>();
+        for( String op : byOp.keySet() ) {
+            List<StoreRecord> l = byOp.get(op);
+            int matDimen[] = new int[ l.size() ];
+            RuntimeEvaluationMetrics metrics[] = new RuntimeEvaluationMetrics[ l.size() ];
+
+            for( int i = 0; i < l.size(); i++ ) {
+                StoreRecord r = l.get(i);
+                matDimen[i] = r.size;
+                if( r.samples.length == 0 )
+                    continue;
+                List<RuntimeMeasurement> raw = new ArrayList<RuntimeMeasurement>();
+                for( double d : r.samples )
+                    raw.add(new RuntimeMeasurement(d,0,null));
+                metrics[i] = new RuntimeEvaluationMetrics(raw);
+            }
+
+            RuntimeResults results = new RuntimeResults(op,l.get(0).library,matDimen,metrics);
+            results.complete = true;
+            ret.put(op,results);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the run which was ingested from the specified directory or null if there is none
+     */
+    public StoreRun findRun( File runDirectory ) throws IOException {
+        return runByDirectory.get(runDirectory.getCanonicalPath());
+    }
+
+    public List<StoreRun> getRuns() {
+        return runs;
+    }
+
+    /**
+     * Looks at the root element of config.xml to see which benchmark created the run
+     */
+    public static StoreRun.Kind determineKind( File runDirectory ) throws IOException {
+        File config = new File(runDirectory,"config.xml");
+        if( !config.exists() || !new File(runDirectory,"info.xml").exists() )
+            return null;
+
+        BufferedReader reader = new BufferedReader(new FileReader(config));
+        try {
+            String line;
+            while( (line = reader.readLine()) != null ) {
+                line = line.trim();
+                if( !line.startsWith("<") || line.startsWith("<?") )
+                    continue;
+                if( line.startsWith("<jmbench.tools.runtime.") )
+                    return StoreRun.Kind.RUNTIME;
+                else if( line.startsWith("<jmbench.tools.memory.") )
+                    return StoreRun.Kind.MEMORY;
+                else if( line.startsWith("<jmbench.tools.stability.") )
+                    return StoreRun.Kind.STABILITY;
+                return null;
+            }
+            return null;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void ingestRuntime( StoreRun run , File runDirectory , List<StoreRecord> found ) {
+        for( File libDir : listDirectories(runDirectory) ) {
+            String version = readVersion(libDir);
+
+            Map<String,File> files = RuntimeResultsCsvIO.findResultsFiles(libDir);
+            for( String op : files.keySet() ) {
+                RuntimeResults r = RuntimeResultsCsvIO.load(files.get(op));
+
+                for( int i = 0; i < r.matDimen.length; i++ ) {
+                    RuntimeEvaluationMetrics m = r.metrics[i];
+                    if( m == null || m.rawResults == null )
+                        continue;
+
+                    List<RuntimeMeasurement> good = new ArrayList<RuntimeMeasurement>();
+                    for( RuntimeMeasurement s : m.rawResults ) {
+                        if( s.isValid() )
+                            good.add(s);
+                    }
+
+                    double ops[] = new double[ good.size() ];
+                    double alloc[] = new double[ good.size() ];
+                    double gc[] = new double[ good.size() ];
+                    boolean hasCounters = !good.isEmpty();
+                    for( int j = 0; j < good.size(); j++ ) {
+                        RuntimeMeasurement s = good.get(j);
+                        ops[j] = s.opsPerSec;
+                        alloc[j] = s.allocatedBytes;
+                        gc[j] = s.gcTimeMillis;
+                        hasCounters &= s.allocatedBytes >= 0 && s.gcTimeMillis >= 0;
+                    }
+
+                    StoreRecord base = createRecord(run,r.libraryName,libDir.getName(),version,op,r.matDimen[i]);
+                    found.add(copy(base,OPS_PER_SEC,ops));
+                    if( hasCounters ) {
+                        found.add(copy(base,ALLOCATED_BYTES,alloc));
+                        found.add(copy(base,GC_TIME,gc));
+                    }
+                }
+            }
+        }
+    }
+
+    private void ingestMemory( StoreRun run , File runDirectory , List<StoreRecord> found ) {
+        for( File sizeDir : listDirectories(runDirectory) ) {
+            File sizeFile = new File(sizeDir,"size.txt");
+            if( !sizeFile.exists() )
+                continue;
+            int size = Integer.parseInt(readFirstLine(sizeFile).trim());
+
+            for( File libDir : listDirectories(sizeDir) ) {
+                String version = readVersion(libDir);
+
+                for( File f : libDir.listFiles() ) {
+                    if( !f.getName().endsWith(".xml") )
+                        continue;
+                    Object o = loadXml(f);
+                    if( !(o instanceof MemoryResults) )
+                        continue;
+
+                    MemoryResults m = (MemoryResults)o;
+                    String v = m.getVersionLibrary() != null ? m.getVersionLibrary() : version;
+                    String op = m.getNameOperation() != null ? m.getNameOperation() : m.getDisplayName();
+
+                    // older results didn't save the matrix size
+                    int matrixSize = m.getMatrixSize() > 0 ? m.getMatrixSize() : size;
+
+                    StoreRecord base = createRecord(run,m.getNameLibrary(),libDir.getName(),v,op,matrixSize);
+                    found.add(copy(base,MEMORY,toArray(m.getResults())));
+                    found.add(copy(base,MINIMUM_HEAP,toArray(m.getMinimumHeap())));
+                    found.add(copy(base,NATIVE_MEMORY,toArray(m.getNativeMemory())));
+                }
+            }
+        }
+    }
+
+    private void ingestStability( StoreRun run , File runDirectory , List<StoreRecord> found ) {
+        StabilityBenchmarkConfig config = loadXml(new File(runDirectory,"config.xml"));
+        if( config == null )
+            config = StabilityBenchmarkConfig.createDefault();
+
+        for( File sizeDir : listDirectories(runDirectory) ) {
+            // stability results are grouped by a range of sizes.  The largest size in the range is used
+            int size = 0;
+            if( sizeDir.getName().equals("small") )
+                size = config.smallSizeMax;
+            else if( sizeDir.getName().equals("medium") )
+                size = config.mediumSizeMax;
+            else if( sizeDir.getName().equals("large") )
+                size = config.largeSizeMax;
+
+            for( File libDir : listDirectories(sizeDir) ) {
+                String version = readVersion(libDir);
+
+                for( File f : libDir.listFiles() ) {
+                    String name = f.getName();
+                    if( !name.endsWith(".xml") )
+                        continue;
+                    Object o = loadXml(f);
+                    if( !(o instanceof StabilityTrialResults) )
+                        continue;
+
+                    StabilityTrialResults s = (StabilityTrialResults)o;
+                    String library = s.getLibraryName() != null ? s.getLibraryName() : libDir.getName();
+                    String op = name.substring(0,name.length()-4);
+
+                    StoreRecord base = createRecord(run,library,libDir.getName(),version,op,size);
+                    found.add(copy(base,BREAKING_POINT,toArray(s.getBreakingPoints())));
+                    if( s.getReferenceErrors() != null )
+                        found.add(copy(base,REFERENCE_ERROR,toArray(s.getReferenceErrors())));
+                    found.add(copy(base,FINISHED,new double[]{s.getNumFinished()}));
+                    found.add(copy(base,LARGE_ERROR,new double[]{s.getNumLargeError()}));
+                    found.add(copy(base,UNCOUNTABLE,new double[]{s.getNumUncountable()}));
+                    found.add(copy(base,GRACEFUL,new double[]{s.getNumGraceful()}));
+                    found.add(copy(base,UNEXPECTED_EXCEPTION,new double[]{s.getNumUnexpectedException()}));
+                }
+            }
+        }
+    }
+
+    private StoreRecord createRecord( StoreRun run , String library , String libraryDir , String version ,
+                                      String operation , int size ) {
+        StoreRecord r = new StoreRecord();
+        r.run = run.id;
+        r.kind = run.kind;
+        r.library = intern(library == null ? libraryDir : library);
+        r.libraryDir = intern(libraryDir);
+        r.version = intern(version);
+        r.operation = intern(operation);
+        r.size = size;
+        return r;
+    }
+
+    private StoreRecord copy( StoreRecord base , String metric , double samples[] ) {
+        StoreRecord r = new StoreRecord();
+        r.run = base.run;
+        r.kind = base.kind;
+        r.library = base.library;
+        r.libraryDir = base.libraryDir;
+        r.version = base.version;
+        r.operation = base.operation;
+        r.size = base.size;
+        r.metric = intern(metric);
+        r.samples = samples;
+        r.computeValue();
+        return r;
+    }
+
+    /**
+     * Reads an XML file.  Results saved by older versions of the benchmark might not be compatible with the
+     * current classes, in which case null is returned.
+     */
+    private static <T> T loadXml( File f ) {
+        try {
+            return UtilXmlSerialization.deserializeXml(f.getPath());
+        } catch( RuntimeException e ) {
+            System.err.println("Skipping incompatible file "+f.getPath());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the version which {@link jmbench.tools.version.PrintLibraryVersion} saved in the library's directory.
+     * Older results prefixed the file name with the library's name.
+     */
+    private static String readVersion( File libDir ) {
+        File f = null;
+        for( File candidate : libDir.listFiles() ) {
+            if( candidate.getName().endsWith("version.txt") ) {
+                f = candidate;
+                break;
+            }
+        }
+        if( f == null )
+            return "";
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(f));
+            try {
+                String line;
+                while( (line = reader.readLine()) != null ) {
+                    if( line.startsWith("version:") )
+                        return line.substring(8).trim();
+                }
+            } finally {
+                reader.close();
+            }
+        } catch( IOException e ) {
+            throw new RuntimeException(e);
+        }
+        return "";
+    }
+
+    private static String readFirstLine( File f ) {
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(f));
+            try {
+                return reader.readLine();
+            } finally {
+                reader.close();
+            }
+        } catch( IOException e ) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Finds the most recent modification time, stamp[0], and the total size, stamp[1], of all the files in a
+     * run's directory.  Plots are skipped since creating them doesn't change the results.
+     */
+    private static void stampFiles( File directory , long stamp[] ) {
+        File files[] = directory.listFiles();
+        if( files == null )
+            return;
+        for( File f : files ) {
+            if( f.isDirectory() ) {
+                if( !f.getName().equals("plots") )
+                    stampFiles(f,stamp);
+            } else {
+                stamp[0] = Math.max(stamp[0],f.lastModified());
+                stamp[1] += f.length();
+            }
+        }
+    }
+
+    private static List<File> listDirectories( File directory ) {
+        List<File> ret = new ArrayList<File>();
+        File files[] = directory.listFiles();
+        if( files == null )
+            return ret;
+        Arrays.sort(files);
+        for( File f : files ) {
+            if( f.isDirectory() )
+                ret.add(f);
+        }
+        return ret;
+    }
+
+    private static double[] toArray( List<? extends Number> l ) {
+        if( l == null )
+            return new double[0];
+        double ret[] = new double[ l.size() ];
+        for( int i = 0; i < ret.length; i++ )
+            ret[i] = l.get(i).doubleValue();
+        return ret;
+    }
+
+    private String intern( String s ) {
+        if( s == null )
+            s = "";
+        String ret = strings.get(s);
+        if( ret == null ) {
+            strings.put(s,s);
+            ret = s;
+        }
+        return ret;
+    }
+
+    private static String key( StoreRun.Kind kind , String operation , String metric ) {
+        return kind+"|"+operation+"|"+metric;
+    }
+
+    /**
+     * Returns an ID larger than any run or record in the store, so that left over records can't be mistaken
+     * for records from the new run.
+     */
+    private int nextRunId() {
+        int max = maxRecordRun;
+        for( StoreRun r : runs )
+            max = Math.max(max,r.id);
+        return max+1;
+    }
+
+    /**
+     * Truncates the records file to the length saved by the most recent committed run
+     */
+    private void discardUncommittedRecords() {
+        File file = new File(directory,RECORDS_FILE);
+        if( !file.exists() )
+            return;
+
+        long committed = 0;
+        for( StoreRun r : runs )
+            committed = Math.max(committed,r.recordsEnd);
+
+        if( file.length() > committed ) {
+            System.err.println("Discarding "+(file.length()-committed)+" bytes of uncommitted records");
+            truncateRecords(committed);
+        }
+    }
+
+    private void truncateRecords( long length ) {
+        File file = new File(directory,RECORDS_FILE);
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file,"rw");
+            try {
+                raf.setLength(length);
+            } finally {
+                raf.close();
+            }
+        } catch( IOException e ) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void addRun( StoreRun run ) {
+        runs.add(run);
+        runById.put(run.id,run);
+        runByDirectory.put(run.directory,run);
+    }
+
+    /**
+     * Removes a run and its records from the index
+     */
+    private void removeRun( StoreRun run ) {
+        runs.remove(run);
+        runById.remove(run.id);
+        runByDirectory.remove(run.directory);
+
+        List<StoreRecord> records = indexRun.remove(run.id);
+        if( records == null )
+            return;
+        for( StoreRecord r : records ) {
+            String k = key(r.kind,r.operation,r.metric);
+            List<StoreRecord> l = index.get(k);
+            l.remove(r);
+            if( l.isEmpty() )
+                index.remove(k);
+        }
+    }
+
+    private void addRecord( StoreRecord r ) {
+        String k = key(r.kind,r.operation,r.metric);
+        List<StoreRecord> l = index.get(k);
+        if( l == null ) {
+            l = new ArrayList<StoreRecord>();
+            index.put(k,l);
+        }
+        l.add(r);
+
+        l = indexRun.get(r.run);
+        if( l == null ) {
+            l = new ArrayList<StoreRecord>();
+            indexRun.put(r.run,l);
+        }
+        l.add(r);
+    }
+
+    /**
+     * Saves the list of runs.  Written to a temporary file first so that the store is never left corrupted.
+     */
+    private void saveRuns() {
+        File file = new File(directory,RUNS_FILE);
+        File tmp = new File(directory,RUNS_FILE+".tmp");
+        UtilXmlSerialization.serializeXml(runs,tmp.getPath());
+        if( file.exists() && !file.delete() )
+            throw new RuntimeException("Can't delete "+file.getPath());
+        if( !tmp.renameTo(file) )
+            throw new RuntimeException("Can't rename "+tmp.getPath());
+    }
+
+    private void appendRecords( List<StoreRecord> records ) throws IOException {
+        File file = new File(directory,RECORDS_FILE);
+        boolean header = !file.exists() || file.length() == 0;
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file,true)));
+        try {
+            if( header ) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+            for( StoreRecord r : records ) {
+                out.writeInt(r.run);
+                out.writeByte(r.kind.ordinal());
+                out.writeUTF(r.library);
+                out.writeUTF(r.libraryDir);
+                out.writeUTF(r.version);
+                out.writeUTF(r.operation);
+                out.writeInt(r.size);
+                out.writeUTF(r.metric);
+                out.writeInt(r.samples.length);
+                for( double d : r.samples )
+                    out.writeDouble(d);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private void loadRecords() {
+        File file = new File(directory,RECORDS_FILE);
+        if( !file.exists() || file.length() == 0 )
+            return;
+
+        StoreRun.Kind kinds[] = StoreRun.Kind.values();
+        long length = file.length();
+        try {
+            CountingInputStream counter =
+                    new CountingInputStream(new BufferedInputStream(new FileInputStream(file),1 << 16));
+            DataInputStream in = new DataInputStream(counter);
+            try {
+                if( in.readInt() != MAGIC )
+                    throw new RuntimeException("Not a results store "+file.getPath());
+                int version = in.readInt();
+                if( version != VERSION )
+                    throw new RuntimeException("Unsupported store version "+version);
+
+                while( counter.count < length ) {
+                    int run = in.readInt();
+                    StoreRecord r = new StoreRecord();
+                    r.run = run;
+                    r.kind = kinds[in.readByte()];
+                    r.library = intern(in.readUTF());
+                    r.libraryDir = intern(in.readUTF());
+                    r.version = intern(in.readUTF());
+                    r.operation = intern(in.readUTF());
+                    r.size = in.readInt();
+                    r.metric = intern(in.readUTF());
+                    r.samples = new double[ in.readInt() ];
+                    for( int i = 0; i < r.samples.length; i++ )
+                        r.samples[i] = in.readDouble();
+                    r.computeValue();
+
+                    // skip records from runs which were replaced when their directory was ingested again
+                    maxRecordRun = Math.max(maxRecordRun,r.run);
+                    if( runById.containsKey(r.run) )
+                        addRecord(r);
+                }
+            } finally {
+                in.close();
+            }
+        } catch( IOException e ) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Keeps track of how many bytes have been read so that the end of the file is known
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream( InputStream in ) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if( b >= 0 )
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b,off,len);
+            if( n > 0 )
+                count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    private static void printHelp() {
+        System.out.println("Adds benchmark results to a results store and queries it.");
+        System.out.println();
+        System.out.println("  --Store=<directory>      |  Location of the store.  Default is results/store");
+        System.out.println("  --Ingest=<directory>     |  Adds a run's results directory, or every run inside the directory.");
+        System.out.println("  --Query=<lib>:<op>:<size> |  Prints matching records and their median.  Use * for all operations or sizes.");
+        System.out.println("  --Kind=<kind>            |  RUNTIME, MEMORY, or STABILITY.  Default is RUNTIME.");
+        System.out.println("  --Metric=<name>          |  What was measured.  Default is "+OPS_PER_SEC);
+        System.out.println("  --Version=<version>      |  Only match this version of the library.");
+        System.out.println("  --Last=<N>               |  Only use the N most recent runs.");
+        System.out.println();
+        System.out.println("Example: --Ingest=results --Query=EJML:mult:1000 --Last=20");
+    }
+
+    public static void main( String args[] ) throws IOException {
+        String storeDir = "results/store";
+        List<String> ingest = new ArrayList<String>();
+        StoreQuery query = null;
+        StoreQuery options = new StoreQuery();
+        boolean failed = args.length == 0;
+
+        for( int i = 0; i < args.length; i++ ) {
+            String splits[] = args[i].split("=");
+            String flag = splits[0];
+
+            if( flag.length() < 2 || flag.charAt(0) != '-' || flag.charAt(1) != '-' ) {
+                failed = true;
+                break;
+            }
+            flag = flag.substring(2);
+            if( splits.length != 2 ) {failed = true; break;}
+
+            if( flag.compareTo("Store") == 0 ) {
+                storeDir = splits[1];
+            } else if( flag.compareTo("Ingest") == 0 ) {
+                ingest.add(splits[1]);
+            } else if( flag.compareTo("Query") == 0 ) {
+                String q[] = splits[1].split(":");
+                if( q.length != 3 ) {failed = true; break;}
+                query = new StoreQuery(q[0],q[1].equals("*") ? null : q[1],q[2].equals("*") ? -1 : Integer.parseInt(q[2]));
+            } else if( flag.compareTo("Kind") == 0 ) {
+                options.kind = StoreRun.Kind.valueOf(splits[1].toUpperCase());
+            } else if( flag.compareTo("Metric") == 0 ) {
+                options.metric = splits[1];
+            } else if( flag.compareTo("Version") == 0 ) {
+                options.version = splits[1];
+            } else if( flag.compareTo("Last") == 0 ) {
+                options.lastRuns = Integer.parseInt(splits[1]);
+            } else {
+                System.out.println("Unknown flag: "+flag);
+                failed = true;
+                break;
+            }
+        }
+
+        if( failed ) {
+            printHelp();
+            return;
+        }
+
+        long before = System.currentTimeMillis();
+        ResultsStore store = new ResultsStore(new File(storeDir));
+        System.out.println("Opened store with "+store.getRuns().size()+" runs in "+
+                (System.currentTimeMillis()-before)+" ms");
+
+        for( String path : ingest ) {
+            File dir = new File(path);
+            List<File> candidates = new ArrayList<File>();
+            if( determineKind(dir) != null )
+                candidates.add(dir);
+            else
+                candidates.addAll(listDirectories(dir));
+
+            for( File f : candidates ) {
+                int numBefore = store.getRuns().size();
+                StoreRun run = store.ingest(f);
+                if( run != null && store.getRuns().size() > numBefore )
+                    System.out.println("Ingested "+run.kind+" run "+run.id+" from "+run.directory);
+            }
+        }
+
+        if( query != null ) {
+            query.kind = options.kind;
+            query.metric = options.metric;
+            query.version = options.version;
+            query.lastRuns = options.lastRuns;
+
+            before = System.nanoTime();
+            List<StoreRecord> found = store.query(query);
+            double median = store.median(query);
+            double elapsed = (System.nanoTime()-before)/1e6;
+
+            for( StoreRecord r : found ) {
+                StoreRun run = store.runById.get(r.run);
+                System.out.printf("%5d  %tF  %-12s %-10s %-20s %6d  %12.5g   %s\n",run.id,new Date(run.getTime()),
+                        r.library,r.version,r.operation,r.size,r.value,run.getMachine());
+            }
+            System.out.println();
+            System.out.println("Median "+query.metric+" = "+median+"  from "+found.size()+" records in "+elapsed+" ms");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.store;
+
+
+/**
+ * Specifies which records are to be returned by {@link ResultsStore#query(StoreQuery)}.  Fields which are null
+ * match everything.
+ *
+ * @author Peter Abeles
+ */
+public class StoreQuery {
+    public StoreRun.Kind kind = StoreRun.Kind.RUNTIME;
+    // name of the library or the directory its results are saved in. case insensitive.  required
+    public String library;
+    // name of the operation.  if null all operations are returned
+    public String operation;
+    // what was measured.  required
+    public String metric = ResultsStore.OPS_PER_SEC;
+    // size of the matrix.  if less than zero all sizes are returned
+    public int size = -1;
+    // only match this version of the library
+    public String version;
+    // only match runs on this machine.  See {@link StoreRun#getMachine()}
+    public String machine;
+    // only match the most recent runs which contain a match.  if zero then all runs
+    public int lastRuns;
+
+    public StoreQuery( String library , String operation , int size ) {
+        this.library = library;
+        this.operation = operation;
+        this.size = size;
+    }
+
+    public StoreQuery() {
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.store;
+
+import java.util.Arrays;
+
+
+/**
+ * A single result inside of a {@link ResultsStore}.  All the samples of one metric for one operation and matrix size
+ * from a library in a single benchmark run.
+ *
+ * @author Peter Abeles
+ */
+public class StoreRecord {
+    // ID of the run which generated this record. See {@link StoreRun}
+    public int run;
+    // which benchmark generated these results
+    public StoreRun.Kind kind;
+    // name of the library as it appears in the results
+    public String library;
+    // name of the directory the library's results were saved in
+    public String libraryDir;
+    // version of the library, or an empty string if unknown
+    public String version;
+    // name of the operation, e.g. "mult"
+    public String operation;
+    // number of rows and columns in the matrix
+    public int size;
+    // what was measured, e.g. "opsPerSec"
+    public String metric;
+    // measurements in the order they were generated
+    public double samples[];
+
+    // median of the samples
+    public transient double value;
+
+    public StoreRecord() {
+    }
+
+    /**
+     * Computes the median of the samples.  Called after the samples have been set.
+     */
+    public void computeValue() {
+        if( samples.length == 0 ) {
+            value = Double.NaN;
+            return;
+        }
+        double sorted[] = samples.clone();
+        Arrays.sort(sorted);
+        value = sorted[sorted.length/2];
+    }
+
+    public boolean isLibrary( String name ) {
+        return library.equalsIgnoreCase(name) || libraryDir.equalsIgnoreCase(name);
+    }
+
+    public String toString() {
+        return kind+" "+library+" "+version+" "+operation+" "+size+" "+metric+" = "+value;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.store;
+
+import jmbench.tools.SystemInfo;
+
+
+/**
+ * Description of a benchmark run which has been added to a {@link ResultsStore}.
+ *
+ * @author Peter Abeles
+ */
+public class StoreRun {
+
+    /**
+     * Which benchmark produced a run
+     */
+    public static enum Kind {
+        RUNTIME,
+        MEMORY,
+        STABILITY
+    }
+
+    // unique ID of the run inside the store
+    public int id;
+    public Kind kind;
+    // canonical path to the directory containing the run's results
+    public String directory;
+    // the system which the benchmark was run on
+    public SystemInfo info;
+    // length of the records file after this run's records were appended to it.  Anything after the end
+    // saved by the most recent run was never committed.
+    public long recordsEnd;
+    // most recent modification time and total size of the files in the run's directory when it was ingested
+    public long filesModified;
+    public long filesBytes;
+
+    public StoreRun() {
+    }
+
+    /**
+     * Identifies the machine and JVM the run was performed on.  Runs with the same key can be compared
+     * to each other.
+     */
+    public String getMachine() {
+        return machineKey(info);
+    }
+
+    public static String machineKey( SystemInfo info ) {
+        if( info == null )
+            return "unknown";
+        return info.getOsName()+" "+info.getOsVersion()+" "+info.getOsArch()+" cpu="+info.getNumCPU()+
+                " "+info.getJavaVmName()+" "+info.getJavaVersion();
+    }
+
+    /**
+     * When the run was started.  See {@link SystemInfo#getTime()}
+     */
+    public long getTime() {
+        return info == null ? 0 : info.getTime();
+    }
+}
@@ -20,10 +20,9 @@
 package jmbench.tools.version;
 
 import jmbench.impl.LibraryDescription;
+import jmbench.tools.SlaveSupervisor;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.List;
 
 /**
@@ -48,13 +47,16 @@ public class PrintLibraryVersion {
         Runtime rt = Runtime.getRuntime();
         Process pr = rt.exec(params);
 
-        BufferedReader input = new BufferedReader(new InputStreamReader(pr.getInputStream()));
-        BufferedReader error = new BufferedReader(new InputStreamReader(pr.getErrorStream()));
+        // loading all the library's jars can take a while on a slow machine
+        SlaveSupervisor supervisor = new SlaveSupervisor(pr);
+        supervisor.setTimeout(60000);
+        supervisor.setUserQuit(true);
 
-        monitorSlave(pr,input,error);
-
-        printError(error);
-        printInputBuffer(input);
+        if( !supervisor.waitFor() ) {
+            System.out.println("Version slave froze");
+            supervisor.destroy();
+            return;
+        }
 
         int exitVal = pr.waitFor();
         if( exitVal != 0 ) {
@@ -62,56 +64,6 @@ public class PrintLibraryVersion {
         }
     }
 
-    private boolean monitorSlave( Process pr, BufferedReader input, BufferedReader error)
-            throws IOException, InterruptedException {
-
-        int mustBeFrozenTime = 2000;
-
-        // flush the input buffer
-        System.in.skip(System.in.available());
-
-        boolean frozen = false;
-
-        long startTime = System.currentTimeMillis();
-        long lastAliveMessage = startTime;
-        for(;;) {
-            while( System.in.available() > 0 ) {
-                if( System.in.read() == 'q' ) {
-                    System.out.println("User requested for the application to quit by pressing 'q'");
-                    System.exit(0);
-                }
-            }
-
-            printError(error);
-
-            if( input.ready() ) {
-                printInputBuffer(input);
-            } else {
-                Thread.sleep(500);
-            }
-
-            try {
-                // exit value throws an exception is the process has yet to stop
-                pr.exitValue();
-                break;
-            } catch( IllegalThreadStateException e) {
-                // check to see if the process is frozen
-                if(System.currentTimeMillis() - startTime > mustBeFrozenTime ) {
-                    frozen = true;
-                    break;
-                }
-
-                // let everyone know its still alive
-                if( System.currentTimeMillis() - lastAliveMessage > 60000 ) {
-//                    System.out.println("\nMaster is still alive: "+new Date()+"  Press 'q' and enter to quit.");
-                    lastAliveMessage = System.currentTimeMillis();
-                }
-            }
-        }
-
-        return frozen;
-    }
-
     private String[] setupSlave(LibraryDescription desc) {
 
         // grab the current classpath and add some additional jars
@@ -129,25 +81,6 @@ public class PrintLibraryVersion {
         return params;
     }
 
-    private void printError(BufferedReader error) throws IOException {
-        while( error.ready() ) {
-            int val = error.read();
-            if( val < 0 ) break;
-
-            System.out.print(Character.toChars(val));
-        }
-    }
-
-    private void printInputBuffer(BufferedReader input) throws IOException {
-
-        while( input.ready() ) {
-            int val = input.read();
-            if( val < 0 ) break;
-
-            System.out.print(Character.toChars(val));
-        }
-    }
-
     public String getClassPath(List<String> jarNames) {
         String extraJars = System.getProperty("java.class.path");
 
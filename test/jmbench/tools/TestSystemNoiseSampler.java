@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author Peter Abeles
+ */
+public class TestSystemNoiseSampler {
+
+    @Test
+    public void frequencyRatio_idleCores() {
+        // one busy core in turbo and the rest idle at their minimum frequency
+        double current[] = new double[]{800000,3900000,800000,800000};
+        double base[] = new double[]{3000000,3000000,3000000,3000000};
+
+        assertEquals(1.3,SystemNoiseSampler.frequencyRatio(current,base),1e-8);
+    }
+
+    @Test
+    public void frequencyRatio_unknown() {
+        double current[] = new double[]{Double.NaN,2000000};
+        double base[] = new double[]{3000000,Double.NaN};
+
+        assertTrue(Double.isNaN(SystemNoiseSampler.frequencyRatio(current,base)));
+
+        current[0] = 1500000;
+        assertEquals(0.5,SystemNoiseSampler.frequencyRatio(current,base),1e-8);
+    }
+
+    @Test
+    public void summarize_notThrottled() {
+        SystemNoiseSampler alg = new SystemNoiseSampler();
+        alg.addSample(sample(1000,1.1,60));
+        alg.addSample(sample(2000,1.0,70));
+        alg.addSample(sample(3000,0.95,75));
+
+        SystemNoiseSampler.Summary s = alg.summarize(500,3500);
+        assertEquals(3,s.numSamples);
+        assertEquals(0.95,s.frequencyRatio,1e-8);
+        assertEquals(75,s.temperature,1e-8);
+        assertFalse(s.throttled);
+        assertFalse(s.isNoisy());
+    }
+
+    @Test
+    public void summarize_throttled() {
+        SystemNoiseSampler alg = new SystemNoiseSampler();
+        alg.addSample(sample(1000,1.0,60));
+        alg.addSample(sample(2000,0.6,60));
+        assertTrue(alg.summarize(500,2500).throttled);
+
+        alg = new SystemNoiseSampler();
+        alg.addSample(sample(1000,1.0,90));
+        assertTrue(alg.summarize(500,2500).throttled);
+    }
+
+    /**
+     * Only samples inside the time period are used.  If there are none the closest one before the end is used.
+     */
+    @Test
+    public void summarize_window() {
+        SystemNoiseSampler alg = new SystemNoiseSampler();
+        alg.addSample(sample(1000,0.5,60));
+        alg.addSample(sample(2000,1.0,60));
+        alg.addSample(sample(3000,0.5,60));
+
+        SystemNoiseSampler.Summary s = alg.summarize(1500,2500);
+        assertEquals(1,s.numSamples);
+        assertFalse(s.throttled);
+
+        s = alg.summarize(2100,2200);
+        assertEquals(1,s.numSamples);
+        assertEquals(1.0,s.frequencyRatio,1e-8);
+
+        assertNull(new SystemNoiseSampler().summarize(0,1000));
+    }
+
+    @Test
+    public void externalLoad() {
+        // 4 CPUs for one second.  The slave used 1.5 CPUs and the master 0.1
+        SystemNoiseSampler.CpuTime start = cpuTime(10000,50000,2000);
+        SystemNoiseSampler.CpuTime end = cpuTime(11000,50000+1600+800,2000+100);
+
+        assertEquals(0.2,SystemNoiseSampler.externalLoad(start,end,1500,4),1e-8);
+
+        // slave ran inside the master so its CPU time is already included
+        end.selfMillis += 1500;
+        assertEquals(0.2,SystemNoiseSampler.externalLoad(start,end,-1,4),1e-8);
+
+        // coarse clock ticks can make it negative
+        assertEquals(0,SystemNoiseSampler.externalLoad(start,end,3000,4),1e-8);
+
+        end.busyMillis = -1;
+        assertTrue(Double.isNaN(SystemNoiseSampler.externalLoad(start,end,1500,4)));
+    }
+
+    /**
+     * A multithreaded slave shouldn't be mistaken for external load
+     */
+    @Test
+    public void summarize_externalLoad() {
+        SystemNoiseSampler alg = new SystemNoiseSampler();
+        alg.numCpu = 4;
+        alg.addSample(sample(10500,1.0,60));
+
+        // slave used all 4 CPUs
+        SystemNoiseSampler.CpuTime start = cpuTime(10000,50000,2000);
+        SystemNoiseSampler.CpuTime end = cpuTime(11000,54000,2000);
+        SystemNoiseSampler.Summary s = alg.summarize(start,end,4000);
+        assertEquals(0,s.externalLoad,1e-8);
+        assertFalse(s.loaded);
+
+        // slave used one CPU and something else the other three
+        alg.addSample(sample(11500,1.0,60));
+        start = cpuTime(11000,54000,2000);
+        end = cpuTime(12000,58000,2000);
+        s = alg.summarize(start,end,1000);
+        assertEquals(0.75,s.externalLoad,1e-8);
+        assertTrue(s.loaded);
+    }
+
+    private static SystemNoiseSampler.CpuTime cpuTime( long time , long busyMillis , long selfMillis ) {
+        SystemNoiseSampler.CpuTime c = new SystemNoiseSampler.CpuTime();
+        c.time = time;
+        c.busyMillis = busyMillis;
+        c.selfMillis = selfMillis;
+        return c;
+    }
+
+    private static SystemNoiseSampler.Sample sample( long time , double frequencyRatio , double temperature ) {
+        SystemNoiseSampler.Sample s = new SystemNoiseSampler.Sample();
+        s.time = time;
+        s.frequencyRatio = frequencyRatio;
+        s.temperature = temperature;
+        s.loadAverage = 0;
+        s.steal = 0;
+        return s;
+    }
+}
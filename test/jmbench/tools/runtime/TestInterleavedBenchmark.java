@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestInterleavedBenchmark {
+
+    /**
+     * B is always exactly twice as fast, so the interval should collapse onto 2
+     */
+    @Test
+    public void pairedRatio_constant() {
+        double a[] = new double[]{100,50,200,80};
+        double b[] = new double[]{200,100,400,160};
+
+        InterleavedBenchmark.Paired p = InterleavedBenchmark.pairedRatio(a,b);
+        assertEquals(4,p.numRounds);
+        assertEquals(2,p.ratio,1e-8);
+        assertEquals(2,p.lower,1e-8);
+        assertEquals(2,p.upper,1e-8);
+        assertTrue(p.isSignificant());
+    }
+
+    /**
+     * Drift which affects both libraries equally should cancel out and failed blocks are skipped
+     */
+    @Test
+    public void pairedRatio_drift() {
+        double a[] = new double[]{100,90,80,Double.NaN,70,60};
+        double b[] = new double[]{101,89,81,75,69,61};
+
+        InterleavedBenchmark.Paired p = InterleavedBenchmark.pairedRatio(a,b);
+        assertEquals(5,p.numRounds);
+        assertEquals(1,p.ratio,0.01);
+        assertTrue(p.lower < 1 && p.upper > 1);
+        assertFalse(p.isSignificant());
+
+        // compute the interval by hand
+        double d[] = new double[]{Math.log(1.01),Math.log(89/90.0),Math.log(81/80.0),Math.log(69/70.0),Math.log(61/60.0)};
+        double mean = 0;
+        for( double v : d ) mean += v;
+        mean /= d.length;
+        double var = 0;
+        for( double v : d ) var += (v-mean)*(v-mean);
+        var /= d.length-1;
+        double margin = 2.776*Math.sqrt(var/d.length);
+        assertEquals(Math.exp(mean-margin),p.lower,1e-8);
+        assertEquals(Math.exp(mean+margin),p.upper,1e-8);
+    }
+
+    @Test
+    public void criticalT() {
+        assertEquals(12.706,InterleavedBenchmark.criticalT(1),1e-8);
+        // table and expansion should agree where they meet
+        assertEquals(2.042,InterleavedBenchmark.criticalT(30),1e-8);
+        assertEquals(2.021,InterleavedBenchmark.criticalT(40),1e-3);
+        assertEquals(1.984,InterleavedBenchmark.criticalT(100),1e-3);
+    }
+}
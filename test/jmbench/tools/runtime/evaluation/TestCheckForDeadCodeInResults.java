@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.runtime.evaluation;
+
+import jmbench.impl.runtime.*;
+import jmbench.interfaces.BenchmarkMatrix;
+import jmbench.interfaces.MatrixProcessorInterface;
+import jmbench.interfaces.RuntimePerformanceFactory;
+import jmbench.tools.runtime.generator.DeterminantGenerator;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * @author Peter Abeles
+ */
+public class TestCheckForDeadCodeInResults {
+
+    int sizes[] = new int[]{25,50,100,200};
+
+    @Test
+    public void flatCurve() {
+        assertTrue(CheckForDeadCodeInResults.isSuspiciouslyFlat(sizes,new double[]{1000,990,1010,1000}));
+        // only the small matrices are flat
+        assertFalse(CheckForDeadCodeInResults.isSuspiciouslyFlat(new int[]{2,4,30,60,120},
+                new double[]{1000,1000,1000,250,62}));
+    }
+
+    @Test
+    public void cubicCurve() {
+        double ops[] = new double[ sizes.length ];
+        for( int i = 0; i < sizes.length; i++ ) {
+            ops[i] = 1e9/Math.pow(sizes[i],3);
+        }
+        assertFalse(CheckForDeadCodeInResults.isSuspiciouslyFlat(sizes,ops));
+    }
+
+    @Test
+    public void notEnoughData() {
+        assertFalse(CheckForDeadCodeInResults.isSuspiciouslyFlat(new int[]{30,60},new double[]{1,1}));
+    }
+
+    /**
+     * The determinant is only returned as a number, which makes it the easiest operation for the JIT to
+     * remove.  Its cost should grow with the cube of the matrix size.
+     */
+    @Test
+    public void determinantNotRemoved() {
+        RuntimePerformanceFactory factories[] = new RuntimePerformanceFactory[]{
+                new EjmlAlgorithmFactory(),new JamaAlgorithmFactory(),new CommonsMathAlgorithmFactory(),
+                new OjAlgoAlgorithmFactory(),new ColtAlgorithmFactory(),new La4jAlgorithmFactory()};
+
+        for( RuntimePerformanceFactory factory : factories ) {
+            MatrixProcessorInterface alg = factory.det();
+
+            // the first pass is thrown away so that the JIT has compiled everything before measuring.
+            // the best of the remaining passes is used to reduce noise
+            double ops[] = new double[ sizes.length ];
+            for( int pass = 0; pass < 3; pass++ ) {
+                for( int i = 0; i < sizes.length; i++ ) {
+                    double found = measure(factory,alg,sizes[i]);
+                    if( pass > 0 )
+                        ops[i] = Math.max(ops[i],found);
+                }
+            }
+
+            assertFalse(factory.getClass().getSimpleName()+" "+Arrays.toString(ops),
+                    CheckForDeadCodeInResults.isSuspiciouslyFlat(sizes,ops));
+        }
+    }
+
+    private double measure( RuntimePerformanceFactory factory , MatrixProcessorInterface alg , int size ) {
+        BenchmarkMatrix inputs[] = new DeterminantGenerator().createInputs(factory,new Random(234),false,size);
+
+        long numTrials = 1;
+        while( true ) {
+            long elapsed = alg.process(inputs,null,numTrials);
+            if( elapsed > 20000000L )
+                return numTrials/(elapsed*1e-9);
+            numTrials *= 2;
+        }
+    }
+}
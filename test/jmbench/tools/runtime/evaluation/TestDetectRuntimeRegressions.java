@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.runtime.evaluation;
+
+import jmbench.tools.OutputError;
+import jmbench.tools.runtime.RuntimeEvaluationMetrics;
+import jmbench.tools.runtime.RuntimeMeasurement;
+import jmbench.tools.runtime.RuntimeResults;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestDetectRuntimeRegressions {
+
+    /**
+     * Compare against values which can be computed by hand
+     */
+    @Test
+    public void exactDistributionU() {
+        // 3 and 3 samples have 20 possible orderings, only one of which has U = 0
+        double cdf[] = DetectRuntimeRegressions.exactDistributionU(3,3);
+        assertEquals(10,cdf.length);
+        assertEquals(1.0/20.0,cdf[0],1e-12);
+        assertEquals(2.0/20.0,cdf[1],1e-12);
+        assertEquals(1.0,cdf[9],1e-12);
+
+        // completely separated samples
+        double a[] = new double[]{1,2,3};
+        double b[] = new double[]{4,5,6};
+        double u = DetectRuntimeRegressions.mannWhitneyU(a,b);
+        assertEquals(0,u,0);
+        assertEquals(0.1,DetectRuntimeRegressions.mannWhitneyP(a,b,u),1e-12);
+    }
+
+    /**
+     * The normal approximation should be close to the exact solution for moderately sized samples
+     */
+    @Test
+    public void normalApproximation() {
+        Random rand = new Random(234);
+        double a[] = new double[20];
+        double b[] = new double[20];
+        for( int i = 0; i < a.length; i++ ) {
+            a[i] = rand.nextGaussian();
+            b[i] = rand.nextGaussian()+0.8;
+        }
+        double u = DetectRuntimeRegressions.mannWhitneyU(a,b);
+        double exact = DetectRuntimeRegressions.mannWhitneyP(a,b,u);
+
+        double mean = 20*20/2.0;
+        double sigma = Math.sqrt(20*20*41/12.0);
+        double z = (Math.abs(u-mean)-0.5)/sigma;
+        double approx = DetectRuntimeRegressions.erfc(z/Math.sqrt(2));
+
+        assertTrue(exact < 0.05);
+        assertEquals(exact,approx,exact*0.3);
+    }
+
+    @Test
+    public void detectChange() {
+        DetectRuntimeRegressions alg = new DetectRuntimeRegressions();
+        Random rand = new Random(234);
+
+        double base[] = new double[10];
+        double slower[] = new double[10];
+        double same[] = new double[10];
+        for( int i = 0; i < base.length; i++ ) {
+            base[i] = 100+rand.nextGaussian();
+            slower[i] = 80+rand.nextGaussian();
+            same[i] = 100+rand.nextGaussian();
+        }
+
+        List<DetectRuntimeRegressions.Comparison> list = new ArrayList<DetectRuntimeRegressions.Comparison>();
+        DetectRuntimeRegressions.Comparison c0 = new DetectRuntimeRegressions.Comparison();
+        DetectRuntimeRegressions.Comparison c1 = new DetectRuntimeRegressions.Comparison();
+        alg.compare(base,slower,c0);
+        alg.compare(base,same,c1);
+        list.add(c0);
+        list.add(c1);
+        DetectRuntimeRegressions.adjustPValues(list);
+
+        assertEquals(-1,c0.cliffsDelta,1e-12);
+        assertEquals(0.8,c0.ratio,0.05);
+        assertTrue(c0.adjustedP < alg.alpha);
+        assertTrue(c1.adjustedP > alg.alpha);
+        assertTrue(c0.adjustedP >= c0.pValue);
+    }
+
+    /**
+     * An operation which is missing from the candidate or where all of its trials failed must be reported
+     */
+    @Test
+    public void missingAndFailed() throws IOException {
+        File baseline = createTempDir();
+        File candidate = createTempDir();
+        try {
+            save(baseline,"mult",null);
+            save(baseline,"add",null);
+            save(candidate,"mult",OutputError.UNEXPECTED_EXCEPTION);
+            save(candidate,"solve",null);
+
+            List<DetectRuntimeRegressions.Comparison> found =
+                    new DetectRuntimeRegressions().compare(baseline,candidate);
+
+            assertEquals(3,found.size());
+            assertEquals("add",found.get(0).operation);
+            assertTrue(found.get(0).status == DetectRuntimeRegressions.Status.MISSING);
+            assertEquals("mult",found.get(1).operation);
+            assertTrue(found.get(1).status == DetectRuntimeRegressions.Status.FAILED);
+            // nothing to compare against
+            assertEquals("solve",found.get(2).operation);
+            assertTrue(found.get(2).status == DetectRuntimeRegressions.Status.INSUFFICIENT);
+        } finally {
+            delete(baseline);
+            delete(candidate);
+        }
+    }
+
+    private static void save( File directory , String op , OutputError error ) {
+        List<RuntimeMeasurement> raw = new ArrayList<RuntimeMeasurement>();
+        for( int i = 0; i < 5; i++ )
+            raw.add(new RuntimeMeasurement(100+i,0,error));
+        RuntimeEvaluationMetrics metrics[] = new RuntimeEvaluationMetrics[]{new RuntimeEvaluationMetrics(raw)};
+        RuntimeResults r = new RuntimeResults(op,"EJML",new int[]{10},metrics);
+        r.complete = true;
+
+        File lib = new File(directory,"ejml");
+        lib.mkdir();
+        RuntimeResultsCsvIO.write(r,new File(lib,op+RuntimeResultsCsvIO.EXTENSION).getPath());
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("regression","");
+        assertTrue(dir.delete() && dir.mkdir());
+        return dir;
+    }
+
+    private static void delete( File f ) {
+        File children[] = f.listFiles();
+        if( children != null ) {
+            for( File c : children )
+                delete(c);
+        }
+        f.delete();
+    }
+}
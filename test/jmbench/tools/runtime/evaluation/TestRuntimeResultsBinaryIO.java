@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jmbench.tools.runtime.evaluation;
+
+import jmbench.tools.runtime.RuntimeMeasurement;
+import jmbench.tools.runtime.RuntimeResults;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestRuntimeResultsBinaryIO {
+
+    @Test
+    public void readWrite() throws IOException {
+        RuntimeResults expected = TestRuntimeResultsCsvIO.createResults();
+        RuntimeMeasurement m = expected.metrics[0].rawResults.get(1);
+        m.gcCount = 3;
+        m.gcTimeMillis = 45;
+        m.allocatedBytes = 123456789012L;
+        m.frequencyRatio = 0.75;
+        m.temperature = 91.5;
+        m.loadAverage = 2.25;
+        m.steal = 0.125;
+        m.externalLoad = 0.375;
+        m.noisy = true;
+
+        File file = File.createTempFile("results",RuntimeResultsBinaryIO.EXTENSION);
+        try {
+            RuntimeResultsBinaryIO.write(expected,file.getPath());
+            RuntimeResults found = RuntimeResultsCsvIO.load(file);
+
+            TestRuntimeResultsCsvIO.checkSame(expected,found);
+
+            RuntimeMeasurement f = found.metrics[0].rawResults.get(1);
+            assertEquals(200,f.memoryUsed);
+            assertEquals(3,f.gcCount);
+            assertEquals(45,f.gcTimeMillis);
+            assertEquals(123456789012L,f.allocatedBytes);
+            assertEquals(0.75,f.frequencyRatio,0);
+            assertEquals(91.5,f.temperature,0);
+            assertEquals(2.25,f.loadAverage,0);
+            assertEquals(0.125,f.steal,0);
+            assertEquals(0.375,f.externalLoad,0);
+            assertTrue(f.noisy);
+
+            RuntimeMeasurement g = found.metrics[0].rawResults.get(0);
+            assertEquals(-1,g.gcCount);
+            assertTrue(Double.isNaN(g.frequencyRatio));
+            assertTrue(Double.isNaN(g.externalLoad));
+            assertFalse(g.noisy);
+        } finally {
+            file.delete();
+        }
+    }
+}
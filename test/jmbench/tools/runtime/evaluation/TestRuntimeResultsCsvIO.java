@@ -16,11 +16,125 @@
  * You should have received a copy of the GNU General Public License
  * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
  */
-
 package jmbench.tools.runtime.evaluation;
 
+import jmbench.tools.OutputError;
+import jmbench.tools.runtime.RuntimeEvaluationMetrics;
+import jmbench.tools.runtime.RuntimeMeasurement;
+import jmbench.tools.runtime.RuntimeResults;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
 /**
  * @author Peter Abeles
  */
 public class TestRuntimeResultsCsvIO {
+
+    /**
+     * Creates results with a size that has no trials and another which hasn't been processed yet
+     */
+    public static RuntimeResults createResults() {
+        int dimen[] = new int[]{2,10,100,1000};
+        RuntimeEvaluationMetrics metrics[] = new RuntimeEvaluationMetrics[ dimen.length ];
+
+        List<RuntimeMeasurement> raw = new ArrayList<RuntimeMeasurement>();
+        raw.add(new RuntimeMeasurement(1.5e6,100,null));
+        raw.add(new RuntimeMeasurement(1.25e6,200,OutputError.LARGE_ERROR));
+        metrics[0] = new RuntimeEvaluationMetrics(raw);
+
+        raw = new ArrayList<RuntimeMeasurement>();
+        raw.add(new RuntimeMeasurement(0.123456789,300,OutputError.NO_ERROR));
+        metrics[2] = new RuntimeEvaluationMetrics(raw);
+
+        RuntimeResults ret = new RuntimeResults("mult","EJML",dimen,metrics);
+        ret.complete = true;
+        return ret;
+    }
+
+    @Test
+    public void readWrite() {
+        RuntimeResults expected = createResults();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes);
+        RuntimeResultsCsvIO.write(expected,out);
+        out.close();
+
+        RuntimeResults found = RuntimeResultsCsvIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        checkSame(expected,found);
+    }
+
+    /**
+     * Files written on windows have \r\n line endings and the last token isn't always followed by white space
+     */
+    @Test
+    public void readWindowsNoTrailingNewline() {
+        String text = "\"EJML\"\t\"mult\"\tfalse\t2\r\n2\t1\r\n12.5\t\"null\"\r\n3\t-1";
+
+        RuntimeResults found = RuntimeResultsCsvIO.read(new ByteArrayInputStream(text.getBytes()));
+
+        assertEquals("EJML",found.libraryName);
+        assertEquals("mult",found.opName);
+        assertFalse(found.complete);
+        assertEquals(3,found.matDimen[1]);
+        assertEquals(12.5,found.metrics[0].rawResults.get(0).opsPerSec,0);
+        assertNull(found.metrics[1]);
+    }
+
+    /**
+     * If an operation was saved in both formats only the binary file should be returned
+     */
+    @Test
+    public void findResultsFiles() throws IOException {
+        File dir = File.createTempFile("results","");
+        assertTrue(dir.delete() && dir.mkdir());
+        String names[] = new String[]{"mult.csv","mult.bin","add.csv","solve.bin","log0.txt"};
+        try {
+            for( String name : names )
+                assertTrue(new File(dir,name).createNewFile());
+
+            Map<String,File> found = RuntimeResultsCsvIO.findResultsFiles(dir);
+            assertEquals(3,found.size());
+            assertEquals("mult.bin",found.get("mult").getName());
+            assertEquals("add.csv",found.get("add").getName());
+            assertEquals("solve.bin",found.get("solve").getName());
+        } finally {
+            for( String name : names )
+                new File(dir,name).delete();
+            dir.delete();
+        }
+    }
+
+    public static void checkSame( RuntimeResults expected , RuntimeResults found ) {
+        assertEquals(expected.libraryName,found.libraryName);
+        assertEquals(expected.opName,found.opName);
+        assertEquals(expected.complete,found.complete);
+        assertArrayEquals(expected.matDimen,found.matDimen);
+
+        for( int i = 0; i < expected.matDimen.length; i++ ) {
+            if( expected.metrics[i] == null ) {
+                assertNull(found.metrics[i]);
+                continue;
+            }
+            List<RuntimeMeasurement> a = expected.metrics[i].rawResults;
+            List<RuntimeMeasurement> b = found.metrics[i].rawResults;
+            assertEquals(a.size(),b.size());
+            for( int j = 0; j < a.size(); j++ ) {
+                assertEquals(a.get(j).opsPerSec,b.get(j).opsPerSec,0);
+                assertEquals(a.get(j).error,b.get(j).error);
+            }
+            assertEquals(expected.metrics[i].median,found.metrics[i].median,0);
+        }
+    }
 }
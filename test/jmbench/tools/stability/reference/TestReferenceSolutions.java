@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2009-2011, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of JMatrixBenchmark.
+ *
+ * JMatrixBenchmark is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * JMatrixBenchmark is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JMatrixBenchmark.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jmbench.tools.stability.reference;
+
+import jmbench.tools.stability.tests.SolverCommon;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.ejml.ops.RandomMatrices;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * @author Peter Abeles
+ */
+public class TestReferenceSolutions {
+
+    Random rand = new Random(234);
+
+    @Test
+    public void doubleDoublePrecision() {
+        DoubleDouble a = new DoubleDouble(1,0);
+        a.add(1e-20,0).add(-1,0);
+        assertEquals(1e-20,a.doubleValue(),1e-35);
+
+        // 1/3*3 should be 1 to about 32 digits
+        DoubleDouble b = new DoubleDouble(1,0).divide(3,0).multiply(3,0).add(-1,0);
+        assertTrue(Math.abs(b.doubleValue()) < 1e-30);
+
+        DoubleDouble c = new DoubleDouble(2,0).sqrt();
+        DoubleDouble d = new DoubleDouble(c.hi,c.lo).multiply(c).add(-2,0);
+        assertTrue(Math.abs(d.doubleValue()) < 1e-30);
+    }
+
+    @Test
+    public void solve_square() {
+        DenseMatrix64F A = RandomMatrices.createRandom(15,15,rand);
+        DenseMatrix64F b = RandomMatrices.createRandom(15,1,rand);
+
+        double found[] = ReferenceSolutions.solve(A,b);
+
+        DenseMatrix64F x = new DenseMatrix64F(15,1);
+        CommonOps.solve(A,b,x);
+
+        assertTrue(ReferenceSolutions.relativeError(x,found) < 1e-12);
+    }
+
+    @Test
+    public void solve_leastSquares() {
+        DenseMatrix64F A = RandomMatrices.createRandom(20,8,rand);
+        DenseMatrix64F b = RandomMatrices.createRandom(20,1,rand);
+
+        double found[] = ReferenceSolutions.solve(A,b);
+
+        DenseMatrix64F x = new DenseMatrix64F(8,1);
+        CommonOps.solve(A,b,x);
+
+        assertTrue(ReferenceSolutions.relativeError(x,found) < 1e-12);
+    }
+
+    @Test
+    public void invert() {
+        DenseMatrix64F A = RandomMatrices.createSymmPosDef(12,rand);
+
+        DenseMatrix64F inv = new DenseMatrix64F(12,12);
+        CommonOps.invert(A,inv);
+
+        assertTrue(ReferenceSolutions.relativeError(inv,ReferenceSolutions.invert(A)) < 1e-12);
+    }
+
+    @Test
+    public void eigenvaluesSymm() {
+        int N = 10;
+        double expected[] = new double[N];
+        for( int i = 0; i < N; i++ )
+            expected[i] = rand.nextDouble()*10-5;
+
+        DenseMatrix64F Q = RandomMatrices.createOrthogonal(N,N,rand);
+        DenseMatrix64F A = SolverCommon.createMatrix(Q,Q,expected);
+        // remove the asymmetry caused by rounding
+        DenseMatrix64F At = A.copy();
+        CommonOps.transpose(At);
+        CommonOps.add(0.5,A,0.5,At,A);
+
+        Arrays.sort(expected);
+        double found[] = ReferenceSolutions.eigenvaluesSymm(A);
+
+        for( int i = 0; i < N; i++ )
+            assertEquals(expected[i],found[i],1e-12);
+    }
+
+    @Test
+    public void singularValues() {
+        double expected[] = new double[]{0,0.5,2,3,10};
+
+        DenseMatrix64F U = RandomMatrices.createOrthogonal(8,8,rand);
+        DenseMatrix64F V = RandomMatrices.createOrthogonal(5,5,rand);
+        DenseMatrix64F A = SolverCommon.createMatrix(U,V,expected);
+
+        double found[] = ReferenceSolutions.singularValues(A);
+
+        for( int i = 0; i < expected.length; i++ )
+            assertEquals(expected[i],found[i],1e-12);
+    }
+}